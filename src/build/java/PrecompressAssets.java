@@ -0,0 +1,80 @@
+import com.aayushatharva.brotli4j.Brotli4jLoader;
+import com.aayushatharva.brotli4j.encoder.Encoder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Build step: writes "name.gz" and "name.br" next to every .js and .css file under the given
+ * directories, at the highest compression levels, so they are never compressed per request.
+ * A variant that does not come out smaller is not written. Run by the exec-maven-plugin in
+ * process-resources on the copied resources: java -cp brotli4j PrecompressAssets.java dir...
+ */
+public class PrecompressAssets {
+
+    public static void main(String[] args) throws IOException {
+        boolean brotli = brotliAvailable();
+        long original = 0;
+        long gzipped = 0;
+        long brotlied = 0;
+        int files = 0;
+        for (String arg : args) {
+            Path directory = Paths.get(arg);
+            if (!Files.isDirectory(directory)) {
+                continue;
+            }
+            List<Path> assets;
+            try (Stream<Path> walk = Files.walk(directory)) {
+                assets = walk.filter(Files::isRegularFile)
+                    .filter(path -> path.toString().endsWith(".js") || path.toString().endsWith(".css"))
+                    .toList();
+            }
+            for (Path asset : assets) {
+                byte[] data = Files.readAllBytes(asset);
+                original += data.length;
+                gzipped += write(asset, ".gz", data, gzip(data));
+                brotlied += brotli ? write(asset, ".br", data, Encoder.compress(data, new Encoder.Parameters().setQuality(11))) : data.length;
+                files++;
+            }
+        }
+        System.out.println("Precompressed " + files + " assets: " + original / 1024 + " KB, "
+            + gzipped / 1024 + " KB gzip" + (brotli ? ", " + brotlied / 1024 + " KB brotli" : " (brotli unavailable)"));
+    }
+
+    private static long write(Path asset, String extension, byte[] data, byte[] compressed) throws IOException {
+        Path target = asset.resolveSibling(asset.getFileName() + extension);
+        if (compressed.length >= data.length) {
+            Files.deleteIfExists(target);
+            return data.length;
+        }
+        Files.write(target, compressed);
+        return compressed.length;
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length / 3 + 64);
+        try (OutputStream out = new GZIPOutputStream(bytes) {{ def.setLevel(Deflater.BEST_COMPRESSION); }}) {
+            out.write(data);
+        }
+        return bytes.toByteArray();
+    }
+
+    // No native library for this platform: gzip is still written
+    private static boolean brotliAvailable() {
+        try {
+            Brotli4jLoader.ensureAvailability();
+            return true;
+        } catch (Throwable e) {
+            System.out.println("Brotli unavailable, writing gzip only: " + e);
+            return false;
+        }
+    }
+}
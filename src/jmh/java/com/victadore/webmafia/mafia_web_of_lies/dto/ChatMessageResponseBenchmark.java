@@ -0,0 +1,60 @@
+package com.victadore.webmafia.mafia_web_of_lies.dto;
+
+import com.victadore.webmafia.mafia_web_of_lies.model.ChatMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Mapping a game's chat log to {@link ChatMessageResponse}s, as ChatService does for every fetch.
+ *
+ * Run with {@code ./mvnw -Pbenchmark test-compile exec:exec -Djmh.args="ChatMessageResponse -prof gc"}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ChatMessageResponseBenchmark {
+
+    @Param({"4", "15"})
+    int players;
+
+    @Param({"50", "500"})
+    int messages;
+
+    List<ChatMessage> chatLog;
+
+    @Setup
+    public void setUp() {
+        chatLog = new ArrayList<>(messages);
+        for (int i = 0; i < messages; i++) {
+            ChatMessage message = new ChatMessage("BENCH1", "p" + (i % players),
+                "Message number " + i + " about who the Mafia might be",
+                1 + i / 100, (i / 50) % 2, ChatMessage.ChatType.PUBLIC);
+            message.setId((long) i + 1);
+            chatLog.add(message);
+        }
+    }
+
+    @Benchmark
+    public List<ChatMessageResponse> mapChatLog() {
+        return chatLog.stream()
+            .map(message -> new ChatMessageResponse(message, "p0"))
+            .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,95 @@
+package com.victadore.webmafia.mafia_web_of_lies.service;
+
+import com.victadore.webmafia.mafia_web_of_lies.dto.EventPayloads;
+import com.victadore.webmafia.mafia_web_of_lies.dto.GameEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sending game events to the broker: the old path (map payloads, converted by the template on
+ * every send) against WebSocketService (typed payloads encoded once and shared by all recipients).
+ * The broker channel drops every message, so only building and encoding is measured.
+ *
+ * Compare gc.alloc.rate.norm with {@code ./mvnw -Pbenchmark test-compile exec:exec -Djmh.args="BroadcastEncoding -prof gc"}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class BroadcastEncodingBenchmark {
+
+    // Living Mafia members receiving a team event
+    @Param({"1", "3"})
+    int recipients;
+
+    SimpMessagingTemplate convertingTemplate;
+    WebSocketService webSocketService;
+    List<String> mafia;
+
+    @Setup
+    public void setUp() {
+        MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter();
+        converter.setObjectMapper(Jackson2ObjectMapperBuilder.json().build());
+        convertingTemplate = new SimpMessagingTemplate((message, timeout) -> true);
+        convertingTemplate.setMessageConverter(converter);
+
+        webSocketService = new WebSocketService(new SimpMessagingTemplate((message, timeout) -> true),
+                                                Jackson2ObjectMapperBuilder.json().build(), 30);
+
+        mafia = new ArrayList<>(recipients);
+        for (int i = 0; i < recipients; i++) {
+            mafia.add("mafia" + i);
+        }
+    }
+
+    @Benchmark
+    public void voteCastConverted() {
+        convertingTemplate.convertAndSend("/topic/game/BENCH1", new GameEvent("VOTE_CAST", "BENCH1", Map.of(
+            "voter", "p3",
+            "target", "p7",
+            "skip", false
+        )));
+    }
+
+    @Benchmark
+    public void voteCastEncodedOnce() {
+        webSocketService.broadcastGameUpdate("BENCH1",
+            new GameEvent("VOTE_CAST", "BENCH1", new EventPayloads.VoteCast("p3", "p7", false)));
+    }
+
+    @Benchmark
+    public void mafiaTargetConverted() {
+        for (String username : mafia) {
+            convertingTemplate.convertAndSendToUser(username, "/queue/private",
+                new GameEvent("MAFIA_TARGET_CHOSEN", "BENCH1", Map.of(
+                    "target", "p7",
+                    "message", "Your team has chosen p7 as the target."
+                )));
+        }
+    }
+
+    @Benchmark
+    public void mafiaTargetEncodedOnce() {
+        webSocketService.sendPrivateMessage(mafia, new GameEvent("MAFIA_TARGET_CHOSEN", "BENCH1",
+            new EventPayloads.MafiaTargetChosen("p7", "Your team has chosen p7 as the target.")));
+    }
+}
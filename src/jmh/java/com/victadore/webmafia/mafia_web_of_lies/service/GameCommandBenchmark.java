@@ -0,0 +1,138 @@
+package com.victadore.webmafia.mafia_web_of_lies.service;
+
+import com.victadore.webmafia.mafia_web_of_lies.dto.VoteRequest;
+import com.victadore.webmafia.mafia_web_of_lies.model.Game;
+import com.victadore.webmafia.mafia_web_of_lies.model.Player;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vote throughput through GameLogicService.handleVote: the game's mailbox in GameCommandExecutor,
+ * the command transaction and the resident game in LiveGameStore, across many concurrent games.
+ *
+ * A fixed pool of games is shared out among the benchmark threads, each thread voting
+ * round-robin in its own slice, so the load stays the same at every thread count and the
+ * scores of a sweep show how commands for different games scale with cores:
+ *
+ * <pre>
+ * for t in 1 2 4 8 16; do
+ *     ./mvnw -Pbenchmark test-compile exec:exec -Djmh.args="GameCommand -t $t"
+ * done
+ * </pre>
+ *
+ * In each 15-player game the first 14 players vote and the tallies are then cleared through
+ * the store, so the day never closes. History entries are discarded and broadcasts are encoded
+ * and dropped; there is no database.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GameCommandBenchmark {
+    private static final int PLAYERS = 15;
+
+    @State(Scope.Benchmark)
+    public static class Server {
+        @Param({"1000"})
+        int games;
+
+        final Map<String, Game> gamesByCode = new ConcurrentHashMap<>();
+        final List<String> gameCodes = new ArrayList<>();
+        GameCommandExecutor executor;
+        LiveGameStore liveGameStore;
+        GameLogicService gameLogicService;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            for (int i = 1; i <= games; i++) {
+                Game game = SyntheticGames.game(PLAYERS);
+                game.setId((long) i);
+                game.setGameCode(String.format("G%05d", i));
+                gamesByCode.put(game.getGameCode(), game);
+                gameCodes.add(game.getGameCode());
+            }
+
+            executor = new GameCommandExecutor();
+            liveGameStore = SyntheticGames.liveGameStore(gamesByCode);
+            gameLogicService = SyntheticGames.gameLogicService(liveGameStore, executor);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            executor.shutdown();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Voter {
+        final List<String> gameCodes = new ArrayList<>();
+        final VoteRequest[] votes = new VoteRequest[PLAYERS - 1];
+        int game;
+        int seat;
+
+        @Setup(Level.Trial)
+        public void setUp(Server server, ThreadParams thread) {
+            if (thread.getThreadCount() > server.games) {
+                throw new IllegalStateException("More threads (" + thread.getThreadCount()
+                                                + ") than games (" + server.games + ")");
+            }
+            // Every game belongs to exactly one thread, so no two threads clear the same tallies
+            for (int i = thread.getThreadIndex(); i < server.games; i += thread.getThreadCount()) {
+                gameCodes.add(server.gameCodes.get(i));
+            }
+
+            // Seat i votes for seat i + 1; the last seat never votes
+            List<Player> players = SyntheticGames.game(PLAYERS).getPlayers();
+            for (int i = 0; i < votes.length; i++) {
+                VoteRequest vote = new VoteRequest();
+                vote.setVoterUsername(players.get(i).getUsername());
+                vote.setTargetUsername(players.get(i + 1).getUsername());
+                vote.setSkip(false);
+                votes[i] = vote;
+            }
+        }
+    }
+
+    @Benchmark
+    public Game vote(Server server, Voter voter) {
+        String gameCode = voter.gameCodes.get(voter.game);
+        Game result = server.gameLogicService.handleVote(gameCode, voter.votes[voter.seat]);
+
+        if (++voter.game == voter.gameCodes.size()) {
+            voter.game = 0;
+            if (++voter.seat == voter.votes.length) {
+                voter.seat = 0;
+                for (String code : voter.gameCodes) {
+                    server.liveGameStore.update(code, GameCommandBenchmark::clearVotes);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static Game clearVotes(Game game) {
+        game.getVotes().clear();
+        game.getIndividualVotes().clear();
+        game.getPlayersWhoVoted().clear();
+        return null;
+    }
+}
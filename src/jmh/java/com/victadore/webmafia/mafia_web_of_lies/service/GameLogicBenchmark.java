@@ -0,0 +1,174 @@
+package com.victadore.webmafia.mafia_web_of_lies.service;
+
+import com.victadore.webmafia.mafia_web_of_lies.model.Game;
+import com.victadore.webmafia.mafia_web_of_lies.model.Player;
+import com.victadore.webmafia.mafia_web_of_lies.model.Role;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hot paths of GameLogicService against synthetic 4-15 player games.
+ *
+ * The "pending" benchmarks are the checks run after every vote or night action while the phase is
+ * still open; the "resolve" benchmarks close the phase and therefore rebuild their game before each
+ * invocation. Resolutions are arranged so the game never ends (that path needs the live game store).
+ *
+ * Run with {@code ./mvnw -Pbenchmark test-compile exec:exec}; pass e.g. {@code -Djmh.args="GameLogic -prof gc"}
+ * to select benchmarks or change JMH options.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GameLogicBenchmark {
+
+    @State(Scope.Thread)
+    public static class OpenPhase {
+        @Param({"4", "8", "15"})
+        int players;
+
+        GameLogicService gameLogicService;
+        Game mafiaVoting;
+        Game nightPending;
+        Game votesPending;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            gameLogicService = SyntheticGames.gameLogicService();
+
+            // Every Mafia member has picked the same victim
+            mafiaVoting = SyntheticGames.game(players);
+            Player victim = SyntheticGames.lastCitizen(mafiaVoting);
+            for (Player player : mafiaVoting.getPlayers()) {
+                if (player.getRole() == Role.MAFIA) {
+                    mafiaVoting.getMafiaVotes().put(player.getId(), victim.getId());
+                }
+            }
+
+            // Night with the Mafia still undecided; the Detective (if any) has acted
+            nightPending = SyntheticGames.game(players);
+            nightPending.setCurrentPhase(1);
+            Player detective = SyntheticGames.first(nightPending, Role.DETECTIVE);
+            if (detective != null) {
+                nightPending.getPlayersWhoActedAtNight().add(detective.getId());
+            }
+
+            // Day with everyone but one player having voted for the same target
+            votesPending = SyntheticGames.game(players);
+            Player target = SyntheticGames.lastCitizen(votesPending);
+            for (Player player : votesPending.getPlayers().subList(0, players - 1)) {
+                votesPending.getVotes().merge(target.getId(), 1, Integer::sum);
+                votesPending.getIndividualVotes().put(player.getId(), target.getId());
+                votesPending.getPlayersWhoVoted().add(player.getId());
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ClosingDay {
+        @Param({"4", "8", "15"})
+        int players;
+
+        GameLogicService gameLogicService;
+        Game game;
+
+        @Setup(Level.Trial)
+        public void setUpService() {
+            gameLogicService = SyntheticGames.gameLogicService();
+        }
+
+        /**
+         * Everyone votes out one player: a Mafia member when there is more than one, else a Citizen
+         */
+        @Setup(Level.Invocation)
+        public void setUpGame() {
+            game = SyntheticGames.game(players);
+            Player victim = SyntheticGames.mafiaCount(game) > 1
+                ? SyntheticGames.first(game, Role.MAFIA)
+                : SyntheticGames.lastCitizen(game);
+            for (Player player : game.getPlayers()) {
+                game.getVotes().merge(victim.getId(), 1, Integer::sum);
+                game.getIndividualVotes().put(player.getId(), victim.getId());
+                game.getPlayersWhoVoted().add(player.getId());
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ClosingNight {
+        @Param({"4", "8", "15"})
+        int players;
+
+        GameLogicService gameLogicService;
+        Game game;
+
+        @Setup(Level.Trial)
+        public void setUpService() {
+            gameLogicService = SyntheticGames.gameLogicService();
+        }
+
+        /**
+         * All night actions are in; the Doctor (if any) saves the Mafia's victim
+         */
+        @Setup(Level.Invocation)
+        public void setUpGame() {
+            game = SyntheticGames.game(players);
+            game.setCurrentPhase(1);
+            Player victim = SyntheticGames.lastCitizen(game);
+            for (Player player : game.getPlayers()) {
+                if (player.getRole() == Role.MAFIA) {
+                    game.getMafiaVotes().put(player.getId(), victim.getId());
+                    game.getPlayersWhoActedAtNight().add(player.getId());
+                } else if (player.getRole() == Role.DOCTOR) {
+                    game.setDoctorTarget(victim.getId());
+                    game.getPlayersWhoActedAtNight().add(player.getId());
+                } else if (player.getRole() == Role.DETECTIVE) {
+                    game.getPlayersWhoActedAtNight().add(player.getId());
+                }
+            }
+            game.setMafiaTarget(victim.getId());
+        }
+    }
+
+    @Benchmark
+    public Long determineMafiaTarget(OpenPhase state) {
+        return state.gameLogicService.determineMafiaTarget(state.mafiaVoting);
+    }
+
+    @Benchmark
+    public Game nightActionsPending(OpenPhase state) {
+        state.gameLogicService.checkAndTransitionToDay(state.nightPending);
+        return state.nightPending;
+    }
+
+    @Benchmark
+    public Game votesPending(OpenPhase state) {
+        state.gameLogicService.checkVotingPhaseCompletion(state.votesPending);
+        return state.votesPending;
+    }
+
+    @Benchmark
+    public Game resolveDayVote(ClosingDay state) {
+        state.gameLogicService.checkVotingPhaseCompletion(state.game);
+        return state.game;
+    }
+
+    @Benchmark
+    public Game resolveNight(ClosingNight state) {
+        state.gameLogicService.checkAndTransitionToDay(state.game);
+        return state.game;
+    }
+}
@@ -0,0 +1,151 @@
+package com.victadore.webmafia.mafia_web_of_lies.service;
+
+import com.victadore.webmafia.mafia_web_of_lies.model.ActionHistory;
+import com.victadore.webmafia.mafia_web_of_lies.model.Game;
+import com.victadore.webmafia.mafia_web_of_lies.model.GameState;
+import com.victadore.webmafia.mafia_web_of_lies.model.Player;
+import com.victadore.webmafia.mafia_web_of_lies.model.Role;
+import com.victadore.webmafia.mafia_web_of_lies.repository.GameRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Games and services for the benchmarks, built without Spring.
+ *
+ * Roles follow PlayerService.assignRoles: 1 Mafia up to 4 players, 2 up to 10, 3 above; a Doctor from
+ * 5 players and a Detective from 6. Players are seated Mafia first, then Doctor, Detective and Citizens.
+ */
+final class SyntheticGames {
+
+    private SyntheticGames() {
+    }
+
+    /**
+     * GameLogicService whose history journal discards entries and whose broadcasts are serialized
+     * to JSON and dropped, so the measured cost is game logic plus message encoding
+     */
+    static GameLogicService gameLogicService() {
+        return gameLogicService(null, null);
+    }
+
+    /**
+     * The same, running its commands through the given store and mailboxes without a database
+     */
+    static GameLogicService gameLogicService(LiveGameStore liveGameStore, GameCommandExecutor gameCommandExecutor) {
+        GameMetrics gameMetrics = new GameMetrics(new SimpleMeterRegistry());
+        ActionHistoryJournal journal = new ActionHistoryJournal(null, null, null, null, gameMetrics, 1, 1) {
+            @Override
+            public void append(Long gameId, ActionHistory action) {
+            }
+        };
+        SimpMessagingTemplate messagingTemplate = new SimpMessagingTemplate((message, timeout) -> true);
+
+        return new GameLogicService(null, liveGameStore, gameCommandExecutor, noTransactions(),
+                                    new WebSocketService(messagingTemplate, Jackson2ObjectMapperBuilder.json().build(), 30),
+                                    new ActionHistoryService(null, null, journal, gameMetrics, null),
+                                    null, gameMetrics, new ChatMessageJournal(null, null, null, gameMetrics, 1, 1), null);
+    }
+
+    /**
+     * LiveGameStore over an in-memory "repository" of the given games; saves are dropped
+     */
+    static LiveGameStore liveGameStore(Map<String, Game> games) {
+        GameRepository repository = (GameRepository) Proxy.newProxyInstance(
+            GameRepository.class.getClassLoader(), new Class<?>[] {GameRepository.class},
+            (proxy, method, args) -> switch (method.getName()) {
+                case "findByGameCode" -> games.get((String) args[0]);
+                case "save" -> args[0];
+                default -> throw new UnsupportedOperationException(method.getName());
+            });
+        return new LiveGameStore(repository, noTransactions(), 30);
+    }
+
+    static PlatformTransactionManager noTransactions() {
+        return new PlatformTransactionManager() {
+            @Override
+            public TransactionStatus getTransaction(TransactionDefinition definition) {
+                return new SimpleTransactionStatus();
+            }
+
+            @Override
+            public void commit(TransactionStatus status) {
+            }
+
+            @Override
+            public void rollback(TransactionStatus status) {
+            }
+        };
+    }
+
+    static Game game(int playerCount) {
+        Game game = new Game();
+        game.setId(1L);
+        game.setGameCode("BENCH1");
+        game.setActive(true);
+        game.setGameState(GameState.IN_PROGRESS);
+        game.setCurrentDay(2);
+        game.setMinPlayers(4);
+        game.setMaxPlayers(15);
+        game.setCreatedBy("p0");
+        game.setVotes(new HashMap<>());
+        game.setPlayersWhoVoted(new HashSet<>());
+        game.setPlayersWhoActedAtNight(new HashSet<>());
+        game.setIndividualVotes(new HashMap<>());
+        game.setMafiaVotes(new HashMap<>());
+
+        int mafiaCount = playerCount <= 4 ? 1 : playerCount <= 10 ? 2 : 3;
+        List<Role> roles = new ArrayList<>();
+        for (int i = 0; i < mafiaCount; i++) {
+            roles.add(Role.MAFIA);
+        }
+        if (playerCount >= 5) {
+            roles.add(Role.DOCTOR);
+        }
+        if (playerCount >= 6) {
+            roles.add(Role.DETECTIVE);
+        }
+        while (roles.size() < playerCount) {
+            roles.add(Role.CITIZEN);
+        }
+
+        List<Player> players = new ArrayList<>();
+        for (int i = 0; i < playerCount; i++) {
+            Player player = new Player();
+            player.setId((long) i + 1);
+            player.setUsername("p" + i);
+            player.setRole(roles.get(i));
+            player.setGame(game);
+            players.add(player);
+        }
+        game.setPlayers(players);
+        return game;
+    }
+
+    static Player first(Game game, Role role) {
+        return game.getPlayers().stream()
+            .filter(p -> p.getRole() == role)
+            .findFirst()
+            .orElse(null);
+    }
+
+    static Player lastCitizen(Game game) {
+        List<Player> players = game.getPlayers();
+        return players.get(players.size() - 1);
+    }
+
+    static long mafiaCount(Game game) {
+        return game.getPlayers().stream().filter(p -> p.getRole() == Role.MAFIA).count();
+    }
+}
@@ -0,0 +1,103 @@
+package com.victadore.webmafia.mafia_web_of_lies.config;
+
+import com.victadore.webmafia.mafia_web_of_lies.service.ActionHistoryJournal;
+import com.victadore.webmafia.mafia_web_of_lies.service.ActionRateLimiter;
+import com.victadore.webmafia.mafia_web_of_lies.service.ChatMessageJournal;
+import com.victadore.webmafia.mafia_web_of_lies.service.ChatRingBuffers;
+import com.victadore.webmafia.mafia_web_of_lies.service.GameCommandExecutor;
+import com.victadore.webmafia.mafia_web_of_lies.service.LiveGameStore;
+import com.victadore.webmafia.mafia_web_of_lies.service.PhaseTimerService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.messaging.SubProtocolWebSocketHandler;
+
+/**
+ * Gauges for live game state and the STOMP broker, exposed with the rest of the
+ * metrics at /actuator/prometheus
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder gameStateMetrics(LiveGameStore liveGameStore,
+                                        GameCommandExecutor gameCommandExecutor,
+                                        PhaseTimerService phaseTimerService,
+                                        ActionHistoryJournal actionHistoryJournal,
+                                        ChatRingBuffers chatRingBuffers,
+                                        ChatMessageJournal chatMessageJournal) {
+        return registry -> {
+            Gauge.builder("mafia.games.active", liveGameStore, LiveGameStore::size)
+                .description("In-progress games held in memory")
+                .register(registry);
+            Gauge.builder("mafia.game.mailboxes", gameCommandExecutor, GameCommandExecutor::activeMailboxes)
+                .description("Games with queued or running commands")
+                .register(registry);
+            Gauge.builder("mafia.phase.timers", phaseTimerService, PhaseTimerService::pendingTimers)
+                .description("Phase deadlines waiting to expire")
+                .register(registry);
+            Gauge.builder("mafia.chat.buffer.channels", chatRingBuffers, ChatRingBuffers::channelCount)
+                .description("Chat channels held in memory")
+                .register(registry);
+
+            Gauge.builder("mafia.action_history.queue", actionHistoryJournal, ActionHistoryJournal::queueDepth)
+                .description("Action history entries waiting to be written")
+                .register(registry);
+            FunctionCounter.builder("mafia.action_history.written", actionHistoryJournal,
+                                    ActionHistoryJournal::flushedEntries)
+                .register(registry);
+            FunctionCounter.builder("mafia.action_history.dropped", actionHistoryJournal,
+                                    ActionHistoryJournal::failedEntries)
+                .register(registry);
+
+            Gauge.builder("mafia.chat.journal.queue", chatMessageJournal, ChatMessageJournal::queueDepth)
+                .description("Chat messages waiting to be written")
+                .register(registry);
+            FunctionCounter.builder("mafia.chat.journal.written", chatMessageJournal,
+                                    ChatMessageJournal::flushedMessages)
+                .register(registry);
+            FunctionCounter.builder("mafia.chat.journal.dropped", chatMessageJournal,
+                                    ChatMessageJournal::failedMessages)
+                .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder rateLimitMetrics(ActionRateLimiter actionRateLimiter) {
+        return registry -> {
+            Gauge.builder("mafia.rate_limit.buckets", actionRateLimiter, ActionRateLimiter::bucketCount)
+                .description("Players with rate limit tokens in use")
+                .register(registry);
+            for (ActionRateLimiter.Action action : ActionRateLimiter.Action.values()) {
+                FunctionCounter.builder("mafia.rate_limit.rejected", actionRateLimiter,
+                                        limiter -> limiter.rejectedCount(action))
+                    .tag("action", action.property())
+                    .register(registry);
+            }
+        };
+    }
+
+    /**
+     * Broker channel queue depths are already published by Spring Boot as executor.queued
+     * (name=clientInboundChannelExecutor / clientOutboundChannelExecutor)
+     */
+    @Bean
+    public MeterBinder stompMetrics(@Qualifier("subProtocolWebSocketHandler") WebSocketHandler webSocketHandler) {
+        return registry -> {
+            if (webSocketHandler instanceof SubProtocolWebSocketHandler handler) {
+                // WebSocket plus SockJS streaming/polling sessions currently open
+                Gauge.builder("mafia.stomp.sessions", handler, h -> {
+                        SubProtocolWebSocketHandler.Stats stats = h.getStats();
+                        return stats.getWebSocketSessions() + stats.getHttpStreamingSessions()
+                            + stats.getHttpPollingSessions();
+                    })
+                    .description("Connected STOMP sessions")
+                    .register(registry);
+            }
+        };
+    }
+}
@@ -1,17 +1,56 @@
 package com.victadore.webmafia.mafia_web_of_lies.config;
 
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.orm.jpa.support.OpenEntityManagerInViewInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+import org.springframework.web.servlet.resource.ResourceUrlEncodingFilter;
+import org.springframework.web.servlet.resource.VersionResourceResolver;
+
+import java.util.List;
 
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
-    
+    private final EntityManagerFactory entityManagerFactory;
+
+    public WebConfig(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
-        // Configure static resource handling for sounds directory
-        registry.addResourceHandler("/sounds/**")
-                .addResourceLocations("classpath:/static/sounds/")
-                .setCachePeriod(3600); // Cache for 1 hour
+        // Templates link scripts and stylesheets by content-hashed URLs (rewritten by the filter below),
+        // cached for good; plain URLs revalidate. The .br/.gz siblings come from the build.
+        for (String directory : List.of("js", "css")) {
+            registry.addResourceHandler("/" + directory + "/**")
+                    .addResourceLocations("classpath:/static/" + directory + "/")
+                    .setCacheControl(CacheControl.noCache().cachePublic())
+                    .resourceChain(true)
+                    .addResolver(new EncodedResourceResolver())
+                    .addResolver(new ImmutableVersionResolver())
+                    .addResolver(new VersionResourceResolver().addContentVersionStrategy("/**"));
+        }
+    }
+
+    @Bean
+    public ResourceUrlEncodingFilter resourceUrlEncodingFilter() {
+        return new ResourceUrlEncodingFilter();
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // Open-in-view keeps a request's connection until the response is written. Game-logic requests
+        // wait on the game's command mailbox, which needs a connection of its own, so holding one there
+        // lets enough concurrent requests drain the pool and deadlock. They return live in-memory games
+        // and do not need lazy loading.
+        OpenEntityManagerInViewInterceptor interceptor = new OpenEntityManagerInViewInterceptor();
+        interceptor.setEntityManagerFactory(entityManagerFactory);
+        registry.addWebRequestInterceptor(interceptor)
+                .excludePathPatterns("/api/game-logic/**");
     }
-} 
\ No newline at end of file
+}
@@ -4,16 +4,29 @@ import com.victadore.webmafia.mafia_web_of_lies.model.ActionHistory;
 import com.victadore.webmafia.mafia_web_of_lies.model.Game;
 import com.victadore.webmafia.mafia_web_of_lies.model.GameState;
 import com.victadore.webmafia.mafia_web_of_lies.repository.GameRepository;
+import com.victadore.webmafia.mafia_web_of_lies.service.ActionHistoryExporter;
 import com.victadore.webmafia.mafia_web_of_lies.service.ActionHistoryService;
 import com.victadore.webmafia.mafia_web_of_lies.service.ValidationService;
 import com.victadore.webmafia.mafia_web_of_lies.exception.GameException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.stream.Collectors;
 
 @RestController
@@ -23,13 +36,16 @@ public class ActionHistoryController {
     private final ActionHistoryService actionHistoryService;
     private final ValidationService validationService;
     private final GameRepository gameRepository;
+    private final ActionHistoryExporter actionHistoryExporter;
     
     public ActionHistoryController(ActionHistoryService actionHistoryService, 
                                   ValidationService validationService,
-                                  GameRepository gameRepository) {
+                                  GameRepository gameRepository,
+                                  ActionHistoryExporter actionHistoryExporter) {
         this.actionHistoryService = actionHistoryService;
         this.validationService = validationService;
         this.gameRepository = gameRepository;
+        this.actionHistoryExporter = actionHistoryExporter;
     }
     
     /**
@@ -286,9 +302,9 @@ public class ActionHistoryController {
     }
     
     /**
-     * Export game history (for future CSV/JSON export functionality)
+     * Export game history as a single document (ndjson and csv are streamed, see below)
      */
-    @GetMapping("/game/{gameCode}/export")
+    @GetMapping(value = "/game/{gameCode}/export", params = {"format!=ndjson", "format!=csv"})
     public ResponseEntity<Map<String, Object>> exportGameHistory(
             @PathVariable @Pattern(regexp = "^[A-Z0-9]{6}$", message = "Invalid game code format") String gameCode,
             @RequestParam(defaultValue = "json") String format) {
@@ -311,4 +327,61 @@ public class ActionHistoryController {
         
         return ResponseEntity.ok(exportData);
     }
-} 
\ No newline at end of file
+    
+    /**
+     * Stream game history as ndjson or csv, one action per line (other formats go to the document above)
+     */
+    @GetMapping(value = "/game/{gameCode}/export", params = "format")
+    public ResponseEntity<StreamingResponseBody> streamGameHistory(
+            @PathVariable @Pattern(regexp = "^[A-Z0-9]{6}$", message = "Invalid game code format") String gameCode,
+            @RequestParam String format,
+            WebRequest request) {
+        validationService.validateGameCode(gameCode);
+        
+        ActionHistoryExporter.Format exportFormat = ActionHistoryExporter.Format.fromKey(format);
+        return streamed(request, exportFormat, "game-" + gameCode, actionHistoryExporter.exportGame(gameCode, exportFormat));
+    }
+    
+    /**
+     * Stream the history of finished games as ndjson or csv, optionally limited to a game id range
+     * and/or the dates they ended on (both inclusive)
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportFinishedGames(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) Long fromId,
+            @RequestParam(required = false) Long toId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            WebRequest request) {
+        if (fromId != null && toId != null && fromId > toId) {
+            throw new GameException("fromId must not be greater than toId");
+        }
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new GameException("from must not be after to");
+        }
+        
+        ActionHistoryExporter.Format exportFormat = ActionHistoryExporter.Format.fromKey(format);
+        ActionHistoryExporter.Range range = new ActionHistoryExporter.Range(fromId, toId,
+            from != null ? from.atStartOfDay() : null,
+            to != null ? to.plusDays(1).atStartOfDay() : null);
+        return streamed(request, exportFormat, "action-history",
+            actionHistoryExporter.exportFinishedGames(range, exportFormat));
+    }
+    
+    private static ResponseEntity<StreamingResponseBody> streamed(WebRequest request, ActionHistoryExporter.Format format,
+                                                                  String name, ActionHistoryExporter.Export export) {
+        // However the request ends, give the export permit back, even if the body never got to run
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(export, new CallableProcessingInterceptor() {
+            @Override
+            public <T> void afterCompletion(NativeWebRequest completed, Callable<T> task) {
+                export.release();
+            }
+        });
+        return ResponseEntity.ok()
+            .contentType(new MediaType(MediaType.parseMediaType(format.mediaType()), StandardCharsets.UTF_8))
+            .header(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename(name + "." + format.key()).build().toString())
+            .body(export);
+    }
+}
@@ -3,6 +3,7 @@ package com.victadore.webmafia.mafia_web_of_lies.controller;
 import com.victadore.webmafia.mafia_web_of_lies.dto.ChatMessageRequest;
 import com.victadore.webmafia.mafia_web_of_lies.dto.ChatMessageResponse;
 import com.victadore.webmafia.mafia_web_of_lies.model.ChatMessage;
+import com.victadore.webmafia.mafia_web_of_lies.service.ActionRateLimiter;
 import com.victadore.webmafia.mafia_web_of_lies.service.ChatService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -23,14 +24,20 @@ public class ChatController {
     @Autowired
     private ChatService chatService;
     
+    @Autowired
+    private ActionRateLimiter actionRateLimiter;
+    
     /**
      * WebSocket endpoint for sending chat messages
      */
     @MessageMapping("/game/{gameCode}/chat")
     public void sendMessage(@DestinationVariable String gameCode, 
                            @Payload Map<String, Object> payload) {
+        // Outside the try so a rejection reaches the client as an error frame
+        String username = (String) payload.get("username");
+        actionRateLimiter.acquire(ActionRateLimiter.Action.CHAT, gameCode, username);
+        
         try {
-            String username = (String) payload.get("username");
             String message = (String) payload.get("message");
             String chatType = (String) payload.get("chatType");
             String targetRole = (String) payload.get("targetRole");
@@ -87,6 +94,8 @@ public class ChatController {
             @PathVariable String gameCode,
             @RequestParam String username,
             @RequestBody ChatMessageRequest request) {
+        // Outside the try so a rejection gets the 429 with Retry-After from GlobalExceptionHandler
+        actionRateLimiter.acquire(ActionRateLimiter.Action.CHAT, gameCode, username);
         try {
             ChatMessageResponse response = chatService.sendMessage(gameCode, username, request);
             return ResponseEntity.ok(response);
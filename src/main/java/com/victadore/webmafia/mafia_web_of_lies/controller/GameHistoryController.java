@@ -1,8 +1,13 @@
 package com.victadore.webmafia.mafia_web_of_lies.controller;
 
 import com.victadore.webmafia.mafia_web_of_lies.service.GameHistoryService;
+import com.victadore.webmafia.mafia_web_of_lies.service.ReplayDocumentStore;
 import com.victadore.webmafia.mafia_web_of_lies.service.ValidationService;
 import com.victadore.webmafia.mafia_web_of_lies.exception.ValidationException;
+import com.victadore.webmafia.mafia_web_of_lies.util.AcceptEncoding;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -16,17 +21,21 @@ import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
 
 @Controller
 @RequestMapping("/history")
 public class GameHistoryController {
     
     private final GameHistoryService gameHistoryService;
+    private final ReplayDocumentStore replayDocumentStore;
     private final ValidationService validationService;
     
     public GameHistoryController(GameHistoryService gameHistoryService,
+                               ReplayDocumentStore replayDocumentStore,
                                ValidationService validationService) {
         this.gameHistoryService = gameHistoryService;
+        this.replayDocumentStore = replayDocumentStore;
         this.validationService = validationService;
     }
     
@@ -36,15 +45,17 @@ public class GameHistoryController {
     @GetMapping
     public String gameHistoryBrowser(@RequestParam(defaultValue = "0") @Min(0) int page,
                                    @RequestParam(defaultValue = "20") @Min(5) @Max(50) int size,
+                                   @RequestParam(required = false) Long before,
                                    Model model) {
         
-        int offset = page * size;
-        List<Map<String, Object>> games = gameHistoryService.getFinishedGames(size, offset);
+        List<Map<String, Object>> games = gameHistoryService.getFinishedGames(page, size, before);
         
         model.addAttribute("games", games);
         model.addAttribute("currentPage", page);
         model.addAttribute("pageSize", size);
         model.addAttribute("hasNextPage", games.size() == size);
+        // Cursor for the next page, so paging forward stays a keyset read
+        model.addAttribute("nextBefore", games.isEmpty() ? null : games.get(games.size() - 1).get("id"));
         
         return "history/browser";
     }
@@ -58,7 +69,10 @@ public class GameHistoryController {
         try {
             validationService.validateGameCode(gameCode);
             
-            Map<String, Object> replay = gameHistoryService.getGameReplay(gameCode);
+            // Finished games are rendered from their stored replay document
+            Map<String, Object> replay = replayDocumentStore.find(gameCode)
+                .map(ReplayDocumentStore.ReplayDocument::toMap)
+                .orElseGet(() -> gameHistoryService.getGameReplay(gameCode));
             
             // Ensure all required fields are present to prevent template errors
             if (replay == null) {
@@ -113,11 +127,12 @@ public class GameHistoryController {
     @GetMapping("/player/{username}")
     public String playerGameHistory(@PathVariable @Size(min = 2, max = 20) String username,
                                   @RequestParam(defaultValue = "20") @Min(5) @Max(100) int limit,
+                                  @RequestParam(required = false) Long before,
                                   Model model) {
         try {
             validationService.validateUsername(username);
             
-            List<Map<String, Object>> playerGames = gameHistoryService.getPlayerGameHistory(username, limit);
+            List<Map<String, Object>> playerGames = gameHistoryService.getPlayerGameHistory(username, limit, before);
             
             model.addAttribute("playerGames", playerGames);
             model.addAttribute("username", username);
@@ -167,7 +182,7 @@ public class GameHistoryController {
         
         // Only search if at least one parameter is provided
         if (createdBy != null || winner != null || minDays != null || maxDays != null) {
-            searchResults = gameHistoryService.searchGames(createdBy, winner, minDays, maxDays, limit);
+            searchResults = gameHistoryService.searchGames(createdBy, winner, minDays, maxDays, limit, null);
         }
         
         model.addAttribute("searchResults", searchResults);
@@ -189,25 +204,42 @@ public class GameHistoryController {
     @ResponseBody
     public ResponseEntity<List<Map<String, Object>>> getFinishedGames(
             @RequestParam(defaultValue = "0") @Min(0) int page,
-            @RequestParam(defaultValue = "20") @Min(1) @Max(100) int size) {
+            @RequestParam(defaultValue = "20") @Min(1) @Max(100) int size,
+            @RequestParam(required = false) Long before) {
         
-        int offset = page * size;
-        List<Map<String, Object>> games = gameHistoryService.getFinishedGames(size, offset);
+        List<Map<String, Object>> games = gameHistoryService.getFinishedGames(page, size, before);
         return ResponseEntity.ok(games);
     }
     
     /**
-     * Get game replay data via API
+     * Get game replay data via API.
+     * A finished game's stored document is served with a strong ETag and may be cached forever;
+     * clients accepting gzip get the stored compressed bytes.
      */
     @GetMapping("/api/game/{gameCode}")
     @ResponseBody
-    public ResponseEntity<Map<String, Object>> getGameReplay(
-            @PathVariable @Pattern(regexp = "^[A-Z0-9]{6}$") String gameCode) {
+    public ResponseEntity<?> getGameReplay(
+            @PathVariable @Pattern(regexp = "^[A-Z0-9]{6}$") String gameCode,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
         validationService.validateGameCode(gameCode);
         
         try {
-            Map<String, Object> replay = gameHistoryService.getGameReplay(gameCode);
-            return ResponseEntity.ok(replay);
+            ReplayDocumentStore.ReplayDocument document = replayDocumentStore.find(gameCode).orElse(null);
+            if (document == null) {
+                // Still running: built on every request
+                return ResponseEntity.ok(gameHistoryService.getGameReplay(gameCode));
+            }
+            
+            boolean gzip = AcceptEncoding.accepts(acceptEncoding, "gzip");
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(document.etag(gzip))
+                .cacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+            if (gzip) {
+                return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(document.gzipped());
+            }
+            return response.body(document.json());
         } catch (Exception e) {
             return ResponseEntity.notFound().build();
         }
@@ -220,10 +252,11 @@ public class GameHistoryController {
     @ResponseBody
     public ResponseEntity<List<Map<String, Object>>> getPlayerGameHistory(
             @PathVariable @Size(min = 2, max = 20) String username,
-            @RequestParam(defaultValue = "20") @Min(1) @Max(100) int limit) {
+            @RequestParam(defaultValue = "20") @Min(1) @Max(100) int limit,
+            @RequestParam(required = false) Long before) {
         validationService.validateUsername(username);
         
-        List<Map<String, Object>> playerGames = gameHistoryService.getPlayerGameHistory(username, limit);
+        List<Map<String, Object>> playerGames = gameHistoryService.getPlayerGameHistory(username, limit, before);
         return ResponseEntity.ok(playerGames);
     }
     
@@ -237,13 +270,14 @@ public class GameHistoryController {
             @RequestParam(required = false) String winner,
             @RequestParam(required = false) Integer minDays,
             @RequestParam(required = false) Integer maxDays,
-            @RequestParam(defaultValue = "50") @Min(1) @Max(100) int limit) {
+            @RequestParam(defaultValue = "50") @Min(1) @Max(100) int limit,
+            @RequestParam(required = false) Long before) {
         
         // Normalize empty strings to null for proper filtering
         createdBy = (createdBy != null && createdBy.trim().isEmpty()) ? null : createdBy;
         winner = (winner != null && winner.trim().isEmpty()) ? null : winner;
         
-        List<Map<String, Object>> results = gameHistoryService.searchGames(createdBy, winner, minDays, maxDays, limit);
+        List<Map<String, Object>> results = gameHistoryService.searchGames(createdBy, winner, minDays, maxDays, limit, before);
         return ResponseEntity.ok(results);
     }
 } 
\ No newline at end of file
@@ -1,6 +1,7 @@
 package com.victadore.webmafia.mafia_web_of_lies.controller;
 
 import com.victadore.webmafia.mafia_web_of_lies.model.Game;
+import com.victadore.webmafia.mafia_web_of_lies.service.ActionRateLimiter;
 import com.victadore.webmafia.mafia_web_of_lies.service.GameLogicService;
 import com.victadore.webmafia.mafia_web_of_lies.service.GameService;
 import com.victadore.webmafia.mafia_web_of_lies.service.ValidationService;
@@ -24,12 +25,14 @@ public class GameLogicController {
     private final GameService gameService;
     private final ValidationService validationService;
     private final PhaseTimerService phaseTimerService;
+    private final ActionRateLimiter actionRateLimiter;
 
-    public GameLogicController(GameLogicService gameLogicService, GameService gameService, ValidationService validationService, PhaseTimerService phaseTimerService) {
+    public GameLogicController(GameLogicService gameLogicService, GameService gameService, ValidationService validationService, PhaseTimerService phaseTimerService, ActionRateLimiter actionRateLimiter) {
         this.gameLogicService = gameLogicService;
         this.gameService = gameService;
         this.validationService = validationService;
         this.phaseTimerService = phaseTimerService;
+        this.actionRateLimiter = actionRateLimiter;
     }
 
     @PostMapping("/{gameCode}/day")
@@ -73,6 +76,7 @@ public class GameLogicController {
             @PathVariable @Pattern(regexp = "^[A-Z0-9]{6}$", message = "Invalid game code format") String gameCode,
             @Valid @RequestBody NightActionRequest request) {
         validationService.validateGameCode(gameCode);
+        actionRateLimiter.acquire(ActionRateLimiter.Action.NIGHT_ACTION, gameCode, request.getActorUsername());
         
         // Get game to perform business validation
         Game game = gameService.getGameByCode(gameCode);
@@ -92,6 +96,7 @@ public class GameLogicController {
             @PathVariable @Pattern(regexp = "^[A-Z0-9]{6}$", message = "Invalid game code format") String gameCode,
             @Valid @RequestBody VoteRequest voteRequest) {
         validationService.validateGameCode(gameCode);
+        actionRateLimiter.acquire(ActionRateLimiter.Action.VOTE, gameCode, voteRequest.getVoterUsername());
         
         // Get game to perform business validation
         Game game = gameService.getGameByCode(gameCode);
@@ -4,27 +4,44 @@ import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.messaging.handler.annotation.SendTo;
+import org.springframework.messaging.simp.annotation.SubscribeMapping;
 import org.springframework.stereotype.Controller;
+import com.victadore.webmafia.mafia_web_of_lies.service.ActionRateLimiter;
 import com.victadore.webmafia.mafia_web_of_lies.service.WebSocketService;
 import com.victadore.webmafia.mafia_web_of_lies.service.GameLogicService;
 import com.victadore.webmafia.mafia_web_of_lies.dto.GameEvent;
+import com.victadore.webmafia.mafia_web_of_lies.dto.GameStateMessage;
 import com.victadore.webmafia.mafia_web_of_lies.dto.PlayerAction;
 
 @Controller
 public class GameWebSocketController {
     private final WebSocketService webSocketService;
     private final GameLogicService gameLogicService;
+    private final ActionRateLimiter actionRateLimiter;
 
     public GameWebSocketController(WebSocketService webSocketService, 
-                                 GameLogicService gameLogicService) {
+                                 GameLogicService gameLogicService,
+                                 ActionRateLimiter actionRateLimiter) {
         this.webSocketService = webSocketService;
         this.gameLogicService = gameLogicService;
+        this.actionRateLimiter = actionRateLimiter;
+    }
+
+    /**
+     * Subscribing to /app/game/{code}/state returns a full snapshot directly to the subscriber;
+     * deltas with higher sequence numbers follow on /topic/game/{code}/state
+     */
+    @SubscribeMapping("/game/{gameCode}/state")
+    public GameStateMessage subscribeGameState(@DestinationVariable String gameCode) {
+        return gameLogicService.getGameStateSnapshot(gameCode);
     }
 
     @MessageMapping("/game/{gameCode}/action")
     @SendTo("/topic/game/{gameCode}")
     public GameEvent handlePlayerAction(@DestinationVariable String gameCode,
                                       @Payload PlayerAction action) {
+        actionRateLimiter.acquire(budgetFor(action.getAction()), gameCode, action.getUsername());
+        
         // Process the action based on its type
         switch (action.getAction()) {
             case "KILL":
@@ -46,4 +63,13 @@ public class GameWebSocketController {
         
         return new GameEvent("ACTION", gameCode, action);
     }
+
+    private static ActionRateLimiter.Action budgetFor(String action) {
+        return switch (action) {
+            case "KILL", "SAVE", "INVESTIGATE" -> ActionRateLimiter.Action.NIGHT_ACTION;
+            case "VOTE" -> ActionRateLimiter.Action.VOTE;
+            // Chat and anything unrecognised is only relayed to the topic
+            default -> ActionRateLimiter.Action.CHAT;
+        };
+    }
 }
\ No newline at end of file
@@ -1,58 +1,96 @@
 package com.victadore.webmafia.mafia_web_of_lies.controller;
 
-import org.springframework.core.io.ClassPathResource;
+import com.victadore.webmafia.mafia_web_of_lies.service.SoundAssets;
+import com.victadore.webmafia.mafia_web_of_lies.util.AcceptEncoding;
+import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/sounds")
 public class SoundController {
-    
+
+    private final SoundAssets soundAssets;
+
+    public SoundController(SoundAssets soundAssets) {
+        this.soundAssets = soundAssets;
+    }
+
+    /**
+     * Serve a sound from memory with a strong ETag, so revalidation is a 304.
+     * Range requests get the unencoded bytes (Spring answers them with 206 and the requested
+     * ranges); other requests get the brotli or gzip variant when the client accepts it.
+     */
     @GetMapping("/{filename}")
-    public ResponseEntity<Resource> getSound(@PathVariable String filename) {
-        try {
-            // Check if file exists in static/sounds directory
-            Resource resource = new ClassPathResource("static/sounds/" + filename);
-            
-            if (!resource.exists()) {
-                // Return 404 instead of 500 for missing files
-                return ResponseEntity.notFound().build();
-            }
-            
-            // Determine content type based on file extension
-            String contentType = "audio/mpeg"; // Default to MP3
-            if (filename.toLowerCase().endsWith(".wav")) {
-                contentType = "audio/wav";
-            } else if (filename.toLowerCase().endsWith(".ogg")) {
-                contentType = "audio/ogg";
-            }
-            
-            HttpHeaders headers = new HttpHeaders();
-            headers.add(HttpHeaders.CONTENT_TYPE, contentType);
-            headers.add(HttpHeaders.CACHE_CONTROL, "public, max-age=3600"); // Cache for 1 hour
-            
-            return ResponseEntity.ok()
-                    .headers(headers)
-                    .body(resource);
-                    
-        } catch (Exception e) {
-            // Log the error but return 404 to client
-            System.err.println("Error serving sound file " + filename + ": " + e.getMessage());
+    public ResponseEntity<Resource> getSound(
+            @PathVariable String filename,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range) {
+        SoundAssets.Sound sound = soundAssets.find(filename).orElse(null);
+        if (sound == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        String encoding = "identity";
+        byte[] body = sound.data();
+        if (range == null && sound.brotli() != null && AcceptEncoding.accepts(acceptEncoding, "br")) {
+            encoding = "br";
+            body = sound.brotli();
+        } else if (range == null && sound.gzip() != null && AcceptEncoding.accepts(acceptEncoding, "gzip")) {
+            encoding = "gzip";
+            body = sound.gzip();
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(sound.type())
+                .eTag(sound.etag(encoding))
+                .cacheControl(sound.immutable()
+                        ? CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable()
+                        : CacheControl.maxAge(1, TimeUnit.DAYS).cachePublic())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (!encoding.equals("identity")) {
+            response.header(HttpHeaders.CONTENT_ENCODING, encoding);
+        }
+        return response.body(new ByteArrayResource(body));
+    }
+
+    /**
+     * Where each sound lies in the sprite, so a page can load them all with one request. The
+     * sprite's URL changes with its content; this manifest is revalidated on every use.
+     */
+    @GetMapping("/sprite.json")
+    public ResponseEntity<Map<String, Object>> getSpriteManifest() {
+        SoundAssets.Sprite sprite = soundAssets.sprite().orElse(null);
+        if (sprite == null) {
             return ResponseEntity.notFound().build();
         }
+
+        Map<String, Object> sounds = new LinkedHashMap<>();
+        sprite.segments().forEach((filename, segment) -> sounds.put(filename, Map.of(
+                "start", segment.start(),
+                "duration", segment.duration())));
+        Map<String, Object> manifest = new LinkedHashMap<>();
+        manifest.put("url", "/sounds/" + sprite.sound().filename());
+        manifest.put("sounds", sounds);
+        return ResponseEntity.ok()
+                .eTag(sprite.sound().etag("identity"))
+                .cacheControl(CacheControl.noCache().cachePublic())
+                .body(manifest);
     }
-    
+
     @GetMapping("/test")
     public ResponseEntity<String> testEndpoint() {
         return ResponseEntity.ok("Sound controller is working. Available sounds should be placed in src/main/resources/static/sounds/");
     }
-} 
\ No newline at end of file
+}
@@ -160,7 +160,7 @@ public class StatisticsController {
     @GetMapping("/leaderboards")
     public String leaderboards(@RequestParam(defaultValue = "winrate") String type,
                              @RequestParam(defaultValue = "10") int limit,
-                             @RequestParam(defaultValue = "3") int minGames,
+                             @RequestParam(defaultValue = "3") @Min(1) @Max(50) int minGames,
                              Model model) {
         
         model.addAttribute("currentType", type);
@@ -307,6 +307,21 @@ public class StatisticsController {
         return ResponseEntity.ok(leaderboards);
     }
     
+    /**
+     * Get a player's rank on a leaderboard via API
+     */
+    @GetMapping("/api/leaderboard/{type}/rank/{username}")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> getPlayerRank(
+            @PathVariable String type,
+            @PathVariable @Size(min = 2, max = 20) String username,
+            @RequestParam(defaultValue = "3") @Min(0) @Max(50) int minGames) {
+        validationService.validateUsername(username);
+        
+        Map<String, Object> rank = playerStatisticsService.getPlayerRank(type, username, minGames);
+        return ResponseEntity.ok(rank);
+    }
+    
     /**
      * Search players via API
      */
@@ -314,9 +329,10 @@ public class StatisticsController {
     @ResponseBody
     public ResponseEntity<List<PlayerStatistics>> searchPlayers(
             @RequestParam @Size(min = 1, max = 20) String query,
+            @RequestParam(defaultValue = "false") boolean prefix,
             @RequestParam(defaultValue = "10") @Min(1) @Max(50) int limit) {
         
-        List<PlayerStatistics> results = playerStatisticsService.searchPlayers(query, limit);
+        List<PlayerStatistics> results = playerStatisticsService.searchPlayers(query, prefix, limit);
         return ResponseEntity.ok(results);
     }
     
@@ -0,0 +1,35 @@
+package com.victadore.webmafia.mafia_web_of_lies.dto;
+
+/**
+ * Typed payloads for the {@link GameEvent}s sent most often or to several recipients.
+ * They serialize to the same JSON the clients already read from the map-based payloads.
+ */
+public final class EventPayloads {
+
+    private EventPayloads() {
+    }
+
+    /**
+     * PHASE_CHANGE: the phase ("DAY" or "NIGHT") and day the game moved to
+     */
+    public record PhaseChange(String phase, int day) {
+    }
+
+    /**
+     * VOTE_CAST: target is "SKIP" for a skip vote
+     */
+    public record VoteCast(String voter, String target, boolean skip) {
+    }
+
+    /**
+     * MAFIA_TARGET_CHOSEN, sent to every living Mafia member
+     */
+    public record MafiaTargetChosen(String target, String message) {
+    }
+
+    /**
+     * MAFIA_TEAMMATE_VOTED, sent to the other living Mafia members
+     */
+    public record MafiaTeammateVoted(String voter, String target, String message) {
+    }
+}
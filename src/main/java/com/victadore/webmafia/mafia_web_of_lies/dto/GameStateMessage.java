@@ -0,0 +1,45 @@
+package com.victadore.webmafia.mafia_web_of_lies.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A message on /topic/game/{code}/state: either a full SNAPSHOT or a DELTA listing the changes
+ * since the previous sequence number. Clients that see a gap in the sequence resubscribe for a snapshot.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class GameStateMessage {
+    private String type;
+    private String gameCode;
+    private long sequence;
+    private long serverTime;
+    private GameStateSnapshot snapshot;
+    private List<Change> changes;
+
+    public static GameStateMessage snapshot(String gameCode, long sequence, GameStateSnapshot snapshot) {
+        return new GameStateMessage("SNAPSHOT", gameCode, sequence, System.currentTimeMillis(), snapshot, null);
+    }
+
+    public static GameStateMessage delta(String gameCode, long sequence, List<Change> changes) {
+        return new GameStateMessage("DELTA", gameCode, sequence, System.currentTimeMillis(), null, changes);
+    }
+
+    /**
+     * One change, e.g. PLAYER_DIED {username, role} or PHASE_CHANGED {phase, day}
+     */
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Change {
+        private String type;
+        private Map<String, Object> data;
+    }
+}
@@ -0,0 +1,103 @@
+package com.victadore.webmafia.mafia_web_of_lies.dto;
+
+import com.victadore.webmafia.mafia_web_of_lies.model.Game;
+import com.victadore.webmafia.mafia_web_of_lies.model.Player;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Everything every player in a game is allowed to see, as published on /topic/game/{code}/state.
+ * Roles are only included for dead players, matching the dead-players-roles endpoint.
+ */
+@Data
+@NoArgsConstructor
+public class GameStateSnapshot {
+    private String gameCode;
+    private String gameState;
+    private int currentDay;
+    private int currentPhase;
+    private String winner;
+    private List<PlayerState> players;
+    private Map<String, String> votes;
+    private TimerState timer;
+
+    public GameStateSnapshot(Game game) {
+        this.gameCode = game.getGameCode();
+        this.gameState = game.getGameState().toString();
+        this.currentDay = game.getCurrentDay();
+        this.currentPhase = game.getCurrentPhase();
+        this.winner = game.getWinner();
+
+        this.players = new ArrayList<>();
+        for (Player player : game.getPlayers()) {
+            String role = player.isAlive() ? null : player.getRole().toString();
+            this.players.add(new PlayerState(player.getUsername(), player.isAlive(), role));
+        }
+
+        this.votes = votingStatus(game);
+
+        if (Boolean.TRUE.equals(game.getTimerEnabled()) && game.getPhaseStartTime() != null
+                && game.getPhaseDurationSeconds() != null) {
+            long endsAt = game.getPhaseStartTime()
+                .plusSeconds(game.getPhaseDurationSeconds())
+                .atZone(ZoneId.systemDefault())
+                .toInstant()
+                .toEpochMilli();
+            this.timer = new TimerState(true, game.getPhaseDurationSeconds(), endsAt);
+        } else {
+            this.timer = new TimerState(false, 0, 0);
+        }
+    }
+
+    /**
+     * Vote status of every living player ("Not Voted", "Voted (Skip)" or "Voted for X")
+     */
+    public static Map<String, String> votingStatus(Game game) {
+        Map<String, String> status = new HashMap<>();
+        for (Player player : game.getPlayers()) {
+            if (player.isAlive()) {
+                if (game.getPlayersWhoVoted().contains(player.getId())) {
+                    Long targetId = game.getIndividualVotes().get(player.getId());
+                    if (targetId == null) {
+                        status.put(player.getUsername(), "Voted (Skip)");
+                    } else {
+                        String targetName = game.getPlayers().stream()
+                            .filter(p -> p.getId().equals(targetId))
+                            .map(Player::getUsername)
+                            .findFirst()
+                            .orElse("Unknown");
+                        status.put(player.getUsername(), "Voted for " + targetName);
+                    }
+                } else {
+                    status.put(player.getUsername(), "Not Voted");
+                }
+            }
+        }
+        return status;
+    }
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class PlayerState {
+        private String username;
+        private boolean alive;
+        private String role;
+    }
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class TimerState {
+        private boolean active;
+        private int totalSeconds;
+        private long endsAt; // epoch millis
+    }
+}
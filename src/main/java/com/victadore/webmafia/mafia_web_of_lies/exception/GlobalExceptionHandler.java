@@ -1,7 +1,10 @@
 package com.victadore.webmafia.mafia_web_of_lies.exception;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.messaging.handler.annotation.MessageExceptionHandler;
+import org.springframework.messaging.simp.annotation.SendToUser;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -18,6 +21,31 @@ import java.util.Map;
 @ControllerAdvice
 public class GlobalExceptionHandler {
 
+    // Same frame for every rejected STOMP message, so refusing a flood costs next to nothing
+    private static final ErrorResponse RATE_LIMITED = new ErrorResponse(HttpStatus.TOO_MANY_REQUESTS.value(),
+                                                                        "Too many requests");
+
+    /**
+     * STOMP messages over their rate limit get an error on the sender's /user/queue/errors
+     */
+    @MessageExceptionHandler(RateLimitExceededException.class)
+    @SendToUser(destinations = "/queue/errors", broadcast = false)
+    public ErrorResponse handleRateLimitedMessage(RateLimitExceededException e) {
+        return RATE_LIMITED;
+    }
+
+    @ExceptionHandler(RateLimitExceededException.class)
+    public ResponseEntity<Map<String, Object>> handleRateLimitExceeded(RateLimitExceededException e) {
+        Map<String, Object> error = new HashMap<>();
+        error.put("status", HttpStatus.TOO_MANY_REQUESTS.value());
+        error.put("error", "Too Many Requests");
+        error.put("message", e.getMessage());
+        error.put("timestamp", System.currentTimeMillis());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+            .header(HttpHeaders.RETRY_AFTER, String.valueOf((e.getRetryAfterMillis() + 999) / 1000))
+            .body(error);
+    }
+
     @ExceptionHandler(GameException.class)
     public ResponseEntity<Map<String, Object>> handleGameException(GameException e) {
         Map<String, Object> error = new HashMap<>();
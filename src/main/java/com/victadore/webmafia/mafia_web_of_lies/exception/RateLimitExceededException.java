@@ -0,0 +1,13 @@
+package com.victadore.webmafia.mafia_web_of_lies.exception;
+
+import lombok.Getter;
+
+@Getter
+public class RateLimitExceededException extends GameException {
+    private final long retryAfterMillis;
+
+    public RateLimitExceededException(String message, long retryAfterMillis) {
+        super(message);
+        this.retryAfterMillis = retryAfterMillis;
+    }
+}
@@ -21,8 +21,13 @@ import java.time.LocalDateTime;
     @Index(name = "idx_action_history_phase", columnList = "game_day, game_phase")
 })
 public class ActionHistory {
+    // Matches hibernate.jdbc.batch_size so one sequence round trip covers a whole journal batch
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "action_history_seq")
+    @SequenceGenerator(name = "action_history_seq", sequenceName = "action_history_seq",
+                       allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
     
     @NotNull(message = "Game association is required")
@@ -7,8 +7,13 @@ import java.time.LocalDateTime;
 @Table(name = "chat_messages")
 public class ChatMessage {
     
+    // Sequence ids (rather than IDENTITY) let the chat journal insert in JDBC batches; matches hibernate.jdbc.batch_size
+    public static final int ID_ALLOCATION_SIZE = 50;
+    
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "chat_messages_seq")
+    @SequenceGenerator(name = "chat_messages_seq", sequenceName = "chat_messages_seq",
+                       allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
     
     @Column(nullable = false)
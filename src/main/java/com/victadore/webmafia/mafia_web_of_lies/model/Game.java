@@ -10,6 +10,10 @@ import lombok.Data;
 
 @Entity
 @Data
+@Table(indexes = {
+    @Index(name = "idx_game_state_id", columnList = "game_state, id"),
+    @Index(name = "idx_game_created_by", columnList = "created_by")
+})
 public class Game {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -96,6 +100,20 @@ public class Game {
     @Size(max = 20, message = "Winner name cannot exceed 20 characters")
     private String winner;
     
+    // Summary columns for the history browser, so listing games needs neither players nor action history
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+    
+    @Column(name = "ended_at")
+    private LocalDateTime endedAt;
+    
+    @Column(name = "player_count")
+    private Integer playerCount;
+    
+    // Set once the game's history and chat have moved to its archive file (see GameArchive)
+    @Column(name = "archived_at")
+    private LocalDateTime archivedAt;
+    
     // Helper method to get remaining time in seconds
     public long getRemainingTimeSeconds() {
         if (phaseStartTime == null || phaseDurationSeconds == null || !Boolean.TRUE.equals(timerEnabled)) {
@@ -114,6 +132,14 @@ public class Game {
         return getRemainingTimeSeconds() <= 0 && Boolean.TRUE.equals(timerEnabled);
     }
     
+    // Helper method to end the game and stamp its summary columns
+    public void finish(String winner) {
+        this.gameState = GameState.FINISHED;
+        this.winner = winner;
+        this.endedAt = LocalDateTime.now();
+        this.playerCount = players != null ? players.size() : 0;
+    }
+    
     // Custom validation method
     @AssertTrue(message = "Maximum players must be greater than or equal to minimum players")
     private boolean isMaxPlayersValid() {
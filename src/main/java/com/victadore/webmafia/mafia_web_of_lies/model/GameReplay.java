@@ -0,0 +1,44 @@
+package com.victadore.webmafia.mafia_web_of_lies.model;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Replay document of a finished game, built once when the game ends and served as stored.
+ * Finished games never change, so neither does the document.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "game_replays")
+public class GameReplay {
+    
+    @Id
+    @Column(name = "game_code", length = 6)
+    private String gameCode;
+    
+    // The replay as gzip-compressed JSON
+    @NotNull(message = "Document is required")
+    @Lob
+    @Column(nullable = false)
+    private byte[] document;
+    
+    // SHA-256 (hex) of the uncompressed JSON
+    @NotNull(message = "Content hash is required")
+    @Column(name = "content_hash", nullable = false, length = 64)
+    private String contentHash;
+    
+    @NotNull(message = "Document size is required")
+    @Column(name = "document_size", nullable = false)
+    private Integer documentSize;
+    
+    @NotNull(message = "Creation time is required")
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,42 @@
+package com.victadore.webmafia.mafia_web_of_lies.model;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+/**
+ * Ledger entry for a game whose result has been counted in player statistics.
+ * Written in the same transaction as the statistics, so a game is never counted twice.
+ * Deliberately not a foreign key: the entry outlives the game if it is archived or purged.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "statistics_ledger")
+public class ProcessedGame implements Persistable<Long> {
+    
+    @Id
+    @Column(name = "game_id")
+    private Long gameId;
+    
+    @NotNull(message = "Processed time is required")
+    @Column(name = "processed_at", nullable = false)
+    private LocalDateTime processedAt;
+    
+    @Override
+    public Long getId() {
+        return gameId;
+    }
+    
+    // Entries are only ever inserted, so save() persists without looking the id up first
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+}
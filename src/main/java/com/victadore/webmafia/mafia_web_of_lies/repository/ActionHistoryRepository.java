@@ -2,11 +2,13 @@ package com.victadore.webmafia.mafia_web_of_lies.repository;
 
 import com.victadore.webmafia.mafia_web_of_lies.model.ActionHistory;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -17,6 +19,11 @@ public interface ActionHistoryRepository extends JpaRepository<ActionHistory, Lo
      */
     List<ActionHistory> findByGameIdOrderByTimestamp(Long gameId);
     
+    /**
+     * Find all actions for several games, grouped by game and ordered by timestamp within each
+     */
+    List<ActionHistory> findByGameIdInOrderByGameIdAscTimestampAscIdAsc(Collection<Long> gameIds);
+    
     /**
      * Find all actions by a specific actor in a game
      */
@@ -103,4 +110,11 @@ public interface ActionHistoryRepository extends JpaRepository<ActionHistory, Lo
            "AND ah.actorUsername IN (SELECT p.username FROM Player p WHERE p.game.id = :gameId AND p.isAlive = true) " +
            "ORDER BY ah.timestamp")
     List<ActionHistory> findActionsByAlivePlayers(@Param("gameId") Long gameId);
-} 
\ No newline at end of file
+    
+    /**
+     * Delete a game's history in one statement, without loading it
+     */
+    @Modifying
+    @Query("DELETE FROM ActionHistory ah WHERE ah.game.id = :gameId")
+    int deleteAllByGameIdInBulk(@Param("gameId") Long gameId);
+}
@@ -2,6 +2,7 @@ package com.victadore.webmafia.mafia_web_of_lies.repository;
 
 import com.victadore.webmafia.mafia_web_of_lies.model.ChatMessage;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -54,7 +55,9 @@ public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long>
     Long countMessagesByGameCode(@Param("gameCode") String gameCode);
     
     /**
-     * Delete all messages for a game (cleanup when game ends)
+     * Delete all messages for a game in one statement, without loading them
      */
-    void deleteByGameCode(String gameCode);
-} 
\ No newline at end of file
+    @Modifying
+    @Query("DELETE FROM ChatMessage c WHERE c.gameCode = :gameCode")
+    int deleteAllByGameCodeInBulk(@Param("gameCode") String gameCode);
+}
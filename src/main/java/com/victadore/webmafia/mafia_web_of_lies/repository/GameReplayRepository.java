@@ -0,0 +1,9 @@
+package com.victadore.webmafia.mafia_web_of_lies.repository;
+
+import com.victadore.webmafia.mafia_web_of_lies.model.GameReplay;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface GameReplayRepository extends JpaRepository<GameReplay, String> {
+}
@@ -1,9 +1,15 @@
 package com.victadore.webmafia.mafia_web_of_lies.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import com.victadore.webmafia.mafia_web_of_lies.model.Game;
 import com.victadore.webmafia.mafia_web_of_lies.model.GameState;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -17,5 +23,95 @@ public interface GameRepository extends JpaRepository<Game, Long> {
 
     List<Game> findByGameState(GameState state);
 
+    /**
+     * Games with their players, in one query
+     */
+    @Query("SELECT DISTINCT g FROM Game g LEFT JOIN FETCH g.players WHERE g.id IN :ids")
+    List<Game> findWithPlayersByIdIn(@Param("ids") Collection<Long> ids);
+
+    List<Game> findByGameStateAndTimerEnabledTrue(GameState state);
+
     List<Game> findByCreatedBy(String createdBy);
+
+    /**
+     * Newest games in a state, paged by offset (backed by the (game_state, id) index)
+     */
+    List<Game> findByGameStateOrderByIdDesc(GameState state, Pageable pageable);
+
+    /**
+     * Keyset page: the next games in a state older than the given id
+     */
+    List<Game> findByGameStateAndIdLessThanOrderByIdDesc(GameState state, Long beforeId, Pageable pageable);
+
+    /**
+     * Keyset search over games in a state; null filters are ignored.
+     * The creator pattern is matched against the lower-cased creator and uses '!' as escape character.
+     */
+    @Query("SELECT g FROM Game g WHERE g.gameState = :state " +
+           "AND (:creatorPattern IS NULL OR LOWER(g.createdBy) LIKE :creatorPattern ESCAPE '!') " +
+           "AND (:winner IS NULL OR UPPER(g.winner) = :winner) " +
+           "AND (:minDays IS NULL OR g.currentDay >= :minDays) " +
+           "AND (:maxDays IS NULL OR g.currentDay <= :maxDays) " +
+           "AND (:beforeId IS NULL OR g.id < :beforeId) " +
+           "ORDER BY g.id DESC")
+    List<Game> searchByGameState(@Param("state") GameState state,
+                                 @Param("creatorPattern") String creatorPattern,
+                                 @Param("winner") String winner,
+                                 @Param("minDays") Integer minDays,
+                                 @Param("maxDays") Integer maxDays,
+                                 @Param("beforeId") Long beforeId,
+                                 Pageable pageable);
+
+    /**
+     * Fill the summary columns of games that finished before they existed, from their history and roster
+     */
+    @Modifying
+    @Query("UPDATE Game g SET " +
+           "g.startedAt = COALESCE(g.startedAt, (SELECT MIN(a.timestamp) FROM ActionHistory a WHERE a.game = g)), " +
+           "g.endedAt = COALESCE(g.endedAt, (SELECT MAX(a.timestamp) FROM ActionHistory a WHERE a.game = g)), " +
+           "g.playerCount = COALESCE(g.playerCount, (SELECT COUNT(p) FROM Player p WHERE p.game = g)) " +
+           "WHERE g.gameState = :state AND (g.startedAt IS NULL OR g.endedAt IS NULL OR g.playerCount IS NULL)")
+    int backfillSummaryColumns(@Param("state") GameState state);
+
+    /**
+     * Keyset page of counted games in a state that ended before the cutoff and are not archived yet
+     */
+    @Query("SELECT g.id FROM Game g WHERE g.gameState = :state AND g.archivedAt IS NULL " +
+           "AND g.endedAt < :endedBefore AND g.id > :afterId " +
+           "AND EXISTS (SELECT p FROM ProcessedGame p WHERE p.gameId = g.id) ORDER BY g.id")
+    List<Long> findArchivableGameIds(@Param("state") GameState state,
+                                     @Param("endedBefore") LocalDateTime endedBefore,
+                                     @Param("afterId") Long afterId,
+                                     Pageable pageable);
+
+    /**
+     * Id and code of games in a state that ended before the cutoff, in ascending id order after afterId
+     */
+    @Query("SELECT g.id, g.gameCode FROM Game g WHERE g.gameState = :state " +
+           "AND g.endedAt < :endedBefore AND g.id > :afterId ORDER BY g.id")
+    List<Object[]> findPurgeableGames(@Param("state") GameState state,
+                                      @Param("endedBefore") LocalDateTime endedBefore,
+                                      @Param("afterId") Long afterId,
+                                      Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE Game g SET g.archivedAt = :archivedAt WHERE g.id = :id")
+    int markArchived(@Param("id") Long id, @Param("archivedAt") LocalDateTime archivedAt);
+
+    /**
+     * Keyset page of archived games in a state within optional id and end-time bounds (endedBefore exclusive)
+     */
+    @Query("SELECT g FROM Game g WHERE g.gameState = :state AND g.archivedAt IS NOT NULL AND g.id > :afterId " +
+           "AND (:fromId IS NULL OR g.id >= :fromId) " +
+           "AND (:toId IS NULL OR g.id <= :toId) " +
+           "AND (CAST(:endedFrom AS LocalDateTime) IS NULL OR g.endedAt >= :endedFrom) " +
+           "AND (CAST(:endedBefore AS LocalDateTime) IS NULL OR g.endedAt < :endedBefore) " +
+           "ORDER BY g.id")
+    List<Game> findArchivedGames(@Param("state") GameState state,
+                                 @Param("fromId") Long fromId,
+                                 @Param("toId") Long toId,
+                                 @Param("endedFrom") LocalDateTime endedFrom,
+                                 @Param("endedBefore") LocalDateTime endedBefore,
+                                 @Param("afterId") Long afterId,
+                                 Pageable pageable);
 }
@@ -1,8 +1,12 @@
 package com.victadore.webmafia.mafia_web_of_lies.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.util.List;
+import com.victadore.webmafia.mafia_web_of_lies.model.GameState;
 import com.victadore.webmafia.mafia_web_of_lies.model.Player;
 import com.victadore.webmafia.mafia_web_of_lies.model.Role;
 
@@ -20,6 +24,19 @@ public interface PlayerRepository extends JpaRepository<Player, Long> {
     long countByGameId(Long gameId);
 
     long countByGameIdAndIsAliveTrue(Long gameId);
+
+    /**
+     * A user's seats in games of a given state, newest game first, with the game fetched alongside.
+     * Keyset-paged on the game id; pass null for the first page.
+     */
+    @Query("SELECT p FROM Player p JOIN FETCH p.game g " +
+           "WHERE p.username = :username AND g.gameState = :state " +
+           "AND (:beforeId IS NULL OR g.id < :beforeId) " +
+           "ORDER BY g.id DESC")
+    List<Player> findSeatsByUsernameAndGameState(@Param("username") String username,
+                                                 @Param("state") GameState state,
+                                                 @Param("beforeId") Long beforeId,
+                                                 Pageable pageable);
     
 }
 
@@ -1,12 +1,16 @@
 package com.victadore.webmafia.mafia_web_of_lies.repository;
 
 import com.victadore.webmafia.mafia_web_of_lies.model.PlayerStatistics;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,6 +22,19 @@ public interface PlayerStatisticsRepository extends JpaRepository<PlayerStatisti
      */
     Optional<PlayerStatistics> findByUsername(String username);
     
+    /**
+     * Find statistics for several players at once
+     */
+    List<PlayerStatistics> findByUsernameIn(Collection<String> usernames);
+    
+    /**
+     * Find statistics for several players and lock the rows until the transaction ends,
+     * so concurrent updates of the same player are applied one after the other
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT ps FROM PlayerStatistics ps WHERE ps.username IN :usernames ORDER BY ps.username")
+    List<PlayerStatistics> findByUsernameInForUpdate(@Param("usernames") Collection<String> usernames);
+    
     /**
      * Check if player statistics exist for a username
      */
@@ -132,8 +149,20 @@ public interface PlayerStatisticsRepository extends JpaRepository<PlayerStatisti
     /**
      * Search players by username pattern
      */
-    @Query("SELECT ps FROM PlayerStatistics ps WHERE ps.username LIKE %:pattern% ORDER BY ps.totalGames DESC")
-    List<PlayerStatistics> searchPlayersByUsername(@Param("pattern") String pattern);
+    @Query("SELECT ps FROM PlayerStatistics ps WHERE ps.username LIKE %:pattern% ORDER BY ps.totalGames DESC, ps.username ASC")
+    List<PlayerStatistics> searchPlayersByUsername(@Param("pattern") String pattern, Pageable pageable);
+    
+    /**
+     * Search players by username prefix
+     */
+    @Query("SELECT ps FROM PlayerStatistics ps WHERE ps.username LIKE :prefix% ORDER BY ps.totalGames DESC, ps.username ASC")
+    List<PlayerStatistics> searchPlayersByUsernamePrefix(@Param("prefix") String prefix, Pageable pageable);
+    
+    /**
+     * Every username with its games played, for the search index
+     */
+    @Query("SELECT ps.username, ps.totalGames FROM PlayerStatistics ps")
+    List<Object[]> findAllUsernamesAndTotalGames();
     
     /**
      * Find players who haven't played recently
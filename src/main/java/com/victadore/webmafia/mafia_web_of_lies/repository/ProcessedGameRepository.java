@@ -0,0 +1,46 @@
+package com.victadore.webmafia.mafia_web_of_lies.repository;
+
+import com.victadore.webmafia.mafia_web_of_lies.model.GameState;
+import com.victadore.webmafia.mafia_web_of_lies.model.ProcessedGame;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ProcessedGameRepository extends JpaRepository<ProcessedGame, Long> {
+    
+    /**
+     * Keyset page of game ids in a state not yet counted, ascending from after the given id
+     */
+    @Query("SELECT g.id FROM Game g WHERE g.gameState = :state AND g.id > :afterId " +
+           "AND NOT EXISTS (SELECT p FROM ProcessedGame p WHERE p.gameId = g.id) ORDER BY g.id")
+    List<Long> findUnprocessedGameIds(@Param("state") GameState state, @Param("afterId") Long afterId, Pageable pageable);
+    
+    /**
+     * Number of games in a state not yet counted
+     */
+    @Query("SELECT COUNT(g) FROM Game g WHERE g.gameState = :state " +
+           "AND NOT EXISTS (SELECT p FROM ProcessedGame p WHERE p.gameId = g.id)")
+    long countUnprocessedGames(@Param("state") GameState state);
+    
+    /**
+     * Which of the given games are already counted
+     */
+    @Query("SELECT p.gameId FROM ProcessedGame p WHERE p.gameId IN :gameIds")
+    List<Long> findProcessedIn(@Param("gameIds") Collection<Long> gameIds);
+    
+    /**
+     * Record every game in a state as counted without counting it,
+     * for statistics that already include games from before the ledger
+     */
+    @Modifying
+    @Query("INSERT INTO ProcessedGame (gameId, processedAt) SELECT g.id, CURRENT_TIMESTAMP FROM Game g " +
+           "WHERE g.gameState = :state AND NOT EXISTS (SELECT p FROM ProcessedGame p WHERE p.gameId = g.id)")
+    int markAllProcessed(@Param("state") GameState state);
+}
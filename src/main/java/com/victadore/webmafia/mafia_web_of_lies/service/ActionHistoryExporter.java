@@ -0,0 +1,388 @@
+package com.victadore.webmafia.mafia_web_of_lies.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.victadore.webmafia.mafia_web_of_lies.exception.GameException;
+import com.victadore.webmafia.mafia_web_of_lies.exception.RateLimitExceededException;
+import com.victadore.webmafia.mafia_web_of_lies.model.ActionHistory;
+import com.victadore.webmafia.mafia_web_of_lies.model.Game;
+import com.victadore.webmafia.mafia_web_of_lies.model.GameState;
+import com.victadore.webmafia.mafia_web_of_lies.repository.GameRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+/**
+ * Streams action history out as NDJSON or CSV, one line per action, for offline analysis.
+ *
+ * Rows are read through a forward-only, read-only cursor mafia.export.fetch-size rows at a time and
+ * written to the response as they arrive, so an export of any size holds one fetch of rows in memory.
+ * Archived games are read from {@link GameArchive} one game at a time and come first.
+ * Each running export keeps a database connection for its whole duration, so at most
+ * mafia.export.max-concurrent run at once; further requests are turned away with a 429.
+ * MySQL only streams with a fetch size when the URL sets useCursorFetch=true.
+ */
+@Service
+public class ActionHistoryExporter {
+    private static final Logger logger = Logger.getLogger(ActionHistoryExporter.class.getName());
+    private static final long RETRY_AFTER_MILLIS = 5000;
+    private static final int ARCHIVED_PAGE_SIZE = 100;
+
+    private static final String[] COLUMNS = {
+        "id", "gameId", "gameCode", "gameDay", "gamePhase", "timestamp", "actionType", "actorUsername",
+        "targetUsername", "successful", "isSkipVote", "voteCount", "actionDetails", "result", "additionalData"
+    };
+
+    // Ordered by the action_history game index, so the database can stream without sorting
+    private static final String SELECT = "SELECT a.id, a.game_id, g.game_code, a.game_day, a.game_phase, a.timestamp, "
+        + "a.action_type, a.actor_username, a.target_username, a.successful, a.is_skip_vote, a.vote_count, "
+        + "a.action_details, a.result, a.additional_data "
+        + "FROM action_history a JOIN game g ON g.id = a.game_id ";
+    private static final String ORDER = " ORDER BY a.game_id, a.id";
+
+    /**
+     * Export formats with their media type and file extension
+     */
+    public enum Format {
+        NDJSON("ndjson", "application/x-ndjson"),
+        CSV("csv", "text/csv");
+
+        private final String key;
+        private final String mediaType;
+
+        Format(String key, String mediaType) {
+            this.key = key;
+            this.mediaType = mediaType;
+        }
+
+        public String key() {
+            return key;
+        }
+
+        public String mediaType() {
+            return mediaType;
+        }
+
+        public static Format fromKey(String key) {
+            for (Format format : values()) {
+                if (format.key.equalsIgnoreCase(key)) {
+                    return format;
+                }
+            }
+            throw new IllegalArgumentException("Unknown export format: " + key);
+        }
+    }
+
+    /**
+     * Finished games to export: game ids and end dates, all bounds optional and inclusive except endedBefore
+     */
+    public record Range(Long fromGameId, Long toGameId, LocalDateTime endedFrom, LocalDateTime endedBefore) {
+    }
+
+    private final GameRepository gameRepository;
+    private final GameArchive gameArchive;
+    private final ActionHistoryJournal actionHistoryJournal;
+    private final ObjectMapper objectMapper;
+    private final JdbcTemplate cursor;
+    private final TransactionTemplate readTransaction;
+    private final Semaphore running;
+
+    public ActionHistoryExporter(GameRepository gameRepository,
+                                 GameArchive gameArchive,
+                                 ActionHistoryJournal actionHistoryJournal,
+                                 ObjectMapper objectMapper,
+                                 DataSource dataSource,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${mafia.export.fetch-size:500}") int fetchSize,
+                                 @Value("${mafia.export.max-concurrent:2}") int maxConcurrent) {
+        this.gameRepository = gameRepository;
+        this.gameArchive = gameArchive;
+        this.actionHistoryJournal = actionHistoryJournal;
+        this.objectMapper = objectMapper;
+        this.cursor = new JdbcTemplate(dataSource);
+        this.cursor.setFetchSize(Math.max(1, fetchSize));
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.running = new Semaphore(Math.max(1, maxConcurrent));
+    }
+
+    /**
+     * The history of one game, in any state
+     */
+    public Export exportGame(String gameCode, Format format) {
+        Game game = gameRepository.findByGameCode(gameCode);
+        if (game == null) {
+            throw new GameException("Game not found");
+        }
+        if (gameArchive.isArchived(game.getId())) {
+            return export(format, afterId -> afterId == 0 ? List.of(game) : List.of(), null, List.of());
+        }
+        return export(format, afterId -> List.of(), SELECT + "WHERE g.game_code = ?" + ORDER, List.of(gameCode));
+    }
+
+    /**
+     * The history of every finished game in the range
+     */
+    public Export exportFinishedGames(Range range, Format format) {
+        StringBuilder sql = new StringBuilder(SELECT).append("WHERE g.game_state = ?");
+        List<Object> args = new ArrayList<>();
+        args.add(GameState.FINISHED.name());
+        if (range.fromGameId() != null) {
+            sql.append(" AND g.id >= ?");
+            args.add(range.fromGameId());
+        }
+        if (range.toGameId() != null) {
+            sql.append(" AND g.id <= ?");
+            args.add(range.toGameId());
+        }
+        if (range.endedFrom() != null) {
+            sql.append(" AND g.ended_at >= ?");
+            args.add(range.endedFrom());
+        }
+        if (range.endedBefore() != null) {
+            sql.append(" AND g.ended_at < ?");
+            args.add(range.endedBefore());
+        }
+        ArchivedGames archived = afterId -> readTransaction.execute(status -> gameRepository.findArchivedGames(
+            GameState.FINISHED, range.fromGameId(), range.toGameId(), range.endedFrom(), range.endedBefore(),
+            afterId, PageRequest.of(0, ARCHIVED_PAGE_SIZE)));
+        return export(format, archived, sql.append(ORDER).toString(), args);
+    }
+
+    private Export export(Format format, ArchivedGames archived, String sql, List<Object> args) {
+        if (!running.tryAcquire()) {
+            throw new RateLimitExceededException("Too many exports running, try again shortly", RETRY_AFTER_MILLIS);
+        }
+        Export export = new Export(format, archived, sql, args);
+        try {
+            // Exports read from the table, so make sure the latest actions are written
+            actionHistoryJournal.flush();
+        } catch (RuntimeException e) {
+            export.release();
+            throw e;
+        }
+        return export;
+    }
+
+    /**
+     * A streamed export, holding one of the export permits until it has been written. A request
+     * that ends without writing it (timed out, client gone) must call {@link #release()}; releasing
+     * more than once is harmless.
+     */
+    public final class Export implements StreamingResponseBody {
+        private final Format format;
+        private final ArchivedGames archived;
+        private final String sql;
+        private final List<Object> args;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Export(Format format, ArchivedGames archived, String sql, List<Object> args) {
+            this.format = format;
+            this.archived = archived;
+            this.sql = sql;
+            this.args = args;
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            long started = System.nanoTime();
+            try {
+                RowWriter writer = format == Format.CSV ? new CsvWriter(out) : new NdjsonWriter(out);
+                writeArchived(archived, writer);
+                if (sql != null) {
+                    readTransaction.executeWithoutResult(status -> cursor.query(sql, writer, args.toArray()));
+                }
+                writer.finish();
+                logger.info("Exported " + writer.rows() + " actions as " + format.key() + " in "
+                    + (System.nanoTime() - started) / 1_000_000 + " ms");
+            } catch (UncheckedIOException e) {
+                // Usually the client went away; the cursor has been closed with the transaction
+                logger.warning("Action history export aborted: " + e.getCause().getMessage());
+                throw e.getCause();
+            } finally {
+                release();
+            }
+        }
+
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                running.release();
+            }
+        }
+    }
+
+    private void writeArchived(ArchivedGames archived, RowWriter writer) throws IOException {
+        Object[] values = new Object[COLUMNS.length];
+        long afterId = 0;
+        List<Game> games;
+        while (!(games = archived.page(afterId)).isEmpty()) {
+            for (Game game : games) {
+                for (ActionHistory action : gameArchive.actions(game).orElse(List.of())) {
+                    values[0] = action.getId();
+                    values[1] = game.getId();
+                    values[2] = game.getGameCode();
+                    values[3] = action.getGameDay();
+                    values[4] = action.getGamePhase();
+                    values[5] = action.getTimestamp() != null ? action.getTimestamp().toString() : null;
+                    values[6] = action.getActionType();
+                    values[7] = action.getActorUsername();
+                    values[8] = action.getTargetUsername();
+                    values[9] = action.getSuccessful();
+                    values[10] = action.getIsSkipVote();
+                    values[11] = action.getVoteCount();
+                    values[12] = action.getActionDetails();
+                    values[13] = action.getResult();
+                    values[14] = action.getAdditionalData();
+                    writer.write(values);
+                }
+            }
+            afterId = games.get(games.size() - 1).getId();
+        }
+    }
+
+    /**
+     * Next page of archived games to export after the given id
+     */
+    @FunctionalInterface
+    private interface ArchivedGames {
+        List<Game> page(long afterId);
+    }
+
+    /**
+     * Writes each row to the response as the cursor (or the archive) reaches it
+     */
+    private abstract static class RowWriter implements RowCallbackHandler {
+        private final Object[] values = new Object[COLUMNS.length];
+        private long rows;
+
+        @Override
+        public final void processRow(ResultSet rs) throws SQLException {
+            for (int column = 1; column <= values.length; column++) {
+                values[column - 1] = column == 6 ? timestamp(rs) : rs.getObject(column);
+            }
+            try {
+                write(values);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        final void write(Object[] row) throws IOException {
+            writeRow(row);
+            rows++;
+        }
+
+        long rows() {
+            return rows;
+        }
+
+        abstract void writeRow(Object[] row) throws IOException;
+
+        abstract void finish() throws IOException;
+    }
+
+    private final class NdjsonWriter extends RowWriter {
+        private final JsonGenerator json;
+
+        NdjsonWriter(OutputStream out) throws IOException {
+            this.json = objectMapper.getFactory().createGenerator(out);
+            this.json.setRootValueSeparator(null);
+        }
+
+        @Override
+        void writeRow(Object[] row) throws IOException {
+            json.writeStartObject();
+            for (int i = 0; i < row.length; i++) {
+                json.writeFieldName(COLUMNS[i]);
+                Object value = row[i];
+                if (value == null) {
+                    json.writeNull();
+                } else if (value instanceof Number number) {
+                    json.writeNumber(number.longValue());
+                } else if (value instanceof Boolean flag) {
+                    json.writeBoolean(flag);
+                } else {
+                    json.writeString(value.toString());
+                }
+            }
+            json.writeEndObject();
+            json.writeRaw('\n');
+        }
+
+        @Override
+        void finish() throws IOException {
+            json.flush();
+        }
+    }
+
+    private static final class CsvWriter extends RowWriter {
+        private final Writer csv;
+
+        CsvWriter(OutputStream out) throws IOException {
+            this.csv = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 16 * 1024);
+            this.csv.write(String.join(",", COLUMNS));
+            this.csv.write("\r\n");
+        }
+
+        @Override
+        void writeRow(Object[] row) throws IOException {
+            for (int i = 0; i < row.length; i++) {
+                if (i > 0) {
+                    csv.write(',');
+                }
+                if (row[i] != null) {
+                    writeField(row[i].toString());
+                }
+            }
+            csv.write("\r\n");
+        }
+
+        @Override
+        void finish() throws IOException {
+            csv.flush();
+        }
+
+        // RFC 4180: quote fields holding separators, quotes or line breaks and double the quotes
+        private void writeField(String value) throws IOException {
+            boolean quote = false;
+            for (int i = 0; i < value.length() && !quote; i++) {
+                char c = value.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote) {
+                csv.write(value);
+                return;
+            }
+            csv.write('"');
+            csv.write(value.replace("\"", "\"\""));
+            csv.write('"');
+        }
+    }
+
+    private static String timestamp(ResultSet rs) throws SQLException {
+        LocalDateTime timestamp = rs.getObject(6, LocalDateTime.class);
+        return timestamp != null ? timestamp.toString() : null;
+    }
+}
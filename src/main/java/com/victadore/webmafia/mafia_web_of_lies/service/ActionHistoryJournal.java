@@ -0,0 +1,202 @@
+package com.victadore.webmafia.mafia_web_of_lies.service;
+
+import com.victadore.webmafia.mafia_web_of_lies.model.ActionHistory;
+import com.victadore.webmafia.mafia_web_of_lies.repository.ActionHistoryRepository;
+import com.victadore.webmafia.mafia_web_of_lies.repository.GameRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+
+/**
+ * Write-behind journal for action history.
+ *
+ * Entries are appended to a bounded queue and written by a scheduled flush in JDBC batches,
+ * each batch in its own transaction. When the queue is full the appending thread flushes
+ * inline, so a slow database slows writers down instead of dropping history. Entries recorded
+ * inside a transaction (a game command) are only queued once it commits. Everything still
+ * queued is written before the application context shuts down.
+ */
+@Service
+public class ActionHistoryJournal {
+    private static final Logger logger = Logger.getLogger(ActionHistoryJournal.class.getName());
+
+    private final ActionHistoryRepository actionHistoryRepository;
+    private final GameRepository gameRepository;
+    private final IdSequences idSequences;
+    private final TransactionTemplate batchTransaction;
+    private final BlockingQueue<Entry> queue;
+    private final int batchSize;
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final GameMetrics gameMetrics;
+
+    // Metrics
+    private final AtomicLong flushedEntries = new AtomicLong();
+    private final AtomicLong failedEntries = new AtomicLong();
+
+    public ActionHistoryJournal(ActionHistoryRepository actionHistoryRepository,
+                                GameRepository gameRepository,
+                                IdSequences idSequences,
+                                PlatformTransactionManager transactionManager,
+                                GameMetrics gameMetrics,
+                                @Value("${mafia.action-history.queue-capacity:10000}") int queueCapacity,
+                                @Value("${mafia.action-history.batch-size:50}") int batchSize) {
+        this.actionHistoryRepository = actionHistoryRepository;
+        this.gameRepository = gameRepository;
+        this.idSequences = idSequences;
+        this.gameMetrics = gameMetrics;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+
+        this.batchTransaction = new TransactionTemplate(transactionManager);
+        this.batchTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Move the id sequence past rows written while ids were still IDENTITY-generated
+     */
+    @PostConstruct
+    public void alignIdSequence() {
+        idSequences.alignPast("action_history", "action_history_seq", ActionHistory.ID_ALLOCATION_SIZE);
+    }
+
+    /**
+     * Queue an action for writing. The game association is resolved when the batch is written.
+     * Inside a transaction the action is queued once it commits, so a failed command leaves no history.
+     */
+    public void append(Long gameId, ActionHistory action) {
+        Entry entry = new Entry(gameId, action);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(entry);
+                }
+            });
+        } else {
+            enqueue(entry);
+        }
+    }
+
+    private void enqueue(Entry entry) {
+        try {
+            while (!queue.offer(entry, 10, TimeUnit.MILLISECONDS)) {
+                // Backpressure: help drain instead of growing without bound
+                flush();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing action history", e);
+        }
+    }
+
+    /**
+     * Write everything queued so far, in batches. Also used as a read barrier before history queries:
+     * the lock is taken even when the queue is empty, so a batch another flush already drained
+     * is committed before this returns.
+     */
+    @Scheduled(fixedDelayString = "${mafia.action-history.flush-interval-ms:50}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            List<Entry> batch = new ArrayList<>(batchSize);
+            while (queue.drainTo(batch, batchSize) > 0) {
+                writeBatch(batch);
+                batch.clear();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void drain() {
+        int pending = queue.size();
+        flush();
+        logger.info("Action history journal drained " + pending + " pending entries on shutdown");
+    }
+
+    public int queueDepth() {
+        return queue.size();
+    }
+
+    public long flushedEntries() {
+        return flushedEntries.get();
+    }
+
+    public long failedEntries() {
+        return failedEntries.get();
+    }
+
+    /**
+     * Timed as mafia.action_history.flush, with outcome "error" when the batch fell back to single rows
+     */
+    private void writeBatch(List<Entry> batch) {
+        long start = System.nanoTime();
+        RuntimeException failure = null;
+        try {
+            batchTransaction.executeWithoutResult(status -> {
+                List<ActionHistory> actions = new ArrayList<>(batch.size());
+                for (Entry entry : batch) {
+                    entry.action.setGame(gameRepository.getReferenceById(entry.gameId));
+                    actions.add(entry.action);
+                }
+                actionHistoryRepository.saveAll(actions);
+            });
+            flushedEntries.addAndGet(batch.size());
+        } catch (RuntimeException e) {
+            failure = e;
+            // A bad row must not wedge the journal; fall back to row-by-row to save the rest
+            logger.severe("Failed to write action history batch of " + batch.size() + ": " + e.getMessage());
+            for (Entry entry : batch) {
+                writeSingle(entry);
+            }
+        } finally {
+            gameMetrics.record("mafia.action_history.flush", System.nanoTime() - start,
+                               "outcome", failure == null ? "success" : "error");
+        }
+    }
+
+    private void writeSingle(Entry entry) {
+        try {
+            entry.action.setId(null);
+            batchTransaction.executeWithoutResult(status -> {
+                entry.action.setGame(gameRepository.getReferenceById(entry.gameId));
+                actionHistoryRepository.save(entry.action);
+            });
+            flushedEntries.incrementAndGet();
+        } catch (RuntimeException e) {
+            failedEntries.incrementAndGet();
+            logger.severe("Dropping action history entry " + entry.action.getActionType()
+                          + " for game " + entry.gameId + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * A queued action and the id of the game it belongs to
+     */
+    private static class Entry {
+        private final Long gameId;
+        private final ActionHistory action;
+
+        Entry(Long gameId, ActionHistory action) {
+            this.gameId = gameId;
+            this.action = action;
+        }
+    }
+}
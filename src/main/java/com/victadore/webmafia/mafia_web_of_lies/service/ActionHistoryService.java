@@ -6,37 +6,51 @@ import com.victadore.webmafia.mafia_web_of_lies.model.GameState;
 import com.victadore.webmafia.mafia_web_of_lies.repository.ActionHistoryRepository;
 import com.victadore.webmafia.mafia_web_of_lies.repository.GameRepository;
 import com.victadore.webmafia.mafia_web_of_lies.exception.GameException;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+// No transaction of its own: recording only queues, and a history read must flush the journal before
+// its query's transaction starts, or a REPEATABLE READ snapshot taken earlier would hide the flushed rows
 @Service
-@Transactional
+@Transactional(propagation = Propagation.SUPPORTS)
 public class ActionHistoryService {
     
+    private static final Set<String> NIGHT_ACTIONS = Set.of("KILL", "SAVE", "INVESTIGATE");
+    
     private final ActionHistoryRepository actionHistoryRepository;
     private final GameRepository gameRepository;
+    private final ActionHistoryJournal actionHistoryJournal;
+    private final GameMetrics gameMetrics;
+    private final GameArchive gameArchive;
     
     public ActionHistoryService(ActionHistoryRepository actionHistoryRepository, 
-                               GameRepository gameRepository) {
+                               GameRepository gameRepository,
+                               ActionHistoryJournal actionHistoryJournal,
+                               GameMetrics gameMetrics,
+                               GameArchive gameArchive) {
         this.actionHistoryRepository = actionHistoryRepository;
         this.gameRepository = gameRepository;
+        this.actionHistoryJournal = actionHistoryJournal;
+        this.gameMetrics = gameMetrics;
+        this.gameArchive = gameArchive;
     }
     
     /**
-     * Records a new action in the game history
+     * Records a new action in the game history. Recording is write-behind: the entry is
+     * queued on the {@link ActionHistoryJournal} and written in a later batch.
      */
-    public ActionHistory recordAction(Long gameId, String actionType, String actorUsername, 
+    public void recordAction(Game game, String actionType, String actorUsername, 
                                     String targetUsername, String actionDetails, String result, 
                                     boolean successful) {
-        Game game = gameRepository.findById(gameId)
-            .orElseThrow(() -> new GameException("Game not found"));
-        
         ActionHistory action = new ActionHistory();
-        action.setGame(game);
         action.setActionType(actionType);
         action.setActorUsername(actorUsername);
         action.setTargetUsername(targetUsername);
@@ -47,19 +61,15 @@ public class ActionHistoryService {
         action.setResult(result);
         action.setSuccessful(successful);
         
-        return actionHistoryRepository.save(action);
+        append(game, action);
     }
     
     /**
      * Records a vote action with specific vote details
      */
-    public ActionHistory recordVoteAction(Long gameId, String actorUsername, String targetUsername, 
+    public void recordVoteAction(Game game, String actorUsername, String targetUsername, 
                                         boolean isSkip, boolean successful) {
-        Game game = gameRepository.findById(gameId)
-            .orElseThrow(() -> new GameException("Game not found"));
-        
         ActionHistory action = new ActionHistory();
-        action.setGame(game);
         action.setActionType(isSkip ? "SKIP_VOTE" : "VOTE");
         action.setActorUsername(actorUsername);
         action.setTargetUsername(isSkip ? null : targetUsername);
@@ -77,19 +87,15 @@ public class ActionHistoryService {
         String result = successful ? "Vote recorded successfully" : "Vote failed";
         action.setResult(result);
         
-        return actionHistoryRepository.save(action);
+        append(game, action);
     }
     
     /**
      * Records a night action (KILL, SAVE, INVESTIGATE)
      */
-    public ActionHistory recordNightAction(Long gameId, String actionType, String actorUsername, 
+    public void recordNightAction(Game game, String actionType, String actorUsername, 
                                          String targetUsername, boolean successful, String additionalData) {
-        Game game = gameRepository.findById(gameId)
-            .orElseThrow(() -> new GameException("Game not found"));
-        
         ActionHistory action = new ActionHistory();
-        action.setGame(game);
         action.setActionType(actionType);
         action.setActorUsername(actorUsername);
         action.setTargetUsername(targetUsername);
@@ -108,19 +114,15 @@ public class ActionHistoryService {
             String.format("%s action failed", actionType);
         action.setResult(result);
         
-        return actionHistoryRepository.save(action);
+        append(game, action);
     }
     
     /**
      * Records a player elimination
      */
-    public ActionHistory recordElimination(Long gameId, String eliminatedUsername, String eliminationType, 
+    public void recordElimination(Game game, String eliminatedUsername, String eliminationType, 
                                          int voteCount, String additionalDetails) {
-        Game game = gameRepository.findById(gameId)
-            .orElseThrow(() -> new GameException("Game not found"));
-        
         ActionHistory action = new ActionHistory();
-        action.setGame(game);
         action.setActionType("ELIMINATE");
         action.setActorUsername("SYSTEM"); // System action
         action.setTargetUsername(eliminatedUsername);
@@ -135,18 +137,14 @@ public class ActionHistoryService {
         action.setActionDetails(details);
         action.setResult("Player eliminated");
         
-        return actionHistoryRepository.save(action);
+        append(game, action);
     }
     
     /**
      * Records game phase transitions
      */
-    public ActionHistory recordPhaseTransition(Long gameId, String fromPhase, String toPhase) {
-        Game game = gameRepository.findById(gameId)
-            .orElseThrow(() -> new GameException("Game not found"));
-        
+    public void recordPhaseTransition(Game game, String fromPhase, String toPhase) {
         ActionHistory action = new ActionHistory();
-        action.setGame(game);
         action.setActionType("PHASE_TRANSITION");
         action.setActorUsername("SYSTEM");
         action.setGameDay(game.getCurrentDay());
@@ -159,18 +157,14 @@ public class ActionHistoryService {
         action.setActionDetails(details);
         action.setResult("Phase transition completed");
         
-        return actionHistoryRepository.save(action);
+        append(game, action);
     }
     
     /**
      * Records game start/end events
      */
-    public ActionHistory recordGameEvent(Long gameId, String eventType, String details, String result) {
-        Game game = gameRepository.findById(gameId)
-            .orElseThrow(() -> new GameException("Game not found"));
-        
+    public void recordGameEvent(Game game, String eventType, String details, String result) {
         ActionHistory action = new ActionHistory();
-        action.setGame(game);
         action.setActionType(eventType);
         action.setActorUsername("SYSTEM");
         action.setGameDay(game.getCurrentDay());
@@ -180,14 +174,27 @@ public class ActionHistoryService {
         action.setActionDetails(details);
         action.setResult(result);
         
-        return actionHistoryRepository.save(action);
+        append(game, action);
+    }
+    
+    /**
+     * Queue an action on the journal, timed as mafia.action_history.record by action type and phase
+     */
+    private void append(Game game, ActionHistory action) {
+        Timer.Sample sample = gameMetrics.start();
+        try {
+            actionHistoryJournal.append(game.getId(), action);
+        } finally {
+            gameMetrics.stop(sample, "mafia.action_history.record",
+                             "action", GameMetrics.actionType(action.getActionType()), "phase", GameMetrics.phase(game));
+        }
     }
     
     /**
      * Get complete game history
      */
     public List<ActionHistory> getGameHistory(Long gameId) {
-        return actionHistoryRepository.findByGameIdOrderByTimestamp(gameId);
+        return history(gameId);
     }
     
     /**
@@ -205,42 +212,51 @@ public class ActionHistoryService {
      * Get player's action history
      */
     public List<ActionHistory> getPlayerHistory(Long gameId, String username) {
-        return actionHistoryRepository.findByGameIdAndActorUsernameOrderByTimestamp(gameId, username);
+        return archivedOr(gameId, action -> username.equals(action.getActorUsername()),
+            () -> actionHistoryRepository.findByGameIdAndActorUsernameOrderByTimestamp(gameId, username));
     }
     
     /**
      * Get actions by type
      */
     public List<ActionHistory> getActionsByType(Long gameId, String actionType) {
-        return actionHistoryRepository.findByGameIdAndActionTypeOrderByTimestamp(gameId, actionType);
+        return archivedOr(gameId, action -> actionType.equals(action.getActionType()),
+            () -> actionHistoryRepository.findByGameIdAndActionTypeOrderByTimestamp(gameId, actionType));
     }
     
     /**
      * Get actions in a specific phase
      */
     public List<ActionHistory> getActionsInPhase(Long gameId, int gameDay, int gamePhase) {
-        return actionHistoryRepository.findByGameIdAndGameDayAndGamePhaseOrderByTimestamp(gameId, gameDay, gamePhase);
+        return archivedOr(gameId, action -> action.getGameDay() == gameDay && action.getGamePhase() == gamePhase,
+            () -> actionHistoryRepository.findByGameIdAndGameDayAndGamePhaseOrderByTimestamp(gameId, gameDay, gamePhase));
     }
     
     /**
      * Get voting history for a specific day
      */
     public List<ActionHistory> getVotingHistory(Long gameId, int gameDay) {
-        return actionHistoryRepository.findVoteActionsInDay(gameId, gameDay);
+        return archivedOr(gameId, action -> action.getGameDay() == gameDay && action.getGamePhase() == 0
+                && ("VOTE".equals(action.getActionType()) || "SKIP_VOTE".equals(action.getActionType())),
+            () -> actionHistoryRepository.findVoteActionsInDay(gameId, gameDay));
     }
     
     /**
      * Get night actions for a specific night
      */
     public List<ActionHistory> getNightActions(Long gameId, int gameDay) {
-        return actionHistoryRepository.findNightActionsInNight(gameId, gameDay);
+        return archivedOr(gameId, action -> action.getGameDay() == gameDay && action.getGamePhase() == 1
+                && NIGHT_ACTIONS.contains(action.getActionType()),
+            () -> actionHistoryRepository.findNightActionsInNight(gameId, gameDay));
     }
     
     /**
      * Get elimination history
      */
     public List<ActionHistory> getEliminationHistory(Long gameId) {
-        return actionHistoryRepository.findEliminationActions(gameId);
+        return archivedOr(gameId, action -> Boolean.TRUE.equals(action.getSuccessful())
+                && ("ELIMINATE".equals(action.getActionType()) || "KILL".equals(action.getActionType())),
+            () -> actionHistoryRepository.findEliminationActions(gameId));
     }
     
     /**
@@ -249,25 +265,24 @@ public class ActionHistoryService {
     public Map<String, Object> getGameStatistics(Long gameId) {
         Map<String, Object> stats = new HashMap<>();
         
+        // Everything below comes from the one history read (archived games have no rows to aggregate)
+        List<ActionHistory> allActions = history(gameId);
+        
         // Total action count
-        stats.put("totalActions", actionHistoryRepository.countByGameId(gameId));
+        stats.put("totalActions", (long) allActions.size());
         
         // Success rate
-        long successfulActions = actionHistoryRepository.countByGameIdAndSuccessful(gameId, true);
-        long totalActions = actionHistoryRepository.countByGameId(gameId);
+        long successfulActions = allActions.stream().filter(action -> Boolean.TRUE.equals(action.getSuccessful())).count();
+        long totalActions = allActions.size();
         double successRate = totalActions > 0 ? (double) successfulActions / totalActions * 100 : 0;
         stats.put("successRate", Math.round(successRate * 100.0) / 100.0);
         
         // Action type breakdown
-        List<Object[]> actionStats = actionHistoryRepository.getActionStatistics(gameId);
-        Map<String, Long> actionCounts = new HashMap<>();
-        for (Object[] stat : actionStats) {
-            actionCounts.put((String) stat[0], (Long) stat[1]);
-        }
+        Map<String, Long> actionCounts = allActions.stream()
+            .collect(Collectors.groupingBy(ActionHistory::getActionType, Collectors.counting()));
         stats.put("actionBreakdown", actionCounts);
         
         // Game duration (first to last action)
-        List<ActionHistory> allActions = actionHistoryRepository.findByGameIdOrderByTimestamp(gameId);
         if (!allActions.isEmpty()) {
             LocalDateTime firstAction = allActions.get(0).getTimestamp();
             LocalDateTime lastAction = allActions.get(allActions.size() - 1).getTimestamp();
@@ -302,8 +317,8 @@ public class ActionHistoryService {
         stats.put("actionBreakdown", actionCounts);
         
         // Times targeted by others
-        List<ActionHistory> targetedActions = actionHistoryRepository
-            .findByGameIdAndTargetUsernameOrderByTimestamp(gameId, username);
+        List<ActionHistory> targetedActions = archivedOr(gameId, action -> username.equals(action.getTargetUsername()),
+            () -> actionHistoryRepository.findByGameIdAndTargetUsernameOrderByTimestamp(gameId, username));
         stats.put("timesTargeted", targetedActions.size());
         
         return stats;
@@ -482,11 +497,41 @@ public class ActionHistoryService {
         return formatActionForDisplay(action);
     }
     
+    /**
+     * Write out any queued history so that subsequent queries see it
+     */
+    public void flushPending() {
+        actionHistoryJournal.flush();
+    }
+    
     /**
      * Delete all action history for a game (when game is deleted)
      */
+    @Transactional
     public void deleteGameHistory(Long gameId) {
-        List<ActionHistory> actions = actionHistoryRepository.findByGameIdOrderByTimestamp(gameId);
-        actionHistoryRepository.deleteAll(actions);
+        actionHistoryJournal.flush();
+        actionHistoryRepository.deleteAllByGameIdInBulk(gameId);
+        gameArchive.delete(gameId);
+    }
+    
+    /**
+     * A game's history in recorded order, from its archive once it has been archived
+     */
+    private List<ActionHistory> history(Long gameId) {
+        return archivedOr(gameId, action -> true, () -> actionHistoryRepository.findByGameIdOrderByTimestamp(gameId));
+    }
+    
+    /**
+     * Every history read goes through here: archived games are filtered in memory, anything else
+     * is queried once the journal has written out what is still queued
+     */
+    private List<ActionHistory> archivedOr(Long gameId, Predicate<ActionHistory> filter,
+                                           Supplier<List<ActionHistory>> query) {
+        return gameArchive.actions(gameRepository.getReferenceById(gameId))
+            .map(actions -> actions.stream().filter(filter).collect(Collectors.toList()))
+            .orElseGet(() -> {
+                actionHistoryJournal.flush();
+                return query.get();
+            });
     }
 } 
\ No newline at end of file
@@ -0,0 +1,154 @@
+package com.victadore.webmafia.mafia_web_of_lies.service;
+
+import com.victadore.webmafia.mafia_web_of_lies.exception.RateLimitExceededException;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Token buckets per (game, player, action), checked before a request touches the database.
+ *
+ * Each bucket is a single AtomicLong holding the time at which it will be full again; taking a
+ * token moves that time forward by one refill interval with a CAS, and is refused while it would
+ * lie more than a burst ahead of now. Buckets that have refilled are indistinguishable from new
+ * ones, so the sweep simply drops them.
+ *
+ * Budgets are configured per action as mafia.rate-limit.{chat|vote|night-action}.burst and .per-minute.
+ *
+ * Keys come from names the client sends. Players seated in a live game are checked against its
+ * in-memory roster and always get a bucket, since their number is bounded by real games. Everyone
+ * else (lobbies, games not in memory, made-up names) shares a pool capped at
+ * mafia.rate-limit.max-buckets. At the cap, refilled buckets are swept early (at most once a second);
+ * if that frees nothing, unseated requests that would need a new bucket are refused until some refill.
+ */
+@Component
+public class ActionRateLimiter {
+
+    public enum Action {
+        CHAT("chat", 10, 120),
+        VOTE("vote", 5, 30),
+        NIGHT_ACTION("night-action", 5, 30);
+
+        private final String property;
+        private final int defaultBurst;
+        private final int defaultPerMinute;
+
+        Action(String property, int defaultBurst, int defaultPerMinute) {
+            this.property = property;
+            this.defaultBurst = defaultBurst;
+            this.defaultPerMinute = defaultPerMinute;
+        }
+
+        public String property() {
+            return property;
+        }
+    }
+
+    private static final long SATURATED_RETRY_MILLIS = 1000;
+
+    private final LiveGameStore liveGameStore;
+    private final Map<Key, AtomicLong> seatedBuckets = new ConcurrentHashMap<>();
+    private final Map<Key, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final Map<Action, Budget> budgets = new EnumMap<>(Action.class);
+    private final Map<Action, LongAdder> rejected = new EnumMap<>(Action.class);
+    private final int maxBuckets;
+    private final AtomicLong lastEarlySweep = new AtomicLong(System.nanoTime() - TimeUnit.SECONDS.toNanos(1));
+
+    public ActionRateLimiter(Environment environment, LiveGameStore liveGameStore) {
+        this.liveGameStore = liveGameStore;
+        this.maxBuckets = environment.getProperty("mafia.rate-limit.max-buckets", Integer.class, 100_000);
+        for (Action action : Action.values()) {
+            String prefix = "mafia.rate-limit." + action.property + ".";
+            int burst = environment.getProperty(prefix + "burst", Integer.class, action.defaultBurst);
+            int perMinute = environment.getProperty(prefix + "per-minute", Integer.class, action.defaultPerMinute);
+            budgets.put(action, new Budget(burst, TimeUnit.MINUTES.toNanos(1) / perMinute));
+            rejected.put(action, new LongAdder());
+        }
+    }
+
+    /**
+     * Take one token for the player's action, or throw if the bucket is empty
+     */
+    public void acquire(Action action, String gameCode, String username) {
+        Budget budget = budgets.get(action);
+        AtomicLong bucket = bucket(new Key(gameCode, username, action));
+        long now = System.nanoTime();
+        while (true) {
+            long fullAt = bucket.get();
+            // nanoTime may be negative and wrap, so compare by difference
+            long next = (fullAt - now > 0 ? fullAt : now) + budget.intervalNanos;
+            long ahead = next - now;
+            if (ahead > budget.windowNanos) {
+                rejected.get(action).increment();
+                long retryAfter = TimeUnit.NANOSECONDS.toMillis(ahead - budget.windowNanos) + 1;
+                throw new RateLimitExceededException("Too many requests, try again in " + retryAfter + " ms", retryAfter);
+            }
+            if (bucket.compareAndSet(fullAt, next)) {
+                return;
+            }
+        }
+    }
+
+    private AtomicLong bucket(Key key) {
+        AtomicLong bucket = seatedBuckets.get(key);
+        if (bucket == null) {
+            bucket = buckets.get(key);
+        }
+        if (bucket != null) {
+            return bucket;
+        }
+        if (liveGameStore.isSeated(key.gameCode(), key.username())) {
+            return seatedBuckets.computeIfAbsent(key, k -> new AtomicLong(System.nanoTime()));
+        }
+        if (buckets.size() >= maxBuckets) {
+            long now = System.nanoTime();
+            long last = lastEarlySweep.get();
+            if (now - last >= TimeUnit.SECONDS.toNanos(1) && lastEarlySweep.compareAndSet(last, now)) {
+                evictFullBuckets();
+            }
+            if (buckets.size() >= maxBuckets) {
+                rejected.get(key.action()).increment();
+                throw new RateLimitExceededException("Too many requests, try again shortly", SATURATED_RETRY_MILLIS);
+            }
+        }
+        return buckets.computeIfAbsent(key, k -> new AtomicLong(System.nanoTime()));
+    }
+
+    /**
+     * Requests refused so far for an action
+     */
+    public long rejectedCount(Action action) {
+        return rejected.get(action).sum();
+    }
+
+    public int bucketCount() {
+        return seatedBuckets.size() + buckets.size();
+    }
+
+    @Scheduled(fixedDelayString = "${mafia.rate-limit.sweep-interval-ms:60000}")
+    public void evictFullBuckets() {
+        long now = System.nanoTime();
+        seatedBuckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+        buckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+    }
+
+    private record Key(String gameCode, String username, Action action) {
+    }
+
+    private static final class Budget {
+        private final long intervalNanos;
+        private final long windowNanos;
+
+        Budget(int burst, long intervalNanos) {
+            this.intervalNanos = intervalNanos;
+            this.windowNanos = burst * intervalNanos;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.victadore.webmafia.mafia_web_of_lies.service;
+
+import com.victadore.webmafia.mafia_web_of_lies.model.ChatMessage;
+import com.victadore.webmafia.mafia_web_of_lies.repository.ChatMessageRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+
+/**
+ * Write-behind journal for chat messages, so a message is broadcast without waiting for its insert.
+ *
+ * Messages are queued and written in JDBC batches every few milliseconds, or as soon as a batch
+ * is full. Phase changes flush early so a phase's chat is durable once the next phase starts.
+ * A full queue makes the sender flush inline, and everything queued is written on shutdown.
+ */
+@Service
+public class ChatMessageJournal {
+    private static final Logger logger = Logger.getLogger(ChatMessageJournal.class.getName());
+
+    private final ChatMessageRepository chatMessageRepository;
+    private final IdSequences idSequences;
+    private final TransactionTemplate batchTransaction;
+    private final BlockingQueue<ChatMessage> queue;
+    private final int batchSize;
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final GameMetrics gameMetrics;
+
+    // Metrics
+    private final AtomicLong flushedMessages = new AtomicLong();
+    private final AtomicLong failedMessages = new AtomicLong();
+
+    public ChatMessageJournal(ChatMessageRepository chatMessageRepository,
+                              IdSequences idSequences,
+                              PlatformTransactionManager transactionManager,
+                              GameMetrics gameMetrics,
+                              @Value("${mafia.chat.queue-capacity:10000}") int queueCapacity,
+                              @Value("${mafia.chat.batch-size:50}") int batchSize) {
+        this.chatMessageRepository = chatMessageRepository;
+        this.idSequences = idSequences;
+        this.gameMetrics = gameMetrics;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+
+        this.batchTransaction = new TransactionTemplate(transactionManager);
+        this.batchTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Move the id sequence past rows written while ids were still IDENTITY-generated
+     */
+    @PostConstruct
+    public void alignIdSequence() {
+        idSequences.alignPast("chat_messages", "chat_messages_seq", ChatMessage.ID_ALLOCATION_SIZE);
+    }
+
+    /**
+     * Queue a message for writing; a full batch is written right away
+     */
+    public void append(ChatMessage message) {
+        try {
+            while (!queue.offer(message, 10, TimeUnit.MILLISECONDS)) {
+                // Backpressure: help drain instead of growing without bound
+                flush();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing chat message", e);
+        }
+        if (queue.size() >= batchSize) {
+            requestFlush();
+        }
+    }
+
+    /**
+     * Flush soon, off the calling thread (used on phase changes and full batches)
+     */
+    public void requestFlush() {
+        if (!queue.isEmpty() && flushRequested.compareAndSet(false, true)) {
+            Thread.startVirtualThread(() -> {
+                flushRequested.set(false);
+                flush();
+            });
+        }
+    }
+
+    /**
+     * Write everything queued so far, in batches. Also used as a read barrier before chat queries and
+     * deletes: the lock is taken even when the queue is empty, so a batch another flush already
+     * drained is committed before this returns.
+     */
+    @Scheduled(fixedDelayString = "${mafia.chat.flush-interval-ms:20}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            List<ChatMessage> batch = new ArrayList<>(batchSize);
+            while (queue.drainTo(batch, batchSize) > 0) {
+                writeBatch(batch);
+                batch.clear();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void drain() {
+        int pending = queue.size();
+        flush();
+        logger.info("Chat journal drained " + pending + " pending messages on shutdown");
+    }
+
+    public int queueDepth() {
+        return queue.size();
+    }
+
+    public long flushedMessages() {
+        return flushedMessages.get();
+    }
+
+    public long failedMessages() {
+        return failedMessages.get();
+    }
+
+    /**
+     * Timed as mafia.chat.journal.flush, with outcome "error" when the batch fell back to single rows
+     */
+    private void writeBatch(List<ChatMessage> batch) {
+        long start = System.nanoTime();
+        RuntimeException failure = null;
+        try {
+            batchTransaction.executeWithoutResult(status -> chatMessageRepository.saveAll(batch));
+            flushedMessages.addAndGet(batch.size());
+        } catch (RuntimeException e) {
+            failure = e;
+            // A bad row must not wedge the journal; fall back to row-by-row to save the rest
+            logger.severe("Failed to write chat batch of " + batch.size() + ": " + e.getMessage());
+            for (ChatMessage message : batch) {
+                writeSingle(message);
+            }
+        } finally {
+            gameMetrics.record("mafia.chat.journal.flush", System.nanoTime() - start,
+                               "outcome", failure == null ? "success" : "error");
+        }
+    }
+
+    private void writeSingle(ChatMessage message) {
+        try {
+            message.setId(null);
+            batchTransaction.executeWithoutResult(status -> chatMessageRepository.save(message));
+            flushedMessages.incrementAndGet();
+        } catch (RuntimeException e) {
+            failedMessages.incrementAndGet();
+            logger.severe("Dropping chat message from " + message.getSenderUsername()
+                          + " in game " + message.getGameCode() + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.victadore.webmafia.mafia_web_of_lies.service;
+
+import com.victadore.webmafia.mafia_web_of_lies.dto.ChatMessageResponse;
+import com.victadore.webmafia.mafia_web_of_lies.model.ChatMessage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Recent chat per (game, day, phase, channel), so chat refreshes are served from memory.
+ *
+ * Each channel is a bounded ring of the newest messages, already mapped to responses: one as the
+ * sender sees it and one as everybody else does, so a read only picks references. The database
+ * stays the durable record; a channel that is not in memory yet (first use, or after a restart)
+ * is loaded from it once. Only the current day and phase of a game are kept, and games nobody has
+ * touched for a while are dropped.
+ */
+@Component
+public class ChatRingBuffers {
+    private static final Logger logger = Logger.getLogger(ChatRingBuffers.class.getName());
+
+    private final Map<String, GameChannels> games = new ConcurrentHashMap<>();
+    private final int capacity;
+    private final long idleNanos;
+
+    public ChatRingBuffers(@Value("${mafia.chat.buffer-capacity:500}") int capacity,
+                           @Value("${mafia.chat.buffer-idle-minutes:30}") long idleMinutes) {
+        this.capacity = capacity;
+        this.idleNanos = TimeUnit.MINUTES.toNanos(idleMinutes);
+    }
+
+    /**
+     * Channel name for a message: PUBLIC, SYSTEM, or PRIVATE:{targetRole}
+     */
+    public static String channelOf(ChatMessage.ChatType chatType, String targetRole) {
+        return chatType == ChatMessage.ChatType.PRIVATE ? "PRIVATE:" + targetRole : chatType.name();
+    }
+
+    /**
+     * Messages of a channel, oldest first, as the viewer sees them. The loader supplies the
+     * durable copy if the channel is not in memory yet.
+     */
+    public List<ChatMessageResponse> read(String gameCode, int day, int phase, String channel, String viewer,
+                                          Supplier<List<ChatMessage>> loader) {
+        return ring(gameCode, day, phase, channel, loader).snapshot(viewer);
+    }
+
+    /**
+     * Open the channel a message is about to be written to, loading it first if needed, so the
+     * message can then be appended without being double-counted by that load
+     */
+    public Ring open(String gameCode, int day, int phase, String channel, Supplier<List<ChatMessage>> loader) {
+        return ring(gameCode, day, phase, channel, loader);
+    }
+
+    public void evictGame(String gameCode) {
+        games.remove(gameCode);
+    }
+
+    /**
+     * Number of channels currently held in memory
+     */
+    public int channelCount() {
+        return games.values().stream().mapToInt(game -> game.channels.size()).sum();
+    }
+
+    @Scheduled(fixedDelayString = "${mafia.chat.buffer-sweep-interval-ms:60000}")
+    public void evictIdleGames() {
+        long now = System.nanoTime();
+        int before = games.size();
+        games.values().removeIf(game -> now - game.lastUsed > idleNanos);
+        int evicted = before - games.size();
+        if (evicted > 0) {
+            logger.fine("Evicted chat buffers of " + evicted + " idle games");
+        }
+    }
+
+    private Ring ring(String gameCode, int day, int phase, String channel, Supplier<List<ChatMessage>> loader) {
+        GameChannels game = games.computeIfAbsent(gameCode, code -> new GameChannels());
+        game.lastUsed = System.nanoTime();
+        String key = day + ":" + phase + ":" + channel;
+
+        Ring ring = game.channels.get(key);
+        if (ring != null) {
+            return ring;
+        }
+
+        // Load outside the map so a slow query for one channel does not block the others
+        Ring loaded = new Ring(capacity, day, phase);
+        loaded.load(loader.get());
+        ring = game.channels.putIfAbsent(key, loaded);
+        if (ring == null) {
+            ring = loaded;
+            // Earlier days and phases are never read again
+            game.channels.values().removeIf(other -> other.day < day || (other.day == day && other.phase < phase));
+        }
+        return ring;
+    }
+
+    private static class GameChannels {
+        private final Map<String, Ring> channels = new ConcurrentHashMap<>();
+        private volatile long lastUsed;
+    }
+
+    /**
+     * Fixed-size ring of the newest messages of one channel
+     */
+    public static class Ring {
+        private final Entry[] entries;
+        private final int day;
+        private final int phase;
+        private final Set<Long> loadedIds = new HashSet<>();
+        private long appended;
+
+        Ring(int capacity, int day, int phase) {
+            this.entries = new Entry[capacity];
+            this.day = day;
+            this.phase = phase;
+        }
+
+        private synchronized void load(List<ChatMessage> messages) {
+            int from = Math.max(0, messages.size() - entries.length);
+            for (ChatMessage message : messages.subList(from, messages.size())) {
+                if (message.getId() != null) {
+                    loadedIds.add(message.getId());
+                }
+                add(new Entry(message));
+            }
+        }
+
+        /**
+         * Add a message and return the response to broadcast for it
+         */
+        public synchronized ChatMessageResponse append(ChatMessage message) {
+            if (message.getId() != null && loadedIds.remove(message.getId())) {
+                // Already picked up when the channel was loaded
+                ChatMessageResponse loaded = find(message.getId());
+                if (loaded != null) {
+                    return loaded;
+                }
+            }
+            Entry entry = new Entry(message);
+            add(entry);
+            return entry.asSender;
+        }
+
+        private void add(Entry entry) {
+            entries[(int) (appended % entries.length)] = entry;
+            appended++;
+        }
+
+        private ChatMessageResponse find(Long id) {
+            for (Entry entry : entries) {
+                if (entry != null && id.equals(entry.asSender.getId())) {
+                    return entry.asSender;
+                }
+            }
+            return null;
+        }
+
+        private synchronized List<ChatMessageResponse> snapshot(String viewer) {
+            int size = (int) Math.min(appended, entries.length);
+            List<ChatMessageResponse> result = new ArrayList<>(size);
+            for (long i = appended - size; i < appended; i++) {
+                Entry entry = entries[(int) (i % entries.length)];
+                result.add(entry.sender.equals(viewer) ? entry.asSender : entry.asOthers);
+            }
+            return result;
+        }
+    }
+
+    private static class Entry {
+        private final String sender;
+        private final ChatMessageResponse asSender;
+        private final ChatMessageResponse asOthers;
+
+        Entry(ChatMessage message) {
+            this.sender = message.getSenderUsername();
+            this.asSender = new ChatMessageResponse(message, sender);
+            this.asOthers = new ChatMessageResponse(message, null);
+        }
+    }
+}
@@ -4,12 +4,11 @@ import com.victadore.webmafia.mafia_web_of_lies.dto.ChatMessageRequest;
 import com.victadore.webmafia.mafia_web_of_lies.dto.ChatMessageResponse;
 import com.victadore.webmafia.mafia_web_of_lies.model.ChatMessage;
 import com.victadore.webmafia.mafia_web_of_lies.model.Game;
-import com.victadore.webmafia.mafia_web_of_lies.model.Player;
+import com.victadore.webmafia.mafia_web_of_lies.model.Role;
 import com.victadore.webmafia.mafia_web_of_lies.repository.ChatMessageRepository;
 import com.victadore.webmafia.mafia_web_of_lies.repository.GameRepository;
-import com.victadore.webmafia.mafia_web_of_lies.repository.PlayerRepository;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -24,36 +23,66 @@ public class ChatService {
     private ChatMessageRepository chatMessageRepository;
     
     @Autowired
-    private GameRepository gameRepository;
+    private LiveGameStore liveGameStore;
     
     @Autowired
-    private PlayerRepository playerRepository;
+    private WebSocketService webSocketService;
     
     @Autowired
-    private SimpMessagingTemplate messagingTemplate;
+    private ValidationService validationService;
     
     @Autowired
-    private ValidationService validationService;
+    private GameMetrics gameMetrics;
+    
+    @Autowired
+    private ChatRingBuffers chatRingBuffers;
+    
+    @Autowired
+    private ChatMessageJournal chatMessageJournal;
+    
+    @Autowired
+    private GameRepository gameRepository;
+    
+    @Autowired
+    private GameArchive gameArchive;
     
     /**
-     * Send a chat message (public or private)
+     * Send a chat message (public or private), timed as mafia.chat.send by chat type and phase.
+     * The message is broadcast straight away; its row is written by the chat journal.
      */
-    @Transactional
     public ChatMessageResponse sendMessage(String gameCode, String senderUsername, ChatMessageRequest request) {
-        // Validate game exists
-        Game game = gameRepository.findByGameCode(gameCode);
-        if (game == null) {
-            throw new IllegalArgumentException("Game not found");
+        Timer.Sample sample = gameMetrics.start();
+        String phase = "none";
+        Throwable failure = null;
+        try {
+            // Validate game exists
+            LiveGameStore.GameView game = liveGameStore.view(gameCode);
+            if (game == null) {
+                throw new IllegalArgumentException("Game not found");
+            }
+            phase = GameMetrics.phase(game.gameState(), game.currentPhase());
+            return deliverMessage(game, senderUsername, request);
+        } catch (RuntimeException e) {
+            failure = e;
+            throw e;
+        } finally {
+            String chatType = request.getChatType() != null ? request.getChatType().toString() : null;
+            gameMetrics.stop(sample, "mafia.chat.send", "type", GameMetrics.actionType(chatType),
+                             "phase", phase, "outcome", GameMetrics.outcome(failure));
         }
+    }
+    
+    private ChatMessageResponse deliverMessage(LiveGameStore.GameView game, String senderUsername, ChatMessageRequest request) {
+        String gameCode = game.gameCode();
         
         // Validate player exists and is in the game
-        Player sender = playerRepository.findByUsernameAndGameId(senderUsername, game.getId());
+        LiveGameStore.PlayerView sender = game.player(senderUsername);
         if (sender == null) {
             throw new IllegalArgumentException("Player not found in game");
         }
         
         // Validate player is alive (dead players cannot chat)
-        if (!sender.isAlive()) {
+        if (!sender.alive()) {
             throw new IllegalArgumentException("Dead players cannot send chat messages");
         }
         
@@ -69,21 +98,25 @@ public class ChatService {
         // Validate chat permissions based on phase and role
         validateChatPermissions(game, sender, request);
         
-        // Create and save chat message
+        // Create chat message
         ChatMessage chatMessage = new ChatMessage(
             gameCode,
             senderUsername,
             request.getMessage().trim(),
-            game.getCurrentDay(),
-            game.getCurrentPhase(),
+            game.currentDay(),
+            game.currentPhase(),
             request.getChatType(),
             request.getTargetRole()
         );
         
-        chatMessage = chatMessageRepository.save(chatMessage);
+        // Open the channel's buffer before queueing so loading it cannot pick up this message as well
+        ChatRingBuffers.Ring ring = chatRingBuffers.open(gameCode, chatMessage.getDay(), chatMessage.getPhase(),
+            ChatRingBuffers.channelOf(chatMessage.getChatType(), chatMessage.getTargetRole()),
+            () -> loadChannel(gameCode, chatMessage.getDay(), chatMessage.getPhase(),
+                              chatMessage.getChatType(), chatMessage.getTargetRole()));
         
-        // Create response
-        ChatMessageResponse response = new ChatMessageResponse(chatMessage, senderUsername);
+        chatMessageJournal.append(chatMessage);
+        ChatMessageResponse response = ring.append(chatMessage);
         
         // Send via WebSocket to appropriate recipients
         broadcastMessage(gameCode, response);
@@ -92,64 +125,86 @@ public class ChatService {
     }
     
     /**
-     * Get chat messages for a player (based on their role and current phase)
+     * Get chat messages for a player (based on their role and current phase).
+     * Served from the in-memory chat buffers; the database is only read the first time a channel is used.
      */
     public List<ChatMessageResponse> getMessagesForPlayer(String gameCode, String username) {
         // Get game and player info
-        Game game = gameRepository.findByGameCode(gameCode);
+        LiveGameStore.GameView game = liveGameStore.view(gameCode);
         if (game == null) {
             throw new IllegalArgumentException("Game not found");
         }
         
-        Player player = playerRepository.findByUsernameAndGameId(username, game.getId());
+        LiveGameStore.PlayerView player = game.player(username);
         if (player == null) {
             throw new IllegalArgumentException("Player not found in game");
         }
         
-        List<ChatMessage> messages;
+        int day = game.currentDay();
         
-        if (game.getCurrentPhase() == 0) { // DAY phase
+        if (game.currentPhase() == 0) { // DAY phase
             // Show all public messages from current day
-            messages = chatMessageRepository.findMessagesByGameDayPhaseAndType(
-                gameCode, game.getCurrentDay(), 0, ChatMessage.ChatType.PUBLIC);
+            return chatRingBuffers.read(gameCode, day, 0, ChatRingBuffers.channelOf(ChatMessage.ChatType.PUBLIC, null),
+                username, () -> loadChannel(gameCode, day, 0, ChatMessage.ChatType.PUBLIC, null));
         } else { // NIGHT phase
-            if ("MAFIA".equals(player.getRole().name())) {
+            if (player.role() == Role.MAFIA) {
                 // Mafia can see their private chat
-                messages = chatMessageRepository.findPrivateMessagesByGameDayPhaseAndRole(
-                    gameCode, game.getCurrentDay(), 1, "MAFIA");
+                return chatRingBuffers.read(gameCode, day, 1, ChatRingBuffers.channelOf(ChatMessage.ChatType.PRIVATE, "MAFIA"),
+                    username, () -> loadChannel(gameCode, day, 1, ChatMessage.ChatType.PRIVATE, "MAFIA"));
             } else {
                 // Non-Mafia roles cannot chat during night
-                messages = List.of();
+                return List.of();
             }
         }
-        
-        return messages.stream()
-            .map(msg -> new ChatMessageResponse(msg, username))
-            .collect(Collectors.toList());
+    }
+    
+    /**
+     * Durable copy of one chat channel, used to fill its buffer
+     */
+    private List<ChatMessage> loadChannel(String gameCode, int day, int phase, ChatMessage.ChatType chatType, String targetRole) {
+        chatMessageJournal.flush();
+        if (chatType == ChatMessage.ChatType.PRIVATE) {
+            return chatMessageRepository.findPrivateMessagesByGameDayPhaseAndRole(gameCode, day, phase, targetRole);
+        }
+        return chatMessageRepository.findMessagesByGameDayPhaseAndType(gameCode, day, phase, chatType);
     }
     
     /**
      * Get all public messages for a game (for admin/spectator view)
      */
     public List<ChatMessageResponse> getPublicMessages(String gameCode, String username) {
-        List<ChatMessage> messages = chatMessageRepository.findPublicMessagesByGameCode(gameCode);
+        chatMessageJournal.flush();
+        List<ChatMessage> messages = archivedChat(gameCode)
+            .map(archived -> archived.stream()
+                .filter(msg -> msg.getChatType() == ChatMessage.ChatType.PUBLIC)
+                .collect(Collectors.toList()))
+            .orElseGet(() -> chatMessageRepository.findPublicMessagesByGameCode(gameCode));
         return messages.stream()
             .map(msg -> new ChatMessageResponse(msg, username))
             .collect(Collectors.toList());
     }
     
+    /**
+     * Chat of an archived game, read from its archive file
+     */
+    private Optional<List<ChatMessage>> archivedChat(String gameCode) {
+        Game game = gameRepository.findByGameCode(gameCode);
+        return game != null ? gameArchive.chat(game.getId(), gameCode) : Optional.empty();
+    }
+    
     /**
      * Validate chat permissions based on game phase and player role
      */
-    private void validateChatPermissions(Game game, Player player, ChatMessageRequest request) {
-        if (game.getCurrentPhase() == 0) { // DAY phase
+    private void validateChatPermissions(LiveGameStore.GameView game, LiveGameStore.PlayerView player,
+                                         ChatMessageRequest request) {
+        if (game.currentPhase() == 0) { // DAY phase
             // Only public chat allowed during day
             if (request.getChatType() != ChatMessage.ChatType.PUBLIC) {
                 throw new IllegalArgumentException("Only public chat is allowed during day phase");
             }
         } else { // NIGHT phase
             // Only Mafia can chat during night, and only privately
-            if (!"MAFIA".equals(player.getRole().name())) {
+            if (player.role() != Role.MAFIA) {
                 throw new IllegalArgumentException("Only Mafia members can chat during night phase");
             }
             
@@ -166,19 +221,18 @@ public class ChatService {
     private void broadcastMessage(String gameCode, ChatMessageResponse message) {
         if (message.getChatType() == ChatMessage.ChatType.PUBLIC) {
             // Send to all players in the game
-            messagingTemplate.convertAndSend("/topic/game/" + gameCode + "/chat", message);
+            webSocketService.broadcast("/topic/game/" + gameCode + "/chat", message);
         } else if (message.getChatType() == ChatMessage.ChatType.PRIVATE) {
             // Send only to players with the target role
-            messagingTemplate.convertAndSend("/topic/game/" + gameCode + "/chat/" + message.getTargetRole(), message);
+            webSocketService.broadcast("/topic/game/" + gameCode + "/chat/" + message.getTargetRole(), message);
         }
     }
     
     /**
      * Send a system message (for game events)
      */
-    @Transactional
     public void sendSystemMessage(String gameCode, String message) {
-        Game game = gameRepository.findByGameCode(gameCode);
+        LiveGameStore.GameView game = liveGameStore.view(gameCode);
         if (game == null) {
             throw new IllegalArgumentException("Game not found");
         }
@@ -187,17 +241,17 @@ public class ChatService {
             gameCode,
             "SYSTEM",
             message,
-            game.getCurrentDay(),
-            game.getCurrentPhase(),
+            game.currentDay(),
+            game.currentPhase(),
             ChatMessage.ChatType.SYSTEM
         );
         
-        chatMessage = chatMessageRepository.save(chatMessage);
+        chatMessageJournal.append(chatMessage);
         
         ChatMessageResponse response = new ChatMessageResponse(chatMessage, "");
         
         // Send system message to all players
-        messagingTemplate.convertAndSend("/topic/game/" + gameCode + "/chat", response);
+        webSocketService.broadcast("/topic/game/" + gameCode + "/chat", response);
     }
     
     /**
@@ -205,6 +259,9 @@ public class ChatService {
      */
     @Transactional
     public void clearGameChat(String gameCode) {
-        chatMessageRepository.deleteByGameCode(gameCode);
+        // Queued rows of this game must not be written after the delete
+        chatMessageJournal.flush();
+        chatMessageRepository.deleteAllByGameCodeInBulk(gameCode);
+        chatRingBuffers.evictGame(gameCode);
     }
 } 
\ No newline at end of file
@@ -0,0 +1,522 @@
+package com.victadore.webmafia.mafia_web_of_lies.service;
+
+import com.victadore.webmafia.mafia_web_of_lies.model.ActionHistory;
+import com.victadore.webmafia.mafia_web_of_lies.model.ChatMessage;
+import com.victadore.webmafia.mafia_web_of_lies.model.Game;
+import com.victadore.webmafia.mafia_web_of_lies.model.GameState;
+import com.victadore.webmafia.mafia_web_of_lies.model.Player;
+import com.victadore.webmafia.mafia_web_of_lies.model.Role;
+import com.victadore.webmafia.mafia_web_of_lies.repository.ActionHistoryRepository;
+import com.victadore.webmafia.mafia_web_of_lies.repository.ChatMessageRepository;
+import com.victadore.webmafia.mafia_web_of_lies.repository.GameRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cold archive of finished games: a game's action history, chat and roster are written to one
+ * compressed file on local disk and its history and chat rows are then deleted from the hot tables.
+ *
+ * A file starts with a fixed-size index of its sections (offset, length and record count of the
+ * actions, chat and players), each section compressed on its own. Readers map the file and inflate
+ * only the section they need. A file is only ever complete (written aside, then moved into place)
+ * and holds exactly the rows that were deleted, so its presence is what marks a game as archived.
+ * Strings are length-prefixed UTF-8, with -1 for null.
+ *
+ * Games are archived once they have been counted in player statistics and ended more than
+ * mafia.archive.min-age-days ago. Player rows stay in the hot table: they are few per game and
+ * player history pages look games up through them.
+ */
+@Service
+public class GameArchive {
+    private static final Logger logger = Logger.getLogger(GameArchive.class.getName());
+
+    private static final int MAGIC = 0x4D414641; // "MAFA"
+    private static final short VERSION = 1;
+    private static final int ACTIONS = 0;
+    private static final int CHAT = 1;
+    private static final int PLAYERS = 2;
+    private static final int SECTIONS = 3;
+    // Per section: offset (long), compressed length (int), record count (int)
+    private static final int SECTION_ENTRY = 16;
+    private static final int HEADER = 8 + SECTIONS * SECTION_ENTRY;
+    private static final int GAMES_PER_DIRECTORY = 1000;
+
+    private final GameRepository gameRepository;
+    private final ActionHistoryRepository actionHistoryRepository;
+    private final ChatMessageRepository chatMessageRepository;
+    private final ActionHistoryJournal actionHistoryJournal;
+    private final ChatMessageJournal chatMessageJournal;
+    private final TransactionTemplate readTransaction;
+    private final TransactionTemplate writeTransaction;
+    private final Path directory;
+    private final int minAgeDays;
+    private final int batchSize;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public GameArchive(GameRepository gameRepository,
+                       ActionHistoryRepository actionHistoryRepository,
+                       ChatMessageRepository chatMessageRepository,
+                       ActionHistoryJournal actionHistoryJournal,
+                       ChatMessageJournal chatMessageJournal,
+                       PlatformTransactionManager transactionManager,
+                       @Value("${mafia.archive.directory:./data/archive}") String directory,
+                       @Value("${mafia.archive.min-age-days:30}") int minAgeDays,
+                       @Value("${mafia.archive.batch-size:100}") int batchSize) {
+        this.gameRepository = gameRepository;
+        this.actionHistoryRepository = actionHistoryRepository;
+        this.chatMessageRepository = chatMessageRepository;
+        this.actionHistoryJournal = actionHistoryJournal;
+        this.chatMessageJournal = chatMessageJournal;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.directory = Paths.get(directory);
+        this.minAgeDays = Math.max(0, minAgeDays);
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    public boolean isArchived(Long gameId) {
+        return gameId != null && Files.exists(file(gameId));
+    }
+
+    /**
+     * Archived action history of a game in recorded order, or empty if the game is not archived
+     */
+    public Optional<List<ActionHistory>> actions(Game game) {
+        return read(game.getId(), ACTIONS, in -> readAction(in, game));
+    }
+
+    /**
+     * Archived chat of a game in sent order, or empty if the game is not archived
+     */
+    public Optional<List<ChatMessage>> chat(Long gameId, String gameCode) {
+        return read(gameId, CHAT, in -> readMessage(in, gameCode));
+    }
+
+    /**
+     * Roster of an archived game as it was when archived, or empty if the game is not archived
+     */
+    public Optional<List<Player>> players(Game game) {
+        return read(game.getId(), PLAYERS, in -> readPlayer(in, game));
+    }
+
+    /**
+     * Remove a game's archive file, if it has one
+     */
+    public void delete(Long gameId) {
+        try {
+            Files.deleteIfExists(file(gameId));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not delete archive of game " + gameId, e);
+        }
+    }
+
+    /**
+     * Start an archive run in the background, unless one is running; the scheduler thread also
+     * flushes the journals, so it must not be held up
+     */
+    @Scheduled(fixedDelayString = "${mafia.archive.interval-ms:3600000}",
+               initialDelayString = "${mafia.archive.interval-ms:3600000}")
+    public void archiveInBackground() {
+        if (!running.get()) {
+            Thread.startVirtualThread(this::archiveFinishedGames);
+        }
+    }
+
+    /**
+     * Archive every counted game that ended more than mafia.archive.min-age-days ago.
+     * Returns the number of games archived.
+     */
+    public int archiveFinishedGames() {
+        if (!running.compareAndSet(false, true)) {
+            return 0;
+        }
+        try {
+            // Rows still queued for the games would otherwise be written after their deletion
+            actionHistoryJournal.flush();
+            chatMessageJournal.flush();
+
+            LocalDateTime endedBefore = LocalDateTime.now().minusDays(minAgeDays);
+            int archived = 0;
+            int failed = 0;
+            long afterId = 0;
+            List<Long> gameIds;
+            do {
+                long after = afterId;
+                gameIds = readTransaction.execute(status -> gameRepository.findArchivableGameIds(
+                    GameState.FINISHED, endedBefore, after, PageRequest.of(0, batchSize)));
+                if (gameIds == null || gameIds.isEmpty()) {
+                    break;
+                }
+                for (Long gameId : gameIds) {
+                    try {
+                        archive(gameId);
+                        archived++;
+                    } catch (IOException | RuntimeException e) {
+                        logger.warning("Could not archive game " + gameId + ": " + e.getMessage());
+                        failed++;
+                    }
+                }
+                afterId = gameIds.get(gameIds.size() - 1);
+            } while (gameIds.size() == batchSize);
+
+            if (archived > 0 || failed > 0) {
+                logger.info("Archived " + archived + " finished games" + (failed > 0 ? ", " + failed + " failed" : ""));
+            }
+            return archived;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private void archive(Long gameId) throws IOException {
+        Snapshot snapshot = readTransaction.execute(status -> {
+            Game game = gameRepository.findWithPlayersByIdIn(List.of(gameId)).stream().findFirst().orElse(null);
+            if (game == null) {
+                return null;
+            }
+            return new Snapshot(game.getGameCode(),
+                actionHistoryRepository.findByGameIdInOrderByGameIdAscTimestampAscIdAsc(List.of(gameId)),
+                chatMessageRepository.findAllMessagesByGameCode(game.getGameCode()),
+                new ArrayList<>(game.getPlayers()));
+        });
+        if (snapshot == null) {
+            return;
+        }
+
+        Path file = file(gameId);
+        write(file, snapshot);
+        // Only delete what the file is known to give back
+        int actions = read(gameId, ACTIONS, in -> readAction(in, null)).map(List::size).orElse(-1);
+        int messages = read(gameId, CHAT, in -> readMessage(in, snapshot.gameCode())).map(List::size).orElse(-1);
+        if (actions != snapshot.actions().size() || messages != snapshot.chat().size()) {
+            Files.deleteIfExists(file);
+            throw new IOException("archive file does not match the game's rows");
+        }
+
+        writeTransaction.executeWithoutResult(status -> {
+            actionHistoryRepository.deleteAllByGameIdInBulk(gameId);
+            chatMessageRepository.deleteAllByGameCodeInBulk(snapshot.gameCode());
+            gameRepository.markArchived(gameId, LocalDateTime.now());
+        });
+    }
+
+    private Path file(Long gameId) {
+        return directory.resolve(String.valueOf(gameId / GAMES_PER_DIRECTORY)).resolve(gameId + ".mafa");
+    }
+
+    // Writing
+
+    private static void write(Path file, Snapshot snapshot) throws IOException {
+        byte[][] sections = new byte[SECTIONS][];
+        sections[ACTIONS] = compress(out -> {
+            for (ActionHistory action : snapshot.actions()) {
+                writeAction(out, action);
+            }
+        });
+        sections[CHAT] = compress(out -> {
+            for (ChatMessage message : snapshot.chat()) {
+                writeMessage(out, message);
+            }
+        });
+        sections[PLAYERS] = compress(out -> {
+            for (Player player : snapshot.players()) {
+                writePlayer(out, player);
+            }
+        });
+        int[] counts = new int[SECTIONS];
+        counts[ACTIONS] = snapshot.actions().size();
+        counts[CHAT] = snapshot.chat().size();
+        counts[PLAYERS] = snapshot.players().size();
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER);
+        header.putInt(MAGIC).putShort(VERSION).putShort((short) SECTIONS);
+        long offset = HEADER;
+        for (int section = 0; section < SECTIONS; section++) {
+            header.putLong(offset).putInt(sections[section].length).putInt(counts[section]);
+            offset += sections[section].length;
+        }
+        header.flip();
+
+        Files.createDirectories(file.getParent());
+        Path partial = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(partial, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(channel, header);
+            for (byte[] section : sections) {
+                writeFully(channel, ByteBuffer.wrap(section));
+            }
+            channel.force(true);
+        }
+        Files.move(partial, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static byte[] compress(SectionWriter writer) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(bytes)))) {
+            writer.write(out);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeAction(DataOutputStream out, ActionHistory action) throws IOException {
+        out.writeLong(action.getId());
+        writeString(out, action.getActionType());
+        writeString(out, action.getActorUsername());
+        writeString(out, action.getTargetUsername());
+        out.writeInt(action.getGameDay());
+        out.writeInt(action.getGamePhase());
+        writeTime(out, action.getTimestamp());
+        writeString(out, action.getActionDetails());
+        writeString(out, action.getResult());
+        writeFlag(out, action.getSuccessful());
+        writeFlag(out, action.getIsSkipVote());
+        writeNumber(out, action.getVoteCount());
+        writeString(out, action.getAdditionalData());
+    }
+
+    private static void writeMessage(DataOutputStream out, ChatMessage message) throws IOException {
+        out.writeLong(message.getId());
+        writeString(out, message.getSenderUsername());
+        writeString(out, message.getMessage());
+        writeTime(out, message.getTimestamp());
+        out.writeInt(message.getDay());
+        out.writeInt(message.getPhase());
+        writeString(out, message.getChatType() != null ? message.getChatType().name() : null);
+        writeString(out, message.getTargetRole());
+    }
+
+    private static void writePlayer(DataOutputStream out, Player player) throws IOException {
+        out.writeLong(player.getId());
+        writeString(out, player.getUsername());
+        writeString(out, player.getRole() != null ? player.getRole().name() : null);
+        out.writeBoolean(player.isAlive());
+        out.writeBoolean(player.isInvestigated());
+    }
+
+    // Length-prefixed UTF-8, -1 for null; writeUTF fails on null and on strings over 64 KB of UTF-8
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeNumber(DataOutputStream out, Integer value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeInt(value);
+        }
+    }
+
+    // Nullable booleans as -1 (null), 0 or 1
+    private static void writeFlag(DataOutputStream out, Boolean value) throws IOException {
+        out.writeByte(value == null ? -1 : value ? 1 : 0);
+    }
+
+    private static void writeTime(DataOutputStream out, LocalDateTime time) throws IOException {
+        out.writeLong(time.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(time.getNano());
+    }
+
+    // Reading
+
+    private <T> Optional<List<T>> read(Long gameId, int section, SectionReader<T> reader) {
+        if (gameId == null) {
+            return Optional.empty();
+        }
+        Path file = file(gameId);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            checkHeader(mapped, file);
+            int entry = 8 + section * SECTION_ENTRY;
+            int offset = (int) mapped.getLong(entry);
+            int length = mapped.getInt(entry + 8);
+            int count = mapped.getInt(entry + 12);
+
+            List<T> records = new ArrayList<>(count);
+            try (ArchiveInput in = new ArchiveInput(new BufferedInputStream(
+                    new GZIPInputStream(new BufferInputStream(mapped.slice(offset, length)))))) {
+                for (int i = 0; i < count; i++) {
+                    records.add(reader.read(in));
+                }
+            }
+            return Optional.of(records);
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read archive of game " + gameId, e);
+        }
+    }
+
+    private static void checkHeader(ByteBuffer mapped, Path file) throws IOException {
+        if (mapped.limit() < HEADER || mapped.getInt(0) != MAGIC || mapped.getShort(4) != VERSION
+                || mapped.getShort(6) != SECTIONS) {
+            throw new IOException("Not a game archive: " + file);
+        }
+    }
+
+    private static ActionHistory readAction(ArchiveInput in, Game game) throws IOException {
+        ActionHistory action = new ActionHistory();
+        action.setId(in.readLong());
+        action.setGame(game);
+        action.setActionType(in.readString());
+        action.setActorUsername(in.readString());
+        action.setTargetUsername(in.readString());
+        action.setGameDay(in.readInt());
+        action.setGamePhase(in.readInt());
+        action.setTimestamp(readTime(in));
+        action.setActionDetails(in.readString());
+        action.setResult(in.readString());
+        action.setSuccessful(readFlag(in));
+        action.setIsSkipVote(readFlag(in));
+        action.setVoteCount(readNumber(in));
+        action.setAdditionalData(in.readString());
+        return action;
+    }
+
+    private static ChatMessage readMessage(ArchiveInput in, String gameCode) throws IOException {
+        ChatMessage message = new ChatMessage();
+        message.setId(in.readLong());
+        message.setGameCode(gameCode);
+        message.setSenderUsername(in.readString());
+        message.setMessage(in.readString());
+        message.setTimestamp(readTime(in));
+        message.setDay(in.readInt());
+        message.setPhase(in.readInt());
+        String chatType = in.readString();
+        message.setChatType(chatType != null ? ChatMessage.ChatType.valueOf(chatType) : null);
+        message.setTargetRole(in.readString());
+        return message;
+    }
+
+    private static Player readPlayer(ArchiveInput in, Game game) throws IOException {
+        Player player = new Player();
+        player.setId(in.readLong());
+        player.setUsername(in.readString());
+        String role = in.readString();
+        player.setRole(role != null ? Role.valueOf(role) : null);
+        player.setAlive(in.readBoolean());
+        player.setInvestigated(in.readBoolean());
+        player.setGame(game);
+        return player;
+    }
+
+    private static Integer readNumber(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readInt() : null;
+    }
+
+    private static Boolean readFlag(DataInputStream in) throws IOException {
+        byte value = in.readByte();
+        return value < 0 ? null : value == 1;
+    }
+
+    private static LocalDateTime readTime(DataInputStream in) throws IOException {
+        long seconds = in.readLong();
+        return LocalDateTime.ofEpochSecond(seconds, in.readInt(), ZoneOffset.UTC);
+    }
+
+    private record Snapshot(String gameCode, List<ActionHistory> actions, List<ChatMessage> chat, List<Player> players) {
+    }
+
+    @FunctionalInterface
+    private interface SectionWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface SectionReader<T> {
+        T read(ArchiveInput in) throws IOException;
+    }
+
+    /**
+     * A section's records, with strings read as writeString wrote them
+     */
+    private static final class ArchiveInput extends DataInputStream {
+        ArchiveInput(InputStream in) {
+            super(in);
+        }
+
+        String readString() throws IOException {
+            int length = readInt();
+            if (length < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Reads a (mapped) buffer as a stream
+     */
+    private static final class BufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        BufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
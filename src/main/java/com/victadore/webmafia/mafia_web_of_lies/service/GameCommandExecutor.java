@@ -0,0 +1,131 @@
+package com.victadore.webmafia.mafia_web_of_lies.service;
+
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Single-writer mailbox per game.
+ *
+ * Commands for the same game are queued and applied one at a time, in submission order,
+ * by a virtual thread that exists only while that game's mailbox has work. Commands for
+ * different games run fully in parallel. Callers block until their command has run and
+ * get its result (or its exception) back on their own thread.
+ */
+@Service
+public class GameCommandExecutor {
+    private static final ThreadLocal<Mailbox> CURRENT_MAILBOX = new ThreadLocal<>();
+
+    private final Map<String, Mailbox> mailboxes = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Run a command on the game's mailbox and wait for its result
+     */
+    public <T> T execute(String gameCode, Supplier<T> command) {
+        // A command that issues another command for its own game runs it inline
+        Mailbox current = CURRENT_MAILBOX.get();
+        if (current != null && current.gameCode.equals(gameCode)) {
+            return command.get();
+        }
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Runnable task = () -> {
+            try {
+                result.complete(command.get());
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        };
+
+        boolean[] startDrain = new boolean[1];
+        Mailbox mailbox = mailboxes.compute(gameCode, (code, existing) -> {
+            Mailbox target = existing != null ? existing : new Mailbox(code);
+            target.queue.add(task);
+            if (!target.draining) {
+                target.draining = true;
+                startDrain[0] = true;
+            }
+            return target;
+        });
+        if (startDrain[0]) {
+            executor.execute(() -> drain(mailbox));
+        }
+
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Number of games that currently have queued or running commands
+     */
+    public int activeMailboxes() {
+        return mailboxes.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private void drain(Mailbox mailbox) {
+        CURRENT_MAILBOX.set(mailbox);
+        try {
+            while (true) {
+                Runnable task = mailbox.queue.poll();
+                if (task != null) {
+                    task.run();
+                    continue;
+                }
+
+                // Retire the mailbox atomically with respect to new submissions for this game
+                boolean[] retired = new boolean[1];
+                mailboxes.compute(mailbox.gameCode, (code, existing) -> {
+                    if (mailbox.queue.isEmpty()) {
+                        mailbox.draining = false;
+                        retired[0] = true;
+                        return null;
+                    }
+                    return existing;
+                });
+                if (retired[0]) {
+                    return;
+                }
+            }
+        } finally {
+            CURRENT_MAILBOX.remove();
+        }
+    }
+
+    /**
+     * Pending commands for one game
+     */
+    private static class Mailbox {
+        private final String gameCode;
+        private final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+        private boolean draining; // guarded by the mailboxes map entry
+
+        Mailbox(String gameCode) {
+            this.gameCode = gameCode;
+        }
+    }
+}
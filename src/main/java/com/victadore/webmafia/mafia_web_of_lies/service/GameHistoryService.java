@@ -3,66 +3,52 @@ package com.victadore.webmafia.mafia_web_of_lies.service;
 import com.victadore.webmafia.mafia_web_of_lies.model.*;
 import com.victadore.webmafia.mafia_web_of_lies.repository.*;
 import com.victadore.webmafia.mafia_web_of_lies.exception.GameException;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
 @Service
 @Transactional(readOnly = true)
 public class GameHistoryService {
+    private static final Logger logger = Logger.getLogger(GameHistoryService.class.getName());
     
     private final GameRepository gameRepository;
     private final ActionHistoryRepository actionHistoryRepository;
     private final PlayerRepository playerRepository;
+    private final GameArchive gameArchive;
     
     public GameHistoryService(GameRepository gameRepository,
                             ActionHistoryRepository actionHistoryRepository,
-                            PlayerRepository playerRepository) {
+                            PlayerRepository playerRepository,
+                            GameArchive gameArchive) {
         this.gameRepository = gameRepository;
         this.actionHistoryRepository = actionHistoryRepository;
         this.playerRepository = playerRepository;
+        this.gameArchive = gameArchive;
     }
     
     /**
      * Get complete game replay data
      */
     public Map<String, Object> getGameReplay(String gameCode) {
-        Game game = gameRepository.findByGameCode(gameCode);
-        if (game == null) {
-            throw new GameException("Game not found");
-        }
-        
-        Map<String, Object> replay = new HashMap<>();
+        Game game = findGame(gameCode);
         
         try {
-            // Basic game information
-            replay.put("gameCode", game.getGameCode());
-            replay.put("gameState", game.getGameState());
-            replay.put("winner", game.getWinner());
-            replay.put("totalDays", game.getCurrentDay());
-            replay.put("createdBy", game.getCreatedBy());
-            
-            // Player information with final roles (only for finished games)
-            List<Map<String, Object>> players = getPlayersWithRoles(game);
-            replay.put("players", players);
-            
-            // Simple timeline of events
-            List<Map<String, Object>> timeline = getSimpleGameTimeline(game.getId());
-            replay.put("timeline", timeline);
-            
-            // Basic game statistics
-            Map<String, Object> gameStats = getBasicGameStatistics(game.getId());
-            replay.put("statistics", gameStats);
-            
+            return buildReplay(game);
         } catch (Exception e) {
             // Log the error and provide minimal data
             System.err.println("Error building game replay: " + e.getMessage());
             e.printStackTrace();
             
             // Provide minimal safe data
+            Map<String, Object> replay = new HashMap<>();
             replay.put("gameCode", game.getGameCode());
             replay.put("gameState", game.getGameState());
             replay.put("winner", game.getWinner());
@@ -71,7 +57,50 @@ public class GameHistoryService {
             replay.put("players", new ArrayList<>());
             replay.put("timeline", new ArrayList<>());
             replay.put("statistics", new HashMap<>());
+            return replay;
+        }
+    }
+    
+    /**
+     * Build the replay data of a game to be stored, failing instead of falling back to minimal data
+     */
+    public Map<String, Object> buildGameReplay(String gameCode) {
+        return buildReplay(findGame(gameCode));
+    }
+    
+    private Game findGame(String gameCode) {
+        Game game = gameRepository.findByGameCode(gameCode);
+        if (game == null) {
+            throw new GameException("Game not found");
         }
+        return game;
+    }
+    
+    private Map<String, Object> buildReplay(Game game) {
+        Map<String, Object> replay = new HashMap<>();
+        
+        // Basic game information
+        replay.put("gameCode", game.getGameCode());
+        replay.put("gameState", game.getGameState());
+        replay.put("winner", game.getWinner());
+        replay.put("totalDays", game.getCurrentDay());
+        replay.put("createdBy", game.getCreatedBy());
+        
+        // Player information with final roles (only for finished games)
+        List<Map<String, Object>> players = getPlayersWithRoles(game);
+        replay.put("players", players);
+        
+        // Timeline and statistics come from the same history, read from the archive for archived games
+        List<ActionHistory> actions = gameArchive.actions(game)
+            .orElseGet(() -> actionHistoryRepository.findByGameIdOrderByTimestamp(game.getId()));
+        
+        // Simple timeline of events
+        List<Map<String, Object>> timeline = getSimpleGameTimeline(actions);
+        replay.put("timeline", timeline);
+        
+        // Basic game statistics
+        Map<String, Object> gameStats = getBasicGameStatistics(actions);
+        replay.put("statistics", gameStats);
         
         return replay;
     }
@@ -79,52 +108,38 @@ public class GameHistoryService {
     /**
      * Get simple game timeline without complex processing
      */
-    private List<Map<String, Object>> getSimpleGameTimeline(Long gameId) {
-        try {
-            List<ActionHistory> actions = actionHistoryRepository.findByGameIdOrderByTimestamp(gameId);
-            
-            return actions.stream()
-                .limit(50) // Limit to prevent memory issues
-                .map(action -> {
-                    Map<String, Object> timelineEvent = new HashMap<>();
-                    timelineEvent.put("gameDay", action.getGameDay());
-                    timelineEvent.put("gamePhase", action.getGamePhase());
-                    timelineEvent.put("description", action.getActionDetails() != null ? 
-                        action.getActionDetails() : action.getActionType());
-                    return timelineEvent;
-                })
-                .collect(Collectors.toList());
-        } catch (Exception e) {
-            System.err.println("Error getting timeline: " + e.getMessage());
-            return new ArrayList<>();
-        }
+    private List<Map<String, Object>> getSimpleGameTimeline(List<ActionHistory> actions) {
+        return actions.stream()
+            .limit(50) // Limit to prevent memory issues
+            .map(action -> {
+                Map<String, Object> timelineEvent = new HashMap<>();
+                timelineEvent.put("gameDay", action.getGameDay());
+                timelineEvent.put("gamePhase", action.getGamePhase());
+                timelineEvent.put("description", action.getActionDetails() != null ? 
+                    action.getActionDetails() : action.getActionType());
+                return timelineEvent;
+            })
+            .collect(Collectors.toList());
     }
     
     /**
      * Get basic game statistics without complex processing
      */
-    private Map<String, Object> getBasicGameStatistics(Long gameId) {
-        try {
-            Map<String, Object> stats = new HashMap<>();
-            
-            List<ActionHistory> allActions = actionHistoryRepository.findByGameIdOrderByTimestamp(gameId);
+    private Map<String, Object> getBasicGameStatistics(List<ActionHistory> allActions) {
+        Map<String, Object> stats = new HashMap<>();
+        
+        if (!allActions.isEmpty()) {
+            LocalDateTime gameStart = allActions.get(0).getTimestamp();
+            LocalDateTime gameEnd = allActions.get(allActions.size() - 1).getTimestamp();
             
-            if (!allActions.isEmpty()) {
-                LocalDateTime gameStart = allActions.get(0).getTimestamp();
-                LocalDateTime gameEnd = allActions.get(allActions.size() - 1).getTimestamp();
-                
-                stats.put("gameStart", gameStart);
-                stats.put("gameEnd", gameEnd);
-                
-                long minutes = java.time.Duration.between(gameStart, gameEnd).toMinutes();
-                stats.put("duration", minutes + " minutes");
-            }
+            stats.put("gameStart", gameStart);
+            stats.put("gameEnd", gameEnd);
             
-            return stats;
-        } catch (Exception e) {
-            System.err.println("Error getting statistics: " + e.getMessage());
-            return new HashMap<>();
+            long minutes = java.time.Duration.between(gameStart, gameEnd).toMinutes();
+            stats.put("duration", minutes + " minutes");
         }
+        
+        return stats;
     }
     
     /**
@@ -133,7 +148,13 @@ public class GameHistoryService {
     private List<Map<String, Object>> getPlayersWithRoles(Game game) {
         List<Map<String, Object>> players = new ArrayList<>();
         
-        for (Player player : game.getPlayers()) {
+        // An archived game keeps its roster in the archive as well, should its player rows be gone
+        List<Player> roster = game.getPlayers();
+        if (roster == null || roster.isEmpty()) {
+            roster = gameArchive.players(game).orElse(List.of());
+        }
+        
+        for (Player player : roster) {
             Map<String, Object> playerInfo = new HashMap<>();
             playerInfo.put("username", player.getUsername());
             playerInfo.put("isAlive", player.isAlive());
@@ -378,18 +399,15 @@ public class GameHistoryService {
     }
     
     /**
-     * Get list of finished games for history browser
+     * Get list of finished games for history browser, newest first.
+     * With a beforeId the page is read by keyset (games older than that id), otherwise by page number.
      */
-    public List<Map<String, Object>> getFinishedGames(int limit, int offset) {
-        // This would need a custom query in GameRepository
-        // For now, we'll get all games and filter
-        List<Game> allGames = gameRepository.findAll();
-        
-        return allGames.stream()
-            .filter(game -> GameState.FINISHED.equals(game.getGameState()))
-            .sorted((g1, g2) -> g2.getId().compareTo(g1.getId())) // Most recent first
-            .skip(offset)
-            .limit(limit)
+    public List<Map<String, Object>> getFinishedGames(int page, int size, Long beforeId) {
+        List<Game> games = beforeId != null
+            ? gameRepository.findByGameStateAndIdLessThanOrderByIdDesc(GameState.FINISHED, beforeId, PageRequest.of(0, size))
+            : gameRepository.findByGameStateOrderByIdDesc(GameState.FINISHED, PageRequest.of(page, size));
+        
+        return games.stream()
             .map(this::formatGameSummary)
             .collect(Collectors.toList());
     }
@@ -400,17 +418,17 @@ public class GameHistoryService {
     private Map<String, Object> formatGameSummary(Game game) {
         Map<String, Object> summary = new HashMap<>();
         
+        summary.put("id", game.getId());
         summary.put("gameCode", game.getGameCode());
         summary.put("winner", game.getWinner());
         summary.put("totalDays", game.getCurrentDay());
-        summary.put("playerCount", game.getPlayers().size());
+        summary.put("playerCount", game.getPlayerCount() != null ? game.getPlayerCount() : game.getPlayers().size());
         summary.put("createdBy", game.getCreatedBy());
         
-        // Get game duration from action history
-        List<ActionHistory> actions = actionHistoryRepository.findByGameIdOrderByTimestamp(game.getId());
-        if (!actions.isEmpty()) {
-            LocalDateTime start = actions.get(0).getTimestamp();
-            LocalDateTime end = actions.get(actions.size() - 1).getTimestamp();
+        // Game duration from the summary columns stamped at start and end
+        LocalDateTime start = game.getStartedAt();
+        LocalDateTime end = game.getEndedAt();
+        if (start != null && end != null) {
             summary.put("startTime", start);
             summary.put("endTime", end);
             summary.put("duration", java.time.Duration.between(start, end).toMinutes() + " minutes");
@@ -420,78 +438,74 @@ public class GameHistoryService {
     }
     
     /**
-     * Search games by criteria
+     * Search games by criteria; filters are applied by the database
      */
-    public List<Map<String, Object>> searchGames(String createdBy, String winner, Integer minDays, Integer maxDays, int limit) {
-        List<Game> allGames = gameRepository.findAll();
-        
-        return allGames.stream()
-            .filter(game -> GameState.FINISHED.equals(game.getGameState()))
-            .filter(game -> {
-                // Filter by creator - handle null, empty, and case-insensitive matching
-                if (createdBy == null || createdBy.trim().isEmpty()) {
-                    return true; // No filter applied
-                }
-                String gameCreator = game.getCreatedBy();
-                return gameCreator != null && 
-                       gameCreator.toLowerCase().contains(createdBy.trim().toLowerCase());
-            })
-            .filter(game -> {
-                // Filter by winner - handle null, empty, and case-insensitive matching
-                if (winner == null || winner.trim().isEmpty()) {
-                    return true; // No filter applied
-                }
-                String gameWinner = game.getWinner();
-                return gameWinner != null && gameWinner.equalsIgnoreCase(winner.trim());
-            })
-            .filter(game -> minDays == null || game.getCurrentDay() >= minDays)
-            .filter(game -> maxDays == null || game.getCurrentDay() <= maxDays)
-            .sorted((g1, g2) -> g2.getId().compareTo(g1.getId()))
-            .limit(limit)
+    public List<Map<String, Object>> searchGames(String createdBy, String winner, Integer minDays, Integer maxDays,
+                                                 int limit, Long beforeId) {
+        // Creator is a case-insensitive substring match
+        String creatorPattern = null;
+        if (createdBy != null && !createdBy.trim().isEmpty()) {
+            creatorPattern = "%" + escapeLike(createdBy.trim().toLowerCase()) + "%";
+        }
+        String winnerFilter = (winner != null && !winner.trim().isEmpty()) ? winner.trim().toUpperCase() : null;
+        
+        return gameRepository.searchByGameState(GameState.FINISHED, creatorPattern, winnerFilter,
+                                                minDays, maxDays, beforeId, PageRequest.of(0, limit))
+            .stream()
             .map(this::formatGameSummary)
             .collect(Collectors.toList());
     }
     
+    private static String escapeLike(String value) {
+        return value.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+    }
+    
     /**
      * Get player's game history
      */
-    public List<Map<String, Object>> getPlayerGameHistory(String username, int limit) {
-        List<Game> allGames = gameRepository.findAll();
-        
-        return allGames.stream()
-            .filter(game -> GameState.FINISHED.equals(game.getGameState()))
-            .filter(game -> game.getPlayers().stream()
-                .anyMatch(player -> player.getUsername().equals(username)))
-            .sorted((g1, g2) -> g2.getId().compareTo(g1.getId()))
-            .limit(limit)
-            .map(game -> {
+    public List<Map<String, Object>> getPlayerGameHistory(String username, int limit, Long beforeId) {
+        List<Player> seats = playerRepository.findSeatsByUsernameAndGameState(
+            username, GameState.FINISHED, beforeId, PageRequest.of(0, limit));
+        
+        return seats.stream()
+            .map(player -> {
+                Game game = player.getGame();
                 Map<String, Object> summary = formatGameSummary(game);
                 
                 // Add player-specific information
-                Player player = game.getPlayers().stream()
-                    .filter(p -> p.getUsername().equals(username))
-                    .findFirst()
-                    .orElse(null);
+                summary.put("playerRole", player.getRole().name());
+                summary.put("playerSurvived", player.isAlive());
                 
-                if (player != null) {
-                    summary.put("playerRole", player.getRole().name());
-                    summary.put("playerSurvived", player.isAlive());
-                    
-                    // Determine if player won
-                    boolean won = false;
-                    if ("MAFIA".equals(game.getWinner()) && player.getRole() == Role.MAFIA) {
-                        won = true;
-                    } else if ("CITIZENS".equals(game.getWinner()) && player.getRole() != Role.MAFIA) {
-                        won = true;
-                    }
-                    summary.put("playerWon", won);
+                // Determine if player won
+                boolean won = false;
+                if ("MAFIA".equals(game.getWinner()) && player.getRole() == Role.MAFIA) {
+                    won = true;
+                } else if ("CITIZENS".equals(game.getWinner()) && player.getRole() != Role.MAFIA) {
+                    won = true;
                 }
+                summary.put("playerWon", won);
                 
                 return summary;
             })
             .collect(Collectors.toList());
     }
     
+    /**
+     * Fill the summary columns of finished games recorded before those columns existed
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillGameSummaries() {
+        try {
+            int updated = gameRepository.backfillSummaryColumns(GameState.FINISHED);
+            if (updated > 0) {
+                logger.info("Backfilled summary columns for " + updated + " finished games");
+            }
+        } catch (RuntimeException e) {
+            logger.warning("Could not backfill game summary columns: " + e.getMessage());
+        }
+    }
+    
     // Helper methods
     
     private String getRoleDescription(Role role) {
@@ -1,37 +1,53 @@
 package com.victadore.webmafia.mafia_web_of_lies.service;
 
 import com.victadore.webmafia.mafia_web_of_lies.model.*;
-import com.victadore.webmafia.mafia_web_of_lies.repository.GameRepository;
 import com.victadore.webmafia.mafia_web_of_lies.dto.*;
 import com.victadore.webmafia.mafia_web_of_lies.exception.GameException;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.context.event.EventListener;
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.logging.Logger;
 
 @Service
-@Transactional
 public class GameLogicService {
     private static final Logger logger = Logger.getLogger(GameLogicService.class.getName());
     
     private final GameService gameService;
-    private final PlayerService playerService;
-    private final GameRepository gameRepository;
+    private final LiveGameStore liveGameStore;
+    private final GameCommandExecutor gameCommandExecutor;
+    private final TransactionTemplate commandTransaction;
     private final WebSocketService webSocketService;
     private final ActionHistoryService actionHistoryService;
     private final PlayerStatisticsService playerStatisticsService;
+    private final GameMetrics gameMetrics;
+    private final ChatMessageJournal chatMessageJournal;
+    private final ReplayDocumentStore replayDocumentStore;
     private PhaseTimerService phaseTimerService; // Will be injected later to avoid circular dependency
 
-    public GameLogicService(GameService gameService, PlayerService playerService, GameRepository gameRepository, WebSocketService webSocketService, ActionHistoryService actionHistoryService, @Lazy PlayerStatisticsService playerStatisticsService) {
+    public GameLogicService(GameService gameService, LiveGameStore liveGameStore, GameCommandExecutor gameCommandExecutor, PlatformTransactionManager transactionManager, WebSocketService webSocketService, ActionHistoryService actionHistoryService, @Lazy PlayerStatisticsService playerStatisticsService, GameMetrics gameMetrics, ChatMessageJournal chatMessageJournal, ReplayDocumentStore replayDocumentStore) {
         this.gameService = gameService;
-        this.playerService = playerService;
-        this.gameRepository = gameRepository;
+        this.liveGameStore = liveGameStore;
+        this.gameCommandExecutor = gameCommandExecutor;
+        // Synchronization only: live commands need no connection, and afterCommit work runs once the command succeeds
+        this.commandTransaction = new TransactionTemplate(transactionManager);
+        this.commandTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_SUPPORTS);
         this.webSocketService = webSocketService;
         this.actionHistoryService = actionHistoryService;
         this.playerStatisticsService = playerStatisticsService;
+        this.gameMetrics = gameMetrics;
+        this.chatMessageJournal = chatMessageJournal;
+        this.replayDocumentStore = replayDocumentStore;
     }
     
     // Setter injection to avoid circular dependency
@@ -39,6 +55,40 @@ public class GameLogicService {
         this.phaseTimerService = phaseTimerService;
     }
     
+    /**
+     * Apply a state-changing command through the game's mailbox, so commands for one game
+     * never interleave; each runs on the mailbox thread and publishes the resulting state delta
+     * once it commits. The command scope holds no connection: a live game is changed in memory,
+     * and LiveGameStore opens a transaction only when it has to go to the database.
+     *
+     * Timed as mafia.game.command (end to end) and mafia.game.command.wait (time queued in the
+     * mailbox), tagged with the command name, action type and the phase the command found.
+     */
+    private <T> T runCommand(String gameCode, String commandName, String actionType, Function<Game, T> command) {
+        Timer.Sample total = gameMetrics.start();
+        long queuedAt = System.nanoTime();
+        String[] phase = {"none"};
+        Throwable failure = null;
+        try {
+            return gameCommandExecutor.execute(gameCode, () -> {
+                gameMetrics.record("mafia.game.command.wait", System.nanoTime() - queuedAt, "command", commandName);
+                return commandTransaction.execute(status -> liveGameStore.update(gameCode, game -> {
+                    phase[0] = GameMetrics.phase(game);
+                    T result = command.apply(game);
+                    webSocketService.publishGameState(game);
+                    return result;
+                }));
+            });
+        } catch (RuntimeException | Error e) {
+            failure = e;
+            throw e;
+        } finally {
+            gameMetrics.stop(total, "mafia.game.command", "command", commandName,
+                             "action", GameMetrics.actionType(actionType), "phase", phase[0],
+                             "outcome", GameMetrics.outcome(failure));
+        }
+    }
+    
     /**
      * Event listener for timer expiration events
      */
@@ -46,7 +96,14 @@ public class GameLogicService {
     public void handleTimerExpiration(PhaseTimerService.TimerExpiredEvent event) {
         try {
             logger.info("Handling timer expiration for game: " + event.getGameCode());
-            advancePhase(event.getGameCode());
+            runCommand(event.getGameCode(), "timer_expired", null, game -> {
+                // The phase may have been advanced by players while the expiry was in flight
+                if (event.getPhaseStartTime() != null && !event.getPhaseStartTime().equals(game.getPhaseStartTime())) {
+                    logger.info("Ignoring stale timer expiration for game: " + event.getGameCode());
+                    return game;
+                }
+                return applyAdvancePhase(game);
+            });
         } catch (Exception e) {
             logger.severe("Failed to advance phase for expired timer in game " + event.getGameCode() + ": " + e.getMessage());
         }
@@ -54,14 +111,14 @@ public class GameLogicService {
 
     // Start a new day phase
     public Game startDayPhase(String gameCode) {
-        Game game = gameRepository.findByGameCode(gameCode);
-        if (game == null) {
-            throw new GameException("Game not found");
-        }
+        return runCommand(gameCode, "start_day", null, this::applyStartDayPhase);
+    }
+
+    private Game applyStartDayPhase(Game game) {
+        String gameCode = game.getGameCode();
 
         game.setCurrentPhase(0); // 0 for day
         game.setCurrentDay(game.getCurrentDay() + 1);
-        Game savedGame = gameRepository.save(game);
         
         // Start day phase timer
         if (phaseTimerService != null) {
@@ -69,28 +126,22 @@ public class GameLogicService {
         }
         
         // Record phase transition
-        actionHistoryService.recordPhaseTransition(savedGame.getId(), "NIGHT", "DAY");
+        actionHistoryService.recordPhaseTransition(game, "NIGHT", "DAY");
         
-        // Broadcast phase change
-        webSocketService.broadcastGameUpdate(gameCode, 
-            new GameEvent("PHASE_CHANGE", gameCode, Map.of(
-                "phase", "DAY",
-                "day", savedGame.getCurrentDay()
-            ))
-        );
+        announcePhaseChange(game, "DAY");
         
-        return savedGame;
+        return game;
     }
 
     // Start night phase
     public Game startNightPhase(String gameCode) {
-        Game game = gameRepository.findByGameCode(gameCode);
-        if (game == null) {
-            throw new GameException("Game not found");
-        }
+        return runCommand(gameCode, "start_night", null, this::applyStartNightPhase);
+    }
+
+    private Game applyStartNightPhase(Game game) {
+        String gameCode = game.getGameCode();
 
         game.setCurrentPhase(1); // 1 for night
-        Game savedGame = gameRepository.save(game);
         
         // Start night phase timer
         if (phaseTimerService != null) {
@@ -98,51 +149,48 @@ public class GameLogicService {
         }
         
         // Record phase transition
-        actionHistoryService.recordPhaseTransition(savedGame.getId(), "DAY", "NIGHT");
+        actionHistoryService.recordPhaseTransition(game, "DAY", "NIGHT");
         
-        // Broadcast phase change
-        webSocketService.broadcastGameUpdate(gameCode, 
-            new GameEvent("PHASE_CHANGE", gameCode, Map.of(
-                "phase", "NIGHT",
-                "day", savedGame.getCurrentDay()
-            ))
-        );
+        announcePhaseChange(game, "NIGHT");
         
-        return savedGame;
+        return game;
     }
 
     /**
      * Record initial game events after game is created
      */
+    @Transactional
     public void recordGameStartEvents(String gameCode) {
-        Game game = gameRepository.findByGameCode(gameCode);
+        Game game = liveGameStore.findGame(gameCode);
         if (game == null) {
             throw new GameException("Game not found");
         }
         
         // Record game start event
-        actionHistoryService.recordGameEvent(game.getId(), "GAME_START", 
+        actionHistoryService.recordGameEvent(game, "GAME_START", 
                                            String.format("Game started with %d players", game.getPlayers().size()),
                                            "Game successfully started");
         
         // Record role assignments for audit purposes (without revealing roles)
         for (Player player : game.getPlayers()) {
-            actionHistoryService.recordAction(game.getId(), "ROLE_ASSIGNED", "SYSTEM", 
+            actionHistoryService.recordAction(game, "ROLE_ASSIGNED", "SYSTEM", 
                                             player.getUsername(), 
                                             "Role assigned to player during game start",
                                             "Role assignment completed", true);
         }
         
         // Record the first phase transition
-        actionHistoryService.recordPhaseTransition(game.getId(), "SETUP", "NIGHT");
+        actionHistoryService.recordPhaseTransition(game, "SETUP", "NIGHT");
     }
 
     // Handle night actions
     public Game handleNightAction(String gameCode, String actorUsername, String targetUsername, String actionType) {
-        Game game = gameRepository.findByGameCode(gameCode);
-        if (game == null) {
-            throw new GameException("Game not found");
-        }
+        return runCommand(gameCode, "night_action", actionType,
+                          game -> applyNightAction(game, actorUsername, targetUsername, actionType));
+    }
+
+    private Game applyNightAction(Game game, String actorUsername, String targetUsername, String actionType) {
+        String gameCode = game.getGameCode();
 
         if (game.getCurrentPhase() != 1) {
             throw new GameException("Night actions are only allowed during night phase");
@@ -179,7 +227,7 @@ public class GameLogicService {
                     
                     // Record Mafia kill vote action
                     additionalData = "Mafia vote for elimination";
-                    actionHistoryService.recordNightAction(game.getId(), actionType, actorUsername, 
+                    actionHistoryService.recordNightAction(game, actionType, actorUsername, 
                                                          targetUsername, actionSuccessful, additionalData);
                     
                     // Check if all living Mafia members have voted
@@ -202,22 +250,22 @@ public class GameLogicService {
                             .orElse(null);
                             
                         if (finalTarget != null) {
-                            actionHistoryService.recordAction(game.getId(), "MAFIA_TARGET_CHOSEN", 
+                            actionHistoryService.recordAction(game, "MAFIA_TARGET_CHOSEN", 
                                                             "MAFIA_TEAM", finalTarget.getUsername(),
                                                             "Mafia team consensus reached for elimination target",
                                                             "Target chosen: " + finalTarget.getUsername(), true);
                             
                             // Notify all Mafia members about the final decision
-                            game.getPlayers().stream()
-                                .filter(p -> p.getRole() == Role.MAFIA && p.isAlive())
-                                .forEach(mafiaPlayer -> {
-                                    webSocketService.sendPrivateMessage(mafiaPlayer.getUsername(), 
-                                        new GameEvent("MAFIA_TARGET_CHOSEN", gameCode, Map.of(
-                                            "target", finalTarget.getUsername(),
-                                            "message", "Your team has chosen " + finalTarget.getUsername() + " as the target."
-                                        ))
-                                    );
-                                });
+                            webSocketService.sendPrivateMessage(
+                                game.getPlayers().stream()
+                                    .filter(p -> p.getRole() == Role.MAFIA && p.isAlive())
+                                    .map(Player::getUsername)
+                                    .toList(),
+                                new GameEvent("MAFIA_TARGET_CHOSEN", gameCode, new EventPayloads.MafiaTargetChosen(
+                                    finalTarget.getUsername(),
+                                    "Your team has chosen " + finalTarget.getUsername() + " as the target."
+                                ))
+                            );
                         }
                     } else {
                         // Notify this Mafia member that their vote was recorded
@@ -230,17 +278,17 @@ public class GameLogicService {
                         );
                         
                         // Notify other Mafia members about this vote
-                        game.getPlayers().stream()
-                            .filter(p -> p.getRole() == Role.MAFIA && p.isAlive() && !p.getId().equals(actor.getId()))
-                            .forEach(mafiaPlayer -> {
-                                webSocketService.sendPrivateMessage(mafiaPlayer.getUsername(), 
-                                    new GameEvent("MAFIA_TEAMMATE_VOTED", gameCode, Map.of(
-                                        "voter", actor.getUsername(),
-                                        "target", target.getUsername(),
-                                        "message", actor.getUsername() + " voted to eliminate " + target.getUsername()
-                                    ))
-                                );
-                            });
+                        webSocketService.sendPrivateMessage(
+                            game.getPlayers().stream()
+                                .filter(p -> p.getRole() == Role.MAFIA && p.isAlive() && !p.getId().equals(actor.getId()))
+                                .map(Player::getUsername)
+                                .toList(),
+                            new GameEvent("MAFIA_TEAMMATE_VOTED", gameCode, new EventPayloads.MafiaTeammateVoted(
+                                actor.getUsername(),
+                                target.getUsername(),
+                                actor.getUsername() + " voted to eliminate " + target.getUsername()
+                            ))
+                        );
                     }
                 }
                 break;
@@ -255,7 +303,7 @@ public class GameLogicService {
                     
                     // Record doctor save action
                     additionalData = "Doctor protection";
-                    actionHistoryService.recordNightAction(game.getId(), actionType, actorUsername, 
+                    actionHistoryService.recordNightAction(game, actionType, actorUsername, 
                                                          targetUsername, actionSuccessful, additionalData);
                     
                     // Send confirmation to doctor
@@ -273,12 +321,12 @@ public class GameLogicService {
                         throw new GameException("You have already performed your night action");
                     }
                     boolean isMafia = target.getRole() == Role.MAFIA;
-                    playerService.investigatePlayer(target.getId());
+                    target.setInvestigated(true);
                     game.getPlayersWhoActedAtNight().add(actor.getId());
                     
                     // Record detective investigation action
                     additionalData = "Investigation result: " + (isMafia ? "MAFIA" : "INNOCENT");
-                    actionHistoryService.recordNightAction(game.getId(), actionType, actorUsername, 
+                    actionHistoryService.recordNightAction(game, actionType, actorUsername, 
                                                          targetUsername, actionSuccessful, additionalData);
                     
                     // Send clear investigation result to detective
@@ -297,7 +345,7 @@ public class GameLogicService {
                 break;
             default:
                 actionSuccessful = false;
-                actionHistoryService.recordNightAction(game.getId(), actionType, actorUsername, 
+                actionHistoryService.recordNightAction(game, actionType, actorUsername, 
                                                      targetUsername, actionSuccessful, 
                                                      "Invalid action for role: " + actor.getRole());
                 throw new GameException("Invalid night action for role: " + actor.getRole());
@@ -306,10 +354,11 @@ public class GameLogicService {
         // Check if all night actions are complete
         checkAndTransitionToDay(game);
 
-        return gameRepository.save(game);
+        return game;
     }
 
-    private void checkAndTransitionToDay(Game game) {
+    // Package-private for benchmarks
+    void checkAndTransitionToDay(Game game) {
         // Count players with night actions who are still alive
         long mafiaCount = game.getPlayers().stream()
             .filter(Player::isAlive)
@@ -361,13 +410,7 @@ public class GameLogicService {
                 return;
             }
             
-            // Broadcast phase change
-            webSocketService.broadcastGameUpdate(game.getGameCode(), 
-                new GameEvent("PHASE_CHANGE", game.getGameCode(), Map.of(
-                    "phase", "DAY",
-                    "day", game.getCurrentDay()
-                ))
-            );
+            announcePhaseChange(game, "DAY");
         }
     }
 
@@ -388,7 +431,7 @@ public class GameLogicService {
                 
                 // Record successful doctor save
                 if (targetedPlayer != null) {
-                    actionHistoryService.recordAction(game.getId(), "NIGHT_SAVE_SUCCESS", "DOCTOR", 
+                    actionHistoryService.recordAction(game, "NIGHT_SAVE_SUCCESS", "DOCTOR", 
                                                     targetedPlayer.getUsername(),
                                                     "Doctor successfully saved player from Mafia elimination",
                                                     "Player saved from death", true);
@@ -404,11 +447,11 @@ public class GameLogicService {
             
             if (!wasSaved) {
                 // Kill the target
-                playerService.killPlayer(game.getMafiaTarget());
+                killPlayer(game, game.getMafiaTarget());
                 
                 // Record night elimination
                 if (targetedPlayer != null) {
-                    actionHistoryService.recordElimination(game.getId(), targetedPlayer.getUsername(), 
+                    actionHistoryService.recordElimination(game, targetedPlayer.getUsername(), 
                                                          "MAFIA_KILL", 0, 
                                                          "Eliminated by Mafia during night phase");
                     
@@ -422,7 +465,7 @@ public class GameLogicService {
             }
         } else {
             // No one was targeted by Mafia
-            actionHistoryService.recordAction(game.getId(), "NO_NIGHT_KILL", "SYSTEM", null,
+            actionHistoryService.recordAction(game, "NO_NIGHT_KILL", "SYSTEM", null,
                                             "No player was targeted for elimination by Mafia",
                                             "No deaths during night phase", true);
             
@@ -436,22 +479,23 @@ public class GameLogicService {
 
     // Check win conditions
     public GameState checkWinConditions(Game game) {
-        List<Player> alivePlayers = playerService.getAlivePlayers(game.getId());
+        List<Player> alivePlayers = game.getPlayers().stream()
+            .filter(Player::isAlive)
+            .collect(Collectors.toList());
         long mafiaCount = alivePlayers.stream()
             .filter(p -> p.getRole() == Role.MAFIA)
             .count();
         long citizenCount = alivePlayers.size() - mafiaCount;
 
         if (mafiaCount == 0) {
-            game.setWinner("CITIZENS");
-            game.setGameState(GameState.FINISHED);
+            game.finish("CITIZENS");
             
             // Save the game FIRST before updating statistics
-            Game savedGame = gameRepository.save(game);
+            liveGameStore.persistNow(game);
             
             // Record citizen victory
             try {
-                actionHistoryService.recordGameEvent(game.getId(), "GAME_END", 
+                actionHistoryService.recordGameEvent(game, "GAME_END", 
                                                    "Citizens eliminated all Mafia members",
                                                    "Citizens victory - All Mafia eliminated");
             } catch (Exception e) {
@@ -459,20 +503,20 @@ public class GameLogicService {
             }
             
             // Update player statistics - with improved error handling
-            updatePlayerStatisticsSafely(savedGame.getGameCode());
+            updatePlayerStatisticsSafely(game.getGameCode());
+            storeReplaySafely(game.getGameCode());
             
             return GameState.FINISHED; // Citizens win
         }
         if (mafiaCount >= citizenCount) {
-            game.setWinner("MAFIA");
-            game.setGameState(GameState.FINISHED);
+            game.finish("MAFIA");
             
             // Save the game FIRST before updating statistics
-            Game savedGame = gameRepository.save(game);
+            liveGameStore.persistNow(game);
             
             // Record Mafia victory
             try {
-                actionHistoryService.recordGameEvent(game.getId(), "GAME_END", 
+                actionHistoryService.recordGameEvent(game, "GAME_END", 
                                                    String.format("Mafia achieved majority control (%d Mafia vs %d Citizens)", 
                                                                mafiaCount, citizenCount),
                                                    "Mafia victory - Majority control achieved");
@@ -481,7 +525,8 @@ public class GameLogicService {
             }
             
             // Update player statistics - with improved error handling
-            updatePlayerStatisticsSafely(savedGame.getGameCode());
+            updatePlayerStatisticsSafely(game.getGameCode());
+            storeReplaySafely(game.getGameCode());
             
             return GameState.FINISHED; // Mafia win
         }
@@ -489,28 +534,63 @@ public class GameLogicService {
     }
     
     /**
-     * Safely update player statistics with comprehensive error handling
+     * Safely update player statistics with comprehensive error handling, once the command commits
      */
     private void updatePlayerStatisticsSafely(String gameCode) {
-        try {
-            if (playerStatisticsService != null) {
-                playerStatisticsService.updatePlayerStatisticsAfterGame(gameCode);
-                System.out.println("Successfully updated player statistics for game: " + gameCode);
-            } else {
-                System.err.println("PlayerStatisticsService is null - cannot update statistics");
+        // Statistics are folded from the game's history, which is only queued once the command commits
+        Runnable update = () -> {
+            try {
+                if (playerStatisticsService != null) {
+                    playerStatisticsService.updatePlayerStatisticsAfterGame(gameCode);
+                    System.out.println("Successfully updated player statistics for game: " + gameCode);
+                } else {
+                    System.err.println("PlayerStatisticsService is null - cannot update statistics");
+                }
+            } catch (Exception e) {
+                System.err.println("Failed to update player statistics for game " + gameCode + ": " + e.getMessage());
+                e.printStackTrace();
+                // Don't rethrow the exception - statistics failure shouldn't break the game flow
             }
-        } catch (Exception e) {
-            System.err.println("Failed to update player statistics for game " + gameCode + ": " + e.getMessage());
-            e.printStackTrace();
-            // Don't rethrow the exception - statistics failure shouldn't break the game flow
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    update.run();
+                }
+            });
+        } else {
+            update.run();
         }
     }
+    
+    /**
+     * Store the finished game's replay document once the command commits
+     */
+    private void storeReplaySafely(String gameCode) {
+        if (replayDocumentStore != null) {
+            replayDocumentStore.storeAfterGame(gameCode);
+        }
+    }
+    
+    /**
+     * Broadcast a phase change and write out the chat of the phase that just ended
+     */
+    private void announcePhaseChange(Game game, String phase) {
+        webSocketService.broadcastGameUpdate(game.getGameCode(),
+            new GameEvent("PHASE_CHANGE", game.getGameCode(),
+                new EventPayloads.PhaseChange(phase, game.getCurrentDay()))
+        );
+        chatMessageJournal.requestFlush();
+    }
 
     public Game handleVote(String gameCode, VoteRequest voteRequest) {
-        Game game = gameRepository.findByGameCode(gameCode);
-        if (game == null) {
-            throw new GameException("Game not found");
-        }
+        return runCommand(gameCode, "vote", Boolean.TRUE.equals(voteRequest.getSkip()) ? "SKIP_VOTE" : "VOTE",
+                          game -> applyVote(game, voteRequest));
+    }
+
+    private Game applyVote(Game game, VoteRequest voteRequest) {
+        String gameCode = game.getGameCode();
 
         if (game.getGameState() != GameState.IN_PROGRESS) {
             throw new GameException("Game is not in progress");
@@ -544,24 +624,19 @@ public class GameLogicService {
             game.getIndividualVotes().put(voter.getId(), null);
             
             // Record skip vote action
-            actionHistoryService.recordVoteAction(game.getId(), voteRequest.getVoterUsername(), 
+            actionHistoryService.recordVoteAction(game, voteRequest.getVoterUsername(), 
                                                 null, true, voteSuccessful);
             
             // Check if voting phase is complete after skip vote
             checkVotingPhaseCompletion(game);
             
-            Game savedGame = gameRepository.save(game);
-            
             // Broadcast skip vote
             webSocketService.broadcastGameUpdate(gameCode, 
-                new GameEvent("VOTE_CAST", gameCode, Map.of(
-                    "voter", voteRequest.getVoterUsername(),
-                    "target", "SKIP",
-                    "skip", true
-                ))
+                new GameEvent("VOTE_CAST", gameCode,
+                    new EventPayloads.VoteCast(voteRequest.getVoterUsername(), "SKIP", true))
             );
             
-            return savedGame;
+            return game;
         }
 
         // Handle normal vote
@@ -578,25 +653,24 @@ public class GameLogicService {
             throw new GameException("Cannot vote for dead players");
         }
 
-        // Process the vote
-        processVote(game, voter, target);
-        
-        // Record vote action
-        actionHistoryService.recordVoteAction(game.getId(), voteRequest.getVoterUsername(), 
+        // Record vote action before processing it: the vote may end the game, and the
+        // statistics counted then must include it
+        actionHistoryService.recordVoteAction(game, voteRequest.getVoterUsername(), 
                                             voteRequest.getTargetUsername(), false, voteSuccessful);
         
-        Game savedGame = gameRepository.save(game);
+        // Process the vote
+        processVote(game, voter, target);
         
         // Broadcast vote
         webSocketService.broadcastGameUpdate(gameCode, 
-            new GameEvent("VOTE_CAST", gameCode, Map.of(
-                "voter", voteRequest.getVoterUsername(),
-                "target", voteRequest.getTargetUsername(),
-                "skip", voteRequest.getSkip() != null ? voteRequest.getSkip() : false
+            new GameEvent("VOTE_CAST", gameCode, new EventPayloads.VoteCast(
+                voteRequest.getVoterUsername(),
+                voteRequest.getTargetUsername(),
+                Boolean.TRUE.equals(voteRequest.getSkip())
             ))
         );
         
-        return savedGame;
+        return game;
     }
 
     private void processVote(Game game, Player voter, Player target) {
@@ -615,54 +689,35 @@ public class GameLogicService {
     }
 
     // Add method to check if a player has voted (including skip)
+    @Transactional(propagation = Propagation.SUPPORTS)
     public boolean hasPlayerVoted(String gameCode, String username) {
-        Game game = gameRepository.findByGameCode(gameCode);
-        if (game == null) {
-            throw new GameException("Game not found");
-        }
-        
-        return game.getPlayers().stream()
+        return liveGameStore.read(gameCode, game -> game.getPlayers().stream()
             .filter(p -> p.getUsername().equals(username))
             .findFirst()
             .map(p -> game.getPlayersWhoVoted().contains(p.getId()))
-            .orElse(false);
+            .orElse(false));
     }
 
     // Add method to get voting status
+    @Transactional(propagation = Propagation.SUPPORTS)
     public Map<String, String> getVotingStatus(String gameCode) {
-        Game game = gameRepository.findByGameCode(gameCode);
-        if (game == null) {
-            throw new GameException("Game not found");
-        }
+        return liveGameStore.read(gameCode, GameStateSnapshot::votingStatus);
+    }
 
-        Map<String, String> status = new HashMap<>();
-        for (Player player : game.getPlayers()) {
-            if (player.isAlive()) {
-                if (game.getPlayersWhoVoted().contains(player.getId())) {
-                    Long targetId = game.getIndividualVotes().get(player.getId());
-                    if (targetId == null) {
-                        status.put(player.getUsername(), "Voted (Skip)");
-                    } else {
-                        String targetName = game.getPlayers().stream()
-                            .filter(p -> p.getId().equals(targetId))
-                            .map(Player::getUsername)
-                            .findFirst()
-                            .orElse("Unknown");
-                        status.put(player.getUsername(), "Voted for " + targetName);
-                    }
-                } else {
-                    status.put(player.getUsername(), "Not Voted");
-                }
-            }
-        }
-        return status;
+    /**
+     * Full public state of a game for a client subscribing to its state topic
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public GameStateMessage getGameStateSnapshot(String gameCode) {
+        return liveGameStore.read(gameCode, webSocketService::syncGameState);
     }
 
     public Game advancePhase(String gameCode) {
-        Game game = gameRepository.findByGameCode(gameCode);
-        if (game == null) {
-            throw new GameException("Game not found");
-        }
+        return runCommand(gameCode, "advance_phase", null, this::applyAdvancePhase);
+    }
+
+    private Game applyAdvancePhase(Game game) {
+        String gameCode = game.getGameCode();
 
         if (game.getCurrentPhase() == 0) {
             // Day to Night transition
@@ -680,14 +735,9 @@ public class GameLogicService {
             }
             
             // Record phase transition
-            actionHistoryService.recordPhaseTransition(game.getId(), "DAY", "NIGHT");
+            actionHistoryService.recordPhaseTransition(game, "DAY", "NIGHT");
             
-            webSocketService.broadcastGameUpdate(gameCode, 
-                new GameEvent("PHASE_CHANGE", gameCode, Map.of(
-                    "phase", "NIGHT",
-                    "day", game.getCurrentDay()
-                ))
-            );
+            announcePhaseChange(game, "NIGHT");
         } else {
             // Night to Day transition - process night actions first
             processNightActions(game);
@@ -705,7 +755,7 @@ public class GameLogicService {
             }
             
             // Record phase transition
-            actionHistoryService.recordPhaseTransition(game.getId(), "NIGHT", "DAY");
+            actionHistoryService.recordPhaseTransition(game, "NIGHT", "DAY");
             
             // Check win conditions
             GameState newState = checkWinConditions(game);
@@ -726,18 +776,22 @@ public class GameLogicService {
                 return game; // Return the already saved game
             }
             
-            webSocketService.broadcastGameUpdate(gameCode, 
-                new GameEvent("PHASE_CHANGE", gameCode, Map.of(
-                    "phase", "DAY",
-                    "day", game.getCurrentDay()
-                ))
-            );
+            announcePhaseChange(game, "DAY");
         }
 
-        return gameRepository.save(game);
+        return game;
     }
 
-    private Long determineMafiaTarget(Game game) {
+    private void killPlayer(Game game, Long playerId) {
+        Player player = game.getPlayers().stream()
+            .filter(p -> p.getId().equals(playerId))
+            .findFirst()
+            .orElseThrow(() -> new GameException("Player not found"));
+        player.setAlive(false);
+    }
+
+    // Package-private for benchmarks
+    Long determineMafiaTarget(Game game) {
         Map<Long, Integer> targetVotes = new HashMap<>();
         
         // Count votes for each target
@@ -764,7 +818,7 @@ public class GameLogicService {
         // If there's a tie (more than one target with max votes), no one gets killed
         if (targetsWithMaxVotes.size() > 1) {
             // Log the tie for debugging
-            actionHistoryService.recordAction(game.getId(), "MAFIA_TIE", "MAFIA_TEAM", null,
+            actionHistoryService.recordAction(game, "MAFIA_TIE", "MAFIA_TEAM", null,
                 "Mafia votes resulted in a tie - no elimination",
                 String.format("Tied votes: %d targets with %d votes each", targetsWithMaxVotes.size(), maxVotes), true);
             return null;
@@ -774,7 +828,8 @@ public class GameLogicService {
         return targetsWithMaxVotes.get(0);
     }
 
-    private void checkVotingPhaseCompletion(Game game) {
+    // Package-private for benchmarks
+    void checkVotingPhaseCompletion(Game game) {
         // Check if voting phase is complete
         int totalVotes = (int) game.getPlayersWhoVoted().size();
         int requiredVotes = (int) game.getPlayers().stream()
@@ -805,11 +860,11 @@ public class GameLogicService {
                     .orElse(null);
                 
                 // Eliminate the player
-                playerService.killPlayer(playerToEliminate);
+                killPlayer(game, playerToEliminate);
                 
                 // Record elimination in action history
                 if (eliminatedPlayer != null) {
-                    actionHistoryService.recordElimination(game.getId(), eliminatedPlayer.getUsername(), 
+                    actionHistoryService.recordElimination(game, eliminatedPlayer.getUsername(), 
                                                          "VOTING", maxVotes, 
                                                          String.format("Eliminated with %d votes during day phase", maxVotes));
                     
@@ -857,7 +912,7 @@ public class GameLogicService {
                     .collect(Collectors.toList());
                 
                 // Record tie vote in action history
-                actionHistoryService.recordAction(game.getId(), "VOTE_TIE", "SYSTEM", null,
+                actionHistoryService.recordAction(game, "VOTE_TIE", "SYSTEM", null,
                                                 String.format("Vote tie between: %s", String.join(", ", tiedPlayers)),
                                                 "No elimination due to tie vote", true);
                 
@@ -869,7 +924,7 @@ public class GameLogicService {
                 );
             } else {
                 // No votes or all votes were skipped
-                actionHistoryService.recordAction(game.getId(), "NO_ELIMINATION", "SYSTEM", null,
+                actionHistoryService.recordAction(game, "NO_ELIMINATION", "SYSTEM", null,
                                                 "No votes cast or insufficient votes for elimination",
                                                 "No elimination this round", true);
                 
@@ -893,12 +948,7 @@ public class GameLogicService {
                 phaseTimerService.startPhaseTimer(game.getGameCode(), 1);
             }
             
-            webSocketService.broadcastGameUpdate(game.getGameCode(), 
-                new GameEvent("PHASE_CHANGE", game.getGameCode(), Map.of(
-                    "phase", "NIGHT",
-                    "day", game.getCurrentDay()
-                ))
-            );
+            announcePhaseChange(game, "NIGHT");
         }
     }
 }
\ No newline at end of file
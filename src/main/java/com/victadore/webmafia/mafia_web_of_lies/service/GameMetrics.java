@@ -0,0 +1,88 @@
+package com.victadore.webmafia.mafia_web_of_lies.service;
+
+import com.victadore.webmafia.mafia_web_of_lies.exception.GameException;
+import com.victadore.webmafia.mafia_web_of_lies.exception.ValidationException;
+import com.victadore.webmafia.mafia_web_of_lies.model.Game;
+import com.victadore.webmafia.mafia_web_of_lies.model.GameState;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timers for game commands, chat, action history and statistics.
+ *
+ * Tag values are kept to small fixed sets (phase, command, action type, outcome) so the
+ * number of time series stays bounded no matter what clients send.
+ */
+@Component
+public class GameMetrics {
+    private static final Set<String> ACTION_TYPES = Set.of(
+        "VOTE", "SKIP_VOTE", "KILL", "SAVE", "INVESTIGATE", "ELIMINATE", "MAFIA_KILL", "PHASE_TRANSITION",
+        "GAME_START", "GAME_END", "ROLE_ASSIGNED", "MAFIA_TARGET_CHOSEN", "MAFIA_TIE", "NIGHT_SAVE_SUCCESS",
+        "NO_ELIMINATION", "NO_NIGHT_KILL", "VOTE_TIE", "PUBLIC", "PRIVATE", "SYSTEM");
+
+    private final MeterRegistry registry;
+
+    public GameMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public Timer.Sample start() {
+        return Timer.start(registry);
+    }
+
+    /**
+     * Stop a sample into the named timer; tags are key/value pairs
+     */
+    public void stop(Timer.Sample sample, String name, String... tags) {
+        sample.stop(registry.timer(name, tags));
+    }
+
+    public void record(String name, long nanos, String... tags) {
+        registry.timer(name, tags).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * "day", "night", or the lower-cased game state when the game is not in progress
+     */
+    public static String phase(Game game) {
+        return game != null ? phase(game.getGameState(), game.getCurrentPhase()) : "none";
+    }
+
+    public static String phase(GameState gameState, int currentPhase) {
+        if (gameState == null) {
+            return "none";
+        }
+        if (gameState != GameState.IN_PROGRESS) {
+            return gameState.toString().toLowerCase();
+        }
+        return currentPhase == 0 ? "day" : "night";
+    }
+
+    /**
+     * Client-supplied action types are folded into "other" unless known
+     */
+    public static String actionType(String actionType) {
+        if (actionType == null) {
+            return "none";
+        }
+        return ACTION_TYPES.contains(actionType) ? actionType : "other";
+    }
+
+    /**
+     * "rejected" for rule and validation failures, "error" for anything else
+     */
+    public static String outcome(Throwable failure) {
+        if (failure == null) {
+            return "success";
+        }
+        if (failure instanceof GameException || failure instanceof ValidationException
+                || failure instanceof IllegalArgumentException) {
+            return "rejected";
+        }
+        return "error";
+    }
+}
@@ -0,0 +1,198 @@
+package com.victadore.webmafia.mafia_web_of_lies.service;
+
+import com.victadore.webmafia.mafia_web_of_lies.model.GameState;
+import com.victadore.webmafia.mafia_web_of_lies.repository.GameRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+/**
+ * Removes finished games older than mafia.purge.retention-days, with everything stored for them:
+ * the vote and night-action collections, players, action history, chat, the stored replay and the
+ * archive file. The statistics ledger keeps its entries, so purged games stay counted exactly once.
+ *
+ * Games are taken in ascending id chunks of mafia.purge.chunk-size. Each chunk is a handful of
+ * bulk DELETE statements in its own transaction, so no rows are loaded and locks on the hot tables
+ * are held only briefly; mafia.purge.pause-ms between chunks leaves room for live games.
+ */
+@Service
+public class GamePurge {
+    private static final Logger logger = Logger.getLogger(GamePurge.class.getName());
+
+    // Children before their parents: all but chat and replays reference game
+    private static final List<String> BY_GAME_ID = List.of(
+        "DELETE FROM game_votes WHERE game_id IN (:gameIds)",
+        "DELETE FROM game_individual_votes WHERE game_id IN (:gameIds)",
+        "DELETE FROM game_mafia_votes WHERE game_id IN (:gameIds)",
+        "DELETE FROM game_players_who_voted WHERE game_id IN (:gameIds)",
+        "DELETE FROM game_players_who_acted_at_night WHERE game_id IN (:gameIds)",
+        "DELETE FROM player WHERE game_id IN (:gameIds)",
+        "DELETE FROM action_history WHERE game_id IN (:gameIds)");
+    private static final List<String> BY_GAME_CODE = List.of(
+        "DELETE FROM chat_messages WHERE game_code IN (:gameCodes)",
+        "DELETE FROM game_replays WHERE game_code IN (:gameCodes)");
+    private static final String DELETE_GAMES = "DELETE FROM game WHERE id IN (:gameIds)";
+
+    private final GameRepository gameRepository;
+    private final GameArchive gameArchive;
+    private final ChatRingBuffers chatRingBuffers;
+    private final WebSocketService webSocketService;
+    private final ActionHistoryJournal actionHistoryJournal;
+    private final ChatMessageJournal chatMessageJournal;
+    private final NamedParameterJdbcTemplate jdbc;
+    private final TransactionTemplate readTransaction;
+    private final TransactionTemplate writeTransaction;
+    private final int retentionDays;
+    private final int chunkSize;
+    private final long pauseMillis;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile boolean stopping;
+
+    public GamePurge(GameRepository gameRepository,
+                     GameArchive gameArchive,
+                     ChatRingBuffers chatRingBuffers,
+                     WebSocketService webSocketService,
+                     ActionHistoryJournal actionHistoryJournal,
+                     ChatMessageJournal chatMessageJournal,
+                     DataSource dataSource,
+                     PlatformTransactionManager transactionManager,
+                     @Value("${mafia.purge.retention-days:0}") int retentionDays,
+                     @Value("${mafia.purge.chunk-size:200}") int chunkSize,
+                     @Value("${mafia.purge.pause-ms:250}") long pauseMillis) {
+        this.gameRepository = gameRepository;
+        this.gameArchive = gameArchive;
+        this.chatRingBuffers = chatRingBuffers;
+        this.webSocketService = webSocketService;
+        this.actionHistoryJournal = actionHistoryJournal;
+        this.chatMessageJournal = chatMessageJournal;
+        this.jdbc = new NamedParameterJdbcTemplate(dataSource);
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.retentionDays = retentionDays;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.pauseMillis = Math.max(0, pauseMillis);
+    }
+
+    /**
+     * Start a purge in the background if retention is configured and none is running; the scheduler
+     * thread also flushes the journals, so it must not be held up
+     */
+    @Scheduled(fixedDelayString = "${mafia.purge.interval-ms:86400000}",
+               initialDelayString = "${mafia.purge.interval-ms:86400000}")
+    public void purgeInBackground() {
+        if (retentionDays > 0 && !running.get()) {
+            Thread.startVirtualThread(() -> purgeOlderThan(retentionDays));
+        }
+    }
+
+    /**
+     * Purge every finished game that ended more than the given number of days ago.
+     * Returns the number of games purged.
+     */
+    public int purgeOlderThan(int days) {
+        if (!running.compareAndSet(false, true)) {
+            return 0;
+        }
+        try {
+            // Queued rows of the games would otherwise be written after their deletion
+            actionHistoryJournal.flush();
+            chatMessageJournal.flush();
+
+            LocalDateTime endedBefore = LocalDateTime.now().minusDays(Math.max(0, days));
+            long startNanos = System.nanoTime();
+            int purged = 0;
+            long rows = 0;
+            long afterId = 0;
+            List<Object[]> games;
+            do {
+                long after = afterId;
+                games = readTransaction.execute(status -> gameRepository.findPurgeableGames(
+                    GameState.FINISHED, endedBefore, after, PageRequest.of(0, chunkSize)));
+                if (games == null || games.isEmpty()) {
+                    break;
+                }
+                List<Long> gameIds = new ArrayList<>(games.size());
+                List<String> gameCodes = new ArrayList<>(games.size());
+                for (Object[] game : games) {
+                    gameIds.add(((Number) game[0]).longValue());
+                    gameCodes.add((String) game[1]);
+                }
+                afterId = gameIds.get(gameIds.size() - 1);
+
+                try {
+                    rows += purge(gameIds, gameCodes);
+                    purged += gameIds.size();
+                } catch (RuntimeException e) {
+                    logger.warning("Could not purge games " + gameIds.get(0) + "-" + afterId + ": " + e.getMessage());
+                }
+                pause();
+            } while (games.size() == chunkSize && !stopping);
+
+            if (purged > 0) {
+                logger.info("Purged " + purged + " games ended before " + endedBefore + " (" + rows + " rows) in "
+                    + (System.nanoTime() - startNanos) / 1_000_000 + " ms");
+            }
+            return purged;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        stopping = true;
+    }
+
+    private long purge(List<Long> gameIds, List<String> gameCodes) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("gameIds", gameIds)
+            .addValue("gameCodes", gameCodes);
+        Long rows = writeTransaction.execute(status -> {
+            long deleted = 0;
+            for (String sql : BY_GAME_ID) {
+                deleted += jdbc.update(sql, params);
+            }
+            for (String sql : BY_GAME_CODE) {
+                deleted += jdbc.update(sql, params);
+            }
+            return deleted + jdbc.update(DELETE_GAMES, params);
+        });
+
+        for (int i = 0; i < gameIds.size(); i++) {
+            chatRingBuffers.evictGame(gameCodes.get(i));
+            webSocketService.evictGame(gameCodes.get(i));
+            try {
+                gameArchive.delete(gameIds.get(i));
+            } catch (RuntimeException e) {
+                logger.warning(e.getMessage());
+            }
+        }
+        return rows != null ? rows : 0;
+    }
+
+    private void pause() {
+        if (pauseMillis == 0 || stopping) {
+            return;
+        }
+        try {
+            Thread.sleep(pauseMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stopping = true;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.victadore.webmafia.mafia_web_of_lies.service;
 
+import java.time.LocalDateTime;
 import java.util.UUID;
 import java.util.ArrayList;
 
@@ -9,26 +10,28 @@ import com.victadore.webmafia.mafia_web_of_lies.model.Player;
 import com.victadore.webmafia.mafia_web_of_lies.model.Role;
 import com.victadore.webmafia.mafia_web_of_lies.repository.GameRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import com.victadore.webmafia.mafia_web_of_lies.exception.GameException;
 import org.springframework.context.annotation.Lazy;
-import com.victadore.webmafia.mafia_web_of_lies.service.PlayerStatisticsService;
 
 @Service
 @Transactional
 public class GameService {
     private final GameRepository gameRepository;
+    private final LiveGameStore liveGameStore;
     private final PlayerService playerService;
     private final ActionHistoryService actionHistoryService;
-    private final PlayerStatisticsService playerStatisticsService;
+    private final WebSocketService webSocketService;
     
-    public GameService(GameRepository gameRepository, PlayerService playerService, 
+    public GameService(GameRepository gameRepository, LiveGameStore liveGameStore, PlayerService playerService, 
                       @Lazy ActionHistoryService actionHistoryService,
-                      @Lazy PlayerStatisticsService playerStatisticsService) {
+                      WebSocketService webSocketService) {
         this.gameRepository = gameRepository;
+        this.liveGameStore = liveGameStore;
         this.playerService = playerService;
         this.actionHistoryService = actionHistoryService;
-        this.playerStatisticsService = playerStatisticsService;
+        this.webSocketService = webSocketService;
     }
     
     public Game createGame(String createdBy){
@@ -95,7 +98,9 @@ public class GameService {
         game.getPlayers().add(player);
         
         // Save the game (this will also save the new player due to cascade)
-        return gameRepository.save(game);
+        Game savedGame = gameRepository.save(game);
+        webSocketService.publishGameState(savedGame);
+        return savedGame;
     }
 
     public Game startGame(String gameCode){
@@ -113,143 +118,40 @@ public class GameService {
         game.setGameState(GameState.IN_PROGRESS);
         game.setCurrentDay(1);
         game.setCurrentPhase(1); // 1 = Night phase (game starts with night), 0 = Day phase
+        game.setStartedAt(LocalDateTime.now());
+        game.setPlayerCount(game.getPlayers().size());
         
         Game savedGame = gameRepository.save(game);
         
         // Record game start events in action history (after game is saved)
         try {
-            actionHistoryService.recordGameEvent(savedGame.getId(), "GAME_START", 
+            actionHistoryService.recordGameEvent(savedGame, "GAME_START", 
                                                String.format("Game started with %d players", savedGame.getPlayers().size()),
                                                "Game successfully started");
             
             // Record role assignments for audit purposes (without revealing roles)
             for (Player player : savedGame.getPlayers()) {
-                actionHistoryService.recordAction(savedGame.getId(), "ROLE_ASSIGNED", "SYSTEM", 
+                actionHistoryService.recordAction(savedGame, "ROLE_ASSIGNED", "SYSTEM", 
                                                 player.getUsername(), 
                                                 "Role assigned to player during game start",
                                                 "Role assignment completed", true);
             }
             
             // Record the first phase transition
-            actionHistoryService.recordPhaseTransition(savedGame.getId(), "SETUP", "NIGHT");
+            actionHistoryService.recordPhaseTransition(savedGame, "SETUP", "NIGHT");
         } catch (Exception e) {
             // If action history recording fails, log but don't fail the game start
             System.err.println("Failed to record action history for game start: " + e.getMessage());
         }
         
+        webSocketService.publishGameState(savedGame);
         return savedGame;
     }
 
-    public Game advanceToNightPhase(String gameCode) {
-        Game game = gameRepository.findByGameCode(gameCode);
-        if (game == null) {
-            throw new GameException("Game not found");
-        }
-        if (game.getCurrentPhase() != 0) {
-            throw new GameException("Game is not in day phase");
-        }
-        
-        game.setCurrentPhase(1); // Night phase
-        
-        // Clear votes and reset night targets for night phase
-        game.getVotes().clear();
-        game.getPlayersWhoVoted().clear();
-        game.setMafiaTarget(null);
-        game.setDoctorTarget(null);
-        
-        return gameRepository.save(game);
-    }
-
-    public Game advanceToDayPhase(String gameCode) {
-        Game game = gameRepository.findByGameCode(gameCode);
-        if (game == null) {
-            throw new GameException("Game not found");
-        }
-        if (game.getCurrentPhase() != 1) {
-            throw new GameException("Game is not in night phase");
-        }
-        
-        game.setCurrentDay(game.getCurrentDay() + 1);
-        game.setCurrentPhase(0); // Day phase
-        
-        // Clear votes and night actions for new day
-        game.getVotes().clear();
-        game.getPlayersWhoVoted().clear();
-        game.getPlayersWhoActedAtNight().clear();
-        game.setMafiaTarget(null);
-        game.setDoctorTarget(null);
-        
-        return gameRepository.save(game);
-    }
-
-    public String checkWinCondition(String gameCode) {
-        Game game = gameRepository.findByGameCode(gameCode);
-        if (game == null) {
-            throw new GameException("Game not found");
-        }
-        
-        long aliveMafia = game.getPlayers().stream()
-            .filter(Player::isAlive)
-            .filter(p -> p.getRole() == Role.MAFIA)
-            .count();
-            
-        long aliveCitizens = game.getPlayers().stream()
-            .filter(Player::isAlive)
-            .filter(p -> p.getRole() != Role.MAFIA)
-            .count();
-        
-        if (aliveMafia == 0) {
-            game.setGameState(GameState.FINISHED);
-            game.setWinner("CITIZENS");
-            gameRepository.save(game);
-            
-            // Record citizen victory
-            try {
-                actionHistoryService.recordGameEvent(game.getId(), "GAME_END", 
-                                                   "Citizens eliminated all Mafia members",
-                                                   "Citizens victory - All Mafia eliminated");
-            } catch (Exception e) {
-                System.err.println("Failed to record game end event: " + e.getMessage());
-            }
-            
-            // Update player statistics
-            try {
-                playerStatisticsService.updatePlayerStatisticsAfterGame(game.getGameCode());
-            } catch (Exception e) {
-                System.err.println("Failed to update player statistics: " + e.getMessage());
-            }
-            
-            return "CITIZENS";
-        } else if (aliveMafia >= aliveCitizens) {
-            game.setGameState(GameState.FINISHED);
-            game.setWinner("MAFIA");
-            gameRepository.save(game);
-            
-            // Record Mafia victory
-            try {
-                actionHistoryService.recordGameEvent(game.getId(), "GAME_END", 
-                                                   String.format("Mafia achieved majority control (%d Mafia vs %d Citizens)", 
-                                                               aliveMafia, aliveCitizens),
-                                                   "Mafia victory - Majority control achieved");
-            } catch (Exception e) {
-                System.err.println("Failed to record game end event: " + e.getMessage());
-            }
-            
-            // Update player statistics
-            try {
-                playerStatisticsService.updatePlayerStatisticsAfterGame(game.getGameCode());
-            } catch (Exception e) {
-                System.err.println("Failed to update player statistics: " + e.getMessage());
-            }
-            
-            return "MAFIA";
-        }
-        
-        return "ONGOING";
-    }
-
+    // Live games need no connection; loading one takes its own, so don't hold another meanwhile
+    @Transactional(propagation = Propagation.SUPPORTS)
     public Game getGameByCode(String gameCode) {
-        Game game = gameRepository.findByGameCode(gameCode);
+        Game game = liveGameStore.findGame(gameCode);
         if (game == null) {
             throw new GameException("Game not found");
         }
@@ -0,0 +1,230 @@
+package com.victadore.webmafia.mafia_web_of_lies.service;
+
+import com.victadore.webmafia.mafia_web_of_lies.model.ActionHistory;
+import com.victadore.webmafia.mafia_web_of_lies.model.Player;
+import com.victadore.webmafia.mafia_web_of_lies.model.PlayerStatistics;
+import com.victadore.webmafia.mafia_web_of_lies.model.Role;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-player counters for one finished game, computed in a single pass over its action history.
+ *
+ * Players are addressed by their seat (index in the game's player list); every counter is an
+ * array indexed by seat, so the fold does one map lookup per actor/target and no per-player queries.
+ */
+final class GameStatisticsAggregator {
+    private static final int NOT_ELIMINATED = 0;
+    private static final int ELIMINATED_OTHER = 1;
+    private static final int ELIMINATED_BY_VOTING = 2;
+    private static final int ELIMINATED_BY_MAFIA = 3;
+
+    private final Map<String, Integer> seats;
+    private final Role[] roles;
+
+    private final int[] votesCast;
+    private final int[] correctMafiaVotes;
+    private final int[] skipVotes;
+    private final int[] nightActions;
+    private final int[] successfulNightActions;
+    private final int[] investigations;
+    private final int[] mafiaFound;
+    private final int[] savesAttempted;
+    private final int[] successfulSaves;
+    private final int[] killsAttempted;
+    private final int[] successfulKills;
+    private final int[] elimination;
+
+    // Achievement inputs
+    private final boolean[] investigatedMafia;
+    private final boolean[] madeSuccessfulSave;
+    private final boolean[] votedAgainst;
+    private final boolean[] votedForMafia;
+
+    private GameStatisticsAggregator(List<Player> players) {
+        int size = players.size();
+        this.seats = new HashMap<>(size * 2);
+        this.roles = new Role[size];
+        for (int seat = 0; seat < size; seat++) {
+            Player player = players.get(seat);
+            seats.put(player.getUsername(), seat);
+            roles[seat] = player.getRole();
+        }
+
+        this.votesCast = new int[size];
+        this.correctMafiaVotes = new int[size];
+        this.skipVotes = new int[size];
+        this.nightActions = new int[size];
+        this.successfulNightActions = new int[size];
+        this.investigations = new int[size];
+        this.mafiaFound = new int[size];
+        this.savesAttempted = new int[size];
+        this.successfulSaves = new int[size];
+        this.killsAttempted = new int[size];
+        this.successfulKills = new int[size];
+        this.elimination = new int[size];
+        this.investigatedMafia = new boolean[size];
+        this.madeSuccessfulSave = new boolean[size];
+        this.votedAgainst = new boolean[size];
+        this.votedForMafia = new boolean[size];
+    }
+
+    /**
+     * Fold a game's history (ordered by timestamp) into per-seat counters
+     */
+    static GameStatisticsAggregator fold(List<Player> players, List<ActionHistory> history) {
+        GameStatisticsAggregator aggregator = new GameStatisticsAggregator(players);
+        for (ActionHistory action : history) {
+            aggregator.accept(action);
+        }
+        return aggregator;
+    }
+
+    private void accept(ActionHistory action) {
+        String type = action.getActionType();
+        if (type == null) {
+            return;
+        }
+        int actor = seatOf(action.getActorUsername());
+        int target = seatOf(action.getTargetUsername());
+        boolean successful = Boolean.TRUE.equals(action.getSuccessful());
+        boolean targetIsMafia = target >= 0 && roles[target] == Role.MAFIA;
+
+        switch (type) {
+            case "VOTE":
+                if (target >= 0) {
+                    votedAgainst[target] = true;
+                }
+                if (actor >= 0) {
+                    votesCast[actor]++;
+                    if (targetIsMafia) {
+                        correctMafiaVotes[actor]++;
+                        votedForMafia[actor] = true;
+                    }
+                }
+                break;
+            case "SKIP_VOTE":
+                if (actor >= 0) {
+                    skipVotes[actor]++;
+                }
+                break;
+            case "INVESTIGATE":
+                if (actor >= 0) {
+                    investigations[actor]++;
+                    nightActions[actor]++;
+                    if (targetIsMafia) {
+                        investigatedMafia[actor] = true;
+                    }
+                    if (successful) {
+                        successfulNightActions[actor]++;
+                        if (targetIsMafia) {
+                            mafiaFound[actor]++;
+                        }
+                    }
+                }
+                break;
+            case "SAVE":
+                if (actor >= 0) {
+                    savesAttempted[actor]++;
+                    nightActions[actor]++;
+                    if (successful) {
+                        successfulNightActions[actor]++;
+                        successfulSaves[actor]++;
+                        madeSuccessfulSave[actor] = true;
+                    }
+                }
+                break;
+            case "KILL":
+                if (actor >= 0) {
+                    killsAttempted[actor]++;
+                    nightActions[actor]++;
+                    if (successful) {
+                        successfulNightActions[actor]++;
+                        successfulKills[actor]++;
+                    }
+                }
+                break;
+            case "ELIMINATE":
+            case "MAFIA_KILL":
+                // Only the first elimination of a player counts
+                if (target >= 0 && elimination[target] == NOT_ELIMINATED) {
+                    elimination[target] = eliminationCause(action.getActionDetails());
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static int eliminationCause(String details) {
+        if (details != null && details.contains("voting")) {
+            return ELIMINATED_BY_VOTING;
+        } else if (details != null && details.contains("Mafia")) {
+            return ELIMINATED_BY_MAFIA;
+        }
+        return ELIMINATED_OTHER;
+    }
+
+    private int seatOf(String username) {
+        if (username == null) {
+            return -1;
+        }
+        Integer seat = seats.get(username);
+        return seat != null ? seat : -1;
+    }
+
+    /**
+     * Add the action-based counters of a seat to the player's running totals
+     */
+    void applyActionStats(PlayerStatistics stats, int seat) {
+        stats.setTotalVotesCast(stats.getTotalVotesCast() + votesCast[seat]);
+        stats.setCorrectMafiaVotes(stats.getCorrectMafiaVotes() + correctMafiaVotes[seat]);
+        stats.setSkipVotes(stats.getSkipVotes() + skipVotes[seat]);
+        stats.setNightActionsPerformed(stats.getNightActionsPerformed() + nightActions[seat]);
+        stats.setSuccessfulNightActions(stats.getSuccessfulNightActions() + successfulNightActions[seat]);
+        stats.setInvestigationsPerformed(stats.getInvestigationsPerformed() + investigations[seat]);
+        stats.setMafiaFound(stats.getMafiaFound() + mafiaFound[seat]);
+        stats.setSavesAttempted(stats.getSavesAttempted() + savesAttempted[seat]);
+        stats.setSuccessfulSaves(stats.getSuccessfulSaves() + successfulSaves[seat]);
+        stats.setMafiaKillsAttempted(stats.getMafiaKillsAttempted() + killsAttempted[seat]);
+        stats.setSuccessfulMafiaKills(stats.getSuccessfulMafiaKills() + successfulKills[seat]);
+    }
+
+    /**
+     * Add how the seat was eliminated, if it was
+     */
+    void applyEliminationStats(PlayerStatistics stats, int seat) {
+        if (elimination[seat] == ELIMINATED_BY_VOTING) {
+            stats.setTimesEliminatedByVoting(stats.getTimesEliminatedByVoting() + 1);
+        } else if (elimination[seat] == ELIMINATED_BY_MAFIA) {
+            stats.setTimesEliminatedByMafia(stats.getTimesEliminatedByMafia() + 1);
+        }
+    }
+
+    /**
+     * Whether the seat played its role well: the basis for both perfect games and MVP awards
+     */
+    boolean playedRoleWell(int seat) {
+        if (roles[seat] == null) {
+            return false;
+        }
+        switch (roles[seat]) {
+            case DETECTIVE:
+                // Found at least one Mafia
+                return investigatedMafia[seat];
+            case DOCTOR:
+                // Made at least one successful save
+                return madeSuccessfulSave[seat];
+            case MAFIA:
+                // Never suspected (no votes against)
+                return !votedAgainst[seat];
+            case CITIZEN:
+                // Voted for Mafia at least once
+                return votedForMafia[seat];
+            default:
+                return false;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.victadore.webmafia.mafia_web_of_lies.service;
+
+import com.victadore.webmafia.mafia_web_of_lies.model.PlayerStatistics;
+import com.victadore.webmafia.mafia_web_of_lies.repository.PlayerStatisticsRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Materialized global statistics: the totals, averages and histograms of the statistics page,
+ * kept as counters instead of aggregating player_statistics on every view.
+ *
+ * Every change to a player's statistics moves the counters by the difference between the row
+ * before and after it. The counters are reconciled with the table at startup and periodically,
+ * which also corrects anything missed (e.g. rows changed outside this service).
+ */
+@Component
+public class GlobalStatistics {
+    private static final Logger logger = Logger.getLogger(GlobalStatistics.class.getName());
+
+    // Lower bounds (total games) of the experience levels
+    private static final int[] EXPERIENCE_LEVELS = {0, 5, 15, 30, 50, 100};
+    private static final String[] EXPERIENCE_NAMES = {"newcomers", "beginners", "intermediate", "advanced", "expert", "master"};
+
+    private final PlayerStatisticsRepository playerStatisticsRepository;
+
+    private final LongAdder players = new LongAdder();
+    private final LongAdder gamesPlayed = new LongAdder();
+    private final DoubleAdder winRateSum = new DoubleAdder();
+    private final DoubleAdder survivalRateSum = new DoubleAdder();
+    private final AtomicLong mostGamesPlayed = new AtomicLong();
+    private final AtomicLong mostWins = new AtomicLong();
+    private final LongAdder[] experience = new LongAdder[EXPERIENCE_LEVELS.length];
+    private final LongAdder mafiaGames = new LongAdder();
+    private final LongAdder detectiveGames = new LongAdder();
+    private final LongAdder doctorGames = new LongAdder();
+    private final LongAdder citizenGames = new LongAdder();
+    private volatile boolean loaded;
+
+    public GlobalStatistics(PlayerStatisticsRepository playerStatisticsRepository) {
+        this.playerStatisticsRepository = playerStatisticsRepository;
+        for (int i = 0; i < experience.length; i++) {
+            experience[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Apply changed rows; before holds each row's counters prior to the change, or null for a new row.
+     * Inside a transaction the change is applied once it commits.
+     */
+    public void update(List<Contribution> before, List<PlayerStatistics> after) {
+        List<Contribution> changed = new ArrayList<>(after.size());
+        for (PlayerStatistics stats : after) {
+            changed.add(Contribution.of(stats));
+        }
+        List<Contribution> previous = new ArrayList<>(before);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(previous, changed);
+                }
+            });
+        } else {
+            apply(previous, changed);
+        }
+    }
+
+    /**
+     * The statistics page summary, in the shape the page and /statistics/api/global expect
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> stats = new HashMap<>();
+        long playerCount = players.sum();
+        stats.put("totalPlayers", playerCount);
+        stats.put("totalGamesPlayed", gamesPlayed.sum());
+        // Averages as percentages (0.0-100.0)
+        stats.put("averageWinRate", playerCount > 0 ? winRateSum.sum() / playerCount * 100 : 0.0);
+        stats.put("averageSurvivalRate", playerCount > 0 ? survivalRateSum.sum() / playerCount * 100 : 0.0);
+        stats.put("mostGamesPlayed", mostGamesPlayed.get());
+        stats.put("mostWins", mostWins.get());
+
+        Map<String, Object> levels = new HashMap<>();
+        for (int i = 0; i < experience.length; i++) {
+            levels.put(EXPERIENCE_NAMES[i], experience[i].sum());
+        }
+        stats.put("experienceDistribution", levels);
+
+        Map<String, Object> roles = new HashMap<>();
+        roles.put("mafiaGames", mafiaGames.sum());
+        roles.put("detectiveGames", detectiveGames.sum());
+        roles.put("doctorGames", doctorGames.sum());
+        roles.put("citizenGames", citizenGames.sum());
+        stats.put("roleDistribution", roles);
+        return stats;
+    }
+
+    /**
+     * Bring the counters in line with the table
+     */
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${mafia.statistics.reconcile-interval-ms:600000}",
+               initialDelayString = "${mafia.statistics.reconcile-interval-ms:600000}")
+    public void reconcile() {
+        try {
+            Object[] global = row(playerStatisticsRepository.getGlobalStatistics());
+            Object[] levels = row(playerStatisticsRepository.getExperienceLevelDistribution());
+            Object[] roles = row(playerStatisticsRepository.getRoleDistributionStatistics());
+
+            long drift = Math.abs(correct(players, global[0])) + Math.abs(correct(gamesPlayed, global[1]));
+            correct(winRateSum, number(global[2]).doubleValue() * number(global[0]).longValue());
+            correct(survivalRateSum, number(global[3]).doubleValue() * number(global[0]).longValue());
+            mostGamesPlayed.set(number(global[4]).longValue());
+            mostWins.set(number(global[5]).longValue());
+            for (int i = 0; i < experience.length; i++) {
+                drift += Math.abs(correct(experience[i], levels[i]));
+            }
+            drift += Math.abs(correct(mafiaGames, roles[0])) + Math.abs(correct(detectiveGames, roles[1]))
+                + Math.abs(correct(doctorGames, roles[2])) + Math.abs(correct(citizenGames, roles[3]));
+
+            if (!loaded) {
+                loaded = true;
+                logger.info("Loaded global statistics for " + players.sum() + " players");
+            } else if (drift != 0) {
+                logger.info("Reconciled global statistics with player_statistics (drift " + drift + ")");
+            }
+        } catch (RuntimeException e) {
+            logger.warning("Could not reconcile global statistics: " + e.getMessage());
+        }
+    }
+
+    private void apply(List<Contribution> before, List<Contribution> after) {
+        Iterator<Contribution> previous = before.iterator();
+        for (Contribution current : after) {
+            Contribution old = previous.hasNext() ? previous.next() : null;
+            if (old == null) {
+                old = Contribution.NONE;
+                players.increment();
+            } else {
+                experience[level(old.totalGames)].decrement();
+            }
+            experience[level(current.totalGames)].increment();
+
+            gamesPlayed.add(current.totalGames - old.totalGames);
+            winRateSum.add(current.winRate() - old.winRate());
+            survivalRateSum.add(current.survivalRate() - old.survivalRate());
+            mostGamesPlayed.accumulateAndGet(current.totalGames, Math::max);
+            mostWins.accumulateAndGet(current.gamesWon, Math::max);
+            mafiaGames.add(current.mafiaGames - old.mafiaGames);
+            detectiveGames.add(current.detectiveGames - old.detectiveGames);
+            doctorGames.add(current.doctorGames - old.doctorGames);
+            citizenGames.add(current.citizenGames - old.citizenGames);
+        }
+    }
+
+    private static int level(int totalGames) {
+        int level = 0;
+        while (level + 1 < EXPERIENCE_LEVELS.length && totalGames >= EXPERIENCE_LEVELS[level + 1]) {
+            level++;
+        }
+        return level;
+    }
+
+    /**
+     * Move an adder to the table's value and return by how much it was off
+     */
+    private static long correct(LongAdder adder, Object actual) {
+        long difference = number(actual).longValue() - adder.sum();
+        adder.add(difference);
+        return difference;
+    }
+
+    private static void correct(DoubleAdder adder, double actual) {
+        adder.add(actual - adder.sum());
+    }
+
+    /**
+     * Aggregate queries come back either as the row itself or wrapped in a one-element array
+     */
+    private static Object[] row(Object[] result) {
+        if (result != null && result.length == 1 && result[0] instanceof Object[] inner) {
+            return inner;
+        }
+        return result;
+    }
+
+    private static Number number(Object value) {
+        return value instanceof Number number ? number : 0;
+    }
+
+    /**
+     * The counters of one statistics row that the global figures are built from
+     */
+    public record Contribution(int totalGames, int gamesWon, int timesSurvived, int mafiaGames,
+                               int detectiveGames, int doctorGames, int citizenGames) {
+        private static final Contribution NONE = new Contribution(0, 0, 0, 0, 0, 0, 0);
+
+        public static Contribution of(PlayerStatistics stats) {
+            return new Contribution(count(stats.getTotalGames()), count(stats.getGamesWon()),
+                count(stats.getTimesSurvived()), count(stats.getMafiaGames()), count(stats.getDetectiveGames()),
+                count(stats.getDoctorGames()), count(stats.getCitizenGames()));
+        }
+
+        private double winRate() {
+            return totalGames > 0 ? (double) gamesWon / totalGames : 0.0;
+        }
+
+        private double survivalRate() {
+            return totalGames > 0 ? (double) timesSurvived / totalGames : 0.0;
+        }
+
+        private static int count(Integer value) {
+            return value != null ? value : 0;
+        }
+    }
+}
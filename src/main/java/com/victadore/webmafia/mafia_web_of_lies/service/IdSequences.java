@@ -0,0 +1,46 @@
+package com.victadore.webmafia.mafia_web_of_lies.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps Hibernate id generators ahead of rows that were written with IDENTITY ids.
+ *
+ * Where the dialect has sequences (H2) the sequence is restarted; where it does not (MySQL)
+ * Hibernate keeps the next value in a one-row "name_seq" table, whose next_val is raised instead.
+ */
+@Component
+public class IdSequences {
+    private final JdbcTemplate jdbcTemplate;
+    private final Dialect dialect;
+
+    public IdSequences(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+    }
+
+    /**
+     * Move a pooled generator past the highest id in a table. Throws if the generator cannot be
+     * moved, since handing out ids that already exist would fail every later insert.
+     */
+    public void alignPast(String table, String sequence, int allocationSize) {
+        try {
+            Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM " + table, Long.class);
+            if (maxId == null) {
+                return;
+            }
+            // The pooled optimizer hands out (value - allocationSize, value], so leave a full block of headroom
+            long next = maxId + allocationSize + 1;
+            if (dialect.getSequenceSupport().supportsSequences()) {
+                jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " RESTART WITH " + next);
+            } else {
+                jdbcTemplate.update("UPDATE " + sequence + " SET next_val = ? WHERE next_val < ?", next, next);
+            }
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("Could not align " + sequence + " with the rows in " + table, e);
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package com.victadore.webmafia.mafia_web_of_lies.service;
+
+import com.victadore.webmafia.mafia_web_of_lies.model.PlayerStatistics;
+import com.victadore.webmafia.mafia_web_of_lies.repository.PlayerStatisticsRepository;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.logging.Logger;
+
+/**
+ * Ranked leaderboards held in memory, so top-K pages and "what rank is this player" are
+ * O(log n) lookups instead of sorting player_statistics on every view.
+ *
+ * The counters each board ranks by are kept per player. A board is a {@link RankedSkipList} of
+ * the players meeting its minimum (games played as Mafia, investigations, ...); it is built the
+ * first time that minimum is asked for and then kept up to date as statistics change. At most
+ * MAX_BOARDS are kept; the least recently read one is dropped to make room for a new one.
+ * Everything is loaded from the table at startup.
+ */
+@Component
+public class Leaderboards {
+    private static final Logger logger = Logger.getLogger(Leaderboards.class.getName());
+    private static final int LOAD_PAGE_SIZE = 1000;
+    private static final int MAX_BOARDS = 32;
+
+    /**
+     * A leaderboard: players ordered by numerator / denominator, best first.
+     * Only players whose qualifying count reaches the requested minimum are ranked.
+     */
+    public enum Board {
+        WIN_RATE("winrate", Standing::gamesWon, Standing::totalGames, Standing::totalGames),
+        GAMES_PLAYED("games", Standing::totalGames, standing -> 1, Standing::totalGames),
+        SURVIVAL_RATE("survival", Standing::timesSurvived, Standing::totalGames, Standing::totalGames),
+        MAFIA("mafia", Standing::mafiaWins, Standing::mafiaGames, Standing::mafiaGames),
+        DETECTIVE("detective", Standing::mafiaFound, Standing::investigationsPerformed, Standing::investigationsPerformed),
+        DOCTOR("doctor", Standing::successfulSaves, Standing::savesAttempted, Standing::savesAttempted);
+
+        private final String key;
+        private final ToIntFunction<Standing> numerator;
+        private final ToIntFunction<Standing> denominator;
+        private final ToIntFunction<Standing> qualifier;
+
+        Board(String key, ToIntFunction<Standing> numerator, ToIntFunction<Standing> denominator,
+              ToIntFunction<Standing> qualifier) {
+            this.key = key;
+            this.numerator = numerator;
+            this.denominator = denominator;
+            this.qualifier = qualifier;
+        }
+
+        public String key() {
+            return key;
+        }
+
+        public static Board fromKey(String key) {
+            for (Board board : values()) {
+                if (board.key.equalsIgnoreCase(key)) {
+                    return board;
+                }
+            }
+            throw new IllegalArgumentException("Unknown leaderboard: " + key);
+        }
+
+        private Ranked rank(Standing standing, int minimum) {
+            int denominatorValue = denominator.applyAsInt(standing);
+            if (qualifier.applyAsInt(standing) < minimum || denominatorValue <= 0) {
+                return null;
+            }
+            return new Ranked(standing.username(), numerator.applyAsInt(standing), denominatorValue);
+        }
+    }
+
+    private final PlayerStatisticsRepository playerStatisticsRepository;
+    private final Map<String, Standing> standings = new HashMap<>();
+    private final Map<BoardKey, KeptBoard> boards = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public Leaderboards(PlayerStatisticsRepository playerStatisticsRepository) {
+        this.playerStatisticsRepository = playerStatisticsRepository;
+    }
+
+    @PostConstruct
+    public void load() {
+        List<Standing> loaded = new ArrayList<>();
+        PageRequest page = PageRequest.of(0, LOAD_PAGE_SIZE, Sort.by("id"));
+        Slice<PlayerStatistics> slice;
+        do {
+            slice = playerStatisticsRepository.findAll(page);
+            slice.forEach(stats -> loaded.add(Standing.of(stats)));
+            page = page.next();
+        } while (slice.hasNext());
+
+        apply(loaded);
+        logger.info("Loaded leaderboard standings for " + loaded.size() + " players");
+    }
+
+    /**
+     * Take in changed statistics; inside a transaction they are applied once it commits
+     */
+    public void update(Collection<PlayerStatistics> statistics) {
+        // Copy the counters now, the entities may change before the commit
+        List<Standing> changed = statistics.stream().map(Standing::of).toList();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(changed);
+                }
+            });
+        } else {
+            apply(changed);
+        }
+    }
+
+    /**
+     * Usernames of the best players on a board, best first
+     */
+    public List<String> top(Board board, int minimum, int limit) {
+        return withBoard(board, minimum, ranked -> ranked.range(0, limit).stream().map(Ranked::username).toList());
+    }
+
+    /**
+     * 1-based rank of a player on a board, or 0 if the player is not ranked there
+     */
+    public int rank(Board board, int minimum, String username) {
+        return withBoard(board, minimum, ranked -> {
+            Standing standing = standings.get(username);
+            Ranked entry = standing != null ? board.rank(standing, minimum) : null;
+            return entry != null ? ranked.rank(entry) : 0;
+        });
+    }
+
+    /**
+     * Number of players ranked on a board
+     */
+    public int size(Board board, int minimum) {
+        return withBoard(board, minimum, RankedSkipList::size);
+    }
+
+    private <R> R withBoard(Board board, int minimum, Function<RankedSkipList<Ranked>, R> read) {
+        BoardKey key = new BoardKey(board, Math.max(0, minimum));
+        lock.readLock().lock();
+        try {
+            KeptBoard kept = boards.get(key);
+            if (kept != null) {
+                kept.lastRead = System.nanoTime();
+                return read.apply(kept.ranked);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        lock.writeLock().lock();
+        try {
+            KeptBoard kept = boards.get(key);
+            if (kept == null) {
+                if (boards.size() >= MAX_BOARDS) {
+                    // Every kept board is updated on each statistics change, so their number stays bounded
+                    boards.entrySet().stream()
+                        .min(Map.Entry.comparingByValue(Comparator.comparingLong((KeptBoard other) -> other.lastRead)))
+                        .ifPresent(entry -> boards.remove(entry.getKey()));
+                }
+                kept = new KeptBoard(build(key));
+                boards.put(key, kept);
+            }
+            kept.lastRead = System.nanoTime();
+            return read.apply(kept.ranked);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private RankedSkipList<Ranked> build(BoardKey key) {
+        RankedSkipList<Ranked> ranked = new RankedSkipList<>(Ranked.ORDER);
+        for (Standing standing : standings.values()) {
+            Ranked entry = key.board.rank(standing, key.minimum);
+            if (entry != null) {
+                ranked.insert(entry);
+            }
+        }
+        return ranked;
+    }
+
+    private void apply(Collection<Standing> changed) {
+        lock.writeLock().lock();
+        try {
+            for (Standing standing : changed) {
+                Standing previous = standings.put(standing.username(), standing);
+                for (Map.Entry<BoardKey, KeptBoard> board : boards.entrySet()) {
+                    BoardKey key = board.getKey();
+                    RankedSkipList<Ranked> ranked = board.getValue().ranked;
+                    if (previous != null) {
+                        Ranked old = key.board.rank(previous, key.minimum);
+                        if (old != null) {
+                            ranked.remove(old);
+                        }
+                    }
+                    Ranked current = key.board.rank(standing, key.minimum);
+                    if (current != null) {
+                        ranked.insert(current);
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * The counters leaderboards rank by, copied from a statistics row
+     */
+    record Standing(String username, int totalGames, int gamesWon, int timesSurvived, int mafiaGames, int mafiaWins,
+                    int investigationsPerformed, int mafiaFound, int savesAttempted, int successfulSaves) {
+
+        static Standing of(PlayerStatistics stats) {
+            return new Standing(stats.getUsername(), count(stats.getTotalGames()), count(stats.getGamesWon()),
+                count(stats.getTimesSurvived()), count(stats.getMafiaGames()), count(stats.getMafiaWins()),
+                count(stats.getInvestigationsPerformed()), count(stats.getMafiaFound()),
+                count(stats.getSavesAttempted()), count(stats.getSuccessfulSaves()));
+        }
+
+        private static int count(Integer value) {
+            return value != null ? value : 0;
+        }
+    }
+
+    /**
+     * A player's place on a board. Ties on the ratio go to the player with more games behind it,
+     * then by username, so every entry has a distinct position.
+     */
+    private record Ranked(String username, long numerator, long denominator) {
+        static final Comparator<Ranked> ORDER = (a, b) -> {
+            int byRatio = Long.compare(b.numerator * a.denominator, a.numerator * b.denominator);
+            if (byRatio != 0) {
+                return byRatio;
+            }
+            int byVolume = Long.compare(b.denominator, a.denominator);
+            return byVolume != 0 ? byVolume : a.username.compareTo(b.username);
+        };
+    }
+
+    private record BoardKey(Board board, int minimum) {
+    }
+
+    /**
+     * A built board and when it was last read, for choosing which board to drop
+     */
+    private static final class KeptBoard {
+        private final RankedSkipList<Ranked> ranked;
+        private volatile long lastRead;
+
+        KeptBoard(RankedSkipList<Ranked> ranked) {
+            this.ranked = ranked;
+        }
+    }
+}
@@ -0,0 +1,466 @@
+package com.victadore.webmafia.mafia_web_of_lies.service;
+
+import com.victadore.webmafia.mafia_web_of_lies.exception.GameException;
+import com.victadore.webmafia.mafia_web_of_lies.model.Game;
+import com.victadore.webmafia.mafia_web_of_lies.model.GameState;
+import com.victadore.webmafia.mafia_web_of_lies.model.Player;
+import com.victadore.webmafia.mafia_web_of_lies.model.Role;
+import com.victadore.webmafia.mafia_web_of_lies.repository.GameRepository;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+/**
+ * Resident, authoritative state for games that are IN_PROGRESS.
+ *
+ * The first access to an in-progress game loads it (players and all vote/night-action
+ * collections) in its own read-only transaction and keeps the detached graph in memory.
+ * Commands mutate that graph under the game's lock, and a background flush merges
+ * a snapshot of dirty games back into the database. Games that leave IN_PROGRESS are
+ * flushed synchronously and evicted, so everything outside the live phase keeps going
+ * straight to the repository. A command that throws leaves the game as it found it, and
+ * games left idle are written back and dropped until they are next touched.
+ */
+@Service
+public class LiveGameStore {
+    private static final Logger logger = Logger.getLogger(LiveGameStore.class.getName());
+
+    private final GameRepository gameRepository;
+    private final TransactionTemplate loadTransaction;
+    private final TransactionTemplate flushTransaction;
+    private final TransactionTemplate writeTransaction;
+    private final TransactionTemplate readTransaction;
+
+    private final Map<String, LiveGame> liveGames = new ConcurrentHashMap<>();
+    private final Map<Long, String> gameCodesById = new ConcurrentHashMap<>();
+    private final Set<String> dirtyGames = ConcurrentHashMap.newKeySet();
+    private final long idleNanos;
+
+    public LiveGameStore(GameRepository gameRepository, PlatformTransactionManager transactionManager,
+                         @Value("${mafia.live-state.idle-minutes:30}") long idleMinutes) {
+        this.gameRepository = gameRepository;
+        this.idleNanos = TimeUnit.MINUTES.toNanos(idleMinutes);
+
+        // Loads run in their own transaction so the cached graph is never managed by a caller's session
+        this.loadTransaction = new TransactionTemplate(transactionManager);
+        this.loadTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.loadTransaction.setReadOnly(true);
+
+        // Flushes commit on their own so that flush ordering (not caller commit ordering) decides what wins
+        this.flushTransaction = new TransactionTemplate(transactionManager);
+        this.flushTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        // Games that are not live are read and changed in a transaction, joining the caller's if there is one
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Apply a state-changing command to a game. In-progress games are mutated in memory and
+     * persisted asynchronously; any other game is loaded and saved through the repository.
+     * A command that returns the live game hands back a snapshot taken under the lock instead.
+     */
+    public <T> T update(String gameCode, Function<Game, T> command) {
+        LiveGame live = lockLive(gameCode);
+        if (live == null) {
+            return writeTransaction.execute(status -> {
+                Game game = gameRepository.findByGameCode(gameCode);
+                if (game == null) {
+                    throw new GameException("Game not found");
+                }
+                T result = command.apply(game);
+                gameRepository.save(game);
+                return result;
+            });
+        }
+
+        try {
+            Game before = copyOf(live.game);
+            long revisionBefore = live.revision;
+            T result;
+            try {
+                result = command.apply(live.game);
+            } catch (RuntimeException | Error e) {
+                // The caller rolls back and publishes nothing, so the half-applied changes must never be flushed
+                live.game = before;
+                live.view = GameView.of(before);
+                if (live.revision != revisionBefore) {
+                    // The command persisted part of its work before failing; overwrite it with the restored game
+                    live.revision++;
+                    dirtyGames.add(gameCode);
+                }
+                throw e;
+            }
+
+            if (result == live.game) {
+                @SuppressWarnings("unchecked")
+                T snapshot = (T) copyOf(live.game);
+                result = snapshot;
+            }
+            live.revision++;
+            live.lastUsed = System.nanoTime();
+            live.view = GameView.of(live.game);
+            if (live.game.getGameState() == GameState.IN_PROGRESS) {
+                dirtyGames.add(gameCode);
+            } else {
+                // The game left its live phase; write it through and hand it back to the database
+                flush(live);
+                evict(live);
+            }
+            return result;
+        } finally {
+            live.lock.unlock();
+        }
+    }
+
+    /**
+     * Run a read-only query against a game, served from memory when the game is live.
+     */
+    public <T> T read(String gameCode, Function<Game, T> query) {
+        LiveGame live = lockLive(gameCode);
+        if (live == null) {
+            return readTransaction.execute(status -> {
+                Game game = gameRepository.findByGameCode(gameCode);
+                if (game == null) {
+                    throw new GameException("Game not found");
+                }
+                return query.apply(game);
+            });
+        }
+
+        try {
+            live.lastUsed = System.nanoTime();
+            return query.apply(live.game);
+        } finally {
+            live.lock.unlock();
+        }
+    }
+
+    /**
+     * Phase and roster of a game without taking its lock or copying it: live games hand out the
+     * view published after their last command. Returns null when the game does not exist.
+     */
+    public GameView view(String gameCode) {
+        LiveGame live = resolve(gameCode);
+        if (live != null) {
+            return live.view;
+        }
+        return readTransaction.execute(status -> {
+            Game game = gameRepository.findByGameCode(gameCode);
+            return game != null ? GameView.of(game) : null;
+        });
+    }
+
+    /**
+     * Whether the user holds a seat in a game resident in memory. Never touches the database or
+     * the game's lock, so it is cheap enough to run before every request.
+     */
+    public boolean isSeated(String gameCode, String username) {
+        LiveGame live = gameCode != null ? liveGames.get(gameCode) : null;
+        return live != null && live.view.player(username) != null;
+    }
+
+    /**
+     * Look up a game by code, returning a snapshot of in-progress games so callers never see
+     * a command's half-applied changes. Returns null when the game does not exist, like
+     * {@link GameRepository#findByGameCode}.
+     */
+    public Game findGame(String gameCode) {
+        LiveGame live = resolve(gameCode);
+        return live != null ? snapshot(live) : gameRepository.findByGameCode(gameCode);
+    }
+
+    /**
+     * Look up a game by id, returning a snapshot if that game is currently cached.
+     */
+    public Game findGameById(Long gameId) {
+        String gameCode = gameCodesById.get(gameId);
+        if (gameCode != null) {
+            LiveGame live = liveGames.get(gameCode);
+            if (live != null) {
+                return snapshot(live);
+            }
+        }
+        return gameRepository.findById(gameId)
+            .orElseThrow(() -> new GameException("Game not found"));
+    }
+
+    /**
+     * Persist a game immediately (e.g. before end-of-game statistics read it back).
+     */
+    public void persistNow(Game game) {
+        LiveGame live = liveGames.get(game.getGameCode());
+        if (live != null) {
+            live.lock.lock();
+            try {
+                if (live.game == game && !live.evicted) {
+                    live.revision++;
+                    flush(live);
+                    return;
+                }
+            } finally {
+                live.lock.unlock();
+            }
+        }
+        gameRepository.save(game);
+    }
+
+    /**
+     * Number of games currently held in memory
+     */
+    public int size() {
+        return liveGames.size();
+    }
+
+    /**
+     * Write dirty games back to the database
+     */
+    @Scheduled(fixedDelayString = "${mafia.live-state.flush-interval-ms:50}")
+    public void flushDirtyGames() {
+        for (String gameCode : dirtyGames) {
+            dirtyGames.remove(gameCode);
+            LiveGame live = liveGames.get(gameCode);
+            if (live != null) {
+                flush(live);
+            }
+        }
+    }
+
+    /**
+     * Write back and drop games nobody has touched for a while (e.g. abandoned mid-game);
+     * the next access loads them again
+     */
+    @Scheduled(fixedDelayString = "${mafia.live-state.sweep-interval-ms:60000}")
+    public void evictIdleGames() {
+        long now = System.nanoTime();
+        int evicted = 0;
+        for (LiveGame live : liveGames.values()) {
+            if (now - live.lastUsed <= idleNanos) {
+                continue;
+            }
+            live.lock.lock();
+            try {
+                // A game that failed to flush stays resident (and dirty) until it can be written
+                if (!live.evicted && now - live.lastUsed > idleNanos && flush(live)) {
+                    evict(live);
+                    evicted++;
+                }
+            } finally {
+                live.lock.unlock();
+            }
+        }
+        if (evicted > 0) {
+            logger.fine("Evicted " + evicted + " idle live games");
+        }
+    }
+
+    @PreDestroy
+    public void flushAll() {
+        liveGames.values().forEach(this::flush);
+        dirtyGames.clear();
+    }
+
+    /**
+     * The live entry for a game, locked, or null if the game is not in progress. Retries if the
+     * entry was evicted while waiting for its lock, so a command never mutates a dropped graph.
+     */
+    private LiveGame lockLive(String gameCode) {
+        while (true) {
+            LiveGame live = resolve(gameCode);
+            if (live == null) {
+                return null;
+            }
+            live.lock.lock();
+            if (!live.evicted) {
+                return live;
+            }
+            live.lock.unlock();
+        }
+    }
+
+    private LiveGame resolve(String gameCode) {
+        LiveGame live = liveGames.get(gameCode);
+        if (live != null) {
+            return live;
+        }
+
+        Game loaded = loadTransaction.execute(status -> {
+            Game game = gameRepository.findByGameCode(gameCode);
+            if (game == null || game.getGameState() != GameState.IN_PROGRESS) {
+                return null;
+            }
+            Hibernate.initialize(game.getPlayers());
+            Hibernate.initialize(game.getVotes());
+            Hibernate.initialize(game.getPlayersWhoVoted());
+            Hibernate.initialize(game.getPlayersWhoActedAtNight());
+            Hibernate.initialize(game.getIndividualVotes());
+            Hibernate.initialize(game.getMafiaVotes());
+            return game;
+        });
+        if (loaded == null) {
+            return null;
+        }
+
+        LiveGame existing = liveGames.putIfAbsent(gameCode, new LiveGame(loaded));
+        gameCodesById.put(loaded.getId(), gameCode);
+        return existing != null ? existing : liveGames.get(gameCode);
+    }
+
+    private Game snapshot(LiveGame live) {
+        live.lock.lock();
+        try {
+            return copyOf(live.game);
+        } finally {
+            live.lock.unlock();
+        }
+    }
+
+    private boolean flush(LiveGame live) {
+        Game snapshot;
+        long revision;
+        live.lock.lock();
+        try {
+            revision = live.revision;
+            snapshot = copyOf(live.game);
+        } finally {
+            live.lock.unlock();
+        }
+
+        live.flushLock.lock();
+        try {
+            // A newer snapshot may already have been written by a concurrent flush
+            if (revision <= live.flushedRevision) {
+                return true;
+            }
+            flushTransaction.executeWithoutResult(status -> gameRepository.save(snapshot));
+            live.flushedRevision = revision;
+            return true;
+        } catch (RuntimeException e) {
+            logger.severe("Failed to persist game " + snapshot.getGameCode() + ": " + e.getMessage());
+            if (liveGames.get(snapshot.getGameCode()) == live) {
+                dirtyGames.add(snapshot.getGameCode());
+            }
+            return false;
+        } finally {
+            live.flushLock.unlock();
+        }
+    }
+
+    private void evict(LiveGame live) {
+        String gameCode = live.game.getGameCode();
+        live.evicted = true;
+        liveGames.remove(gameCode, live);
+        gameCodesById.remove(live.game.getId());
+        dirtyGames.remove(gameCode);
+    }
+
+    /**
+     * Detached copy of the game graph, so neither the merge nor a reader ever iterates collections
+     * a command is mutating
+     */
+    private static Game copyOf(Game game) {
+        Game copy = new Game();
+        copy.setId(game.getId());
+        copy.setGameCode(game.getGameCode());
+        copy.setActive(game.isActive());
+        copy.setGameState(game.getGameState());
+        copy.setCurrentDay(game.getCurrentDay());
+        copy.setCurrentPhase(game.getCurrentPhase());
+        copy.setPhaseStartTime(game.getPhaseStartTime());
+        copy.setPhaseDurationSeconds(game.getPhaseDurationSeconds());
+        copy.setTimerEnabled(game.getTimerEnabled());
+        copy.setVotes(new HashMap<>(game.getVotes()));
+        copy.setPlayersWhoVoted(new HashSet<>(game.getPlayersWhoVoted()));
+        copy.setPlayersWhoActedAtNight(new HashSet<>(game.getPlayersWhoActedAtNight()));
+        copy.setIndividualVotes(new HashMap<>(game.getIndividualVotes()));
+        copy.setMafiaVotes(new HashMap<>(game.getMafiaVotes()));
+        copy.setMafiaTarget(game.getMafiaTarget());
+        copy.setDoctorTarget(game.getDoctorTarget());
+        copy.setMinPlayers(game.getMinPlayers());
+        copy.setMaxPlayers(game.getMaxPlayers());
+        copy.setCreatedBy(game.getCreatedBy());
+        copy.setWinner(game.getWinner());
+        copy.setStartedAt(game.getStartedAt());
+        copy.setEndedAt(game.getEndedAt());
+        copy.setPlayerCount(game.getPlayerCount());
+        copy.setArchivedAt(game.getArchivedAt());
+
+        List<Player> players = new ArrayList<>();
+        for (Player player : game.getPlayers()) {
+            Player playerCopy = new Player();
+            playerCopy.setId(player.getId());
+            playerCopy.setUsername(player.getUsername());
+            playerCopy.setAlive(player.isAlive());
+            playerCopy.setRole(player.getRole());
+            playerCopy.setInvestigated(player.isInvestigated());
+            playerCopy.setGame(copy);
+            players.add(playerCopy);
+        }
+        copy.setPlayers(players);
+        return copy;
+    }
+
+    /**
+     * A cached game plus its flush bookkeeping
+     */
+    private static class LiveGame {
+        // Explicit locks rather than monitors so blocked mailbox threads never pin a carrier
+        private final ReentrantLock lock = new ReentrantLock();
+        private final ReentrantLock flushLock = new ReentrantLock();
+        private Game game;              // guarded by lock; replaced when a command fails
+        private long revision;          // guarded by lock
+        private boolean evicted;        // guarded by lock
+        private long flushedRevision;   // guarded by flushLock
+        private volatile long lastUsed = System.nanoTime();
+        private volatile GameView view;     // written under lock
+
+        LiveGame(Game game) {
+            this.game = game;
+            this.view = GameView.of(game);
+        }
+    }
+
+    /**
+     * Immutable phase and roster of a game, for readers that only need to know who may say what
+     */
+    public record GameView(String gameCode, GameState gameState, int currentDay, int currentPhase,
+                           Map<String, PlayerView> players) {
+
+        static GameView of(Game game) {
+            Map<String, PlayerView> players = new HashMap<>();
+            for (Player player : game.getPlayers()) {
+                players.put(player.getUsername(), new PlayerView(player.getUsername(), player.isAlive(), player.getRole()));
+            }
+            return new GameView(game.getGameCode(), game.getGameState(), game.getCurrentDay(), game.getCurrentPhase(),
+                                Map.copyOf(players));
+        }
+
+        /**
+         * A player of the game, or null if there is no such player
+         */
+        public PlayerView player(String username) {
+            return username != null ? players.get(username) : null;
+        }
+    }
+
+    public record PlayerView(String username, boolean alive, Role role) {
+    }
+}
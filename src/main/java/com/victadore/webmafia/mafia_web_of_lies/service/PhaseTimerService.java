@@ -1,18 +1,40 @@
 package com.victadore.webmafia.mafia_web_of_lies.service;
 
 import com.victadore.webmafia.mafia_web_of_lies.model.Game;
+import com.victadore.webmafia.mafia_web_of_lies.model.GameState;
 import com.victadore.webmafia.mafia_web_of_lies.repository.GameRepository;
-import com.victadore.webmafia.mafia_web_of_lies.exception.GameException;
 import com.victadore.webmafia.mafia_web_of_lies.dto.GameEvent;
 import org.springframework.stereotype.Service;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
+/**
+ * Phase timers for in-progress games.
+ *
+ * Each running phase registers its end time in a delay queue; a single thread sleeps until
+ * the earliest one is due and then publishes a {@link TimerExpiredEvent}. Stopping or
+ * restarting a game's timer replaces its entry in the deadline map, which cancels the old
+ * queue entry without touching the queue; both take effect when the game command commits.
+ * Deadlines live only in memory and are rebuilt from phase_start_time/phase_duration_seconds
+ * when the application starts.
+ */
 @Service
 @EnableScheduling
 public class PhaseTimerService {
@@ -23,33 +45,47 @@ public class PhaseTimerService {
     public static final int NIGHT_PHASE_DURATION = 60; // 1 minute for night actions
     
     private final GameRepository gameRepository;
+    private final LiveGameStore liveGameStore;
     private final WebSocketService webSocketService;
     private final ApplicationEventPublisher eventPublisher;
     
+    // Latest deadline per game; queue entries that no longer match are stale and skipped
+    private final Map<String, PhaseDeadline> deadlines = new ConcurrentHashMap<>();
+    private final DelayQueue<PhaseDeadline> queue = new DelayQueue<>();
+    private final ExecutorService dispatcher = Executors.newVirtualThreadPerTaskExecutor();
+    private final Thread timerThread;
+    
     public PhaseTimerService(GameRepository gameRepository, 
+                           LiveGameStore liveGameStore,
                            WebSocketService webSocketService,
                            ApplicationEventPublisher eventPublisher) {
         this.gameRepository = gameRepository;
+        this.liveGameStore = liveGameStore;
         this.webSocketService = webSocketService;
         this.eventPublisher = eventPublisher;
+        
+        this.timerThread = Thread.ofPlatform()
+            .name("phase-timer")
+            .daemon(true)
+            .unstarted(this::awaitDeadlines);
+        this.timerThread.start();
     }
     
     /**
      * Start timer for a specific phase
      */
     public void startPhaseTimer(String gameCode, int phase) {
-        Game game = gameRepository.findByGameCode(gameCode);
-        if (game == null) {
-            throw new GameException("Game not found");
-        }
-        
         int duration = (phase == 0) ? DAY_PHASE_DURATION : NIGHT_PHASE_DURATION;
         
-        game.setPhaseStartTime(LocalDateTime.now());
-        game.setPhaseDurationSeconds(duration);
-        game.setTimerEnabled(true);
+        LocalDateTime phaseStartTime = LocalDateTime.now();
         
-        gameRepository.save(game);
+        liveGameStore.update(gameCode, game -> {
+            game.setPhaseStartTime(phaseStartTime);
+            game.setPhaseDurationSeconds(duration);
+            game.setTimerEnabled(true);
+            return game;
+        });
+        afterCommit(() -> schedule(gameCode, phase, phaseStartTime, duration));
         
         logger.info("Started timer for game " + gameCode + ", phase " + 
                    (phase == 0 ? "DAY" : "NIGHT") + ", duration: " + duration + " seconds");
@@ -59,16 +95,18 @@ public class PhaseTimerService {
      * Stop timer for a game
      */
     public void stopTimer(String gameCode) {
-        Game game = gameRepository.findByGameCode(gameCode);
-        if (game == null) {
+        afterCommit(() -> deadlines.remove(gameCode));
+        
+        if (liveGameStore.findGame(gameCode) == null) {
             return;
         }
         
-        game.setTimerEnabled(false);
-        game.setPhaseStartTime(null);
-        game.setPhaseDurationSeconds(null);
-        
-        gameRepository.save(game);
+        liveGameStore.update(gameCode, game -> {
+            game.setTimerEnabled(false);
+            game.setPhaseStartTime(null);
+            game.setPhaseDurationSeconds(null);
+            return game;
+        });
         
         logger.info("Stopped timer for game " + gameCode);
     }
@@ -77,49 +115,133 @@ public class PhaseTimerService {
      * Get timer status for a game
      */
     public TimerStatus getTimerStatus(String gameCode) {
-        Game game = gameRepository.findByGameCode(gameCode);
-        if (game == null) {
-            throw new GameException("Game not found");
+        return liveGameStore.read(gameCode, game -> {
+            if (!Boolean.TRUE.equals(game.getTimerEnabled()) || game.getPhaseStartTime() == null || game.getPhaseDurationSeconds() == null) {
+                return new TimerStatus(false, 0, 0);
+            }
+            
+            long remainingSeconds = game.getRemainingTimeSeconds();
+            return new TimerStatus(true, remainingSeconds, game.getPhaseDurationSeconds());
+        });
+    }
+    
+    /**
+     * Rebuild pending deadlines from persisted phase timers after a restart
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildTimers() {
+        List<Game> timedGames = gameRepository.findByGameStateAndTimerEnabledTrue(GameState.IN_PROGRESS);
+        int restored = 0;
+        for (Game game : timedGames) {
+            if (game.getPhaseStartTime() != null && game.getPhaseDurationSeconds() != null) {
+                schedule(game.getGameCode(), game.getCurrentPhase(),
+                         game.getPhaseStartTime(), game.getPhaseDurationSeconds());
+                restored++;
+            }
         }
-        
-        if (!Boolean.TRUE.equals(game.getTimerEnabled()) || game.getPhaseStartTime() == null || game.getPhaseDurationSeconds() == null) {
-            return new TimerStatus(false, 0, 0);
+        logger.info("Restored " + restored + " phase timers");
+    }
+    
+    /**
+     * Number of phase deadlines currently registered
+     */
+    public int pendingTimers() {
+        return deadlines.size();
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        timerThread.interrupt();
+        dispatcher.shutdown();
+    }
+    
+    /**
+     * Change deadlines only once the enclosing command commits: a failed command restores the
+     * game's previous phase start time, and the deadline for it must still be there
+     */
+    private static void afterCommit(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
         }
-        
-        long remainingSeconds = game.getRemainingTimeSeconds();
-        return new TimerStatus(true, remainingSeconds, game.getPhaseDurationSeconds());
+    }
+    
+    private void schedule(String gameCode, int phase, LocalDateTime phaseStartTime, int durationSeconds) {
+        long remainingNanos = Duration.between(LocalDateTime.now(),
+            phaseStartTime.plusSeconds(durationSeconds)).toNanos();
+        PhaseDeadline deadline = new PhaseDeadline(gameCode, phase, phaseStartTime,
+                                                   System.nanoTime() + remainingNanos);
+        // A newer deadline for the same game replaces (and thereby cancels) the old one
+        deadlines.put(gameCode, deadline);
+        queue.put(deadline);
     }
     
     /**
-     * Check for expired timers every 5 seconds and publish timer expiration events
+     * Blocks on the queue until the earliest deadline is due, so idle periods cost nothing
      */
-    @Scheduled(fixedRate = 5000) // Check every 5 seconds
-    public void checkExpiredTimers() {
+    private void awaitDeadlines() {
+        while (!Thread.currentThread().isInterrupted()) {
+            PhaseDeadline deadline;
+            try {
+                deadline = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            // Cancelled or superseded deadlines are dropped here rather than searched for in the queue
+            if (deadlines.remove(deadline.gameCode, deadline)) {
+                dispatcher.execute(() -> expire(deadline));
+            }
+        }
+    }
+    
+    private void expire(PhaseDeadline deadline) {
+        String gameCode = deadline.gameCode;
+        String phaseName = deadline.phase == 0 ? "DAY" : "NIGHT";
+        logger.info("Timer expired for game " + gameCode + ", publishing timer expiration event for phase " + phaseName);
+        
         try {
-            List<Game> activeGames = gameRepository.findByIsActiveTrue();
+            // Publish an event instead of directly calling GameLogicService
+            eventPublisher.publishEvent(new TimerExpiredEvent(gameCode, deadline.phaseStartTime));
             
-            for (Game game : activeGames) {
-                if (game.isTimerExpired() && game.getGameState().toString().equals("IN_PROGRESS")) {
-                    logger.info("Timer expired for game " + game.getGameCode() + 
-                               ", publishing timer expiration event for phase " + 
-                               (game.getCurrentPhase() == 0 ? "DAY" : "NIGHT"));
-                    
-                    try {
-                        // Publish an event instead of directly calling GameLogicService
-                        eventPublisher.publishEvent(new TimerExpiredEvent(game.getGameCode()));
-                        
-                        // Broadcast timer expiration event to clients
-                        webSocketService.broadcastGameUpdate(game.getGameCode(), 
-                            new GameEvent("TIMER_EXPIRED", game.getGameCode(), 
-                                java.util.Map.of("phase", game.getCurrentPhase() == 0 ? "DAY" : "NIGHT")));
-                                
-                    } catch (Exception e) {
-                        logger.severe("Failed to handle timer expiration for game " + game.getGameCode() + ": " + e.getMessage());
-                    }
-                }
-            }
+            // Broadcast timer expiration event to clients
+            webSocketService.broadcastGameUpdate(gameCode, 
+                new GameEvent("TIMER_EXPIRED", gameCode, Map.of("phase", phaseName)));
         } catch (Exception e) {
-            logger.severe("Error in timer check: " + e.getMessage());
+            logger.severe("Failed to handle timer expiration for game " + gameCode + ": " + e.getMessage());
+        }
+    }
+    
+    /**
+     * A phase end time waiting in the delay queue
+     */
+    private static class PhaseDeadline implements Delayed {
+        private final String gameCode;
+        private final int phase;
+        private final LocalDateTime phaseStartTime;
+        private final long deadlineNanos;
+        
+        PhaseDeadline(String gameCode, int phase, LocalDateTime phaseStartTime, long deadlineNanos) {
+            this.gameCode = gameCode;
+            this.phase = phase;
+            this.phaseStartTime = phaseStartTime;
+            this.deadlineNanos = deadlineNanos;
+        }
+        
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+        
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(deadlineNanos, ((PhaseDeadline) other).deadlineNanos);
         }
     }
     
@@ -147,13 +269,26 @@ public class PhaseTimerService {
      */
     public static class TimerExpiredEvent {
         private final String gameCode;
+        private final LocalDateTime phaseStartTime;
         
         public TimerExpiredEvent(String gameCode) {
+            this(gameCode, null);
+        }
+        
+        public TimerExpiredEvent(String gameCode, LocalDateTime phaseStartTime) {
             this.gameCode = gameCode;
+            this.phaseStartTime = phaseStartTime;
         }
         
         public String getGameCode() {
             return gameCode;
         }
+        
+        /**
+         * Start time of the phase whose timer expired, or null if unknown
+         */
+        public LocalDateTime getPhaseStartTime() {
+            return phaseStartTime;
+        }
     }
 } 
\ No newline at end of file
@@ -12,15 +12,18 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Random;
+import java.util.function.Function;
 
 @Service
 @Transactional
 public class PlayerService {
     private final PlayerRepository playerRepository;
+    private final LiveGameStore liveGameStore;
     private final Random random = new Random();
 
-    public PlayerService(PlayerRepository playerRepository) {
+    public PlayerService(PlayerRepository playerRepository, LiveGameStore liveGameStore) {
         this.playerRepository = playerRepository;
+        this.liveGameStore = liveGameStore;
     }
 
     // Assign roles to players at the start of the game
@@ -87,28 +90,24 @@ public class PlayerService {
 
     // Kill a player
     public void killPlayer(Long playerId) {
-        Player player = playerRepository.findById(playerId)
-            .orElseThrow(() -> new GameException("Player not found"));
-        player.setAlive(false);
-        playerRepository.save(player);
+        updatePlayer(playerId, player -> {
+            player.setAlive(false);
+            return null;
+        });
     }
 
     public void savePlayer(Long playerId) {
-        Player player = playerRepository.findById(playerId)
-            .orElseThrow(() -> new GameException("Player not found"));
-        player.setAlive(true);
-        playerRepository.save(player);
+        updatePlayer(playerId, player -> {
+            player.setAlive(true);
+            return null;
+        });
     }
 
     public boolean investigatePlayer(Long playerId) {
-        Player player = playerRepository.findById(playerId)
-            .orElseThrow(() -> new GameException("Player not found"));
-        player.setInvestigated(true);    
-        if (player.getRole() == Role.DETECTIVE) {
-            return true;
-        }
-        playerRepository.save(player);
-        return false;
+        return updatePlayer(playerId, player -> {
+            player.setInvestigated(true);
+            return player.getRole() == Role.DETECTIVE;
+        });
     }
 
     // Check if a player is alive
@@ -117,4 +116,15 @@ public class PlayerService {
             .orElseThrow(() -> new GameException("Player not found"));
         return player.isAlive();
     }
+
+    // Change a player through its game, so an in-progress game's resident copy is the one changed
+    private <T> T updatePlayer(Long playerId, Function<Player, T> change) {
+        Player stored = playerRepository.findById(playerId)
+            .orElseThrow(() -> new GameException("Player not found"));
+        return liveGameStore.update(stored.getGame().getGameCode(), game -> change.apply(
+            game.getPlayers().stream()
+                .filter(player -> playerId.equals(player.getId()))
+                .findFirst()
+                .orElseThrow(() -> new GameException("Player not found"))));
+    }
 }
\ No newline at end of file
@@ -3,7 +3,10 @@ package com.victadore.webmafia.mafia_web_of_lies.service;
 import com.victadore.webmafia.mafia_web_of_lies.model.*;
 import com.victadore.webmafia.mafia_web_of_lies.repository.*;
 import com.victadore.webmafia.mafia_web_of_lies.exception.GameException;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
@@ -18,15 +21,33 @@ public class PlayerStatisticsService {
     private final GameRepository gameRepository;
     private final PlayerRepository playerRepository;
     private final ActionHistoryRepository actionHistoryRepository;
+    private final ActionHistoryJournal actionHistoryJournal;
+    private final GameMetrics gameMetrics;
+    private final Leaderboards leaderboards;
+    private final GlobalStatistics globalStatistics;
+    private final UsernameSearchIndex usernameSearchIndex;
+    private final ProcessedGameRepository processedGameRepository;
     
     public PlayerStatisticsService(PlayerStatisticsRepository playerStatisticsRepository,
                                  GameRepository gameRepository,
                                  PlayerRepository playerRepository,
-                                 ActionHistoryRepository actionHistoryRepository) {
+                                 ActionHistoryRepository actionHistoryRepository,
+                                 ActionHistoryJournal actionHistoryJournal,
+                                 GameMetrics gameMetrics,
+                                 Leaderboards leaderboards,
+                                 GlobalStatistics globalStatistics,
+                                 UsernameSearchIndex usernameSearchIndex,
+                                 ProcessedGameRepository processedGameRepository) {
         this.playerStatisticsRepository = playerStatisticsRepository;
         this.gameRepository = gameRepository;
         this.playerRepository = playerRepository;
         this.actionHistoryRepository = actionHistoryRepository;
+        this.actionHistoryJournal = actionHistoryJournal;
+        this.gameMetrics = gameMetrics;
+        this.leaderboards = leaderboards;
+        this.globalStatistics = globalStatistics;
+        this.usernameSearchIndex = usernameSearchIndex;
+        this.processedGameRepository = processedGameRepository;
     }
     
     /**
@@ -41,23 +62,56 @@ public class PlayerStatisticsService {
      * Create new player statistics record
      */
     private PlayerStatistics createNewPlayerStatistics(String username) {
+        PlayerStatistics stats = playerStatisticsRepository.save(newPlayerStatistics(username));
+        leaderboards.update(List.of(stats));
+        globalStatistics.update(Collections.singletonList(null), List.of(stats));
+        usernameSearchIndex.update(List.of(stats));
+        return stats;
+    }
+    
+    /**
+     * New, unsaved statistics record
+     */
+    private PlayerStatistics newPlayerStatistics(String username) {
         PlayerStatistics stats = new PlayerStatistics();
         stats.setUsername(username);
         LocalDateTime now = LocalDateTime.now();
         stats.setFirstGameDate(now);
         stats.setLastGameDate(now);
         stats.setLastUpdated(now);
-        return playerStatisticsRepository.save(stats);
+        return stats;
     }
     
     /**
-     * Update player statistics after a game ends
+     * Update player statistics after a game ends.
+     * The game's history is loaded once and folded into per-player counters, then every
+     * player's statistics row is written in one batch, together with the game's ledger entry;
+     * a game already in the ledger is not counted again. Timed as mafia.statistics.update.
      */
     public void updatePlayerStatisticsAfterGame(String gameCode) {
+        Timer.Sample sample = gameMetrics.start();
+        Throwable failure = null;
+        try {
+            applyGameResult(gameCode);
+        } catch (RuntimeException e) {
+            failure = e;
+            throw e;
+        } finally {
+            gameMetrics.stop(sample, "mafia.statistics.update", "outcome", GameMetrics.outcome(failure));
+        }
+    }
+    
+    private void applyGameResult(String gameCode) {
+        // Statistics are derived from action history, so make sure the game's last actions are written
+        actionHistoryJournal.flush();
+        
         Game game = gameRepository.findByGameCode(gameCode);
         if (game == null) {
             throw new GameException("Game not found");
         }
+        if (processedGameRepository.existsById(game.getId())) {
+            return;
+        }
         
         // Check if game is finished or has a winner (more flexible than checking database state)
         if (game.getWinner() == null) {
@@ -71,25 +125,151 @@ public class PlayerStatisticsService {
         
         String winner = game.getWinner(); // "MAFIA" or "CITIZENS"
         
-        for (Player player : players) {
+        GameStatisticsAggregator aggregator = GameStatisticsAggregator.fold(
+            players, actionHistoryRepository.findByGameIdOrderByTimestamp(game.getId()));
+        
+        Map<String, PlayerStatistics> existingStats = new HashMap<>();
+        List<String> usernames = players.stream().map(Player::getUsername).collect(Collectors.toList());
+        for (PlayerStatistics stats : playerStatisticsRepository.findByUsernameInForUpdate(usernames)) {
+            existingStats.put(stats.getUsername(), stats);
+        }
+        
+        LocalDateTime now = LocalDateTime.now();
+        List<PlayerStatistics> updatedStats = new ArrayList<>(players.size());
+        List<GlobalStatistics.Contribution> previousStats = new ArrayList<>(players.size());
+        for (int seat = 0; seat < players.size(); seat++) {
+            Player player = players.get(seat);
             try {
-                updateIndividualPlayerStats(player, winner, game);
+                PlayerStatistics existing = existingStats.get(player.getUsername());
+                GlobalStatistics.Contribution previous = existing != null ? GlobalStatistics.Contribution.of(existing) : null;
+                PlayerStatistics stats = existing != null ? existing : newPlayerStatistics(player.getUsername());
+                updateIndividualPlayerStats(stats, player, seat, winner, aggregator, now);
+                updatedStats.add(stats);
+                previousStats.add(previous);
             } catch (Exception e) {
                 System.err.println("Failed to update statistics for player " + player.getUsername() + ": " + e.getMessage());
                 // Continue with other players even if one fails
             }
         }
+        
+        playerStatisticsRepository.saveAll(updatedStats);
+        processedGameRepository.save(new ProcessedGame(game.getId(), now));
+        leaderboards.update(updatedStats);
+        globalStatistics.update(previousStats, updatedStats);
+        usernameSearchIndex.update(updatedStats);
     }
     
     /**
-     * Update individual player statistics
+     * Add one finished game to per-player running totals, starting a total for players not in them yet.
+     * Used by the backfill to fold many games before touching the statistics rows.
+     * Returns false, adding nothing, for a game without a winner or players.
      */
-    private void updateIndividualPlayerStats(Player player, String winner, Game game) {
-        PlayerStatistics stats = getOrCreatePlayerStatistics(player.getUsername());
+    boolean accumulateGame(Game game, List<ActionHistory> history, Map<String, PlayerStatistics> totals) {
+        List<Player> players = game.getPlayers();
+        if (game.getWinner() == null || players == null || players.isEmpty()) {
+            return false;
+        }
         
+        LocalDateTime playedAt = game.getEndedAt() != null ? game.getEndedAt() : LocalDateTime.now();
+        GameStatisticsAggregator aggregator = GameStatisticsAggregator.fold(players, history);
+        for (int seat = 0; seat < players.size(); seat++) {
+            Player player = players.get(seat);
+            PlayerStatistics stats = totals.get(player.getUsername());
+            if (stats == null) {
+                stats = newPlayerStatistics(player.getUsername());
+                stats.setFirstGameDate(playedAt);
+                stats.setLastGameDate(playedAt);
+                totals.put(player.getUsername(), stats);
+            }
+            LocalDateTime lastGameDate = stats.getLastGameDate();
+            updateIndividualPlayerStats(stats, player, seat, game.getWinner(), aggregator, playedAt);
+            stats.setFirstGameDate(earliest(stats.getFirstGameDate(), playedAt));
+            stats.setLastGameDate(latest(lastGameDate, playedAt));
+        }
+        return true;
+    }
+    
+    /**
+     * Add per-player totals folded from several games to the statistics rows and record the games
+     * in the ledger, in one transaction. Fails if any of the games was counted in the meantime.
+     */
+    public void applyBackfill(Collection<Long> gameIds, Map<String, PlayerStatistics> totals) {
+        Map<String, PlayerStatistics> existingStats = new HashMap<>();
+        for (PlayerStatistics stats : playerStatisticsRepository.findByUsernameInForUpdate(totals.keySet())) {
+            existingStats.put(stats.getUsername(), stats);
+        }
+        
+        List<PlayerStatistics> updatedStats = new ArrayList<>(totals.size());
+        List<GlobalStatistics.Contribution> previousStats = new ArrayList<>(totals.size());
+        for (PlayerStatistics total : totals.values()) {
+            PlayerStatistics existing = existingStats.get(total.getUsername());
+            if (existing == null) {
+                updatedStats.add(total);
+                previousStats.add(null);
+                continue;
+            }
+            previousStats.add(GlobalStatistics.Contribution.of(existing));
+            addCounters(existing, total);
+            existing.setFirstGameDate(earliest(existing.getFirstGameDate(), total.getFirstGameDate()));
+            existing.setLastGameDate(latest(existing.getLastGameDate(), total.getLastGameDate()));
+            updatedStats.add(existing);
+        }
+        
+        playerStatisticsRepository.saveAll(updatedStats);
+        LocalDateTime now = LocalDateTime.now();
+        processedGameRepository.saveAll(gameIds.stream().map(id -> new ProcessedGame(id, now)).toList());
+        leaderboards.update(updatedStats);
+        globalStatistics.update(previousStats, updatedStats);
+        usernameSearchIndex.update(updatedStats);
+    }
+    
+    private static void addCounters(PlayerStatistics stats, PlayerStatistics delta) {
+        stats.setTotalGames(stats.getTotalGames() + delta.getTotalGames());
+        stats.setGamesWon(stats.getGamesWon() + delta.getGamesWon());
+        stats.setGamesLost(stats.getGamesLost() + delta.getGamesLost());
+        stats.setMafiaGames(stats.getMafiaGames() + delta.getMafiaGames());
+        stats.setMafiaWins(stats.getMafiaWins() + delta.getMafiaWins());
+        stats.setDetectiveGames(stats.getDetectiveGames() + delta.getDetectiveGames());
+        stats.setDetectiveWins(stats.getDetectiveWins() + delta.getDetectiveWins());
+        stats.setDoctorGames(stats.getDoctorGames() + delta.getDoctorGames());
+        stats.setDoctorWins(stats.getDoctorWins() + delta.getDoctorWins());
+        stats.setCitizenGames(stats.getCitizenGames() + delta.getCitizenGames());
+        stats.setCitizenWins(stats.getCitizenWins() + delta.getCitizenWins());
+        stats.setTimesSurvived(stats.getTimesSurvived() + delta.getTimesSurvived());
+        stats.setTimesEliminated(stats.getTimesEliminated() + delta.getTimesEliminated());
+        stats.setTimesEliminatedByVoting(stats.getTimesEliminatedByVoting() + delta.getTimesEliminatedByVoting());
+        stats.setTimesEliminatedByMafia(stats.getTimesEliminatedByMafia() + delta.getTimesEliminatedByMafia());
+        stats.setTotalVotesCast(stats.getTotalVotesCast() + delta.getTotalVotesCast());
+        stats.setCorrectMafiaVotes(stats.getCorrectMafiaVotes() + delta.getCorrectMafiaVotes());
+        stats.setSkipVotes(stats.getSkipVotes() + delta.getSkipVotes());
+        stats.setNightActionsPerformed(stats.getNightActionsPerformed() + delta.getNightActionsPerformed());
+        stats.setSuccessfulNightActions(stats.getSuccessfulNightActions() + delta.getSuccessfulNightActions());
+        stats.setInvestigationsPerformed(stats.getInvestigationsPerformed() + delta.getInvestigationsPerformed());
+        stats.setMafiaFound(stats.getMafiaFound() + delta.getMafiaFound());
+        stats.setSavesAttempted(stats.getSavesAttempted() + delta.getSavesAttempted());
+        stats.setSuccessfulSaves(stats.getSuccessfulSaves() + delta.getSuccessfulSaves());
+        stats.setMafiaKillsAttempted(stats.getMafiaKillsAttempted() + delta.getMafiaKillsAttempted());
+        stats.setSuccessfulMafiaKills(stats.getSuccessfulMafiaKills() + delta.getSuccessfulMafiaKills());
+        stats.setPerfectGames(stats.getPerfectGames() + delta.getPerfectGames());
+        stats.setMvpAwards(stats.getMvpAwards() + delta.getMvpAwards());
+    }
+    
+    private static LocalDateTime earliest(LocalDateTime a, LocalDateTime b) {
+        return a == null || (b != null && b.isBefore(a)) ? b : a;
+    }
+    
+    private static LocalDateTime latest(LocalDateTime a, LocalDateTime b) {
+        return a == null || (b != null && b.isAfter(a)) ? b : a;
+    }
+    
+    /**
+     * Update individual player statistics
+     */
+    private void updateIndividualPlayerStats(PlayerStatistics stats, Player player, int seat, String winner,
+                                             GameStatisticsAggregator aggregator, LocalDateTime now) {
         // Basic game statistics
         stats.setTotalGames(stats.getTotalGames() + 1);
-        stats.setLastGameDate(LocalDateTime.now());
+        stats.setLastGameDate(now);
         
         // Determine if player won
         boolean playerWon = isPlayerWinner(player, winner);
@@ -107,16 +287,19 @@ public class PlayerStatisticsService {
             stats.setTimesSurvived(stats.getTimesSurvived() + 1);
         } else {
             stats.setTimesEliminated(stats.getTimesEliminated() + 1);
-            updateEliminationStats(stats, player, game);
+            aggregator.applyEliminationStats(stats, seat);
         }
         
         // Action-based statistics
-        updateActionBasedStats(stats, player, game);
-        
-        // Achievement calculations
-        updateAchievements(stats, player, game, playerWon);
+        aggregator.applyActionStats(stats, seat);
         
-        playerStatisticsRepository.save(stats);
+        // Achievements: a perfect game is won without being eliminated, an MVP only needs the win
+        if (playerWon && aggregator.playedRoleWell(seat)) {
+            if (player.isAlive()) {
+                stats.setPerfectGames(stats.getPerfectGames() + 1);
+            }
+            stats.setMvpAwards(stats.getMvpAwards() + 1);
+        }
     }
     
     /**
@@ -156,427 +339,115 @@ public class PlayerStatisticsService {
     }
     
     /**
-     * Update elimination statistics
-     */
-    private void updateEliminationStats(PlayerStatistics stats, Player player, Game game) {
-        // Find how the player was eliminated
-        List<ActionHistory> eliminations = actionHistoryRepository
-            .findByGameIdAndTargetUsernameOrderByTimestamp(game.getId(), player.getUsername());
-        
-        for (ActionHistory action : eliminations) {
-            if ("ELIMINATE".equals(action.getActionType()) || "MAFIA_KILL".equals(action.getActionType())) {
-                if (action.getActionDetails() != null && action.getActionDetails().contains("voting")) {
-                    stats.setTimesEliminatedByVoting(stats.getTimesEliminatedByVoting() + 1);
-                } else if (action.getActionDetails() != null && action.getActionDetails().contains("Mafia")) {
-                    stats.setTimesEliminatedByMafia(stats.getTimesEliminatedByMafia() + 1);
-                }
-                break; // Only count the first elimination
-            }
-        }
-    }
-    
-    /**
-     * Update action-based statistics
-     */
-    private void updateActionBasedStats(PlayerStatistics stats, Player player, Game game) {
-        List<ActionHistory> playerActions = actionHistoryRepository
-            .findByGameIdAndActorUsernameOrderByTimestamp(game.getId(), player.getUsername());
-        
-        for (ActionHistory action : playerActions) {
-            switch (action.getActionType()) {
-                case "VOTE":
-                    stats.setTotalVotesCast(stats.getTotalVotesCast() + 1);
-                    // Check if vote was for a Mafia member
-                    if (isVoteForMafia(action, game)) {
-                        stats.setCorrectMafiaVotes(stats.getCorrectMafiaVotes() + 1);
-                    }
-                    break;
-                case "SKIP_VOTE":
-                    stats.setSkipVotes(stats.getSkipVotes() + 1);
-                    break;
-                case "INVESTIGATE":
-                    stats.setInvestigationsPerformed(stats.getInvestigationsPerformed() + 1);
-                    stats.setNightActionsPerformed(stats.getNightActionsPerformed() + 1);
-                    if (action.getSuccessful()) {
-                        stats.setSuccessfulNightActions(stats.getSuccessfulNightActions() + 1);
-                        // Check if investigation found Mafia
-                        if (isInvestigationSuccessful(action, game)) {
-                            stats.setMafiaFound(stats.getMafiaFound() + 1);
-                        }
-                    }
-                    break;
-                case "SAVE":
-                    stats.setSavesAttempted(stats.getSavesAttempted() + 1);
-                    stats.setNightActionsPerformed(stats.getNightActionsPerformed() + 1);
-                    if (action.getSuccessful()) {
-                        stats.setSuccessfulNightActions(stats.getSuccessfulNightActions() + 1);
-                        stats.setSuccessfulSaves(stats.getSuccessfulSaves() + 1);
-                    }
-                    break;
-                case "KILL":
-                    stats.setMafiaKillsAttempted(stats.getMafiaKillsAttempted() + 1);
-                    stats.setNightActionsPerformed(stats.getNightActionsPerformed() + 1);
-                    if (action.getSuccessful()) {
-                        stats.setSuccessfulNightActions(stats.getSuccessfulNightActions() + 1);
-                        stats.setSuccessfulMafiaKills(stats.getSuccessfulMafiaKills() + 1);
-                    }
-                    break;
-            }
-        }
-    }
-    
-    /**
-     * Check if a vote was for a Mafia member
-     */
-    private boolean isVoteForMafia(ActionHistory voteAction, Game game) {
-        if (voteAction.getTargetUsername() == null) return false;
-        
-        Player targetPlayer = game.getPlayers().stream()
-            .filter(p -> p.getUsername().equals(voteAction.getTargetUsername()))
-            .findFirst()
-            .orElse(null);
-        
-        return targetPlayer != null && targetPlayer.getRole() == Role.MAFIA;
-    }
-    
-    /**
-     * Check if an investigation was successful (found Mafia)
-     */
-    private boolean isInvestigationSuccessful(ActionHistory investigateAction, Game game) {
-        if (investigateAction.getTargetUsername() == null) return false;
-        
-        Player targetPlayer = game.getPlayers().stream()
-            .filter(p -> p.getUsername().equals(investigateAction.getTargetUsername()))
-            .findFirst()
-            .orElse(null);
-        
-        return targetPlayer != null && targetPlayer.getRole() == Role.MAFIA;
-    }
-    
-    /**
-     * Update achievements and special recognitions
-     */
-    private void updateAchievements(PlayerStatistics stats, Player player, Game game, boolean won) {
-        // Perfect game: Won without being eliminated and performed optimally
-        if (won && player.isAlive()) {
-            boolean perfectGame = false;
-            
-            switch (player.getRole()) {
-                case DETECTIVE:
-                    // Perfect detective: Found at least one Mafia
-                    perfectGame = hasFoundMafiaInGame(player, game);
-                    break;
-                case DOCTOR:
-                    // Perfect doctor: Made at least one successful save
-                    perfectGame = hasMadeSuccessfulSaveInGame(player, game);
-                    break;
-                case MAFIA:
-                    // Perfect Mafia: Won without being suspected (no votes against)
-                    perfectGame = !wasVotedAgainst(player, game);
-                    break;
-                case CITIZEN:
-                    // Perfect citizen: Voted correctly for Mafia at least once
-                    perfectGame = hasVotedForMafiaInGame(player, game);
-                    break;
-            }
-            
-            if (perfectGame) {
-                stats.setPerfectGames(stats.getPerfectGames() + 1);
-            }
-        }
-        
-        // MVP calculation (simplified - could be more complex)
-        if (won && isPlayerMVP(player, game)) {
-            stats.setMvpAwards(stats.getMvpAwards() + 1);
-        }
-    }
-    
-    /**
-     * Check if detective found Mafia in this game
+     * Get player statistics by username
      */
-    private boolean hasFoundMafiaInGame(Player player, Game game) {
-        List<ActionHistory> investigations = actionHistoryRepository
-            .findByGameIdAndActorUsernameOrderByTimestamp(game.getId(), player.getUsername());
-        
-        return investigations.stream()
-            .filter(action -> "INVESTIGATE".equals(action.getActionType()))
-            .anyMatch(action -> isInvestigationSuccessful(action, game));
+    public PlayerStatistics getPlayerStatistics(String username) {
+        return playerStatisticsRepository.findByUsername(username)
+            .orElseThrow(() -> new GameException("Player statistics not found"));
     }
     
     /**
-     * Check if doctor made successful save in this game
+     * Get leaderboard by win rate
      */
-    private boolean hasMadeSuccessfulSaveInGame(Player player, Game game) {
-        List<ActionHistory> saves = actionHistoryRepository
-            .findByGameIdAndActorUsernameOrderByTimestamp(game.getId(), player.getUsername());
-        
-        return saves.stream()
-            .filter(action -> "SAVE".equals(action.getActionType()))
-            .anyMatch(ActionHistory::getSuccessful);
+    public List<PlayerStatistics> getWinRateLeaderboard(int limit, int minGames) {
+        return rankedPlayers(Leaderboards.Board.WIN_RATE, minGames, limit);
     }
     
     /**
-     * Check if player was voted against in this game
+     * Get leaderboard by games played
      */
-    private boolean wasVotedAgainst(Player player, Game game) {
-        List<ActionHistory> votesAgainst = actionHistoryRepository
-            .findByGameIdAndTargetUsernameOrderByTimestamp(game.getId(), player.getUsername());
-        
-        return votesAgainst.stream()
-            .anyMatch(action -> "VOTE".equals(action.getActionType()));
+    public List<PlayerStatistics> getGamesPlayedLeaderboard(int limit) {
+        return rankedPlayers(Leaderboards.Board.GAMES_PLAYED, 0, limit);
     }
     
     /**
-     * Check if citizen voted for Mafia in this game
+     * Get leaderboard by survival rate
      */
-    private boolean hasVotedForMafiaInGame(Player player, Game game) {
-        List<ActionHistory> votes = actionHistoryRepository
-            .findByGameIdAndActorUsernameOrderByTimestamp(game.getId(), player.getUsername());
-        
-        return votes.stream()
-            .filter(action -> "VOTE".equals(action.getActionType()))
-            .anyMatch(action -> isVoteForMafia(action, game));
+    public List<PlayerStatistics> getSurvivalRateLeaderboard(int limit, int minGames) {
+        return rankedPlayers(Leaderboards.Board.SURVIVAL_RATE, minGames, limit);
     }
     
     /**
-     * Simplified MVP calculation
+     * Get role-specific leaderboards
      */
-    private boolean isPlayerMVP(Player player, Game game) {
-        // This is a simplified version - could be much more sophisticated
-        switch (player.getRole()) {
-            case DETECTIVE:
-                return hasFoundMafiaInGame(player, game);
-            case DOCTOR:
-                return hasMadeSuccessfulSaveInGame(player, game);
-            case MAFIA:
-                return !wasVotedAgainst(player, game);
-            case CITIZEN:
-                return hasVotedForMafiaInGame(player, game);
-            default:
-                return false;
-        }
+    public Map<String, List<PlayerStatistics>> getRoleSpecificLeaderboards(int limit, int minGames) {
+        Map<String, List<PlayerStatistics>> leaderboards = new HashMap<>();
+        leaderboards.put("mafia", rankedPlayers(Leaderboards.Board.MAFIA, minGames, limit));
+        leaderboards.put("detective", rankedPlayers(Leaderboards.Board.DETECTIVE, 3, limit));
+        leaderboards.put("doctor", rankedPlayers(Leaderboards.Board.DOCTOR, 3, limit));
+        return leaderboards;
     }
     
     /**
-     * Get player statistics by username
+     * A player's rank on a leaderboard (winrate, games, survival, mafia, detective or doctor)
      */
-    public PlayerStatistics getPlayerStatistics(String username) {
-        return playerStatisticsRepository.findByUsername(username)
-            .orElseThrow(() -> new GameException("Player statistics not found"));
+    public Map<String, Object> getPlayerRank(String type, String username, int minimum) {
+        Leaderboards.Board board = Leaderboards.Board.fromKey(type);
+        Map<String, Object> result = new HashMap<>();
+        result.put("leaderboard", board.key());
+        result.put("username", username);
+        result.put("rank", leaderboards.rank(board, minimum, username));
+        result.put("rankedPlayers", leaderboards.size(board, minimum));
+        return result;
     }
     
     /**
-     * Get leaderboard by win rate
+     * Top players of a leaderboard: the order comes from memory, the rows from one lookup by username
      */
-    public List<PlayerStatistics> getWinRateLeaderboard(int limit, int minGames) {
+    private List<PlayerStatistics> rankedPlayers(Leaderboards.Board board, int minimum, int limit) {
         try {
-            return playerStatisticsRepository.findTopPlayersByWinRate(minGames)
-                .stream()
-                .limit(limit)
-                .collect(Collectors.toList());
+            return rowsInOrder(leaderboards.top(board, minimum, limit));
         } catch (Exception e) {
             return new ArrayList<>();
         }
     }
     
     /**
-     * Get leaderboard by games played
+     * Statistics rows for the usernames, in the order given
      */
-    public List<PlayerStatistics> getGamesPlayedLeaderboard(int limit) {
-        try {
-            return playerStatisticsRepository.findTopPlayersByGamesPlayed()
-                .stream()
-                .limit(limit)
-                .collect(Collectors.toList());
-        } catch (Exception e) {
+    private List<PlayerStatistics> rowsInOrder(List<String> usernames) {
+        if (usernames.isEmpty()) {
             return new ArrayList<>();
         }
-    }
-    
-    /**
-     * Get leaderboard by survival rate
-     */
-    public List<PlayerStatistics> getSurvivalRateLeaderboard(int limit, int minGames) {
-        try {
-            return playerStatisticsRepository.findTopPlayersBySurvivalRate(minGames)
-                .stream()
-                .limit(limit)
-                .collect(Collectors.toList());
-        } catch (Exception e) {
-            return new ArrayList<>();
+        Map<String, PlayerStatistics> rows = new HashMap<>();
+        for (PlayerStatistics stats : playerStatisticsRepository.findByUsernameIn(usernames)) {
+            rows.put(stats.getUsername(), stats);
         }
+        return usernames.stream()
+            .map(rows::get)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toList());
     }
     
     /**
-     * Get role-specific leaderboards
+     * Get global statistics summary, served from the materialized snapshot
      */
-    public Map<String, List<PlayerStatistics>> getRoleSpecificLeaderboards(int limit, int minGames) {
-        Map<String, List<PlayerStatistics>> leaderboards = new HashMap<>();
-        
-        try {
-            leaderboards.put("mafia", playerStatisticsRepository.findTopMafiaPlayers(minGames)
-                .stream().limit(limit).collect(Collectors.toList()));
-            
-            leaderboards.put("detective", playerStatisticsRepository.findTopDetectivePlayers(3)
-                .stream().limit(limit).collect(Collectors.toList()));
-            
-            leaderboards.put("doctor", playerStatisticsRepository.findTopDoctorPlayers(3)
-                .stream().limit(limit).collect(Collectors.toList()));
-        } catch (Exception e) {
-            // Return empty lists if there's an error
-            leaderboards.put("mafia", new ArrayList<>());
-            leaderboards.put("detective", new ArrayList<>());
-            leaderboards.put("doctor", new ArrayList<>());
-        }
-        
-        return leaderboards;
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Map<String, Object> getGlobalStatistics() {
+        return globalStatistics.snapshot();
     }
     
     /**
-     * Get global statistics summary
+     * Search players by username
      */
-    public Map<String, Object> getGlobalStatistics() {
-        Map<String, Object> stats = new HashMap<>();
-        
-        try {
-            Object[] globalStats = playerStatisticsRepository.getGlobalStatistics();
-            
-            // Handle global statistics with defaults for empty database
-            if (globalStats != null && globalStats.length > 0 && globalStats[0] != null) {
-                // The query returns an array containing another array, so we need to extract the inner array
-                Object[] actualStats = (Object[]) globalStats[0];
-                
-                if (actualStats.length >= 6) {
-                    stats.put("totalPlayers", actualStats[0]);
-                    stats.put("totalGamesPlayed", actualStats[1] != null ? actualStats[1] : 0);
-                    // Convert averages from decimal (0.0-1.0) to percentage (0.0-100.0)
-                    Double avgWinRate = actualStats[2] != null ? ((Number) actualStats[2]).doubleValue() * 100 : 0.0;
-                    Double avgSurvivalRate = actualStats[3] != null ? ((Number) actualStats[3]).doubleValue() * 100 : 0.0;
-                    stats.put("averageWinRate", avgWinRate);
-                    stats.put("averageSurvivalRate", avgSurvivalRate);
-                    stats.put("mostGamesPlayed", actualStats[4] != null ? actualStats[4] : 0);
-                    stats.put("mostWins", actualStats[5] != null ? actualStats[5] : 0);
-                } else {
-                    // Default values for incomplete data
-                    stats.put("totalPlayers", 0);
-                    stats.put("totalGamesPlayed", 0);
-                    stats.put("averageWinRate", 0.0);
-                    stats.put("averageSurvivalRate", 0.0);
-                    stats.put("mostGamesPlayed", 0);
-                    stats.put("mostWins", 0);
-                }
-            } else {
-                // Default values for empty database
-                stats.put("totalPlayers", 0);
-                stats.put("totalGamesPlayed", 0);
-                stats.put("averageWinRate", 0.0);
-                stats.put("averageSurvivalRate", 0.0);
-                stats.put("mostGamesPlayed", 0);
-                stats.put("mostWins", 0);
-            }
-            
-            // Handle experience distribution with defaults
-            try {
-                Object[] experienceDistribution = playerStatisticsRepository.getExperienceLevelDistribution();
-                if (experienceDistribution != null && experienceDistribution.length >= 6) {
-                    Map<String, Object> experience = new HashMap<>();
-                    experience.put("newcomers", experienceDistribution[0] != null ? experienceDistribution[0] : 0);
-                    experience.put("beginners", experienceDistribution[1] != null ? experienceDistribution[1] : 0);
-                    experience.put("intermediate", experienceDistribution[2] != null ? experienceDistribution[2] : 0);
-                    experience.put("advanced", experienceDistribution[3] != null ? experienceDistribution[3] : 0);
-                    experience.put("expert", experienceDistribution[4] != null ? experienceDistribution[4] : 0);
-                    experience.put("master", experienceDistribution[5] != null ? experienceDistribution[5] : 0);
-                    stats.put("experienceDistribution", experience);
-                } else {
-                    // Default empty experience distribution
-                    Map<String, Object> experience = new HashMap<>();
-                    experience.put("newcomers", 0);
-                    experience.put("beginners", 0);
-                    experience.put("intermediate", 0);
-                    experience.put("advanced", 0);
-                    experience.put("expert", 0);
-                    experience.put("master", 0);
-                    stats.put("experienceDistribution", experience);
-                }
-            } catch (Exception e) {
-                // Default empty experience distribution
-                Map<String, Object> experience = new HashMap<>();
-                experience.put("newcomers", 0);
-                experience.put("beginners", 0);
-                experience.put("intermediate", 0);
-                experience.put("advanced", 0);
-                experience.put("expert", 0);
-                experience.put("master", 0);
-                stats.put("experienceDistribution", experience);
-            }
-            
-            // Handle role distribution with defaults
-            try {
-                Object[] roleDistribution = playerStatisticsRepository.getRoleDistributionStatistics();
-                if (roleDistribution != null && roleDistribution.length >= 4) {
-                    Map<String, Object> roles = new HashMap<>();
-                    roles.put("mafiaGames", roleDistribution[0] != null ? roleDistribution[0] : 0);
-                    roles.put("detectiveGames", roleDistribution[1] != null ? roleDistribution[1] : 0);
-                    roles.put("doctorGames", roleDistribution[2] != null ? roleDistribution[2] : 0);
-                    roles.put("citizenGames", roleDistribution[3] != null ? roleDistribution[3] : 0);
-                    stats.put("roleDistribution", roles);
-                } else {
-                    // Default values for empty database
-                    Map<String, Object> roles = new HashMap<>();
-                    roles.put("mafiaGames", 0);
-                    roles.put("detectiveGames", 0);
-                    roles.put("doctorGames", 0);
-                    roles.put("citizenGames", 0);
-                    stats.put("roleDistribution", roles);
-                }
-            } catch (Exception e) {
-                // Default values for empty database
-                Map<String, Object> roles = new HashMap<>();
-                roles.put("mafiaGames", 0);
-                roles.put("detectiveGames", 0);
-                roles.put("doctorGames", 0);
-                roles.put("citizenGames", 0);
-                stats.put("roleDistribution", roles);
-            }
-            
-        } catch (Exception e) {
-            // If any error occurs, return default empty statistics
-            stats.put("totalPlayers", 0);
-            stats.put("totalGamesPlayed", 0);
-            stats.put("averageWinRate", 0.0);
-            stats.put("averageSurvivalRate", 0.0);
-            stats.put("mostGamesPlayed", 0);
-            stats.put("mostWins", 0);
-            
-            Map<String, Object> experience = new HashMap<>();
-            experience.put("newcomers", 0);
-            experience.put("beginners", 0);
-            experience.put("intermediate", 0);
-            experience.put("advanced", 0);
-            experience.put("expert", 0);
-            experience.put("master", 0);
-            stats.put("experienceDistribution", experience);
-            
-            Map<String, Object> roles = new HashMap<>();
-            roles.put("mafiaGames", 0);
-            roles.put("detectiveGames", 0);
-            roles.put("doctorGames", 0);
-            roles.put("citizenGames", 0);
-            stats.put("roleDistribution", roles);
-        }
-        
-        return stats;
+    public List<PlayerStatistics> searchPlayers(String searchTerm, int limit) {
+        return searchPlayers(searchTerm, false, limit);
     }
     
     /**
-     * Search players by username
+     * Search players whose username contains (or starts with) the term, most games played first.
+     * Answered from the username index; the database is only searched while it is unavailable.
      */
-    public List<PlayerStatistics> searchPlayers(String searchTerm, int limit) {
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public List<PlayerStatistics> searchPlayers(String searchTerm, boolean prefix, int limit) {
         try {
-            return playerStatisticsRepository.searchPlayersByUsername(searchTerm)
-                .stream()
-                .limit(limit)
-                .collect(Collectors.toList());
+            if (usernameSearchIndex.isReady()) {
+                return rowsInOrder(usernameSearchIndex.search(searchTerm, prefix, limit));
+            }
+            PageRequest page = PageRequest.of(0, limit);
+            return prefix
+                ? playerStatisticsRepository.searchPlayersByUsernamePrefix(searchTerm, page)
+                : playerStatisticsRepository.searchPlayersByUsername(searchTerm, page);
         } catch (Exception e) {
             return new ArrayList<>();
         }
@@ -0,0 +1,183 @@
+package com.victadore.webmafia.mafia_web_of_lies.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.victadore.webmafia.mafia_web_of_lies.exception.GameException;
+import com.victadore.webmafia.mafia_web_of_lies.model.Game;
+import com.victadore.webmafia.mafia_web_of_lies.model.GameReplay;
+import com.victadore.webmafia.mafia_web_of_lies.model.GameState;
+import com.victadore.webmafia.mafia_web_of_lies.repository.GameReplayRepository;
+import com.victadore.webmafia.mafia_web_of_lies.repository.GameRepository;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Replay documents of finished games, stored as gzip-compressed JSON keyed by game code.
+ *
+ * A document is built by {@link GameHistoryService#buildGameReplay} once the game has ended (or on
+ * the first request for a game finished before documents were stored) and never rebuilt: its
+ * content hash serves as a strong ETag and clients that accept gzip get the stored bytes as they are.
+ */
+@Service
+public class ReplayDocumentStore {
+    private static final Logger logger = Logger.getLogger(ReplayDocumentStore.class.getName());
+    private static final TypeReference<Map<String, Object>> DOCUMENT_TYPE = new TypeReference<>() {};
+
+    private final GameReplayRepository gameReplayRepository;
+    private final GameRepository gameRepository;
+    private final GameHistoryService gameHistoryService;
+    private final ObjectMapper objectMapper;
+    private final ActionHistoryJournal actionHistoryJournal;
+    private final TransactionTemplate readTransaction;
+    private final TransactionTemplate writeTransaction;
+
+    public ReplayDocumentStore(GameReplayRepository gameReplayRepository,
+                               GameRepository gameRepository,
+                               GameHistoryService gameHistoryService,
+                               ObjectMapper objectMapper,
+                               ActionHistoryJournal actionHistoryJournal,
+                               PlatformTransactionManager transactionManager) {
+        this.gameReplayRepository = gameReplayRepository;
+        this.gameRepository = gameRepository;
+        this.gameHistoryService = gameHistoryService;
+        this.objectMapper = objectMapper;
+        this.actionHistoryJournal = actionHistoryJournal;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * The stored replay of a finished game, building it if it is missing; empty for games still running
+     */
+    public Optional<ReplayDocument> find(String gameCode) {
+        Optional<GameReplay> stored = readTransaction.execute(status -> gameReplayRepository.findById(gameCode));
+        if (stored != null && stored.isPresent()) {
+            return stored.map(ReplayDocument::new);
+        }
+
+        Game game = readTransaction.execute(status -> gameRepository.findByGameCode(gameCode));
+        if (game == null) {
+            throw new GameException("Game not found");
+        }
+        if (game.getGameState() != GameState.FINISHED) {
+            return Optional.empty();
+        }
+        return Optional.of(new ReplayDocument(store(gameCode)));
+    }
+
+    /**
+     * Build and store the replay of a game that has just finished, once the current transaction commits
+     */
+    public void storeAfterGame(String gameCode) {
+        Runnable build = () -> Thread.startVirtualThread(() -> {
+            try {
+                find(gameCode);
+            } catch (RuntimeException e) {
+                logger.warning("Could not store replay of game " + gameCode + ": " + e.getMessage());
+            }
+        });
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    build.run();
+                }
+            });
+        } else {
+            build.run();
+        }
+    }
+
+    private GameReplay store(String gameCode) {
+        // The replay is built from the history, so make sure the game's last actions are written
+        actionHistoryJournal.flush();
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(gameHistoryService.buildGameReplay(gameCode));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        GameReplay replay = new GameReplay(gameCode, gzip(json), sha256(json), json.length, LocalDateTime.now());
+        try {
+            writeTransaction.executeWithoutResult(status -> gameReplayRepository.save(replay));
+        } catch (DataIntegrityViolationException e) {
+            // Stored concurrently by another request; the documents are the same
+        }
+        return replay;
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length / 4 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static String sha256(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * A stored replay: the compressed JSON and the ETags of its two representations
+     */
+    public final class ReplayDocument {
+        private final GameReplay replay;
+
+        private ReplayDocument(GameReplay replay) {
+            this.replay = replay;
+        }
+
+        public byte[] gzipped() {
+            return replay.getDocument();
+        }
+
+        public byte[] json() {
+            try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(replay.getDocument()))) {
+                return in.readAllBytes();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        public Map<String, Object> toMap() {
+            try {
+                return objectMapper.readValue(json(), DOCUMENT_TYPE);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Strong ETag of the JSON; the gzip-encoded representation gets its own
+         */
+        public String etag(boolean gzipped) {
+            return "\"" + replay.getContentHash() + (gzipped ? "-gzip" : "") + "\"";
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.victadore.webmafia.mafia_web_of_lies.service;
+
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The sound files under static/sounds, read once at startup and served from memory.
+ *
+ * Every sound gets a strong ETag from its content hash. A "name.br" or "name.gz" file next to a
+ * sound is served to clients accepting that encoding; without a ".gz" file the sound is gzipped
+ * here, and the variant kept if it is at least MIN_SAVING smaller (tones compress well, noise does not).
+ *
+ * The WAV sounds are also joined into one sprite, a WAV named after its content hash with SPRITE_GAP
+ * of silence between sounds, so a page can load every effect with a single request. Sounds in another
+ * PCM format are converted to the first one's where Java Sound can, and otherwise left out of it.
+ */
+@Service
+public class SoundAssets {
+    private static final Logger logger = Logger.getLogger(SoundAssets.class.getName());
+    private static final String LOCATION = "classpath:/static/sounds/";
+    private static final double MIN_SAVING = 0.1;
+    private static final double SPRITE_GAP = 0.1;
+    private static final Map<String, MediaType> TYPES = Map.of(
+        "wav", MediaType.parseMediaType("audio/wav"),
+        "mp3", MediaType.parseMediaType("audio/mpeg"),
+        "ogg", MediaType.parseMediaType("audio/ogg"));
+
+    private final Map<String, Sound> sounds = new HashMap<>();
+    private Sprite sprite;
+
+    @PostConstruct
+    public void load() throws IOException {
+        Map<String, byte[]> files = new HashMap<>();
+        for (Resource resource : new PathMatchingResourcePatternResolver().getResources(LOCATION + "*")) {
+            String filename = resource.getFilename();
+            if (filename != null && resource.isReadable()) {
+                try (InputStream in = resource.getInputStream()) {
+                    files.put(filename, in.readAllBytes());
+                }
+            }
+        }
+
+        long identityBytes = 0;
+        long gzipBytes = 0;
+        for (Map.Entry<String, byte[]> file : files.entrySet()) {
+            MediaType type = TYPES.get(extension(file.getKey()));
+            if (type == null) {
+                continue;
+            }
+            byte[] data = file.getValue();
+            Sound sound = sound(file.getKey(), type, data, files.get(file.getKey() + ".gz"),
+                files.get(file.getKey() + ".br"), false);
+            sounds.put(sound.filename(), sound);
+            identityBytes += data.length;
+            gzipBytes += sound.gzip() != null ? sound.gzip().length : data.length;
+        }
+        logger.info("Loaded " + sounds.size() + " sounds (" + identityBytes / 1024 + " KB, "
+            + gzipBytes / 1024 + " KB gzipped)");
+
+        try {
+            sprite = buildSprite();
+            if (sprite != null) {
+                sounds.put(sprite.sound().filename(), sprite.sound());
+                logger.info("Built sound sprite " + sprite.sound().filename() + " of " + sprite.segments().size()
+                    + " sounds (" + sprite.sound().data().length / 1024 + " KB)");
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warning("Could not build sound sprite, sounds are served one by one: " + e.getMessage());
+        }
+    }
+
+    public Optional<Sound> find(String filename) {
+        return Optional.ofNullable(sounds.get(filename));
+    }
+
+    /**
+     * The sprite of all WAV sounds, or empty if there is none
+     */
+    public Optional<Sprite> sprite() {
+        return Optional.ofNullable(sprite);
+    }
+
+    private Sprite buildSprite() throws IOException {
+        List<String> filenames = sounds.keySet().stream()
+            .filter(filename -> extension(filename).equals("wav"))
+            .sorted()
+            .toList();
+        AudioFormat format = null;
+        ByteArrayOutputStream pcm = new ByteArrayOutputStream();
+        Map<String, Segment> segments = new LinkedHashMap<>();
+        for (String filename : filenames) {
+            byte[] samples;
+            try (AudioInputStream in = AudioSystem.getAudioInputStream(new ByteArrayInputStream(sounds.get(filename).data()))) {
+                if (format == null) {
+                    format = in.getFormat();
+                }
+                if (in.getFormat().matches(format)) {
+                    samples = in.readAllBytes();
+                } else if (AudioSystem.isConversionSupported(format, in.getFormat())) {
+                    try (AudioInputStream converted = AudioSystem.getAudioInputStream(format, in)) {
+                        samples = converted.readAllBytes();
+                    }
+                } else {
+                    logger.warning("Leaving " + filename + " out of the sound sprite: " + in.getFormat());
+                    continue;
+                }
+            } catch (UnsupportedAudioFileException e) {
+                logger.warning("Leaving " + filename + " out of the sound sprite: " + e.getMessage());
+                continue;
+            }
+
+            int frameSize = format.getFrameSize();
+            long startFrame = pcm.size() / frameSize;
+            long frames = samples.length / frameSize;
+            pcm.write(samples, 0, (int) (frames * frameSize));
+            pcm.write(new byte[(int) Math.round(format.getFrameRate() * SPRITE_GAP) * frameSize]);
+            double rate = format.getFrameRate();
+            segments.put(filename, new Segment(startFrame / rate, frames / rate));
+        }
+        if (segments.isEmpty()) {
+            return null;
+        }
+
+        byte[] samples = pcm.toByteArray();
+        ByteArrayOutputStream wav = new ByteArrayOutputStream(samples.length + 64);
+        AudioSystem.write(new AudioInputStream(new ByteArrayInputStream(samples), format, samples.length / format.getFrameSize()),
+            AudioFileFormat.Type.WAVE, wav);
+        byte[] data = wav.toByteArray();
+        Sound sound = sound("sprite-" + sha256(data) + ".wav", TYPES.get("wav"), data, null, null, true);
+        return new Sprite(sound, segments);
+    }
+
+    private static Sound sound(String filename, MediaType type, byte[] data, byte[] gzip, byte[] brotli, boolean immutable) {
+        if (gzip == null) {
+            gzip = gzip(data);
+            if (gzip.length > data.length * (1 - MIN_SAVING)) {
+                gzip = null;
+            }
+        }
+        return new Sound(filename, type, data, gzip, brotli, sha256(data), immutable);
+    }
+
+    private static String extension(String filename) {
+        int dot = filename.lastIndexOf('.');
+        return dot < 0 ? "" : filename.substring(dot + 1).toLowerCase(Locale.ROOT);
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length / 2 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static String sha256(byte[] data) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(data);
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * A sound and its encoded variants; gzip and brotli are null when there is none worth serving.
+     * An immutable sound is named after its content and never changes under that name.
+     */
+    public record Sound(String filename, MediaType type, byte[] data, byte[] gzip, byte[] brotli, String hash,
+                        boolean immutable) {
+        /**
+         * Strong ETag of one representation: "identity", "gzip" or "br"
+         */
+        public String etag(String encoding) {
+            return "\"" + hash + ("identity".equals(encoding) ? "" : "-" + encoding) + "\"";
+        }
+    }
+
+    /**
+     * The sprite and where each sound lies in it, by file name
+     */
+    public record Sprite(Sound sound, Map<String, Segment> segments) {}
+
+    /**
+     * Start and length of a sound in the sprite, in seconds
+     */
+    public record Segment(double start, double duration) {}
+}
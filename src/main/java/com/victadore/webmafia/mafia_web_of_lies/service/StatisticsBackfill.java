@@ -0,0 +1,226 @@
+package com.victadore.webmafia.mafia_web_of_lies.service;
+
+import com.victadore.webmafia.mafia_web_of_lies.model.ActionHistory;
+import com.victadore.webmafia.mafia_web_of_lies.model.Game;
+import com.victadore.webmafia.mafia_web_of_lies.model.GameState;
+import com.victadore.webmafia.mafia_web_of_lies.model.PlayerStatistics;
+import com.victadore.webmafia.mafia_web_of_lies.repository.ActionHistoryRepository;
+import com.victadore.webmafia.mafia_web_of_lies.repository.GameRepository;
+import com.victadore.webmafia.mafia_web_of_lies.repository.PlayerStatisticsRepository;
+import com.victadore.webmafia.mafia_web_of_lies.repository.ProcessedGameRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Logger;
+
+/**
+ * Counts finished games missing from player statistics, i.e. every finished game not in the ledger.
+ *
+ * Unprocessed game ids are paged in ascending id ranges of mafia.statistics.backfill.chunk-size.
+ * Up to mafia.statistics.backfill.parallelism chunks are folded at once on virtual threads, each
+ * into per-player totals from two queries (games with players, then their action history). A single
+ * writer adds each chunk's totals to the statistics rows and records the chunk's games in the
+ * ledger in one transaction, so an interrupted run simply continues where it stopped when rerun.
+ */
+@Service
+public class StatisticsBackfill {
+    private static final Logger logger = Logger.getLogger(StatisticsBackfill.class.getName());
+
+    private final GameRepository gameRepository;
+    private final ActionHistoryRepository actionHistoryRepository;
+    private final ProcessedGameRepository processedGameRepository;
+    private final PlayerStatisticsRepository playerStatisticsRepository;
+    private final PlayerStatisticsService playerStatisticsService;
+    private final ActionHistoryJournal actionHistoryJournal;
+    private final TransactionTemplate readTransaction;
+    private final TransactionTemplate writeTransaction;
+    private final int chunkSize;
+    private final int parallelism;
+
+    public StatisticsBackfill(GameRepository gameRepository,
+                              ActionHistoryRepository actionHistoryRepository,
+                              ProcessedGameRepository processedGameRepository,
+                              PlayerStatisticsRepository playerStatisticsRepository,
+                              PlayerStatisticsService playerStatisticsService,
+                              ActionHistoryJournal actionHistoryJournal,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${mafia.statistics.backfill.chunk-size:200}") int chunkSize,
+                              @Value("${mafia.statistics.backfill.parallelism:4}") int parallelism) {
+        this.gameRepository = gameRepository;
+        this.actionHistoryRepository = actionHistoryRepository;
+        this.processedGameRepository = processedGameRepository;
+        this.playerStatisticsRepository = playerStatisticsRepository;
+        this.playerStatisticsService = playerStatisticsService;
+        this.actionHistoryJournal = actionHistoryJournal;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.chunkSize = Math.max(1, chunkSize);
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Count every finished game not yet in the ledger.
+     *
+     * An empty ledger next to existing statistics means the games were counted at game end before
+     * the ledger existed; counting them again would double every player's totals, so the run is
+     * refused unless recount is set (mark them counted with {@link #markAllProcessed} instead).
+     */
+    public Report run(boolean recount) {
+        if (!recount && processedGameRepository.count() == 0 && playerStatisticsRepository.count() > 0) {
+            throw new IllegalStateException("Player statistics exist but no game is recorded as counted");
+        }
+
+        // Games are folded from their history, so make sure it is all written
+        actionHistoryJournal.flush();
+
+        long total = processedGameRepository.countUnprocessedGames(GameState.FINISHED);
+        logger.info("Backfilling statistics for " + total + " finished games (chunks of " + chunkSize
+            + ", " + parallelism + " in parallel)");
+
+        Progress progress = new Progress(total, System.nanoTime());
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            CompletionService<Chunk> folded = new ExecutorCompletionService<>(executor);
+            long afterId = 0;
+            boolean more = true;
+            int inFlight = 0;
+            while (more || inFlight > 0) {
+                if (more && inFlight < parallelism) {
+                    List<Long> gameIds = processedGameRepository.findUnprocessedGameIds(
+                        GameState.FINISHED, afterId, PageRequest.of(0, chunkSize));
+                    if (gameIds.isEmpty()) {
+                        more = false;
+                    } else {
+                        afterId = gameIds.get(gameIds.size() - 1);
+                        folded.submit(() -> fold(gameIds));
+                        inFlight++;
+                    }
+                    continue;
+                }
+                write(take(folded), progress);
+                inFlight--;
+            }
+        }
+
+        Report report = progress.report();
+        logger.info("Statistics backfill finished: " + report.counted() + " games counted, " + report.skipped()
+            + " skipped, " + report.failed() + " failed in " + report.elapsed().toMillis() + " ms ("
+            + Math.round(report.gamesPerSecond()) + " games/s)");
+        return report;
+    }
+
+    /**
+     * Record every finished game as counted without counting it, for statistics that already
+     * include the games finished before the ledger existed
+     */
+    public int markAllProcessed() {
+        Integer marked = writeTransaction.execute(status -> processedGameRepository.markAllProcessed(GameState.FINISHED));
+        return marked != null ? marked : 0;
+    }
+
+    private Chunk fold(List<Long> gameIds) {
+        try {
+            return readTransaction.execute(status -> {
+                Map<Long, List<ActionHistory>> history = new HashMap<>();
+                for (ActionHistory action : actionHistoryRepository.findByGameIdInOrderByGameIdAscTimestampAscIdAsc(gameIds)) {
+                    history.computeIfAbsent(action.getGame().getId(), id -> new ArrayList<>()).add(action);
+                }
+
+                Map<String, PlayerStatistics> totals = new HashMap<>();
+                List<Long> counted = new ArrayList<>(gameIds.size());
+                for (Game game : gameRepository.findWithPlayersByIdIn(gameIds)) {
+                    if (playerStatisticsService.accumulateGame(game, history.getOrDefault(game.getId(), List.of()), totals)) {
+                        counted.add(game.getId());
+                    } else {
+                        logger.warning("Skipping game " + game.getGameCode() + " in statistics backfill: no winner or players");
+                    }
+                }
+                return new Chunk(gameIds, counted, totals, null);
+            });
+        } catch (RuntimeException e) {
+            return new Chunk(gameIds, List.of(), Map.of(), e);
+        }
+    }
+
+    private void write(Chunk chunk, Progress progress) {
+        if (chunk.failure() != null) {
+            logger.warning("Could not read games " + chunk.range() + ": " + chunk.failure().getMessage());
+            progress.failed += chunk.gameIds().size();
+            return;
+        }
+        try {
+            if (!chunk.counted().isEmpty()) {
+                playerStatisticsService.applyBackfill(chunk.counted(), chunk.totals());
+            }
+            progress.counted += chunk.counted().size();
+            progress.skipped += chunk.gameIds().size() - chunk.counted().size();
+        } catch (RuntimeException e) {
+            // Typically a game counted by a game end meanwhile; nothing of the chunk was written
+            logger.warning("Could not write games " + chunk.range() + ", rerun to retry them: " + e.getMessage());
+            progress.failed += chunk.gameIds().size();
+        }
+
+        long done = progress.counted + progress.skipped + progress.failed;
+        logger.info("Statistics backfill: " + done + "/" + progress.total + " games ("
+            + Math.round(progress.report().gamesPerSecond()) + " games/s)");
+    }
+
+    private static Chunk take(CompletionService<Chunk> folded) {
+        try {
+            return folded.take().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Statistics backfill interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Statistics backfill failed", e.getCause());
+        }
+    }
+
+    /**
+     * Outcome of a backfill run
+     */
+    public record Report(long total, long counted, long skipped, long failed, Duration elapsed) {
+        public double gamesPerSecond() {
+            long millis = elapsed.toMillis();
+            return millis > 0 ? (counted + skipped + failed) * 1000.0 / millis : 0.0;
+        }
+    }
+
+    private record Chunk(List<Long> gameIds, List<Long> counted, Map<String, PlayerStatistics> totals,
+                         RuntimeException failure) {
+        String range() {
+            return gameIds.get(0) + "-" + gameIds.get(gameIds.size() - 1);
+        }
+    }
+
+    // Only touched by the writing thread
+    private static final class Progress {
+        private final long total;
+        private final long startNanos;
+        private long counted;
+        private long skipped;
+        private long failed;
+
+        Progress(long total, long startNanos) {
+            this.total = total;
+            this.startNanos = startNanos;
+        }
+
+        Report report() {
+            return new Report(total, counted, skipped, failed, Duration.ofNanos(System.nanoTime() - startNanos));
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.victadore.webmafia.mafia_web_of_lies.service;
+
+import com.victadore.webmafia.mafia_web_of_lies.model.PlayerStatistics;
+import com.victadore.webmafia.mafia_web_of_lies.repository.PlayerStatisticsRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Logger;
+
+/**
+ * In-memory n-gram index over player usernames, answering the statistics search box without
+ * scanning player_statistics with LIKE '%...%'.
+ *
+ * Every username is indexed under all of its 1-, 2- and 3-character substrings, with a start
+ * marker in front so prefixes are just substrings that begin with it. A query of up to three
+ * characters is a single posting list; longer ones intersect the posting lists of their trigrams
+ * and check the survivors. Matches come back as the top K by games played, like the SQL search.
+ * Grams and queries are lower-cased, so matching ignores case as LIKE does under MySQL's default
+ * collation; results keep the usernames as stored.
+ *
+ * Posting lists hold player ids in ascending order; ids are handed out as players are added,
+ * so adding a player only appends.
+ */
+@Component
+public class UsernameSearchIndex {
+    private static final Logger logger = Logger.getLogger(UsernameSearchIndex.class.getName());
+    private static final int GRAM = 3;
+    private static final char START = '\u0000';
+
+    private final PlayerStatisticsRepository playerStatisticsRepository;
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private String[] usernames = new String[1024];
+    private String[] folded = new String[1024];
+    private int[] totalGames = new int[1024];
+    private int count;
+    private volatile boolean ready;
+
+    public UsernameSearchIndex(PlayerStatisticsRepository playerStatisticsRepository) {
+        this.playerStatisticsRepository = playerStatisticsRepository;
+    }
+
+    @PostConstruct
+    public void load() {
+        try {
+            List<Object[]> rows = playerStatisticsRepository.findAllUsernamesAndTotalGames();
+            lock.writeLock().lock();
+            try {
+                for (Object[] row : rows) {
+                    put((String) row[0], row[1] instanceof Number games ? games.intValue() : 0);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            ready = true;
+            logger.info("Indexed " + rows.size() + " usernames for search");
+        } catch (RuntimeException e) {
+            logger.warning("Username search index unavailable, searching the database instead: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Whether the index holds every player and can answer searches
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Take in created or changed statistics; inside a transaction they are applied once it commits
+     */
+    public void update(Collection<PlayerStatistics> statistics) {
+        List<Object[]> changed = statistics.stream()
+            .map(stats -> new Object[] {stats.getUsername(), stats.getTotalGames() != null ? stats.getTotalGames() : 0})
+            .toList();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(changed);
+                }
+            });
+        } else {
+            apply(changed);
+        }
+    }
+
+    /**
+     * Usernames containing the query (or starting with it), most games played first
+     */
+    public List<String> search(String query, boolean prefix, int limit) {
+        if (query == null || query.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+        String needle = fold(query);
+        String term = prefix ? START + needle : needle;
+
+        lock.readLock().lock();
+        try {
+            if (term.length() <= GRAM) {
+                Postings exact = postings.get(term);
+                return exact != null ? top(exact.ids, exact.size, null, limit) : new ArrayList<>();
+            }
+
+            // Every trigram of the query must be present; start from the rarest one
+            List<Postings> lists = new ArrayList<>(term.length() - GRAM + 1);
+            for (int i = 0; i + GRAM <= term.length(); i++) {
+                Postings list = postings.get(term.substring(i, i + GRAM));
+                if (list == null) {
+                    return new ArrayList<>();
+                }
+                lists.add(list);
+            }
+            lists.sort(Comparator.comparingInt(list -> list.size));
+
+            int[] candidates = Arrays.copyOf(lists.get(0).ids, lists.get(0).size);
+            int size = candidates.length;
+            for (int i = 1; i < lists.size() && size > 0; i++) {
+                size = intersect(candidates, size, lists.get(i));
+            }
+            // Trigrams can all match without the query itself matching
+            return top(candidates, size, prefix
+                ? id -> folded[id].startsWith(needle)
+                : id -> folded[id].contains(needle), limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void apply(List<Object[]> changed) {
+        lock.writeLock().lock();
+        try {
+            for (Object[] entry : changed) {
+                put((String) entry[0], (Integer) entry[1]);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void put(String username, int games) {
+        Integer existing = ids.get(username);
+        if (existing != null) {
+            totalGames[existing] = games;
+            return;
+        }
+
+        int id = count++;
+        if (id == usernames.length) {
+            usernames = Arrays.copyOf(usernames, id * 2);
+            folded = Arrays.copyOf(folded, id * 2);
+            totalGames = Arrays.copyOf(totalGames, id * 2);
+        }
+        usernames[id] = username;
+        folded[id] = fold(username);
+        totalGames[id] = games;
+        ids.put(username, id);
+
+        String padded = START + folded[id];
+        for (int length = 1; length <= GRAM; length++) {
+            for (int i = 0; i + length <= padded.length(); i++) {
+                postings.computeIfAbsent(padded.substring(i, i + length), gram -> new Postings()).add(id);
+            }
+        }
+    }
+
+    private static String fold(String text) {
+        return text.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Keep the candidates that are also in the list; both are ascending. Returns the new size.
+     */
+    private static int intersect(int[] candidates, int size, Postings list) {
+        int kept = 0;
+        int j = 0;
+        for (int i = 0; i < size && j < list.size; i++) {
+            int id = candidates[i];
+            while (j < list.size && list.ids[j] < id) {
+                j++;
+            }
+            if (j < list.size && list.ids[j] == id) {
+                candidates[kept++] = id;
+            }
+        }
+        return kept;
+    }
+
+    private List<String> top(int[] candidates, int size, IdFilter filter, int limit) {
+        // Min-heap of the best `limit` so far: fewest games (then last username) at the head
+        Comparator<Integer> best = Comparator.<Integer>comparingInt(id -> totalGames[id])
+            .reversed()
+            .thenComparing(id -> usernames[id]);
+        PriorityQueue<Integer> heap = new PriorityQueue<>(Math.min(limit, Math.max(size, 1)) + 1, best.reversed());
+        for (int i = 0; i < size; i++) {
+            int id = candidates[i];
+            if (filter != null && !filter.test(id)) {
+                continue;
+            }
+            if (heap.size() < limit) {
+                heap.add(id);
+            } else if (best.compare(id, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(id);
+            }
+        }
+
+        List<Integer> ranked = new ArrayList<>(heap);
+        ranked.sort(best);
+        List<String> result = new ArrayList<>(ranked.size());
+        for (int id : ranked) {
+            result.add(usernames[id]);
+        }
+        return result;
+    }
+
+    @FunctionalInterface
+    private interface IdFilter {
+        boolean test(int id);
+    }
+
+    /**
+     * Growable, ascending array of player ids
+     */
+    private static final class Postings {
+        private int[] ids = new int[4];
+        private int size;
+
+        void add(int id) {
+            // A gram repeated within one username is added once
+            if (size > 0 && ids[size - 1] == id) {
+                return;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+    }
+}
@@ -1,26 +1,265 @@
 package com.victadore.webmafia.mafia_web_of_lies.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.converter.MessageConversionException;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.MimeTypeUtils;
 import com.victadore.webmafia.mafia_web_of_lies.dto.GameEvent;
+import com.victadore.webmafia.mafia_web_of_lies.dto.GameStateMessage;
+import com.victadore.webmafia.mafia_web_of_lies.dto.GameStateSnapshot;
+import com.victadore.webmafia.mafia_web_of_lies.model.Game;
+import com.victadore.webmafia.mafia_web_of_lies.model.GameState;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Sends game events and state to STOMP subscribers.
+ *
+ * Payloads are encoded to JSON once, here, and the same bytes are handed to the broker for every
+ * destination and recipient, instead of letting the template's converter serialize them per send.
+ *
+ * The last published state of a game is dropped when the game finishes, when it is purged, and
+ * when nothing has been published for it for a while.
+ */
 @Service
 public class WebSocketService {
+    private static final Logger logger = Logger.getLogger(WebSocketService.class.getName());
+
     private final SimpMessagingTemplate messagingTemplate;
+    private final ObjectWriter jsonWriter;
+    private final long idleNanos;
+
+    // Last snapshot published per game and its sequence number; deltas are computed against it
+    private final Map<String, PublishedState> publishedStates = new ConcurrentHashMap<>();
 
-    public WebSocketService(SimpMessagingTemplate messagingTemplate) {
+    public WebSocketService(SimpMessagingTemplate messagingTemplate, ObjectMapper objectMapper,
+                            @Value("${mafia.websocket.state-idle-minutes:30}") long idleMinutes) {
         this.messagingTemplate = messagingTemplate;
+        this.jsonWriter = objectMapper.writer();
+        this.idleNanos = TimeUnit.MINUTES.toNanos(idleMinutes);
     }
 
     public void broadcastGameUpdate(String gameCode, GameEvent event) {
-        messagingTemplate.convertAndSend("/topic/game/" + gameCode, event);
+        broadcast("/topic/game/" + gameCode, event);
     }
 
     public void sendPrivateMessage(String username, GameEvent event) {
-        messagingTemplate.convertAndSendToUser(
-            username,
-            "/queue/private",
-            event
-        );
+        sendToUser(username, "/queue/private", encode(event));
+    }
+
+    /**
+     * Send the same event to several players, encoding it only once
+     */
+    public void sendPrivateMessage(Collection<String> usernames, GameEvent event) {
+        if (usernames.isEmpty()) {
+            return;
+        }
+        byte[] json = encode(event);
+        for (String username : usernames) {
+            sendToUser(username, "/queue/private", json);
+        }
+    }
+
+    /**
+     * Send any payload to a topic
+     */
+    public void broadcast(String destination, Object payload) {
+        messagingTemplate.send(destination, message(encode(payload)));
+    }
+
+    private void sendToUser(String username, String destination, byte[] json) {
+        // Same destination convertAndSendToUser would resolve
+        String userDestination = messagingTemplate.getUserDestinationPrefix()
+            + username.replace("/", "%2F") + destination;
+        messagingTemplate.send(userDestination, message(json));
+    }
+
+    private byte[] encode(Object payload) {
+        try {
+            return jsonWriter.writeValueAsBytes(payload);
+        } catch (JsonProcessingException e) {
+            throw new MessageConversionException("Could not encode " + payload.getClass().getSimpleName(), e);
+        }
+    }
+
+    /**
+     * A fresh message around shared payload bytes; the template sets the destination on it
+     */
+    private static Message<byte[]> message(byte[] json) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(json, accessor.getMessageHeaders());
+    }
+
+    /**
+     * Publish whatever changed in the game's public state since the last publication.
+     * The state is captured now; inside a transaction the delta is sent once it commits.
+     */
+    public void publishGameState(Game game) {
+        GameStateSnapshot snapshot = new GameStateSnapshot(game);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish(snapshot);
+                }
+            });
+        } else {
+            publish(snapshot);
+        }
+    }
+
+    /**
+     * Full snapshot for a (re)subscribing client. Any drift from the last published state is
+     * broadcast as a delta first, so the returned sequence number lines up with the topic.
+     */
+    public GameStateMessage syncGameState(Game game) {
+        GameStateSnapshot snapshot = new GameStateSnapshot(game);
+        PublishedState published = publish(snapshot);
+        return GameStateMessage.snapshot(snapshot.getGameCode(), published.sequence, published.snapshot);
+    }
+
+    private PublishedState publish(GameStateSnapshot snapshot) {
+        String gameCode = snapshot.getGameCode();
+        boolean finished = GameState.FINISHED.toString().equals(snapshot.getGameState());
+        PublishedState published = publishedStates.compute(gameCode, (code, previous) -> {
+            if (previous == null) {
+                // The state may have been evicted while clients still hold its sequence number, so
+                // start past any number handed out before and announce it: clients see a gap and resync
+                long sequence = System.currentTimeMillis();
+                if (!finished) {
+                    broadcast("/topic/game/" + code + "/state", GameStateMessage.delta(code, sequence, List.of()));
+                }
+                return new PublishedState(sequence, snapshot);
+            }
+            List<GameStateMessage.Change> changes = diff(previous.snapshot, snapshot);
+            if (changes.isEmpty()) {
+                previous.lastUsed = System.nanoTime();
+                return previous;
+            }
+            long sequence = previous.sequence + 1;
+            broadcast("/topic/game/" + code + "/state", GameStateMessage.delta(code, sequence, changes));
+            return new PublishedState(sequence, snapshot);
+        });
+
+        // Nothing changes after the game is over, so stop tracking it
+        if (finished) {
+            publishedStates.remove(gameCode, published);
+        }
+        return published;
+    }
+
+    /**
+     * Forget the published state of a game that no longer exists
+     */
+    public void evictGame(String gameCode) {
+        publishedStates.remove(gameCode);
+    }
+
+    /**
+     * Number of games whose published state is held in memory
+     */
+    public int publishedStateCount() {
+        return publishedStates.size();
+    }
+
+    @Scheduled(fixedDelayString = "${mafia.websocket.state-sweep-interval-ms:60000}")
+    public void evictIdleGames() {
+        long now = System.nanoTime();
+        int before = publishedStates.size();
+        publishedStates.values().removeIf(state -> now - state.lastUsed > idleNanos);
+        int evicted = before - publishedStates.size();
+        if (evicted > 0) {
+            logger.fine("Evicted published state of " + evicted + " idle games");
+        }
+    }
+
+    private List<GameStateMessage.Change> diff(GameStateSnapshot before, GameStateSnapshot after) {
+        List<GameStateMessage.Change> changes = new ArrayList<>();
+
+        if (!Objects.equals(before.getGameState(), after.getGameState())
+                || !Objects.equals(before.getWinner(), after.getWinner())) {
+            changes.add(change("GAME_STATE", "gameState", after.getGameState(), "winner", after.getWinner()));
+        }
+        if (before.getCurrentDay() != after.getCurrentDay() || before.getCurrentPhase() != after.getCurrentPhase()) {
+            changes.add(change("PHASE_CHANGED", "phase", after.getCurrentPhase() == 0 ? "DAY" : "NIGHT",
+                               "day", after.getCurrentDay()));
+        }
+
+        Map<String, GameStateSnapshot.PlayerState> playersBefore = new HashMap<>();
+        before.getPlayers().forEach(p -> playersBefore.put(p.getUsername(), p));
+        Set<String> remaining = new HashSet<>(playersBefore.keySet());
+        for (GameStateSnapshot.PlayerState player : after.getPlayers()) {
+            GameStateSnapshot.PlayerState old = playersBefore.get(player.getUsername());
+            remaining.remove(player.getUsername());
+            if (old == null) {
+                changes.add(change("PLAYER_JOINED", "username", player.getUsername(), "alive", player.isAlive()));
+            } else if (old.isAlive() && !player.isAlive()) {
+                changes.add(change("PLAYER_DIED", "username", player.getUsername(), "role", player.getRole()));
+            }
+        }
+        for (String username : remaining) {
+            changes.add(change("PLAYER_LEFT", "username", username));
+        }
+
+        for (Map.Entry<String, String> vote : after.getVotes().entrySet()) {
+            if (!vote.getValue().equals(before.getVotes().get(vote.getKey()))) {
+                changes.add(change("VOTE_STATUS", "username", vote.getKey(), "status", vote.getValue()));
+            }
+        }
+        for (String username : before.getVotes().keySet()) {
+            if (!after.getVotes().containsKey(username)) {
+                changes.add(change("VOTE_STATUS", "username", username, "status", null));
+            }
+        }
+
+        if (!before.getTimer().equals(after.getTimer())) {
+            GameStateSnapshot.TimerState timer = after.getTimer();
+            changes.add(change("TIMER", "active", timer.isActive(), "totalSeconds", timer.getTotalSeconds(),
+                               "endsAt", timer.getEndsAt()));
+        }
+        return changes;
+    }
+
+    private static GameStateMessage.Change change(String type, Object... keyValues) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            data.put((String) keyValues[i], keyValues[i + 1]);
+        }
+        return new GameStateMessage.Change(type, data);
+    }
+
+    private static class PublishedState {
+        private final long sequence;
+        private final GameStateSnapshot snapshot;
+        private volatile long lastUsed = System.nanoTime();
+
+        PublishedState(long sequence, GameStateSnapshot snapshot) {
+            this.sequence = sequence;
+            this.snapshot = snapshot;
+        }
     }
-}
\ No newline at end of file
+}
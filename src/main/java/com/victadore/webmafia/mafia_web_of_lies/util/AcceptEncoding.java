@@ -0,0 +1,43 @@
+package com.victadore.webmafia.mafia_web_of_lies.util;
+
+import java.util.Locale;
+
+/**
+ * Reads an Accept-Encoding header for controllers that serve precompressed bodies themselves
+ */
+public final class AcceptEncoding {
+
+    private AcceptEncoding() {
+    }
+
+    /**
+     * Whether the header allows the given content coding. A coding listed with q=0 is refused
+     * ("gzip;q=0" means "not gzip"); a coding that is not listed falls back to "*", if present.
+     */
+    public static boolean accepts(String acceptEncoding, String coding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Boolean wildcard = null;
+        for (String entry : acceptEncoding.toLowerCase(Locale.ROOT).split(",")) {
+            String[] parts = entry.trim().split(";");
+            String name = parts[0].trim();
+            if (name.equals(coding)) {
+                return !refused(parts);
+            } else if (name.equals("*")) {
+                wildcard = !refused(parts);
+            }
+        }
+        return Boolean.TRUE.equals(wildcard);
+    }
+
+    private static boolean refused(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].trim();
+            if (parameter.startsWith("q=")) {
+                return parameter.matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+}
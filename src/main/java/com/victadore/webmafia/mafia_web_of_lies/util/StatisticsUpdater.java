@@ -1,62 +1,64 @@
 package com.victadore.webmafia.mafia_web_of_lies.util;
 
-import com.victadore.webmafia.mafia_web_of_lies.model.Game;
-import com.victadore.webmafia.mafia_web_of_lies.model.GameState;
-import com.victadore.webmafia.mafia_web_of_lies.repository.GameRepository;
-import com.victadore.webmafia.mafia_web_of_lies.service.PlayerStatisticsService;
+import com.victadore.webmafia.mafia_web_of_lies.service.StatisticsBackfill;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
 
-import java.util.List;
-
 /**
  * Utility class to manually update statistics for existing games
  * This can be run as a command line runner to fix statistics for games that were completed
  * before the statistics system was properly working
+ *
+ * "update-stats" counts every finished game not yet in the statistics ledger; rerunning it only
+ * picks up games it has not counted, so an interrupted run resumes. "update-stats mark-counted"
+ * records all finished games as counted instead, for databases whose statistics already include
+ * games finished before the ledger existed. On such a database (statistics present, ledger empty)
+ * "update-stats" refuses to run; "update-stats recount" counts the games again anyway.
  */
 @Component
 public class StatisticsUpdater implements CommandLineRunner {
     
-    private final GameRepository gameRepository;
-    private final PlayerStatisticsService playerStatisticsService;
+    private final StatisticsBackfill statisticsBackfill;
     
-    public StatisticsUpdater(GameRepository gameRepository, PlayerStatisticsService playerStatisticsService) {
-        this.gameRepository = gameRepository;
-        this.playerStatisticsService = playerStatisticsService;
+    public StatisticsUpdater(StatisticsBackfill statisticsBackfill) {
+        this.statisticsBackfill = statisticsBackfill;
     }
     
     @Override
     public void run(String... args) throws Exception {
         // Only run if specifically requested via command line argument
         if (args.length > 0 && "update-stats".equals(args[0])) {
-            updateStatisticsForExistingGames();
+            if (args.length > 1 && "mark-counted".equals(args[1])) {
+                markExistingGamesCounted();
+            } else {
+                updateStatisticsForExistingGames(args.length > 1 && "recount".equals(args[1]));
+            }
         }
     }
     
-    public void updateStatisticsForExistingGames() {
+    public void updateStatisticsForExistingGames(boolean recount) {
         System.out.println("Starting statistics update for existing games...");
         
-        List<Game> finishedGames = gameRepository.findByGameState(GameState.FINISHED);
-        System.out.println("Found " + finishedGames.size() + " finished games");
-        
-        int successCount = 0;
-        int failCount = 0;
-        
-        for (Game game : finishedGames) {
-            try {
-                System.out.println("Updating statistics for game: " + game.getGameCode());
-                playerStatisticsService.updatePlayerStatisticsAfterGame(game.getGameCode());
-                successCount++;
-                System.out.println("✓ Successfully updated statistics for game: " + game.getGameCode());
-            } catch (Exception e) {
-                failCount++;
-                System.err.println("✗ Failed to update statistics for game " + game.getGameCode() + ": " + e.getMessage());
-            }
+        StatisticsBackfill.Report report;
+        try {
+            report = statisticsBackfill.run(recount);
+        } catch (IllegalStateException e) {
+            System.out.println("Statistics update not started: " + e.getMessage());
+            System.out.println("Run \"update-stats mark-counted\" if the statistics already include these games, "
+                               + "or \"update-stats recount\" to count them again");
+            return;
         }
         
         System.out.println("\nStatistics update completed:");
-        System.out.println("- Successful updates: " + successCount);
-        System.out.println("- Failed updates: " + failCount);
-        System.out.println("- Total games processed: " + finishedGames.size());
+        System.out.println("- Successful updates: " + report.counted());
+        System.out.println("- Skipped games (no winner or players): " + report.skipped());
+        System.out.println("- Failed updates (rerun to retry): " + report.failed());
+        System.out.println("- Total games processed: " + report.total());
+        System.out.println("- Throughput: " + Math.round(report.gamesPerSecond()) + " games/s");
+    }
+    
+    public void markExistingGamesCounted() {
+        int marked = statisticsBackfill.markAllProcessed();
+        System.out.println("Recorded " + marked + " finished games as already counted");
     }
-} 
\ No newline at end of file
+}
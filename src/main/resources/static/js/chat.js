@@ -84,6 +84,12 @@ class ChatManager {
                 this.displayMessage(chatMessage);
             });
         }
+        
+        // Messages refused by the server (e.g. sending too fast)
+        this.stompClient.subscribe('/user/queue/errors', (message) => {
+            const error = JSON.parse(message.body);
+            this.updateStatus(error.message, 'error');
+        });
     }
     
     sendMessage() {
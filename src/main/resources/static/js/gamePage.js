@@ -0,0 +1,763 @@
+let currentPlayerRole = '';
+let phaseTimer = null;
+let currentPhase = '';
+let hasActedThisNight = false;
+let isPlayerAlive = true;
+let gameStateClient = null;
+let actionHistoryCollapsed = false;
+
+// Track shown eliminations to prevent repeats
+let shownEliminations = new Set();
+
+// Track chat initialization to prevent duplicates
+let chatInitialized = false;
+
+// Track current game state to prevent repeated phase processing
+let lastGameState = null;
+
+// Phase durations in seconds
+const NIGHT_PHASE_DURATION = 60;
+const DAY_PHASE_DURATION = 90;
+
+// Theme Management
+function updateTheme(phase) {
+    const body = document.getElementById('gameBody');
+    const container = document.getElementById('gameContainer');
+    
+    if (phase === 'NIGHT') {
+        body.classList.add('night-mode');
+        container.classList.remove('day-phase');
+        container.classList.add('night-phase');
+    } else {
+        body.classList.remove('night-mode');
+        container.classList.remove('night-phase');
+        container.classList.add('day-phase');
+    }
+}
+
+// Action History Toggle
+function toggleActionHistory() {
+    const content = document.getElementById('actionHistoryContent');
+    const toggle = document.getElementById('actionHistoryToggle');
+    
+    actionHistoryCollapsed = !actionHistoryCollapsed;
+    
+    if (actionHistoryCollapsed) {
+        content.classList.add('collapsed');
+        toggle.classList.remove('fa-chevron-up');
+        toggle.classList.add('fa-chevron-down');
+    } else {
+        content.classList.remove('collapsed');
+        toggle.classList.remove('fa-chevron-down');
+        toggle.classList.add('fa-chevron-up');
+    }
+}
+
+// Elimination Animation
+function showEliminationAnimation(playerName, role) {
+    // Create a more comprehensive tracking key including current game state
+    const eliminationKey = `${playerName}-${role}-${currentPhase || 'UNKNOWN'}`;
+    if (shownEliminations.has(eliminationKey)) {
+        return; // Already shown, don't show again
+    }
+    
+    // Mark as shown
+    shownEliminations.add(eliminationKey);
+    
+    const overlay = document.getElementById('eliminationOverlay');
+    const playerNameEl = document.getElementById('eliminationPlayerName');
+    const roleNameEl = document.getElementById('eliminationRoleName');
+    const roleIconEl = document.getElementById('eliminationRoleIcon');
+    
+    // Set content
+    playerNameEl.textContent = playerName;
+    roleNameEl.textContent = role;
+    
+    // Set role icon
+    const roleIcons = {
+        'MAFIA': '🔫',
+        'DETECTIVE': '🔍',
+        'DOCTOR': '⚕️',
+        'CIVILIAN': '👤'
+    };
+    roleIconEl.textContent = roleIcons[role] || '💀';
+    
+    // Show overlay
+    overlay.classList.add('show');
+    
+    // Hide after 3 seconds
+    setTimeout(() => {
+        overlay.classList.remove('show');
+    }, 3000);
+    
+    console.log(`Showing elimination animation for ${playerName} (${role}) in ${currentPhase} phase`);
+}
+
+// Game State Loading Functions
+function loadGameState() {
+    loadRole().then(() => {
+        if (gameStateClient.state) {
+            lastGameState = null;
+            renderGameState(gameStateClient.state, null);
+        }
+        gameStateClient.resync();
+    });
+}
+
+function loadRole() {
+    return fetch(`/api/games/${gameCode}/player/${username}/role`)
+        .then(response => response.json())
+        .then(roleData => {
+            currentPlayerRole = roleData.role;
+            const roleInfo = document.getElementById('roleInfo');
+            
+            if (roleData.role === 'MAFIA') {
+                roleInfo.innerHTML = `
+                    <h6 class="text-danger">${roleData.role}</h6>
+                    <p class="small">${roleData.description}</p>
+                    <div id="roleTeamInfo" class="mt-2">
+                        <h6 class="small">Your Mafia Team:</h6>
+                        <div id="roleMafiaMembers" class="small">Loading team...</div>
+                    </div>
+                `;
+                loadMafiaTeamForRole();
+            } else {
+                const roleClass = roleData.role === 'DETECTIVE' ? 'text-info' : 
+                                 roleData.role === 'DOCTOR' ? 'text-success' : 'text-secondary';
+                roleInfo.innerHTML = `
+                    <h6 class="${roleClass}">${roleData.role}</h6>
+                    <p class="small">${roleData.description}</p>
+                `;
+            }
+        })
+        .catch(error => {
+            console.error('Error loading role:', error);
+            document.getElementById('roleInfo').innerHTML = '<p>Error loading role information</p>';
+        });
+}
+
+function loadMafiaTeamForRole() {
+    fetch(`/api/games/${gameCode}/mafia-team/${username}`)
+        .then(response => response.json())
+        .then(mafiaMembers => {
+            const roleMafiaDiv = document.getElementById('roleMafiaMembers');
+            if (roleMafiaDiv) {
+                roleMafiaDiv.innerHTML = '';
+                
+                if (mafiaMembers.length === 0) {
+                    roleMafiaDiv.innerHTML = '<p class="text-muted small">No team information available</p>';
+                    return;
+                }
+                
+                mafiaMembers.forEach(member => {
+                    const memberDiv = document.createElement('div');
+                    memberDiv.className = 'small mb-1';
+                    
+                    let memberText = member.username;
+                    if (member.isYou) {
+                        memberText += ' (You)';
+                    }
+                    if (!member.alive) {
+                        memberText += ' (Dead)';
+                        memberDiv.className += ' text-muted';
+                        memberDiv.style.textDecoration = 'line-through';
+                    }
+                    
+                    memberDiv.innerHTML = `<span class="text-danger">🔴 ${memberText}</span>`;
+                    roleMafiaDiv.appendChild(memberDiv);
+                });
+            }
+        })
+        .catch(error => {
+            console.error('Error loading Mafia team for role:', error);
+            const roleMafiaDiv = document.getElementById('roleMafiaMembers');
+            if (roleMafiaDiv) {
+                roleMafiaDiv.innerHTML = '<p class="text-muted small">Unable to load team</p>';
+            }
+        });
+}
+
+// Applies a snapshot or delta pushed over /topic/game/{code}/state
+function renderGameState(game, changes) {
+    renderPlayers(game.players);
+    
+    // Check if game state actually changed to prevent unnecessary processing
+    const gameStateKey = `${game.currentDay}-${game.currentPhase}-${game.gameState}`;
+    if (lastGameState !== gameStateKey) {
+        lastGameState = gameStateKey;
+        
+        document.getElementById('day').textContent = game.currentDay;
+        
+        const phaseText = game.currentPhase === 0 ? 'DAY' : 'NIGHT';
+        document.getElementById('phase').textContent = phaseText;
+        document.getElementById('phaseTitle').textContent = `${phaseText} PHASE - Day ${game.currentDay}`;
+        
+        // Update theme based on phase
+        updateTheme(phaseText);
+        
+        if (game.gameState === 'FINISHED') {
+            showGameOver(game.winner);
+            clearTimer();
+        } else if (game.currentPhase === 0) {
+            if (currentPhase !== 'DAY') {
+                currentPhase = 'DAY';
+                hasActedThisNight = false;
+                showDayPhase();
+                startPhaseTimer();
+                
+                if (window.soundManager) {
+                    window.soundManager.playGameEvent('PHASE_CHANGE', { phase: 'DAY' });
+                }
+            }
+        } else {
+            if (currentPhase !== 'NIGHT') {
+                currentPhase = 'NIGHT';
+                hasActedThisNight = false;
+                showNightPhase();
+                startPhaseTimer();
+                
+                if (window.soundManager) {
+                    window.soundManager.playGameEvent('PHASE_CHANGE', { phase: 'NIGHT' });
+                }
+            }
+        }
+        
+        // Update chat phase once after all phase logic is complete
+        if (typeof updateChatPhase === 'function') {
+            updateChatPhase(phaseText, currentPlayerRole, isPlayerAlive);
+        }
+    } else if (changes && changes.some(change => change.type === 'TIMER')) {
+        startPhaseTimer();
+    }
+    
+    if (game.gameState !== 'FINISHED' && game.currentPhase === 0) {
+        renderVotingStatus(game.votes);
+    }
+    
+    // Timer-only deltas do not touch the history
+    if (!changes || changes.some(change => change.type !== 'TIMER')) {
+        loadActionHistory();
+    }
+
+    if (currentPlayerRole === 'MAFIA' && changes && changes.some(change => change.type === 'PLAYER_DIED')) {
+        loadMafiaTeamForRole();
+    }
+}
+
+function renderPlayers(players) {
+    const currentPlayer = players.find(p => p.username === username);
+    if (currentPlayer) {
+        isPlayerAlive = currentPlayer.alive;
+    }
+    
+    const voteSelect = document.getElementById('voteSelect');
+    if (voteSelect) {
+        const currentVoteSelection = voteSelect.value;
+        voteSelect.innerHTML = '<option value="">Select a player...</option>';
+        
+        players.forEach(player => {
+            if (player.username !== username && player.alive && isPlayerAlive) {
+                const option = document.createElement('option');
+                option.value = player.username;
+                option.textContent = player.username;
+                voteSelect.appendChild(option);
+            }
+        });
+        
+        if (currentVoteSelection && Array.from(voteSelect.options).some(opt => opt.value === currentVoteSelection)) {
+            voteSelect.value = currentVoteSelection;
+        }
+    }
+    
+    const deadPlayerRoles = {};
+    players.filter(player => !player.alive).forEach(player => {
+        deadPlayerRoles[player.username] = player.role;
+    });
+    
+    displayPlayersInList(players, deadPlayerRoles);
+}
+
+function displayPlayersInList(players, deadPlayerRoles) {
+    const playersList = document.getElementById('playersList');
+    playersList.innerHTML = '';
+    
+    players.forEach(player => {
+        const playerDiv = document.createElement('div');
+        playerDiv.className = 'player-item';
+        if (!player.alive) {
+            playerDiv.classList.add('player-dead');
+        }
+        
+        let playerText = player.username;
+        if (player.username === username) {
+            playerText += ' (You)';
+        }
+        if (!player.alive) {
+            const role = deadPlayerRoles[player.username];
+            if (role) {
+                const roleColor = role === 'MAFIA' ? 'text-danger' : 
+                                role === 'DOCTOR' ? 'text-success' : 
+                                role === 'DETECTIVE' ? 'text-info' : 'text-secondary';
+                playerDiv.innerHTML = `<span>${player.username}${player.username === username ? ' (You)' : ''}</span> <span class="${roleColor}">(Dead - ${role})</span>`;
+                
+                // Trigger elimination animation for newly dead players
+                if (window.lastKnownPlayers) {
+                    const wasAliveLastTime = window.lastKnownPlayers.find(p => p.username === player.username)?.alive;
+                    if (wasAliveLastTime === true) {
+                        // Player was alive last time, now dead - show elimination
+                        showEliminationAnimation(player.username, role);
+                    }
+                }
+            } else {
+                playerDiv.textContent = playerText + ' (Dead)';
+            }
+        } else {
+            playerDiv.textContent = playerText;
+        }
+        
+        playersList.appendChild(playerDiv);
+    });
+    
+    // Store current players state
+    window.lastKnownPlayers = players;
+}
+
+function showDayPhase() {
+    document.getElementById('dayPhase').style.display = 'block';
+    document.getElementById('nightPhase').style.display = 'none';
+    document.getElementById('gameOver').style.display = 'none';
+    
+    if (!isPlayerAlive) {
+        document.getElementById('dayPhase').innerHTML = `
+            <div class="alert alert-secondary">
+                <h4>Day Phase - Spectator Mode</h4>
+                <p><strong>You are dead and watching the game.</strong></p>
+                <p>The living players are discussing and voting to eliminate someone they suspect is Mafia.</p>
+                <p>You cannot participate but can observe the proceedings.</p>
+            </div>
+            <div id="votingStatus" class="mt-3">
+                <h5>Voting Status:</h5>
+                <div id="votesList"></div>
+            </div>
+        `;
+    }
+}
+
+function showNightPhase() {
+    document.getElementById('dayPhase').style.display = 'none';
+    document.getElementById('nightPhase').style.display = 'block';
+    document.getElementById('gameOver').style.display = 'none';
+    
+    const nightActions = document.getElementById('nightActions');
+    if (!isPlayerAlive) {
+        nightActions.innerHTML = `
+            <div class="alert alert-secondary">
+                <h4>Night Phase - Spectator Mode</h4>
+                <p><strong>You are dead and watching the game.</strong></p>
+                <p>The living players with special roles are performing their night actions.</p>
+                <p>Wait for the day phase to see the results of tonight's actions.</p>
+            </div>
+        `;
+        return;
+    }
+    
+    if (currentPlayerRole === 'MAFIA') {
+        nightActions.innerHTML = `
+            <div class="alert alert-danger">
+                <h5>Mafia Night Action</h5>
+                <p>Vote for a player to eliminate tonight.</p>
+                <div class="mt-3">
+                    <label for="mafiaTarget">Your vote to eliminate:</label>
+                    <select id="mafiaTarget" class="form-select mb-2">
+                        <option value="">Select a player...</option>
+                    </select>
+                    <button id="mafiaActionBtn" class="btn btn-danger">Submit Vote</button>
+                </div>
+            </div>
+        `;
+        loadMafiaTargets();
+        document.getElementById('mafiaActionBtn').addEventListener('click', function() {
+            const target = document.getElementById('mafiaTarget').value;
+            if (!target) {
+                    alert('Please select a target to eliminate.');
+                return;
+            }
+            submitNightAction('KILL', target);
+        });
+    } else if (currentPlayerRole === 'DOCTOR') {
+        nightActions.innerHTML = `
+            <div class="alert alert-success">
+                <h5>Doctor Night Action</h5>
+                <p>Choose a player to save tonight.</p>
+                <div class="mt-3">
+                    <label for="doctorTarget">Player to save:</label>
+                    <select id="doctorTarget" class="form-select mb-2">
+                        <option value="">Select a player...</option>
+                    </select>
+                    <button id="doctorActionBtn" class="btn btn-success">Save Player</button>
+                </div>
+            </div>
+        `;
+        loadDoctorTargets();
+        document.getElementById('doctorActionBtn').addEventListener('click', function() {
+            const target = document.getElementById('doctorTarget').value;
+            if (!target) {
+                    alert('Please select a player to save.');
+                return;
+            }
+            submitNightAction('SAVE', target);
+        });
+    } else if (currentPlayerRole === 'DETECTIVE') {
+        nightActions.innerHTML = `
+            <div class="alert alert-info">
+                <h5>Detective Night Action</h5>
+                <p>Choose a player to investigate tonight.</p>
+                <div class="mt-3">
+                    <label for="detectiveTarget">Player to investigate:</label>
+                    <select id="detectiveTarget" class="form-select mb-2">
+                        <option value="">Select a player...</option>
+                    </select>
+                    <button id="detectiveActionBtn" class="btn btn-info">Investigate Player</button>
+                </div>
+            </div>
+        `;
+        loadDetectiveTargets();
+        document.getElementById('detectiveActionBtn').addEventListener('click', function() {
+            const target = document.getElementById('detectiveTarget').value;
+            if (!target) {
+                    alert('Please select a player to investigate.');
+                return;
+            }
+            submitNightAction('INVESTIGATE', target);
+        });
+    } else {
+        nightActions.innerHTML = `
+            <div class="alert alert-secondary">
+                <h5>Night Time</h5>
+                <p>Sleep tight! The night actions are being performed by special roles.</p>
+                <p>Wait for the day phase to begin where you can participate in discussions and voting.</p>
+            </div>
+        `;
+    }
+}
+
+function loadMafiaTargets() {
+    fillTargetSelect('mafiaTarget', false);
+}
+
+function loadDoctorTargets() {
+    fillTargetSelect('doctorTarget', true);
+}
+
+function loadDetectiveTargets() {
+    fillTargetSelect('detectiveTarget', false);
+}
+
+function fillTargetSelect(selectId, includeSelf) {
+    const targetSelect = document.getElementById(selectId);
+    if (!targetSelect || !gameStateClient.state) {
+        return;
+    }
+    targetSelect.innerHTML = '<option value="">Select a player...</option>';
+    gameStateClient.state.players.forEach(player => {
+        if ((includeSelf || player.username !== username) && player.alive) {
+            const option = document.createElement('option');
+            option.value = player.username;
+            option.textContent = player.username;
+            targetSelect.appendChild(option);
+        }
+    });
+}
+
+function submitNightAction(actionType, targetUsername) {
+    const nightActionData = {
+        actorUsername: username,
+        targetUsername: targetUsername,
+        actionType: actionType
+    };
+    
+    fetch(`/api/game-logic/${gameCode}/night-action`, {
+        method: 'POST',
+        headers: {
+            'Content-Type': 'application/json'
+        },
+        body: JSON.stringify(nightActionData)
+    })
+    .then(response => {
+        if (response.ok) {
+                hasActedThisNight = true;
+            alert('Action submitted successfully!');
+                if (window.soundManager) {
+                window.soundManager.playGameEvent('NIGHT_ACTION', { role: currentPlayerRole });
+            }
+        } else {
+            return response.json().then(error => {
+                throw new Error(error.message || 'Failed to perform night action');
+            });
+        }
+    })
+    .catch(error => {
+        console.error('Error performing night action:', error);
+        alert('Error: ' + error.message);
+    });
+}
+
+function showGameOver(winner) {
+    document.getElementById('dayPhase').style.display = 'none';
+    document.getElementById('nightPhase').style.display = 'none';
+    document.getElementById('gameOver').style.display = 'block';
+    
+    const winnerMessage = document.getElementById('winnerMessage');
+    if (winner === 'MAFIA') {
+        winnerMessage.innerHTML = '<h5 class="text-danger">Mafia Wins!</h5><p>The Mafia has successfully taken over the town.</p>';
+    } else if (winner === 'CITIZENS') {
+        winnerMessage.innerHTML = '<h5 class="text-success">Citizens Win!</h5><p>All Mafia members have been eliminated!</p>';
+    } else {
+        winnerMessage.innerHTML = '<h5 class="text-info">Game Over!</h5><p>The game has ended.</p>';
+        }
+    }
+    
+function renderVotingStatus(votingStatus) {
+    const votesList = document.getElementById('votesList');
+    if (!votesList) return;
+    
+    votesList.innerHTML = '';
+    
+    Object.entries(votingStatus).forEach(([playerName, status]) => {
+        const statusDiv = document.createElement('div');
+        statusDiv.className = 'vote-status-item d-flex justify-content-between align-items-center p-2 mb-1 bg-light rounded';
+        
+        let statusClass = 'text-warning';
+        if (status.startsWith('Voted')) {
+            statusClass = 'text-success';
+        }
+        
+        statusDiv.innerHTML = `
+            <span>${playerName}:</span>
+            <span class="${statusClass}">${status}</span>
+        `;
+        votesList.appendChild(statusDiv);
+    });
+}
+
+function loadActionHistory() {
+    fetch(`/api/history/game/${gameCode}`)
+        .then(response => {
+            if (!response.ok) {
+                throw new Error('Failed to load action history');
+            }
+            return response.json();
+        })
+        .then(actions => {
+            displayActionHistory(actions);
+        })
+        .catch(error => {
+            console.error('Error loading action history:', error);
+            document.getElementById('actionHistoryPanel').innerHTML = 
+                '<p class="text-muted small">Unable to load action history</p>';
+        });
+}
+
+function displayActionHistory(actions) {
+    const panel = document.getElementById('actionHistoryPanel');
+    
+    if (!actions || actions.length === 0) {
+        panel.innerHTML = '<p class="text-muted small">No actions recorded yet</p>';
+        return;
+    }
+    
+    actions.sort((a, b) => new Date(b.timestamp) - new Date(a.timestamp));
+    const recentActions = actions.slice(0, 5);
+
+    let html = '';
+    recentActions.forEach(action => {
+        const time = new Date(action.timestamp).toLocaleTimeString();
+        html += `
+            <div class="small mb-2 p-2 border-bottom">
+                <div class="text-muted">${time} - Day ${action.day}</div>
+                <div>${action.details || 'No details available'}</div>
+            </div>
+        `;
+    });
+
+    panel.innerHTML = html;
+}
+
+function startPhaseTimer() {
+    // Clear any existing timer
+    clearTimer();
+    
+    const timerElement = document.getElementById('phaseTimer');
+    const timerText = document.getElementById('timerText');
+    const progressBar = document.getElementById('timerProgressBar');
+    const timer = gameStateClient.state ? gameStateClient.state.timer : null;
+    
+    if (!timer || !timer.active || gameStateClient.remainingSeconds() <= 0) {
+        // No timer active or time expired
+        timerElement.style.display = 'none';
+        return;
+    }
+    
+    const totalTime = timer.totalSeconds || (currentPhase === 'DAY' ? DAY_PHASE_DURATION : NIGHT_PHASE_DURATION);
+    
+    // Show timer
+    timerElement.style.display = 'block';
+    timerElement.className = 'mt-3 alert alert-info';
+    progressBar.className = 'timer-progress-bar';
+    
+    const tick = () => {
+        // Recomputed from the server deadline each second, so the countdown never drifts
+        const timeLeft = gameStateClient.remainingSeconds();
+        const minutes = Math.floor(timeLeft / 60);
+        const seconds = timeLeft % 60;
+        timerText.textContent = `${minutes}:${seconds.toString().padStart(2, '0')}`;
+        
+        // Update progress bar
+        const progressPercent = (timeLeft / totalTime) * 100;
+        progressBar.style.width = `${progressPercent}%`;
+        
+        // Change color based on time remaining
+        if (timeLeft <= 10) {
+            timerElement.className = 'mt-3 alert alert-danger';
+            progressBar.className = 'timer-progress-bar bg-danger';
+        } else if (timeLeft <= 30) {
+            timerElement.className = 'mt-3 alert alert-warning';
+            progressBar.className = 'timer-progress-bar bg-warning';
+        }
+        
+        if (timeLeft <= 0) {
+            clearTimer();
+            timerElement.style.display = 'none';
+        }
+    };
+    tick();
+    phaseTimer = setInterval(tick, 1000);
+}
+
+function clearTimer() {
+    if (phaseTimer) {
+        clearInterval(phaseTimer);
+        phaseTimer = null;
+    }
+}
+
+function toggleSound() {
+    if (window.soundManager) {
+        const enabled = window.soundManager.toggle();
+        const icon = document.getElementById('soundToggleIcon');
+        const btn = document.getElementById('soundToggleBtn');
+        if (enabled) {
+            icon.className = 'fas fa-volume-up';
+            btn.classList.remove('btn-outline-danger');
+            btn.classList.add('btn-outline-light');
+                } else {
+            icon.className = 'fas fa-volume-mute';
+            btn.classList.remove('btn-outline-light');
+            btn.classList.add('btn-outline-danger');
+        }
+    }
+}
+
+// Event Listeners
+document.getElementById('voteBtn').addEventListener('click', function() {
+    if (!isPlayerAlive) {
+        alert('Dead players cannot vote! You are in spectator mode.');
+                return;
+            }
+            
+    const selectedPlayer = document.getElementById('voteSelect').value;
+    if (!selectedPlayer) {
+        alert('Please select a player to vote for.');
+        return;
+    }
+    
+            const voteData = {
+                voterUsername: username,
+                targetUsername: selectedPlayer,
+                skip: false
+            };
+            
+            fetch(`/api/game-logic/${gameCode}/vote`, {
+                method: 'POST',
+                headers: {
+                    'Content-Type': 'application/json'
+                },
+                body: JSON.stringify(voteData)
+            })
+            .then(response => {
+                if (response.ok) {
+                        alert(`Successfully voted for ${selectedPlayer}`);
+                    document.getElementById('voteSelect').value = '';
+                } else {
+                    return response.json().then(error => {
+                        throw new Error(error.message || 'Failed to vote');
+                    });
+                }
+            })
+            .catch(error => {
+                console.error('Error voting:', error);
+                    alert('Error: ' + error.message);
+        });
+});
+
+document.getElementById('skipVoteBtn').addEventListener('click', function() {
+    if (!isPlayerAlive) {
+        alert('Dead players cannot vote! You are in spectator mode.');
+        return;
+    }
+    
+            const voteData = {
+                voterUsername: username,
+                targetUsername: null,
+                skip: true
+            };
+            
+            fetch(`/api/game-logic/${gameCode}/vote`, {
+                method: 'POST',
+                headers: {
+                    'Content-Type': 'application/json'
+                },
+                body: JSON.stringify(voteData)
+            })
+            .then(response => {
+                if (response.ok) {
+                        alert('Successfully skipped vote');
+                } else {
+                    return response.json().then(error => {
+                        throw new Error(error.message || 'Failed to skip vote');
+                    });
+                }
+            })
+            .catch(error => {
+                console.error('Error skipping vote:', error);
+                    alert('Error: ' + error.message);
+        });
+});
+
+document.getElementById('refreshBtn').addEventListener('click', loadGameState);
+
+// Initialize game
+document.addEventListener('DOMContentLoaded', function() {
+    setTimeout(() => {
+        // Initialize chat only once
+        if (typeof initializeChat === 'function' && !chatInitialized) {
+            initializeChat(gameCode, username);
+            chatInitialized = true;
+        }
+        
+        // Role is private and fetched once; everything else is pushed over the state topic
+        gameStateClient = new GameStateClient(gameCode, renderGameState);
+        loadRole().then(() => gameStateClient.connect());
+
+        if (window.soundManager) {
+            const settings = window.soundManager.getSettings();
+            const icon = document.getElementById('soundToggleIcon');
+            const btn = document.getElementById('soundToggleBtn');
+            if (!settings.enabled) {
+                icon.className = 'fas fa-volume-mute';
+                btn.classList.remove('btn-outline-light');
+                btn.classList.add('btn-outline-danger');
+            }
+        }
+    }, 100);
+});
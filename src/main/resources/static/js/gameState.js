@@ -0,0 +1,156 @@
+/**
+ * Live game state over STOMP.
+ *
+ * Keeps a local copy of the public game state: a full snapshot is requested from
+ * /app/game/{code}/state, after which sequenced deltas on /topic/game/{code}/state
+ * are applied in order. A missing sequence number triggers a fresh snapshot.
+ *
+ * Usage:
+ *   const client = new GameStateClient(gameCode, (state, changes) => { ... });
+ *   client.connect();
+ * `changes` is null for a snapshot, or the list of changes in a delta. An optional third
+ * argument is called with true/false as the connection comes and goes.
+ */
+class GameStateClient {
+    constructor(gameCode, onState, onConnection) {
+        this.gameCode = gameCode;
+        this.onState = onState;
+        this.onConnection = onConnection || (() => {});
+        this.stompClient = null;
+        this.state = null;
+        this.sequence = -1;
+        this.pending = [];
+        this.syncing = false;
+        this.serverOffset = 0;
+    }
+
+    connect() {
+        const socket = new SockJS('/ws');
+        this.stompClient = Stomp.over(socket);
+        this.stompClient.debug = null;
+
+        this.stompClient.connect({},
+            () => {
+                this.onConnection(true);
+                this.stompClient.subscribe(`/topic/game/${this.gameCode}/state`, (message) => {
+                    this.handleDelta(JSON.parse(message.body));
+                });
+                this.resync();
+            },
+            (error) => {
+                console.error('Game state connection error:', error);
+                this.onConnection(false);
+                // Reconnect and start over from a snapshot
+                this.state = null;
+                this.syncing = false;
+                this.pending = [];
+                setTimeout(() => this.connect(), 5000);
+            }
+        );
+    }
+
+    disconnect() {
+        if (this.stompClient) {
+            this.stompClient.disconnect();
+        }
+    }
+
+    /**
+     * Request a full snapshot; deltas arriving meanwhile are held back until it lands
+     */
+    resync() {
+        if (!this.stompClient || !this.stompClient.connected || this.syncing) {
+            return;
+        }
+        this.syncing = true;
+        const subscription = this.stompClient.subscribe(`/app/game/${this.gameCode}/state`, (message) => {
+            subscription.unsubscribe();
+            this.syncing = false;
+            this.applySnapshot(JSON.parse(message.body));
+        });
+    }
+
+    applySnapshot(message) {
+        this.state = message.snapshot;
+        this.sequence = message.sequence;
+        this.serverOffset = message.serverTime - Date.now();
+        this.onState(this.state, null);
+
+        const pending = this.pending;
+        this.pending = [];
+        pending.forEach(delta => this.handleDelta(delta));
+    }
+
+    handleDelta(message) {
+        if (this.syncing || this.state === null) {
+            this.pending.push(message);
+            return;
+        }
+        if (message.sequence <= this.sequence) {
+            return; // already contained in the snapshot
+        }
+        if (message.sequence !== this.sequence + 1) {
+            console.warn(`Game state sequence gap (${this.sequence} -> ${message.sequence}), resyncing`);
+            this.state = null;
+            this.resync();
+            return;
+        }
+
+        this.sequence = message.sequence;
+        this.serverOffset = message.serverTime - Date.now();
+        message.changes.forEach(change => this.applyChange(change));
+        this.onState(this.state, message.changes);
+    }
+
+    applyChange(change) {
+        const state = this.state;
+        const data = change.data;
+        switch (change.type) {
+            case 'GAME_STATE':
+                state.gameState = data.gameState;
+                state.winner = data.winner;
+                break;
+            case 'PHASE_CHANGED':
+                state.currentPhase = data.phase === 'DAY' ? 0 : 1;
+                state.currentDay = data.day;
+                break;
+            case 'PLAYER_JOINED':
+                state.players.push({ username: data.username, alive: data.alive, role: null });
+                break;
+            case 'PLAYER_LEFT':
+                state.players = state.players.filter(p => p.username !== data.username);
+                break;
+            case 'PLAYER_DIED': {
+                const player = state.players.find(p => p.username === data.username);
+                if (player) {
+                    player.alive = false;
+                    player.role = data.role;
+                }
+                break;
+            }
+            case 'VOTE_STATUS':
+                if (data.status === null) {
+                    delete state.votes[data.username];
+                } else {
+                    state.votes[data.username] = data.status;
+                }
+                break;
+            case 'TIMER':
+                state.timer = { active: data.active, totalSeconds: data.totalSeconds, endsAt: data.endsAt };
+                break;
+            default:
+                console.warn('Unknown game state change:', change.type);
+        }
+    }
+
+    /**
+     * Seconds left in the current phase, corrected for the server clock
+     */
+    remainingSeconds() {
+        if (!this.state || !this.state.timer.active) {
+            return 0;
+        }
+        const remaining = (this.state.timer.endsAt - (Date.now() + this.serverOffset)) / 1000;
+        return Math.max(0, Math.ceil(remaining));
+    }
+}
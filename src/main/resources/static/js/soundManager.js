@@ -49,7 +49,7 @@ class SoundManager {
     }
     
     /**
-     * Load all sound files
+     * Load all sounds: from the sprite when the browser has Web Audio, otherwise file by file
      */
     loadSounds() {
         const soundFiles = {
@@ -86,6 +86,81 @@ class SoundManager {
             'ambient-night': { file: 'ambient-night.wav', category: 'ambient', loop: true }
         };
         
+        Object.entries(soundFiles).forEach(([name, config]) => {
+            this.sounds.set(name, {
+                audio: null,
+                category: config.category,
+                loop: config.loop || false,
+                loaded: false
+            });
+        });
+        
+        this.loadSprite(soundFiles).catch(error => {
+            console.warn('Sound sprite unavailable, loading sounds one by one:', error);
+            this.loadFiles(soundFiles);
+        });
+    }
+    
+    /**
+     * Load every sound from one sprite request: /sounds/sprite.json tells where each file lies in it
+     */
+    async loadSprite(soundFiles) {
+        const AudioContextClass = window.AudioContext || window.webkitAudioContext;
+        if (!AudioContextClass || !window.fetch) {
+            throw new Error('Web Audio API not supported');
+        }
+        
+        const manifestResponse = await fetch('/sounds/sprite.json');
+        if (!manifestResponse.ok) {
+            throw new Error(`manifest returned ${manifestResponse.status}`);
+        }
+        const manifest = await manifestResponse.json();
+        const spriteResponse = await fetch(manifest.url);
+        if (!spriteResponse.ok) {
+            throw new Error(`sprite returned ${spriteResponse.status}`);
+        }
+        const data = await spriteResponse.arrayBuffer();
+        
+        if (!this.audioContext) {
+            this.audioContext = new AudioContextClass();
+        }
+        // Callback form: older Safari does not return a promise
+        this.spriteBuffer = await new Promise((resolve, reject) => {
+            this.audioContext.decodeAudioData(data, resolve, reject);
+        });
+        
+        const missing = {};
+        Object.entries(soundFiles).forEach(([name, config]) => {
+            const segment = manifest.sounds[config.file];
+            if (!segment) {
+                missing[name] = config;
+                return;
+            }
+            const gain = this.audioContext.createGain();
+            gain.gain.value = this.volume * this.categories[config.category];
+            gain.connect(this.audioContext.destination);
+            this.sounds.set(name, {
+                audio: null,
+                segment: segment,
+                gain: gain,
+                source: null,
+                category: config.category,
+                loop: config.loop || false,
+                loaded: true
+            });
+        });
+        console.log(`Loaded ${Object.keys(soundFiles).length - Object.keys(missing).length} sounds from sprite`);
+        
+        // Sounds not in the sprite still load on their own
+        if (Object.keys(missing).length > 0) {
+            this.loadFiles(missing);
+        }
+    }
+    
+    /**
+     * Load sound files one request each
+     */
+    loadFiles(soundFiles) {
         Object.entries(soundFiles).forEach(([name, config]) => {
             const audio = new Audio(`/sounds/${config.file}`);
             audio.volume = this.volume * this.categories[config.category];
@@ -165,11 +240,14 @@ class SoundManager {
             return;
         }
         
-        const audio = sound.audio;
-        audio.currentTime = 0;
-        
         // Apply volume adjustments
         const volumeMultiplier = options.volume || 1;
+        if (sound.segment) {
+            return this.playSegment(sound, volumeMultiplier);
+        }
+        
+        const audio = sound.audio;
+        audio.currentTime = 0;
         audio.volume = this.volume * this.categories[sound.category] * volumeMultiplier;
         
         // Play the sound
@@ -185,6 +263,48 @@ class SoundManager {
         return audio;
     }
     
+    /**
+     * Play a sound's part of the sprite; looping sounds repeat just their part
+     */
+    playSegment(sound, volumeMultiplier) {
+        // Resume audio context if suspended (browser autoplay policy)
+        if (this.audioContext.state === 'suspended') {
+            this.audioContext.resume();
+        }
+        // Restart rather than overlap, like rewinding an audio element
+        this.stopSegment(sound);
+        
+        const source = this.audioContext.createBufferSource();
+        source.buffer = this.spriteBuffer;
+        source.connect(sound.gain);
+        sound.gain.gain.value = this.volume * this.categories[sound.category] * volumeMultiplier;
+        
+        const { start, duration } = sound.segment;
+        if (sound.loop) {
+            source.loop = true;
+            source.loopStart = start;
+            source.loopEnd = start + duration;
+            source.start(0, start);
+        } else {
+            source.start(0, start, duration);
+        }
+        source.onended = () => {
+            if (sound.source === source) {
+                sound.source = null;
+            }
+        };
+        sound.source = source;
+        return source;
+    }
+    
+    stopSegment(sound) {
+        if (sound.source) {
+            sound.source.onended = null;
+            sound.source.stop();
+            sound.source = null;
+        }
+    }
+    
     /**
      * Create a simple beep fallback using Web Audio API
      */
@@ -246,7 +366,9 @@ class SoundManager {
      */
     stop(soundName) {
         const sound = this.sounds.get(soundName);
-        if (sound) {
+        if (sound && sound.segment) {
+            this.stopSegment(sound);
+        } else if (sound && sound.audio) {
             sound.audio.pause();
             sound.audio.currentTime = 0;
         }
@@ -297,7 +419,12 @@ class SoundManager {
      */
     updateAllVolumes() {
         this.sounds.forEach((sound) => {
-            sound.audio.volume = this.volume * this.categories[sound.category];
+            const volume = this.volume * this.categories[sound.category];
+            if (sound.gain) {
+                sound.gain.gain.value = volume;
+            } else if (sound.audio) {
+                sound.audio.volume = volume;
+            }
         });
     }
     
@@ -0,0 +1,131 @@
+package com.victadore.webmafia.mafia_web_of_lies.controller;
+
+import com.victadore.webmafia.mafia_web_of_lies.service.SoundAssets;
+import com.victadore.webmafia.mafia_web_of_lies.util.AcceptEncoding;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Encoding selection, ETag revalidation and Range requests for the in-memory sounds
+ */
+class SoundControllerTest {
+    private SoundAssets soundAssets;
+    private MockMvc mockMvc;
+    private SoundAssets.Sound sound;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        soundAssets = new SoundAssets();
+        soundAssets.load();
+        mockMvc = MockMvcBuilders.standaloneSetup(new SoundController(soundAssets)).build();
+
+        // A tone that compresses well enough to keep a gzip variant
+        sound = soundAssets.find("timer-warning.wav").orElseThrow();
+        assertNotNull(sound.gzip());
+    }
+
+    @Test
+    void servesGzipWhenAccepted() throws Exception {
+        byte[] body = mockMvc.perform(get("/sounds/" + sound.filename()).header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+            .andExpect(header().string(HttpHeaders.ETAG, sound.etag("gzip")))
+            .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+            .andReturn().getResponse().getContentAsByteArray();
+
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            assertArrayEquals(sound.data(), in.readAllBytes());
+        }
+    }
+
+    @Test
+    void servesIdentityWhenGzipIsRefused() throws Exception {
+        for (String acceptEncoding : new String[] {"gzip;q=0", "identity", "br;q=1, gzip;q=0.0, *"}) {
+            if (sound.brotli() != null && acceptEncoding.contains("br")) {
+                continue;
+            }
+            mockMvc.perform(get("/sounds/" + sound.filename()).header(HttpHeaders.ACCEPT_ENCODING, acceptEncoding))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(header().string(HttpHeaders.ETAG, sound.etag("identity")))
+                .andExpect(content().bytes(sound.data()));
+        }
+        mockMvc.perform(get("/sounds/" + sound.filename()))
+            .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+            .andExpect(content().bytes(sound.data()));
+    }
+
+    @Test
+    void matchingEtagIsNotModified() throws Exception {
+        mockMvc.perform(get("/sounds/" + sound.filename())
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .header(HttpHeaders.IF_NONE_MATCH, sound.etag("gzip")))
+            .andExpect(status().isNotModified())
+            .andExpect(content().bytes(new byte[0]));
+
+        // The ETag of another encoding does not match
+        mockMvc.perform(get("/sounds/" + sound.filename())
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .header(HttpHeaders.IF_NONE_MATCH, sound.etag("identity")))
+            .andExpect(status().isOk());
+    }
+
+    @Test
+    void rangeGetsUnencodedBytes() throws Exception {
+        byte[] expected = Arrays.copyOfRange(sound.data(), 10, 110);
+        mockMvc.perform(get("/sounds/" + sound.filename())
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .header(HttpHeaders.RANGE, "bytes=10-109"))
+            .andExpect(status().isPartialContent())
+            .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+            .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 10-109/" + sound.data().length))
+            .andExpect(content().bytes(expected));
+    }
+
+    @Test
+    void unknownSoundIsNotFound() throws Exception {
+        mockMvc.perform(get("/sounds/no-such-sound.wav")).andExpect(status().isNotFound());
+    }
+
+    @Test
+    void spriteManifestPointsAtTheSprite() throws Exception {
+        SoundAssets.Sprite sprite = soundAssets.sprite().orElseThrow();
+        mockMvc.perform(get("/sounds/sprite.json"))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, sprite.sound().etag("identity")))
+            .andExpect(content().string(containsString("/sounds/" + sprite.sound().filename())));
+    }
+
+    @Test
+    void acceptEncodingParsing() {
+        assertTrue(AcceptEncoding.accepts("gzip", "gzip"));
+        assertTrue(AcceptEncoding.accepts("deflate, GZIP;q=0.5", "gzip"));
+        assertTrue(AcceptEncoding.accepts("*", "br"));
+        assertTrue(AcceptEncoding.accepts("gzip;level=1;q=1", "gzip"));
+        assertFalse(AcceptEncoding.accepts(null, "gzip"));
+        assertFalse(AcceptEncoding.accepts("", "gzip"));
+        assertFalse(AcceptEncoding.accepts("gzip;q=0", "gzip"));
+        assertFalse(AcceptEncoding.accepts("gzip; q=0.000", "gzip"));
+        assertFalse(AcceptEncoding.accepts("*, gzip;q=0", "gzip"));
+        assertFalse(AcceptEncoding.accepts("br, *;q=0", "gzip"));
+        assertFalse(AcceptEncoding.accepts("gzipped", "gzip"));
+    }
+}
@@ -0,0 +1,439 @@
+package com.victadore.webmafia.mafia_web_of_lies.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * One game played start to finish by bots.
+ *
+ * Every bot has its own STOMP connection subscribed to the game's event, chat and state topics, like a
+ * browser on the game page. The creator's state subscription drives the game: whenever the phase changes,
+ * each living bot chats and then votes or performs its night action over REST. Everyone votes the same
+ * random player out by day, and the Mafia agree on one victim by night, so games end in a few rounds.
+ */
+class BotGame {
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final BotLoadGenerator.Options options;
+    private final HttpClient httpClient;
+    private final LoadMetrics metrics;
+    private final List<Bot> bots = new ArrayList<>();
+    private String gameCode;
+
+    // Public game state as seen by the creator's state subscription
+    private final ReentrantLock stateLock = new ReentrantLock();
+    private final Condition stateChanged = stateLock.newCondition();
+    private final Set<String> alive = new HashSet<>();
+    private final List<JsonNode> pendingDeltas = new ArrayList<>();
+    private long sequence = -1;
+    private String gameState = "WAITING";
+    private int day;
+    private int phase;
+
+    // When each bot last voted, for measuring how long the resulting broadcasts take to arrive
+    private final Map<String, Long> voteSentAt = new ConcurrentHashMap<>();
+
+    BotGame(BotLoadGenerator.Options options, HttpClient httpClient, LoadMetrics metrics, int index) {
+        this.options = options;
+        this.httpClient = httpClient;
+        this.metrics = metrics;
+        for (int seat = 0; seat < options.playersPerGame(); seat++) {
+            bots.add(new Bot("g" + index + "p" + seat));
+        }
+    }
+
+    /**
+     * Play the game through; returns whether it reached FINISHED
+     */
+    boolean play() throws Exception {
+        try (ExecutorService botThreads = Executors.newVirtualThreadPerTaskExecutor()) {
+            Bot creator = bots.get(0);
+            String created = call("POST /api/games/create", "POST", "/api/games/create",
+                                  Map.of("createdBy", creator.username));
+            if (created == null) {
+                return false;
+            }
+            gameCode = JSON.readTree(created).get("gameCode").asText();
+
+            runAll(botThreads, bots.subList(1, bots.size()), bot ->
+                call("POST /api/games/join", "POST", "/api/games/join",
+                     Map.of("gameCode", gameCode, "username", bot.username)));
+            runAll(botThreads, bots, this::connect);
+            awaitSnapshot();
+
+            if (call("POST /api/games/{code}/start", "POST",
+                     "/api/games/" + gameCode + "/start?username=" + creator.username, null) == null) {
+                return false;
+            }
+            runAll(botThreads, bots, this::loadRole);
+
+            String lastPhase = "WAITING";
+            while (true) {
+                String current = awaitPhaseChange(lastPhase);
+                if (current == null) {
+                    metrics.increment("phase timeouts");
+                    return false;
+                }
+                if (current.startsWith("FINISHED")) {
+                    return true;
+                }
+                lastPhase = current;
+
+                List<String> living = livingPlayers();
+                if (phase == 1) {
+                    playNight(botThreads, living);
+                } else {
+                    playDay(botThreads, living);
+                }
+            }
+        } finally {
+            bots.forEach(bot -> {
+                if (bot.stomp != null) {
+                    bot.stomp.close();
+                }
+            });
+        }
+    }
+
+    private Object connect(Bot bot) throws Exception {
+        long start = System.nanoTime();
+        bot.stomp = StompConnection.open(httpClient, URI.create(options.webSocketUrl()), options.requestTimeoutMillis());
+        metrics.latency("STOMP connect").record(System.nanoTime() - start);
+
+        bot.stomp.subscribe("/topic/game/" + gameCode, this::onGameEvent);
+        bot.stomp.subscribe("/topic/game/" + gameCode + "/chat", this::onChat);
+        boolean tracker = bot == bots.get(0);
+        bot.stomp.subscribe("/topic/game/" + gameCode + "/state", frame -> onState(frame, tracker));
+        if (tracker) {
+            bot.stomp.subscribe("/app/game/" + gameCode + "/state", frame -> onState(frame, true));
+        }
+        return null;
+    }
+
+    private Object loadRole(Bot bot) throws Exception {
+        String body = call("GET /api/games/{code}/player/{username}/role", "GET",
+                           "/api/games/" + gameCode + "/player/" + bot.username + "/role", null);
+        if (body != null) {
+            bot.role = JSON.readTree(body).get("role").asText();
+            if ("MAFIA".equals(bot.role)) {
+                bot.stomp.subscribe("/topic/game/" + gameCode + "/chat/MAFIA", this::onChat);
+            }
+        }
+        return null;
+    }
+
+    private void playNight(ExecutorService botThreads, List<String> living) throws Exception {
+        List<String> town = new ArrayList<>();
+        for (Bot bot : bots) {
+            if (living.contains(bot.username) && !"MAFIA".equals(bot.role)) {
+                town.add(bot.username);
+            }
+        }
+        if (town.isEmpty()) {
+            return;
+        }
+        String victim = pick(town);
+
+        List<Bot> actors = livingBots(living);
+        runAll(botThreads, actors, bot -> {
+            thinkTime();
+            switch (bot.role == null ? "CITIZEN" : bot.role) {
+                case "MAFIA" -> {
+                    chat(bot, "PRIVATE", "MAFIA");
+                    nightAction(bot, "KILL", victim);
+                }
+                case "DOCTOR" -> nightAction(bot, "SAVE", pick(living));
+                case "DETECTIVE" -> nightAction(bot, "INVESTIGATE", pickOther(living, bot.username));
+                default -> { }
+            }
+            return null;
+        });
+    }
+
+    private void playDay(ExecutorService botThreads, List<String> living) throws Exception {
+        String accused = pick(living);
+        runAll(botThreads, livingBots(living), bot -> {
+            thinkTime();
+            chat(bot, "PUBLIC", null);
+            String target = bot.username.equals(accused) ? pickOther(living, bot.username) : accused;
+            voteSentAt.put(bot.username, System.nanoTime());
+            call("POST /api/game-logic/{code}/vote", "POST", "/api/game-logic/" + gameCode + "/vote",
+                 Map.of("voterUsername", bot.username, "targetUsername", target, "skip", false));
+            return null;
+        });
+    }
+
+    private void nightAction(Bot bot, String actionType, String target) throws Exception {
+        call("POST /api/game-logic/{code}/night-action", "POST", "/api/game-logic/" + gameCode + "/night-action",
+             Map.of("actorUsername", bot.username, "targetUsername", target, "actionType", actionType));
+    }
+
+    /**
+     * Chat over STOMP; the send time rides along in the text so receivers can measure fan-out latency
+     */
+    private void chat(Bot bot, String chatType, String targetRole) throws Exception {
+        Map<String, Object> payload = new java.util.HashMap<>();
+        payload.put("username", bot.username);
+        payload.put("message", "bot " + bot.username + " says hi @" + System.nanoTime());
+        payload.put("chatType", chatType);
+        if (targetRole != null) {
+            payload.put("targetRole", targetRole);
+        }
+        bot.stomp.send("/app/game/" + gameCode + "/chat", JSON.writeValueAsString(payload));
+        metrics.increment("chat messages sent");
+    }
+
+    private void onChat(StompConnection.Frame frame) {
+        long now = System.nanoTime();
+        try {
+            String message = JSON.readTree(frame.body()).path("message").asText();
+            int at = message.lastIndexOf('@');
+            if (at >= 0) {
+                metrics.latency("fan-out chat message").record(now - Long.parseLong(message.substring(at + 1)));
+            }
+        } catch (Exception e) {
+            metrics.increment("unparseable chat messages");
+        }
+    }
+
+    private void onGameEvent(StompConnection.Frame frame) {
+        long now = System.nanoTime();
+        try {
+            JsonNode event = JSON.readTree(frame.body());
+            String type = event.path("type").asText();
+            metrics.increment("events received " + type);
+            if ("VOTE_CAST".equals(type)) {
+                Long sentAt = voteSentAt.get(event.path("payload").path("voter").asText());
+                if (sentAt != null) {
+                    metrics.latency("fan-out VOTE_CAST event").record(now - sentAt);
+                }
+            }
+        } catch (Exception e) {
+            metrics.increment("unparseable game events");
+        }
+    }
+
+    private void onState(StompConnection.Frame frame, boolean tracker) {
+        long now = System.nanoTime();
+        JsonNode message;
+        try {
+            message = JSON.readTree(frame.body());
+        } catch (Exception e) {
+            metrics.increment("unparseable state messages");
+            return;
+        }
+        if ("DELTA".equals(message.path("type").asText())) {
+            for (JsonNode change : message.path("changes")) {
+                if ("VOTE_STATUS".equals(change.path("type").asText())) {
+                    Long sentAt = voteSentAt.get(change.path("data").path("username").asText());
+                    if (sentAt != null) {
+                        metrics.latency("fan-out VOTE_STATUS delta").record(now - sentAt);
+                    }
+                }
+            }
+        }
+        if (tracker) {
+            track(message);
+        }
+    }
+
+    private void track(JsonNode message) {
+        stateLock.lock();
+        try {
+            if ("SNAPSHOT".equals(message.path("type").asText())) {
+                JsonNode snapshot = message.path("snapshot");
+                sequence = message.path("sequence").asLong();
+                gameState = snapshot.path("gameState").asText();
+                day = snapshot.path("currentDay").asInt();
+                phase = snapshot.path("currentPhase").asInt();
+                alive.clear();
+                for (JsonNode player : snapshot.path("players")) {
+                    if (player.path("alive").asBoolean()) {
+                        alive.add(player.path("username").asText());
+                    }
+                }
+                List<JsonNode> held = new ArrayList<>(pendingDeltas);
+                pendingDeltas.clear();
+                held.forEach(this::applyDelta);
+            } else if (sequence < 0) {
+                pendingDeltas.add(message);
+            } else {
+                applyDelta(message);
+            }
+            stateChanged.signalAll();
+        } finally {
+            stateLock.unlock();
+        }
+    }
+
+    private void applyDelta(JsonNode delta) {
+        long deltaSequence = delta.path("sequence").asLong();
+        if (deltaSequence <= sequence) {
+            return;
+        }
+        if (deltaSequence != sequence + 1) {
+            metrics.increment("state sequence gaps");
+        }
+        sequence = deltaSequence;
+        for (JsonNode change : delta.path("changes")) {
+            JsonNode data = change.path("data");
+            switch (change.path("type").asText()) {
+                case "GAME_STATE" -> gameState = data.path("gameState").asText();
+                case "PHASE_CHANGED" -> {
+                    phase = "DAY".equals(data.path("phase").asText()) ? 0 : 1;
+                    day = data.path("day").asInt();
+                }
+                case "PLAYER_JOINED" -> alive.add(data.path("username").asText());
+                case "PLAYER_LEFT", "PLAYER_DIED" -> alive.remove(data.path("username").asText());
+                default -> { }
+            }
+        }
+    }
+
+    private void awaitSnapshot() throws InterruptedException {
+        stateLock.lock();
+        try {
+            long remaining = TimeUnit.MILLISECONDS.toNanos(options.requestTimeoutMillis());
+            while (sequence < 0 && remaining > 0) {
+                remaining = stateChanged.awaitNanos(remaining);
+            }
+        } finally {
+            stateLock.unlock();
+        }
+    }
+
+    /**
+     * Wait until the game moves past the given phase; returns the new phase key, or null on timeout
+     */
+    private String awaitPhaseChange(String previous) throws InterruptedException {
+        stateLock.lock();
+        try {
+            long remaining = TimeUnit.MILLISECONDS.toNanos(options.phaseTimeoutMillis());
+            while (true) {
+                String current = "FINISHED".equals(gameState) ? "FINISHED" : gameState + ":" + day + ":" + phase;
+                if (!current.equals(previous) && !"WAITING".equals(gameState)) {
+                    return current;
+                }
+                if (remaining <= 0) {
+                    return null;
+                }
+                remaining = stateChanged.awaitNanos(remaining);
+            }
+        } finally {
+            stateLock.unlock();
+        }
+    }
+
+    private List<String> livingPlayers() {
+        stateLock.lock();
+        try {
+            return new ArrayList<>(alive);
+        } finally {
+            stateLock.unlock();
+        }
+    }
+
+    private List<Bot> livingBots(List<String> living) {
+        List<Bot> result = new ArrayList<>();
+        for (Bot bot : bots) {
+            if (living.contains(bot.username)) {
+                result.add(bot);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Timed REST call; returns the body, or null for an error status
+     */
+    private String call(String metric, String method, String path, Object body) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(options.baseUrl() + path))
+            .timeout(Duration.ofMillis(options.requestTimeoutMillis()));
+        if (body != null) {
+            request.header("Content-Type", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofString(JSON.writeValueAsString(body)));
+        } else {
+            request.method(method, HttpRequest.BodyPublishers.noBody());
+        }
+
+        LatencyStats stats = metrics.latency(metric);
+        long start = System.nanoTime();
+        try {
+            HttpResponse<String> response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+            stats.record(System.nanoTime() - start);
+            if (response.statusCode() >= 400) {
+                stats.recordError();
+                return null;
+            }
+            return response.body();
+        } catch (java.io.IOException e) {
+            stats.record(System.nanoTime() - start);
+            stats.recordError();
+            return null;
+        }
+    }
+
+    private void thinkTime() throws InterruptedException {
+        if (options.thinkMillis() > 0) {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(options.thinkMillis() + 1));
+        }
+    }
+
+    private static String pick(List<String> usernames) {
+        return usernames.get(ThreadLocalRandom.current().nextInt(usernames.size()));
+    }
+
+    private static String pickOther(List<String> usernames, String self) {
+        List<String> others = new ArrayList<>(usernames);
+        others.remove(self);
+        return others.isEmpty() ? self : pick(others);
+    }
+
+    private interface BotTask {
+        Object run(Bot bot) throws Exception;
+    }
+
+    /**
+     * Run a task for every bot concurrently and wait for all of them
+     */
+    private static void runAll(ExecutorService executor, List<Bot> targets, BotTask task) throws Exception {
+        List<Future<Object>> futures = new ArrayList<>();
+        for (Bot bot : targets) {
+            Callable<Object> callable = () -> task.run(bot);
+            futures.add(executor.submit(callable));
+        }
+        for (Future<Object> future : futures) {
+            future.get();
+        }
+    }
+
+    private static class Bot {
+        private final String username;
+        private volatile String role;
+        private volatile StompConnection stomp;
+
+        Bot(String username) {
+            this.username = username;
+        }
+    }
+}
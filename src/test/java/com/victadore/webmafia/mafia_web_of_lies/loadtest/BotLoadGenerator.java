@@ -0,0 +1,138 @@
+package com.victadore.webmafia.mafia_web_of_lies.loadtest;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Headless load generator: bots play complete games against a running server over REST and STOMP.
+ *
+ * Each game gets its own set of bot players, each with its own WebSocket connection, and every bot
+ * runs on a virtual thread, so one process can drive tens of thousands of players. At the end it
+ * prints p50/p99 latency per endpoint and for broadcast fan-out (send to delivery on other bots'
+ * subscriptions), plus how many games were played to the end.
+ *
+ * Not a JUnit test; start the server with the H2 profile and run it after {@code mvn test-compile} with:
+ * <pre>
+ * ./mvnw spring-boot:run -Dspring-boot.run.profiles=h2
+ * mvn -q dependency:build-classpath -Dmdep.outputFile=cp.txt
+ * java -cp target/test-classes:target/classes:$(cat cp.txt) \
+ *     com.victadore.webmafia.mafia_web_of_lies.loadtest.BotLoadGenerator games=200 players=8
+ * </pre>
+ * Options (key=value): url, games, players, concurrency (games in flight), thinkMs (max delay before
+ * each bot acts), phaseTimeoutMs, requestTimeoutMs and botsPerClient (bots sharing one HttpClient).
+ */
+public class BotLoadGenerator {
+
+    record Options(String baseUrl, int games, int playersPerGame, int concurrency, long thinkMillis,
+                   long phaseTimeoutMillis, long requestTimeoutMillis, int botsPerClient) {
+
+        static Options parse(String[] args) {
+            Map<String, String> values = new HashMap<>();
+            for (String arg : args) {
+                int eq = arg.indexOf('=');
+                if (eq < 0) {
+                    throw new IllegalArgumentException("Expected key=value but got: " + arg);
+                }
+                values.put(arg.substring(0, eq), arg.substring(eq + 1));
+            }
+            int players = Integer.parseInt(values.getOrDefault("players", "8"));
+            if (players < 3) {
+                throw new IllegalArgumentException("A game needs at least 3 players");
+            }
+            return new Options(
+                values.getOrDefault("url", "http://localhost:8080").replaceAll("/$", ""),
+                Integer.parseInt(values.getOrDefault("games", "10")),
+                players,
+                Integer.parseInt(values.getOrDefault("concurrency", "1000")),
+                Long.parseLong(values.getOrDefault("thinkMs", "200")),
+                Long.parseLong(values.getOrDefault("phaseTimeoutMs", "120000")),
+                Long.parseLong(values.getOrDefault("requestTimeoutMs", "30000")),
+                Integer.parseInt(values.getOrDefault("botsPerClient", "500")));
+        }
+
+        String webSocketUrl() {
+            return baseUrl.replaceFirst("^http", "ws") + "/ws/websocket";
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        LoadMetrics metrics = new LoadMetrics();
+
+        // A single HttpClient multiplexes everything over one selector thread; spread bots over several
+        int clientCount = Math.max(1, options.games() * options.playersPerGame() / options.botsPerClient());
+        List<HttpClient> clients = new ArrayList<>();
+        for (int i = 0; i < clientCount; i++) {
+            clients.add(HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(options.requestTimeoutMillis()))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build());
+        }
+
+        System.out.printf("Playing %d games of %d bots against %s (%d in flight)%n",
+                          options.games(), options.playersPerGame(), options.baseUrl(), options.concurrency());
+
+        AtomicInteger finished = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        Semaphore inFlight = new Semaphore(options.concurrency());
+        long start = System.nanoTime();
+
+        Thread progress = Thread.ofPlatform().daemon().start(() -> {
+            try {
+                while (true) {
+                    Thread.sleep(5000);
+                    System.out.printf("  %ds: %d finished, %d failed%n",
+                                      (System.nanoTime() - start) / 1_000_000_000L, finished.get(), failed.get());
+                }
+            } catch (InterruptedException e) {
+                // done
+            }
+        });
+
+        try (ExecutorService games = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < options.games(); i++) {
+                int index = i;
+                inFlight.acquire();
+                games.submit(() -> {
+                    try {
+                        BotGame game = new BotGame(options, clients.get(index % clientCount), metrics, index);
+                        (game.play() ? finished : failed).incrementAndGet();
+                    } catch (Exception e) {
+                        failed.incrementAndGet();
+                        System.err.println("Game " + index + " failed: " + e);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        }
+        progress.interrupt();
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        report(metrics, finished.get(), failed.get(), seconds);
+    }
+
+    private static void report(LoadMetrics metrics, int finished, int failed, double seconds) {
+        System.out.println();
+        System.out.printf("%-52s %9s %7s %9s %9s %9s%n", "latency", "count", "errors", "p50 ms", "p99 ms", "max ms");
+        metrics.latencies().forEach((name, stats) ->
+            System.out.printf("%-52s %9d %7d %9.2f %9.2f %9.2f%n", name, stats.count(), stats.errors(),
+                              stats.percentileMillis(0.50), stats.percentileMillis(0.99), stats.maxMillis()));
+
+        System.out.println();
+        metrics.counters().forEach((name, count) -> System.out.printf("%-52s %9d%n", name, count));
+
+        System.out.println();
+        System.out.printf("Games finished: %d, failed: %d in %.1fs (%.1f games/s)%n",
+                          finished, failed, seconds, finished / seconds);
+    }
+}
@@ -0,0 +1,37 @@
+package com.victadore.webmafia.mafia_web_of_lies.loadtest;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Named latency histograms and counters shared by all bots
+ */
+class LoadMetrics {
+    private final Map<String, LatencyStats> latencies = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+    LatencyStats latency(String name) {
+        return latencies.computeIfAbsent(name, n -> new LatencyStats());
+    }
+
+    void increment(String counter) {
+        counters.computeIfAbsent(counter, n -> new LongAdder()).increment();
+    }
+
+    long count(String counter) {
+        LongAdder adder = counters.get(counter);
+        return adder != null ? adder.sum() : 0;
+    }
+
+    Map<String, LatencyStats> latencies() {
+        return new TreeMap<>(latencies);
+    }
+
+    Map<String, Long> counters() {
+        Map<String, Long> snapshot = new TreeMap<>();
+        counters.forEach((name, adder) -> snapshot.put(name, adder.sum()));
+        return snapshot;
+    }
+}
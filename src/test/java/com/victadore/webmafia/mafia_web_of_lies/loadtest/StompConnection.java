@@ -0,0 +1,140 @@
+package com.victadore.webmafia.mafia_web_of_lies.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Minimal STOMP 1.2 client over the JDK WebSocket, talking to the raw-WebSocket transport of the
+ * SockJS endpoint ({@code /ws/websocket}). Just enough for bots: CONNECT, SUBSCRIBE, SEND and MESSAGE.
+ */
+class StompConnection implements WebSocket.Listener {
+
+    /**
+     * A received STOMP frame
+     */
+    record Frame(String command, Map<String, String> headers, String body) {
+        String header(String name) {
+            return headers.get(name);
+        }
+    }
+
+    private final Map<String, Consumer<Frame>> subscriptions = new ConcurrentHashMap<>();
+    private final AtomicInteger nextSubscriptionId = new AtomicInteger();
+    private final CompletableFuture<Void> connected = new CompletableFuture<>();
+    private final StringBuilder partial = new StringBuilder();
+    // The JDK WebSocket allows one outstanding send at a time
+    private final ReentrantLock sendLock = new ReentrantLock();
+    private WebSocket webSocket;
+
+    static StompConnection open(HttpClient httpClient, URI uri, long timeoutMillis) throws Exception {
+        StompConnection connection = new StompConnection();
+        connection.webSocket = httpClient.newWebSocketBuilder()
+            .buildAsync(uri, connection)
+            .get(timeoutMillis, TimeUnit.MILLISECONDS);
+        connection.sendFrame("CONNECT\naccept-version:1.2\nhost:" + uri.getHost() + "\nheart-beat:0,0\n\n");
+        connection.connected.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        return connection;
+    }
+
+    String subscribe(String destination, Consumer<Frame> handler) {
+        String id = "sub-" + nextSubscriptionId.getAndIncrement();
+        subscriptions.put(id, handler);
+        sendFrame("SUBSCRIBE\nid:" + id + "\ndestination:" + destination + "\n\n");
+        return id;
+    }
+
+    void unsubscribe(String id) {
+        subscriptions.remove(id);
+        sendFrame("UNSUBSCRIBE\nid:" + id + "\n\n");
+    }
+
+    void send(String destination, String jsonBody) {
+        sendFrame("SEND\ndestination:" + destination + "\ncontent-type:application/json\n\n" + jsonBody);
+    }
+
+    void close() {
+        if (webSocket != null && !webSocket.isOutputClosed()) {
+            try {
+                sendFrame("DISCONNECT\n\n");
+            } catch (RuntimeException ignored) {
+                // closing anyway
+            }
+            webSocket.abort();
+        }
+    }
+
+    private void sendFrame(String frame) {
+        sendLock.lock();
+        try {
+            webSocket.sendText(frame + "\0", true).join();
+        } finally {
+            sendLock.unlock();
+        }
+    }
+
+    @Override
+    public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+        partial.append(data);
+        if (last) {
+            String text = partial.toString();
+            partial.setLength(0);
+            for (String raw : text.split("\0")) {
+                if (!raw.isBlank()) {
+                    dispatch(parse(raw));
+                }
+            }
+        }
+        webSocket.request(1);
+        return null;
+    }
+
+    @Override
+    public void onError(WebSocket webSocket, Throwable error) {
+        connected.completeExceptionally(error);
+    }
+
+    private void dispatch(Frame frame) {
+        switch (frame.command()) {
+            case "CONNECTED" -> connected.complete(null);
+            case "MESSAGE" -> {
+                Consumer<Frame> handler = subscriptions.get(frame.header("subscription"));
+                if (handler != null) {
+                    handler.accept(frame);
+                }
+            }
+            case "ERROR" -> connected.completeExceptionally(new IllegalStateException("STOMP error: " + frame.header("message")));
+            default -> { }
+        }
+    }
+
+    private static Frame parse(String raw) {
+        // Skip heart-beat newlines in front of the command
+        int start = 0;
+        while (start < raw.length() && (raw.charAt(start) == '\n' || raw.charAt(start) == '\r')) {
+            start++;
+        }
+        int headerEnd = raw.indexOf("\n\n", start);
+        String head = headerEnd < 0 ? raw.substring(start) : raw.substring(start, headerEnd);
+        String body = headerEnd < 0 ? "" : raw.substring(headerEnd + 2);
+
+        String[] lines = head.split("\n");
+        Map<String, String> headers = new LinkedHashMap<>();
+        for (int i = 1; i < lines.length; i++) {
+            int colon = lines[i].indexOf(':');
+            if (colon > 0) {
+                headers.putIfAbsent(lines[i].substring(0, colon), lines[i].substring(colon + 1));
+            }
+        }
+        return new Frame(lines[0].trim(), headers, body);
+    }
+}
@@ -0,0 +1,133 @@
+package com.victadore.webmafia.mafia_web_of_lies.service;
+
+import com.victadore.webmafia.mafia_web_of_lies.exception.RateLimitExceededException;
+import com.victadore.webmafia.mafia_web_of_lies.service.ActionRateLimiter.Action;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Burst, refill and bucket-cap arithmetic of the token buckets, with budgets set through properties
+ * and the live roster mocked
+ */
+class ActionRateLimiterTest {
+
+    @Test
+    void allowsBurstThenRefusesUntilOneInterval() {
+        // One token a minute, so nothing refills while the test runs
+        ActionRateLimiter limiter = limiter(new MockEnvironment()
+            .withProperty("mafia.rate-limit.vote.burst", "3")
+            .withProperty("mafia.rate-limit.vote.per-minute", "1"));
+
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire(Action.VOTE, "GAME1", "alice");
+        }
+        RateLimitExceededException refused = assertThrows(RateLimitExceededException.class,
+            () -> limiter.acquire(Action.VOTE, "GAME1", "alice"));
+
+        assertTrue(refused.getRetryAfterMillis() > 59_000 && refused.getRetryAfterMillis() <= 60_001,
+            "retry after " + refused.getRetryAfterMillis());
+        assertEquals(1, limiter.rejectedCount(Action.VOTE));
+    }
+
+    @Test
+    void bucketsAreSeparatePerGamePlayerAndAction() {
+        ActionRateLimiter limiter = limiter(new MockEnvironment()
+            .withProperty("mafia.rate-limit.vote.burst", "1")
+            .withProperty("mafia.rate-limit.vote.per-minute", "1")
+            .withProperty("mafia.rate-limit.chat.burst", "1")
+            .withProperty("mafia.rate-limit.chat.per-minute", "1"));
+
+        limiter.acquire(Action.VOTE, "GAME1", "alice");
+        limiter.acquire(Action.VOTE, "GAME1", "bob");
+        limiter.acquire(Action.VOTE, "GAME2", "alice");
+        limiter.acquire(Action.CHAT, "GAME1", "alice");
+        assertThrows(RateLimitExceededException.class, () -> limiter.acquire(Action.VOTE, "GAME1", "alice"));
+
+        assertEquals(4, limiter.bucketCount());
+        assertEquals(1, limiter.rejectedCount(Action.VOTE));
+        assertEquals(0, limiter.rejectedCount(Action.CHAT));
+    }
+
+    @Test
+    void refillsOneTokenPerInterval() throws InterruptedException {
+        // A token every 100 ms
+        ActionRateLimiter limiter = limiter(new MockEnvironment()
+            .withProperty("mafia.rate-limit.chat.burst", "2")
+            .withProperty("mafia.rate-limit.chat.per-minute", "600"));
+
+        limiter.acquire(Action.CHAT, "GAME1", "alice");
+        limiter.acquire(Action.CHAT, "GAME1", "alice");
+        RateLimitExceededException refused = assertThrows(RateLimitExceededException.class,
+            () -> limiter.acquire(Action.CHAT, "GAME1", "alice"));
+        assertTrue(refused.getRetryAfterMillis() <= 101, "retry after " + refused.getRetryAfterMillis());
+
+        // Waiting out Retry-After is enough for exactly one more message
+        Thread.sleep(refused.getRetryAfterMillis());
+        limiter.acquire(Action.CHAT, "GAME1", "alice");
+    }
+
+    @Test
+    void sweepDropsOnlyRefilledBuckets() throws InterruptedException {
+        ActionRateLimiter limiter = limiter(new MockEnvironment()
+            .withProperty("mafia.rate-limit.chat.burst", "2")
+            .withProperty("mafia.rate-limit.chat.per-minute", "600")
+            .withProperty("mafia.rate-limit.vote.per-minute", "1"));
+
+        limiter.acquire(Action.CHAT, "GAME1", "alice");
+        limiter.acquire(Action.VOTE, "GAME1", "alice");
+        Thread.sleep(150);
+        limiter.evictFullBuckets();
+
+        assertEquals(1, limiter.bucketCount());
+    }
+
+    @Test
+    void refusesNewBucketsAtTheCap() throws InterruptedException {
+        ActionRateLimiter limiter = limiter(new MockEnvironment()
+            .withProperty("mafia.rate-limit.max-buckets", "2")
+            .withProperty("mafia.rate-limit.chat.per-minute", "600"));
+
+        limiter.acquire(Action.CHAT, "GAME1", "alice");
+        limiter.acquire(Action.CHAT, "GAME1", "bob");
+        RateLimitExceededException refused = assertThrows(RateLimitExceededException.class,
+            () -> limiter.acquire(Action.CHAT, "GAME1", "carol"));
+        assertEquals(1000, refused.getRetryAfterMillis());
+
+        // Players who already have a bucket are unaffected
+        limiter.acquire(Action.CHAT, "GAME1", "alice");
+        assertEquals(2, limiter.bucketCount());
+
+        // Once the buckets refill, the sweep makes room again
+        Thread.sleep(250);
+        limiter.evictFullBuckets();
+        limiter.acquire(Action.CHAT, "GAME1", "carol");
+        assertEquals(1, limiter.bucketCount());
+    }
+
+    @Test
+    void seatedPlayersAreNotLockedOutByTheCap() {
+        LiveGameStore liveGameStore = mock(LiveGameStore.class);
+        when(liveGameStore.isSeated("GAME1", "alice")).thenReturn(true);
+        ActionRateLimiter limiter = new ActionRateLimiter(new MockEnvironment()
+            .withProperty("mafia.rate-limit.max-buckets", "1"), liveGameStore);
+
+        // Made-up names fill the pool for unseated callers
+        limiter.acquire(Action.CHAT, "NOGAME", "mallory");
+        assertThrows(RateLimitExceededException.class, () -> limiter.acquire(Action.CHAT, "NOGAME", "trudy"));
+
+        // A player seated in a live game still gets a bucket
+        limiter.acquire(Action.CHAT, "GAME1", "alice");
+        assertEquals(2, limiter.bucketCount());
+    }
+
+    private static ActionRateLimiter limiter(MockEnvironment environment) {
+        // Nobody is seated, so every bucket counts against the cap
+        return new ActionRateLimiter(environment, mock(LiveGameStore.class));
+    }
+}
@@ -0,0 +1,286 @@
+package com.victadore.webmafia.mafia_web_of_lies.service;
+
+import com.victadore.webmafia.mafia_web_of_lies.model.ActionHistory;
+import com.victadore.webmafia.mafia_web_of_lies.model.ChatMessage;
+import com.victadore.webmafia.mafia_web_of_lies.model.Game;
+import com.victadore.webmafia.mafia_web_of_lies.model.GameState;
+import com.victadore.webmafia.mafia_web_of_lies.model.Player;
+import com.victadore.webmafia.mafia_web_of_lies.model.Role;
+import com.victadore.webmafia.mafia_web_of_lies.repository.ActionHistoryRepository;
+import com.victadore.webmafia.mafia_web_of_lies.repository.ChatMessageRepository;
+import com.victadore.webmafia.mafia_web_of_lies.repository.GameRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Archives a game through archiveFinishedGames against mocked repositories and reads it back
+ */
+class GameArchiveTest {
+    private static final long GAME_ID = 1234;
+    private static final String GAME_CODE = "ARC123";
+    private static final LocalDateTime START = LocalDateTime.of(2024, 5, 1, 20, 15, 30, 123_456_789);
+
+    @TempDir
+    Path directory;
+
+    private final GameRepository gameRepository = mock(GameRepository.class);
+    private final ActionHistoryRepository actionHistoryRepository = mock(ActionHistoryRepository.class);
+    private final ChatMessageRepository chatMessageRepository = mock(ChatMessageRepository.class);
+    private GameArchive archive;
+    private Game game;
+
+    @BeforeEach
+    void setUp() {
+        archive = new GameArchive(gameRepository, actionHistoryRepository, chatMessageRepository,
+            mock(ActionHistoryJournal.class), mock(ChatMessageJournal.class), mock(PlatformTransactionManager.class),
+            directory.toString(), 0, 100);
+
+        game = new Game();
+        game.setId(GAME_ID);
+        game.setGameCode(GAME_CODE);
+        game.setPlayers(new ArrayList<>(List.of(
+            player(1, "alice", Role.MAFIA, false, false),
+            player(2, "bob", Role.DETECTIVE, true, false),
+            player(3, "carol", Role.CITIZEN, true, true))));
+    }
+
+    @Test
+    void roundTripsActionsChatAndPlayers() {
+        String huge = "x".repeat(70_000) + "é世🎲";
+        List<ActionHistory> actions = List.of(
+            action(10, "GAME_START", "SYSTEM", null, null, null, null, null, null),
+            action(11, "VOTE", "alice", "bob", "Voted", "ok", true, false, 2),
+            action(12, "KILL", "alice", "carol", huge, "ümläut", false, null, null),
+            action(13, "NOTE", "bob", "", "", huge, null, true, 0));
+        List<ChatMessage> chat = List.of(
+            message(20, "alice", "hello", ChatMessage.ChatType.PUBLIC, null),
+            message(21, "alice", huge, ChatMessage.ChatType.PRIVATE, "MAFIA"),
+            message(22, "bob", "", ChatMessage.ChatType.PUBLIC, ""));
+        archive(actions, chat);
+
+        assertTrue(archive.isArchived(GAME_ID));
+        assertEquals(fields(actions), fields(archive.actions(game).orElseThrow()));
+        assertEquals(messageFields(chat), messageFields(archive.chat(GAME_ID, GAME_CODE).orElseThrow()));
+        assertEquals(playerFields(game.getPlayers()), playerFields(archive.players(game).orElseThrow()));
+
+        verify(actionHistoryRepository).deleteAllByGameIdInBulk(GAME_ID);
+        verify(chatMessageRepository).deleteAllByGameCodeInBulk(GAME_CODE);
+        verify(gameRepository).markArchived(eq(GAME_ID), any());
+    }
+
+    @Test
+    void emptyGameRoundTrips() {
+        game.setPlayers(new ArrayList<>());
+        archive(List.of(), List.of());
+
+        assertEquals(List.of(), archive.actions(game).orElseThrow());
+        assertEquals(List.of(), archive.chat(GAME_ID, GAME_CODE).orElseThrow());
+        assertEquals(List.of(), archive.players(game).orElseThrow());
+    }
+
+    @Test
+    void gamesWithoutArchiveReadAsEmpty() {
+        assertFalse(archive.isArchived(GAME_ID));
+        assertTrue(archive.actions(game).isEmpty());
+        assertTrue(archive.chat(GAME_ID, GAME_CODE).isEmpty());
+    }
+
+    @Test
+    void readsVersionOneFiles() throws IOException {
+        List<ActionHistory> actions = List.of(
+            action(10, "VOTE", "alice", "bob", "Voted", null, true, false, 2),
+            action(11, "GAME_START", "SYSTEM", null, null, "ok", null, null, null));
+        List<ChatMessage> chat = List.of(message(20, "alice", "hello", ChatMessage.ChatType.PRIVATE, "MAFIA"));
+        writeVersionOne(actions, chat, game.getPlayers());
+
+        assertEquals(fields(actions), fields(archive.actions(game).orElseThrow()));
+        assertEquals(messageFields(chat), messageFields(archive.chat(GAME_ID, GAME_CODE).orElseThrow()));
+        assertEquals(playerFields(game.getPlayers()), playerFields(archive.players(game).orElseThrow()));
+    }
+
+    private void archive(List<ActionHistory> actions, List<ChatMessage> chat) {
+        when(gameRepository.findArchivableGameIds(eq(GameState.FINISHED), any(), eq(0L), any()))
+            .thenReturn(List.of(GAME_ID));
+        when(gameRepository.findWithPlayersByIdIn(List.of(GAME_ID))).thenReturn(List.of(game));
+        when(actionHistoryRepository.findByGameIdInOrderByGameIdAscTimestampAscIdAsc(List.of(GAME_ID)))
+            .thenReturn(actions);
+        when(chatMessageRepository.findAllMessagesByGameCode(GAME_CODE)).thenReturn(chat);
+
+        assertEquals(1, archive.archiveFinishedGames());
+    }
+
+    // The layout GameArchive wrote before strings were length-prefixed
+    private void writeVersionOne(List<ActionHistory> actions, List<ChatMessage> chat, List<Player> players) throws IOException {
+        byte[][] sections = {
+            gzip(out -> {
+                for (ActionHistory action : actions) {
+                    out.writeLong(action.getId());
+                    out.writeUTF(action.getActionType());
+                    out.writeUTF(action.getActorUsername());
+                    writeOptional(out, action.getTargetUsername());
+                    out.writeInt(action.getGameDay());
+                    out.writeInt(action.getGamePhase());
+                    writeTime(out, action.getTimestamp());
+                    writeOptional(out, action.getActionDetails());
+                    writeOptional(out, action.getResult());
+                    out.writeByte(action.getSuccessful() == null ? -1 : action.getSuccessful() ? 1 : 0);
+                    out.writeByte(action.getIsSkipVote() == null ? -1 : action.getIsSkipVote() ? 1 : 0);
+                    out.writeBoolean(action.getVoteCount() != null);
+                    if (action.getVoteCount() != null) {
+                        out.writeInt(action.getVoteCount());
+                    }
+                    writeOptional(out, action.getAdditionalData());
+                }
+            }),
+            gzip(out -> {
+                for (ChatMessage message : chat) {
+                    out.writeLong(message.getId());
+                    out.writeUTF(message.getSenderUsername());
+                    out.writeUTF(message.getMessage());
+                    writeTime(out, message.getTimestamp());
+                    out.writeInt(message.getDay());
+                    out.writeInt(message.getPhase());
+                    out.writeUTF(message.getChatType().name());
+                    writeOptional(out, message.getTargetRole());
+                }
+            }),
+            gzip(out -> {
+                for (Player player : players) {
+                    out.writeLong(player.getId());
+                    out.writeUTF(player.getUsername());
+                    out.writeUTF(player.getRole().name());
+                    out.writeBoolean(player.isAlive());
+                    out.writeBoolean(player.isInvestigated());
+                }
+            })
+        };
+        int[] counts = {actions.size(), chat.size(), players.size()};
+
+        ByteBuffer header = ByteBuffer.allocate(8 + 3 * 16);
+        header.putInt(0x4D414641).putShort((short) 1).putShort((short) 3);
+        long offset = header.capacity();
+        for (int section = 0; section < 3; section++) {
+            header.putLong(offset).putInt(sections[section].length).putInt(counts[section]);
+            offset += sections[section].length;
+        }
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        file.write(header.array());
+        for (byte[] section : sections) {
+            file.write(section);
+        }
+
+        Path path = directory.resolve(String.valueOf(GAME_ID / 1000)).resolve(GAME_ID + ".mafa");
+        Files.createDirectories(path.getParent());
+        Files.write(path, file.toByteArray());
+    }
+
+    private interface Section {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private static byte[] gzip(Section section) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(bytes))) {
+            section.write(out);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeOptional(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static void writeTime(DataOutputStream out, LocalDateTime time) throws IOException {
+        out.writeLong(time.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(time.getNano());
+    }
+
+    private Player player(long id, String username, Role role, boolean alive, boolean investigated) {
+        Player player = new Player();
+        player.setId(id);
+        player.setUsername(username);
+        player.setRole(role);
+        player.setAlive(alive);
+        player.setInvestigated(investigated);
+        player.setGame(game);
+        return player;
+    }
+
+    private static ActionHistory action(long id, String type, String actor, String target, String details,
+                                        String result, Boolean successful, Boolean skipVote, Integer voteCount) {
+        ActionHistory action = new ActionHistory();
+        action.setId(id);
+        action.setActionType(type);
+        action.setActorUsername(actor);
+        action.setTargetUsername(target);
+        action.setGameDay((int) id % 3 + 1);
+        action.setGamePhase((int) id % 2);
+        action.setTimestamp(START.plusSeconds(id));
+        action.setActionDetails(details);
+        action.setResult(result);
+        action.setSuccessful(successful);
+        action.setIsSkipVote(skipVote);
+        action.setVoteCount(voteCount);
+        action.setAdditionalData(id % 2 == 0 ? "{\"n\":" + id + "}" : null);
+        return action;
+    }
+
+    private static ChatMessage message(long id, String sender, String text, ChatMessage.ChatType type, String targetRole) {
+        ChatMessage message = new ChatMessage();
+        message.setId(id);
+        message.setGameCode(GAME_CODE);
+        message.setSenderUsername(sender);
+        message.setMessage(text);
+        message.setTimestamp(START.plusNanos(id));
+        message.setDay(2);
+        message.setPhase((int) id % 2);
+        message.setChatType(type);
+        message.setTargetRole(targetRole);
+        return message;
+    }
+
+    private static List<List<Object>> fields(List<ActionHistory> actions) {
+        return actions.stream().map(action -> Arrays.<Object>asList(action.getId(), action.getActionType(),
+            action.getActorUsername(), action.getTargetUsername(), action.getGameDay(), action.getGamePhase(),
+            action.getTimestamp(), action.getActionDetails(), action.getResult(), action.getSuccessful(),
+            action.getIsSkipVote(), action.getVoteCount(), action.getAdditionalData())).toList();
+    }
+
+    private static List<List<Object>> messageFields(List<ChatMessage> messages) {
+        return messages.stream().map(message -> Arrays.<Object>asList(message.getId(), message.getGameCode(),
+            message.getSenderUsername(), message.getMessage(), message.getTimestamp(), message.getDay(),
+            message.getPhase(), message.getChatType(), message.getTargetRole())).toList();
+    }
+
+    private static List<List<Object>> playerFields(List<Player> players) {
+        return players.stream().map(player -> Arrays.<Object>asList(player.getId(), player.getUsername(),
+            player.getRole(), player.isAlive(), player.isInvestigated())).toList();
+    }
+}
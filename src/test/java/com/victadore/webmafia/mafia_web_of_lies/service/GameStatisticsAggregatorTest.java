@@ -0,0 +1,212 @@
+package com.victadore.webmafia.mafia_web_of_lies.service;
+
+import com.victadore.webmafia.mafia_web_of_lies.model.ActionHistory;
+import com.victadore.webmafia.mafia_web_of_lies.model.Player;
+import com.victadore.webmafia.mafia_web_of_lies.model.PlayerStatistics;
+import com.victadore.webmafia.mafia_web_of_lies.model.Role;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The one-pass fold checked against the per-player computation it replaced, which filtered the
+ * game's history by actor or target once per counter and achievement check
+ */
+class GameStatisticsAggregatorTest {
+    private static final String[] TYPES = {
+        "VOTE", "VOTE", "VOTE", "SKIP_VOTE", "INVESTIGATE", "SAVE", "KILL", "ELIMINATE", "MAFIA_KILL",
+        "GAME_START", "PHASE_CHANGE"
+    };
+    private static final String[] DETAILS = {
+        null, "Eliminated by voting", "Killed by the Mafia", "Left the game"
+    };
+    private static final Role[] ROLES = Role.values();
+
+    @Test
+    void matchesPerPlayerComputation() {
+        for (long seed = 1; seed <= 200; seed++) {
+            Random random = new Random(seed);
+            List<Player> players = players(random, 3 + random.nextInt(12));
+            List<ActionHistory> history = history(random, players, random.nextInt(120));
+            GameStatisticsAggregator aggregator = GameStatisticsAggregator.fold(players, history);
+
+            for (int seat = 0; seat < players.size(); seat++) {
+                Player player = players.get(seat);
+                PlayerStatistics actual = new PlayerStatistics();
+                aggregator.applyActionStats(actual, seat);
+                aggregator.applyEliminationStats(actual, seat);
+
+                String message = player.getUsername() + ", seed " + seed;
+                assertEquals(counters(expected(player, players, history)), counters(actual), message);
+                assertEquals(playedRoleWell(player, players, history), aggregator.playedRoleWell(seat), message);
+            }
+        }
+    }
+
+    @Test
+    void onlyTheFirstEliminationCounts() {
+        List<Player> players = List.of(player("alice", Role.CITIZEN), player("bob", Role.MAFIA));
+        List<ActionHistory> history = List.of(
+            action("MAFIA_KILL", null, "alice", "Killed by the Mafia", true),
+            action("ELIMINATE", null, "alice", "Eliminated by voting", true));
+
+        PlayerStatistics stats = new PlayerStatistics();
+        GameStatisticsAggregator.fold(players, history).applyEliminationStats(stats, 0);
+
+        assertEquals(1, stats.getTimesEliminatedByMafia());
+        assertEquals(0, stats.getTimesEliminatedByVoting());
+    }
+
+    // The per-player statistics as updateActionBasedStats and updateEliminationStats computed them
+    private static PlayerStatistics expected(Player player, List<Player> players, List<ActionHistory> history) {
+        PlayerStatistics stats = new PlayerStatistics();
+        for (ActionHistory action : history) {
+            if (!player.getUsername().equals(action.getTargetUsername())) {
+                continue;
+            }
+            if ("ELIMINATE".equals(action.getActionType()) || "MAFIA_KILL".equals(action.getActionType())) {
+                if (action.getActionDetails() != null && action.getActionDetails().contains("voting")) {
+                    stats.setTimesEliminatedByVoting(stats.getTimesEliminatedByVoting() + 1);
+                } else if (action.getActionDetails() != null && action.getActionDetails().contains("Mafia")) {
+                    stats.setTimesEliminatedByMafia(stats.getTimesEliminatedByMafia() + 1);
+                }
+                break;
+            }
+        }
+
+        for (ActionHistory action : byActor(player, history)) {
+            switch (action.getActionType()) {
+                case "VOTE":
+                    stats.setTotalVotesCast(stats.getTotalVotesCast() + 1);
+                    if (targetsMafia(action, players)) {
+                        stats.setCorrectMafiaVotes(stats.getCorrectMafiaVotes() + 1);
+                    }
+                    break;
+                case "SKIP_VOTE":
+                    stats.setSkipVotes(stats.getSkipVotes() + 1);
+                    break;
+                case "INVESTIGATE":
+                    stats.setInvestigationsPerformed(stats.getInvestigationsPerformed() + 1);
+                    stats.setNightActionsPerformed(stats.getNightActionsPerformed() + 1);
+                    if (action.getSuccessful()) {
+                        stats.setSuccessfulNightActions(stats.getSuccessfulNightActions() + 1);
+                        if (targetsMafia(action, players)) {
+                            stats.setMafiaFound(stats.getMafiaFound() + 1);
+                        }
+                    }
+                    break;
+                case "SAVE":
+                    stats.setSavesAttempted(stats.getSavesAttempted() + 1);
+                    stats.setNightActionsPerformed(stats.getNightActionsPerformed() + 1);
+                    if (action.getSuccessful()) {
+                        stats.setSuccessfulNightActions(stats.getSuccessfulNightActions() + 1);
+                        stats.setSuccessfulSaves(stats.getSuccessfulSaves() + 1);
+                    }
+                    break;
+                case "KILL":
+                    stats.setMafiaKillsAttempted(stats.getMafiaKillsAttempted() + 1);
+                    stats.setNightActionsPerformed(stats.getNightActionsPerformed() + 1);
+                    if (action.getSuccessful()) {
+                        stats.setSuccessfulNightActions(stats.getSuccessfulNightActions() + 1);
+                        stats.setSuccessfulMafiaKills(stats.getSuccessfulMafiaKills() + 1);
+                    }
+                    break;
+            }
+        }
+        return stats;
+    }
+
+    // The role checks isPlayerMVP and the perfect-game switch made
+    private static boolean playedRoleWell(Player player, List<Player> players, List<ActionHistory> history) {
+        switch (player.getRole()) {
+            case DETECTIVE:
+                return byActor(player, history).stream()
+                    .filter(action -> "INVESTIGATE".equals(action.getActionType()))
+                    .anyMatch(action -> targetsMafia(action, players));
+            case DOCTOR:
+                return byActor(player, history).stream()
+                    .filter(action -> "SAVE".equals(action.getActionType()))
+                    .anyMatch(ActionHistory::getSuccessful);
+            case MAFIA:
+                return history.stream()
+                    .filter(action -> player.getUsername().equals(action.getTargetUsername()))
+                    .noneMatch(action -> "VOTE".equals(action.getActionType()));
+            case CITIZEN:
+                return byActor(player, history).stream()
+                    .filter(action -> "VOTE".equals(action.getActionType()))
+                    .anyMatch(action -> targetsMafia(action, players));
+            default:
+                return false;
+        }
+    }
+
+    private static List<ActionHistory> byActor(Player player, List<ActionHistory> history) {
+        return history.stream().filter(action -> player.getUsername().equals(action.getActorUsername())).toList();
+    }
+
+    private static boolean targetsMafia(ActionHistory action, List<Player> players) {
+        if (action.getTargetUsername() == null) return false;
+        return players.stream()
+            .filter(p -> p.getUsername().equals(action.getTargetUsername()))
+            .findFirst()
+            .map(p -> p.getRole() == Role.MAFIA)
+            .orElse(false);
+    }
+
+    private static List<Integer> counters(PlayerStatistics stats) {
+        return List.of(stats.getTotalVotesCast(), stats.getCorrectMafiaVotes(), stats.getSkipVotes(),
+            stats.getNightActionsPerformed(), stats.getSuccessfulNightActions(), stats.getInvestigationsPerformed(),
+            stats.getMafiaFound(), stats.getSavesAttempted(), stats.getSuccessfulSaves(),
+            stats.getMafiaKillsAttempted(), stats.getSuccessfulMafiaKills(), stats.getTimesEliminatedByVoting(),
+            stats.getTimesEliminatedByMafia());
+    }
+
+    private static List<Player> players(Random random, int count) {
+        List<Player> players = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            players.add(player("player" + i, ROLES[random.nextInt(ROLES.length)]));
+        }
+        return players;
+    }
+
+    // Actors and targets are mostly players of the game, sometimes strangers, SYSTEM or nobody
+    private static List<ActionHistory> history(Random random, List<Player> players, int length) {
+        List<ActionHistory> history = new ArrayList<>();
+        for (int i = 0; i < length; i++) {
+            history.add(action(TYPES[random.nextInt(TYPES.length)], username(random, players),
+                username(random, players), DETAILS[random.nextInt(DETAILS.length)], random.nextBoolean()));
+        }
+        return history;
+    }
+
+    private static String username(Random random, List<Player> players) {
+        int pick = random.nextInt(players.size() + 3);
+        if (pick < players.size()) {
+            return players.get(pick).getUsername();
+        }
+        return pick == players.size() ? null : pick == players.size() + 1 ? "SYSTEM" : "stranger";
+    }
+
+    private static Player player(String username, Role role) {
+        Player player = new Player();
+        player.setUsername(username);
+        player.setRole(role);
+        return player;
+    }
+
+    private static ActionHistory action(String type, String actor, String target, String details, boolean successful) {
+        ActionHistory action = new ActionHistory();
+        action.setActionType(type);
+        action.setActorUsername(actor);
+        action.setTargetUsername(target);
+        action.setActionDetails(details);
+        action.setSuccessful(successful);
+        action.setTimestamp(LocalDateTime.of(2024, 1, 1, 0, 0));
+        return action;
+    }
+}
@@ -0,0 +1,80 @@
+package com.victadore.webmafia.mafia_web_of_lies.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Random inserts and removes checked against a TreeSet after every step
+ */
+class RankedSkipListTest {
+    private static final Comparator<Integer> DESCENDING = Comparator.reverseOrder();
+
+    @Test
+    void matchesTreeSetUnderRandomOperations() {
+        for (long seed = 1; seed <= 20; seed++) {
+            Random random = new Random(seed);
+            RankedSkipList<Integer> list = new RankedSkipList<>(DESCENDING);
+            TreeSet<Integer> expected = new TreeSet<>(DESCENDING);
+
+            for (int step = 0; step < 2000; step++) {
+                int value = random.nextInt(500);
+                if (random.nextInt(3) == 0) {
+                    assertEquals(expected.remove(value), list.remove(value), "remove " + value + ", seed " + seed);
+                } else if (expected.add(value)) {
+                    list.insert(value);
+                }
+
+                assertEquals(expected.size(), list.size(), "seed " + seed);
+                int probe = random.nextInt(500);
+                assertEquals(expectedRank(expected, probe), list.rank(probe), "rank of " + probe + ", seed " + seed);
+                int offset = random.nextInt(expected.size() + 2);
+                int count = random.nextInt(20);
+                assertEquals(expectedRange(expected, offset, count), list.range(offset, count),
+                    "range(" + offset + ", " + count + "), seed " + seed);
+            }
+            assertEquals(new ArrayList<>(expected), list.range(0, expected.size() + 1), "full walk, seed " + seed);
+        }
+    }
+
+    @Test
+    void everyElementHasItsPosition() {
+        RankedSkipList<Integer> list = new RankedSkipList<>(DESCENDING);
+        for (int i = 0; i < 1000; i++) {
+            list.insert(i);
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(1000 - i, list.rank(i));
+            assertEquals(List.of(999 - i), list.range(i, 1));
+        }
+    }
+
+    @Test
+    void emptyAndOutOfRange() {
+        RankedSkipList<Integer> list = new RankedSkipList<>(DESCENDING);
+        assertEquals(0, list.rank(1));
+        assertTrue(list.range(0, 10).isEmpty());
+        assertFalse(list.remove(1));
+
+        list.insert(1);
+        assertTrue(list.range(-1, 10).isEmpty());
+        assertTrue(list.range(1, 10).isEmpty());
+        assertTrue(list.range(0, 0).isEmpty());
+    }
+
+    private static int expectedRank(TreeSet<Integer> set, int value) {
+        return set.contains(value) ? set.headSet(value).size() + 1 : 0;
+    }
+
+    private static List<Integer> expectedRange(TreeSet<Integer> set, int offset, int count) {
+        return set.stream().skip(offset).limit(count).toList();
+    }
+}
@@ -0,0 +1,124 @@
+package com.victadore.webmafia.mafia_web_of_lies.service;
+
+import com.victadore.webmafia.mafia_web_of_lies.model.PlayerStatistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Index searches checked against a brute-force scan of the same usernames
+ */
+class UsernameSearchIndexTest {
+    private static final String ALPHABET = "abcABC_-12";
+
+    private final Random random = new Random(42);
+    private final Map<String, Integer> players = new LinkedHashMap<>();
+    private UsernameSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new UsernameSearchIndex(null);
+        while (players.size() < 2000) {
+            players.put(randomString(2 + random.nextInt(7)), random.nextInt(20));
+        }
+        index.update(statistics(players));
+
+        // Changed totals for players already in the index
+        Map<String, Integer> changed = new LinkedHashMap<>();
+        for (String username : players.keySet()) {
+            if (random.nextInt(10) == 0) {
+                changed.put(username, random.nextInt(20));
+            }
+        }
+        players.putAll(changed);
+        index.update(statistics(changed));
+    }
+
+    @Test
+    void matchesBruteForceScan() {
+        List<String> usernames = new ArrayList<>(players.keySet());
+        for (int i = 0; i < 3000; i++) {
+            String query;
+            if (random.nextBoolean()) {
+                // A piece of a real username, with its case scrambled
+                String username = usernames.get(random.nextInt(usernames.size()));
+                int start = random.nextInt(username.length());
+                query = scrambleCase(username.substring(start, start + 1 + random.nextInt(username.length() - start)));
+            } else {
+                query = randomString(1 + random.nextInt(5));
+            }
+            boolean prefix = random.nextBoolean();
+            int limit = 1 + random.nextInt(15);
+
+            assertEquals(bruteForce(query, prefix, limit), index.search(query, prefix, limit),
+                "search(\"" + query + "\", " + prefix + ", " + limit + ")");
+        }
+    }
+
+    @Test
+    void ignoresCaseButReturnsStoredNames() {
+        index.update(statistics(Map.of("MixedCase", 1000)));
+
+        assertEquals(List.of("MixedCase"), index.search("mixedcase", false, 1));
+        assertEquals(List.of("MixedCase"), index.search("XEDCA", false, 1));
+        assertEquals(List.of("MixedCase"), index.search("mIx", true, 1));
+    }
+
+    @Test
+    void emptyQueriesFindNothing() {
+        assertTrue(index.search("", false, 10).isEmpty());
+        assertTrue(index.search(null, true, 10).isEmpty());
+        assertTrue(index.search("a", false, 0).isEmpty());
+        assertEquals(players.size(), index.size());
+    }
+
+    private List<String> bruteForce(String query, boolean prefix, int limit) {
+        String needle = query.toLowerCase(Locale.ROOT);
+        return players.entrySet().stream()
+            .filter(entry -> prefix
+                ? entry.getKey().toLowerCase(Locale.ROOT).startsWith(needle)
+                : entry.getKey().toLowerCase(Locale.ROOT).contains(needle))
+            .sorted(Map.Entry.<String, Integer>comparingByValue(Comparator.reverseOrder())
+                .thenComparing(Map.Entry.comparingByKey()))
+            .limit(limit)
+            .map(Map.Entry::getKey)
+            .toList();
+    }
+
+    private static List<PlayerStatistics> statistics(Map<String, Integer> players) {
+        List<PlayerStatistics> statistics = new ArrayList<>();
+        players.forEach((username, totalGames) -> {
+            PlayerStatistics stats = new PlayerStatistics();
+            stats.setUsername(username);
+            stats.setTotalGames(totalGames);
+            statistics.add(stats);
+        });
+        return statistics;
+    }
+
+    private String randomString(int length) {
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            text.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return text.toString();
+    }
+
+    private String scrambleCase(String text) {
+        StringBuilder scrambled = new StringBuilder(text.length());
+        for (char c : text.toCharArray()) {
+            scrambled.append(random.nextBoolean() ? Character.toUpperCase(c) : Character.toLowerCase(c));
+        }
+        return scrambled.toString();
+    }
+}
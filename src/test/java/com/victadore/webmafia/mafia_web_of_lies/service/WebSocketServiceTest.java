@@ -0,0 +1,126 @@
+package com.victadore.webmafia.mafia_web_of_lies.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.victadore.webmafia.mafia_web_of_lies.dto.GameStateMessage;
+import com.victadore.webmafia.mafia_web_of_lies.model.Game;
+import com.victadore.webmafia.mafia_web_of_lies.model.GameState;
+import com.victadore.webmafia.mafia_web_of_lies.model.Player;
+import com.victadore.webmafia.mafia_web_of_lies.model.Role;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Sequence numbers of published game state across idle eviction, purge and the end of a game
+ */
+class WebSocketServiceTest {
+    private static final String TOPIC = "/topic/game/ABC123/state";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<JsonNode> published = new ArrayList<>();
+    private WebSocketService webSocketService;
+    private Game game;
+
+    @BeforeEach
+    void setUp() {
+        SimpMessagingTemplate messagingTemplate = new SimpMessagingTemplate((message, timeout) -> {
+            assertEquals(TOPIC, SimpMessageHeaderAccessor.getDestination(message.getHeaders()));
+            try {
+                published.add(objectMapper.readTree((byte[]) message.getPayload()));
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            return true;
+        });
+        // Idle as soon as a state is not used
+        webSocketService = new WebSocketService(messagingTemplate, objectMapper, 0);
+
+        game = new Game();
+        game.setGameCode("ABC123");
+        game.setGameState(GameState.WAITING_FOR_PLAYERS);
+        game.setTimerEnabled(false);
+        game.setPlayers(new ArrayList<>(List.of(player(1, "alice"))));
+    }
+
+    @Test
+    void publishesDeltasInSequence() {
+        webSocketService.publishGameState(game);
+        long first = lastSequence();
+
+        game.getPlayers().add(player(2, "bob"));
+        webSocketService.publishGameState(game);
+        assertEquals(first + 1, lastSequence());
+        assertEquals("PLAYER_JOINED", published.get(published.size() - 1).at("/changes/0/type").asText());
+
+        // Nothing changed, nothing sent
+        int sent = published.size();
+        webSocketService.publishGameState(game);
+        assertEquals(sent, published.size());
+    }
+
+    @Test
+    void stateRecreatedAfterIdleEvictionMakesClientsResync() throws InterruptedException {
+        webSocketService.publishGameState(game);
+        game.getPlayers().add(player(2, "bob"));
+        webSocketService.publishGameState(game);
+        long clientSequence = lastSequence();
+
+        Thread.sleep(2);
+        webSocketService.evictIdleGames();
+        assertEquals(0, webSocketService.publishedStateCount());
+
+        // A client at clientSequence must see a gap rather than miss this change
+        game.getPlayers().add(player(3, "carol"));
+        webSocketService.publishGameState(game);
+        JsonNode announcement = published.get(published.size() - 1);
+        assertTrue(announcement.get("sequence").asLong() > clientSequence + 1);
+        assertTrue(announcement.get("changes").isEmpty());
+
+        // The resync snapshot lines up with the announced sequence and has the change
+        GameStateMessage snapshot = webSocketService.syncGameState(game);
+        assertEquals(announcement.get("sequence").asLong(), snapshot.getSequence());
+        assertEquals(3, snapshot.getSnapshot().getPlayers().size());
+    }
+
+    @Test
+    void purgedAndFinishedGamesAreForgotten() {
+        webSocketService.publishGameState(game);
+        assertEquals(1, webSocketService.publishedStateCount());
+        webSocketService.evictGame("ABC123");
+        assertEquals(0, webSocketService.publishedStateCount());
+
+        webSocketService.publishGameState(game);
+        game.setGameState(GameState.FINISHED);
+        webSocketService.publishGameState(game);
+        assertEquals("GAME_STATE", published.get(published.size() - 1).at("/changes/0/type").asText());
+        assertEquals(0, webSocketService.publishedStateCount());
+
+        // Syncing a finished game neither tracks it nor sends anything
+        int sent = published.size();
+        webSocketService.syncGameState(game);
+        assertEquals(sent, published.size());
+        assertEquals(0, webSocketService.publishedStateCount());
+    }
+
+    private long lastSequence() {
+        return published.get(published.size() - 1).get("sequence").asLong();
+    }
+
+    private static Player player(long id, String username) {
+        Player player = new Player();
+        player.setId(id);
+        player.setUsername(username);
+        player.setAlive(true);
+        player.setRole(Role.CITIZEN);
+        return player;
+    }
+}